@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+import com.c8db.entity.CollectionEntity;
+import com.c8db.entity.CollectionPropertiesEntity;
+import com.c8db.entity.DocumentCreateEntity;
+import com.c8db.entity.DocumentDeleteEntity;
+import com.c8db.entity.DocumentUpdateEntity;
+import com.c8db.entity.MultiDocumentEntity;
+import com.c8db.model.CollectionCountOptions;
+import com.c8db.model.CollectionCreateOptions;
+import com.c8db.model.CollectionDropOptions;
+import com.c8db.model.CollectionTruncateOptions;
+import com.c8db.model.DocumentCreateOptions;
+import com.c8db.model.DocumentDeleteOptions;
+import com.c8db.model.DocumentExistsOptions;
+import com.c8db.model.DocumentReadOptions;
+import com.c8db.model.DocumentReplaceOptions;
+import com.c8db.model.DocumentUpdateOptions;
+
+/**
+ * Interface for asynchronous operations on C8DB collection level. See {@link C8Collection} for the semantics of the
+ * single operations. Errors are reported by completing the returned future exceptionally with a
+ * {@link C8DBException}.
+ */
+public interface C8CollectionAsync extends C8SerializationAccessor {
+
+    /**
+     * The the handler of the database the collection is within
+     *
+     * @return database handler
+     */
+    C8DatabaseAsync db();
+
+    /**
+     * The name of the collection
+     *
+     * @return collection name
+     */
+    String name();
+
+    /**
+     * Checks whether the collection exists
+     *
+     * @return true if the collection exists, otherwise false
+     */
+    CompletableFuture<Boolean> exists();
+
+    /**
+     * Creates a collection with the name of this handler
+     *
+     * @return information about the collection
+     */
+    CompletableFuture<CollectionEntity> create();
+
+    /**
+     * Creates a collection with the name of this handler
+     *
+     * @param options Additional options, can be null
+     * @return information about the collection
+     */
+    CompletableFuture<CollectionEntity> create(CollectionCreateOptions options);
+
+    /**
+     * Deletes the collection from the database.
+     *
+     * @return void
+     */
+    CompletableFuture<Void> drop();
+
+    /**
+     * Deletes the collection from the database.
+     *
+     * @param options Additional options, can be null
+     * @return void
+     */
+    CompletableFuture<Void> drop(CollectionDropOptions options);
+
+    /**
+     * Returns information about the collection
+     *
+     * @return information about the collection
+     */
+    CompletableFuture<CollectionEntity> getInfo();
+
+    /**
+     * Removes all documents from the collection, but leaves the indexes intact
+     *
+     * @return information about the collection
+     */
+    CompletableFuture<CollectionEntity> truncate();
+
+    /**
+     * Removes all documents from the collection, but leaves the indexes intact
+     *
+     * @param options Additional options, can be null
+     * @return information about the collection
+     */
+    CompletableFuture<CollectionEntity> truncate(CollectionTruncateOptions options);
+
+    /**
+     * Counts the documents in a collection
+     *
+     * @return information about the collection, including the number of documents
+     */
+    CompletableFuture<CollectionPropertiesEntity> count();
+
+    /**
+     * Counts the documents in a collection
+     *
+     * @param options Additional options, can be null
+     * @return information about the collection, including the number of documents
+     */
+    CompletableFuture<CollectionPropertiesEntity> count(CollectionCountOptions options);
+
+    /**
+     * Creates a new document from the given document, unless there is already a document with the _key given.
+     *
+     * @param value A representation of a single document (POJO, VPackSlice or String for JSON)
+     * @return information about the document
+     */
+    <T> CompletableFuture<DocumentCreateEntity<T>> insertDocument(T value);
+
+    /**
+     * Creates a new document from the given document, unless there is already a document with the _key given.
+     *
+     * @param value   A representation of a single document (POJO, VPackSlice or String for JSON)
+     * @param options Additional options, can be null
+     * @return information about the document
+     */
+    <T> CompletableFuture<DocumentCreateEntity<T>> insertDocument(T value, DocumentCreateOptions options);
+
+    /**
+     * Creates new documents from the given documents, unless there is already a document with the _key given.
+     *
+     * @param values A List of documents (POJO, VPackSlice or String for JSON)
+     * @return information about the documents
+     */
+    <T> CompletableFuture<MultiDocumentEntity<DocumentCreateEntity<T>>> insertDocuments(Collection<T> values);
+
+    /**
+     * Creates new documents from the given documents, unless there is already a document with the _key given.
+     *
+     * @param values  A List of documents (POJO, VPackSlice or String for JSON)
+     * @param options Additional options, can be null
+     * @return information about the documents
+     */
+    <T> CompletableFuture<MultiDocumentEntity<DocumentCreateEntity<T>>> insertDocuments(Collection<T> values,
+            DocumentCreateOptions options);
+
+    /**
+     * Retrieves the document with the given {@code key} from the collection.
+     *
+     * @param key  The key of the document
+     * @param type The type of the document (POJO class, VPackSlice or String for JSON)
+     * @return the document identified by the key, or null if it does not exist
+     */
+    <T> CompletableFuture<T> getDocument(String key, Class<T> type);
+
+    /**
+     * Retrieves the document with the given {@code key} from the collection.
+     *
+     * @param key     The key of the document
+     * @param type    The type of the document (POJO class, VPackSlice or String for JSON)
+     * @param options Additional options, can be null
+     * @return the document identified by the key, or null if it does not exist and
+     *         {@link DocumentReadOptions#isCatchException()} is set
+     */
+    <T> CompletableFuture<T> getDocument(String key, Class<T> type, DocumentReadOptions options);
+
+    /**
+     * Retrieves multiple documents with the given {@code _key} from the collection.
+     *
+     * @param keys The keys of the documents
+     * @param type The type of the documents (POJO class, VPackSlice or String for JSON)
+     * @return the documents and possible errors
+     */
+    <T> CompletableFuture<MultiDocumentEntity<T>> getDocuments(Collection<String> keys, Class<T> type);
+
+    /**
+     * Retrieves multiple documents with the given {@code _key} from the collection.
+     *
+     * @param keys    The keys of the documents
+     * @param type    The type of the documents (POJO class, VPackSlice or String for JSON)
+     * @param options Additional options, can be null
+     * @return the documents and possible errors
+     */
+    <T> CompletableFuture<MultiDocumentEntity<T>> getDocuments(Collection<String> keys, Class<T> type,
+            DocumentReadOptions options);
+
+    /**
+     * Replaces the document with {@code key} with the one in the body, provided there is such a document and no
+     * precondition is violated
+     *
+     * @param key   The key of the document
+     * @param value A representation of a single document (POJO, VPackSlice or String for JSON)
+     * @return information about the document
+     */
+    <T> CompletableFuture<DocumentUpdateEntity<T>> replaceDocument(String key, T value);
+
+    /**
+     * Replaces the document with {@code key} with the one in the body, provided there is such a document and no
+     * precondition is violated
+     *
+     * @param key     The key of the document
+     * @param value   A representation of a single document (POJO, VPackSlice or String for JSON)
+     * @param options Additional options, can be null
+     * @return information about the document
+     */
+    <T> CompletableFuture<DocumentUpdateEntity<T>> replaceDocument(String key, T value,
+            DocumentReplaceOptions options);
+
+    /**
+     * Replaces multiple documents in the specified collection with the ones in the values, the replaced documents
+     * are specified by the _key attributes in the documents in values.
+     *
+     * @param values A List of documents (POJO, VPackSlice or String for JSON)
+     * @return information about the documents
+     */
+    <T> CompletableFuture<MultiDocumentEntity<DocumentUpdateEntity<T>>> replaceDocuments(Collection<T> values);
+
+    /**
+     * Replaces multiple documents in the specified collection with the ones in the values, the replaced documents
+     * are specified by the _key attributes in the documents in values.
+     *
+     * @param values  A List of documents (POJO, VPackSlice or String for JSON)
+     * @param options Additional options, can be null
+     * @return information about the documents
+     */
+    <T> CompletableFuture<MultiDocumentEntity<DocumentUpdateEntity<T>>> replaceDocuments(Collection<T> values,
+            DocumentReplaceOptions options);
+
+    /**
+     * Partially updates the document identified by document-key. The value must contain a document with the
+     * attributes to patch (the patch document). All attributes from the patch document will be added to the
+     * existing document if they do not yet exist, and overwritten in the existing document if they do exist there.
+     *
+     * @param key   The key of the document
+     * @param value A representation of a single document (POJO, VPackSlice or String for JSON)
+     * @return information about the document
+     */
+    <T> CompletableFuture<DocumentUpdateEntity<T>> updateDocument(String key, T value);
+
+    /**
+     * Partially updates the document identified by document-key. The value must contain a document with the
+     * attributes to patch (the patch document). All attributes from the patch document will be added to the
+     * existing document if they do not yet exist, and overwritten in the existing document if they do exist there.
+     *
+     * @param key     The key of the document
+     * @param value   A representation of a single document (POJO, VPackSlice or String for JSON)
+     * @param options Additional options, can be null
+     * @return information about the document
+     */
+    <T> CompletableFuture<DocumentUpdateEntity<T>> updateDocument(String key, T value, DocumentUpdateOptions options);
+
+    /**
+     * Partially updates documents, the documents to update are specified by the _key attributes in the objects on
+     * values.
+     *
+     * @param values A list of documents (POJO, VPackSlice or String for JSON)
+     * @return information about the documents
+     */
+    <T> CompletableFuture<MultiDocumentEntity<DocumentUpdateEntity<T>>> updateDocuments(Collection<T> values);
+
+    /**
+     * Partially updates documents, the documents to update are specified by the _key attributes in the objects on
+     * values.
+     *
+     * @param values  A list of documents (POJO, VPackSlice or String for JSON)
+     * @param options Additional options, can be null
+     * @return information about the documents
+     */
+    <T> CompletableFuture<MultiDocumentEntity<DocumentUpdateEntity<T>>> updateDocuments(Collection<T> values,
+            DocumentUpdateOptions options);
+
+    /**
+     * Deletes the document with the given {@code key} from the collection.
+     *
+     * @param key The key of the document
+     * @return information about the document
+     */
+    CompletableFuture<DocumentDeleteEntity<Void>> deleteDocument(String key);
+
+    /**
+     * Deletes the document with the given {@code key} from the collection.
+     *
+     * @param key     The key of the document
+     * @param type    The type of the document (POJO class, VPackSlice or String for JSON). Only necessary if
+     *                options.returnOld is set to true, otherwise can be null.
+     * @param options Additional options, can be null
+     * @return information about the document
+     */
+    <T> CompletableFuture<DocumentDeleteEntity<T>> deleteDocument(String key, Class<T> type,
+            DocumentDeleteOptions options);
+
+    /**
+     * Deletes multiple documents from the collection.
+     *
+     * @param values The keys of the documents or the documents themselves
+     * @return information about the documents
+     */
+    CompletableFuture<MultiDocumentEntity<DocumentDeleteEntity<Void>>> deleteDocuments(Collection<?> values);
+
+    /**
+     * Deletes multiple documents from the collection.
+     *
+     * @param values  The keys of the documents or the documents themselves
+     * @param type    The type of the documents (POJO class, VPackSlice or String for JSON). Only necessary if
+     *                options.returnOld is set to true, otherwise can be null.
+     * @param options Additional options, can be null
+     * @return information about the documents
+     */
+    <T> CompletableFuture<MultiDocumentEntity<DocumentDeleteEntity<T>>> deleteDocuments(Collection<?> values,
+            Class<T> type, DocumentDeleteOptions options);
+
+    /**
+     * Checks if the document exists by reading a single document head
+     *
+     * @param key The key of the document
+     * @return true if the document was found, otherwise false
+     */
+    CompletableFuture<Boolean> documentExists(String key);
+
+    /**
+     * Checks if the document exists by reading a single document head
+     *
+     * @param key     The key of the document
+     * @param options Additional options, can be null
+     * @return true if the document was found, otherwise false
+     */
+    CompletableFuture<Boolean> documentExists(String key, DocumentExistsOptions options);
+
+}
@@ -26,19 +26,27 @@ import com.c8db.entity.Permissions;
 import com.c8db.entity.ServerRole;
 import com.c8db.entity.UserEntity;
 import com.c8db.internal.C8Context;
+import com.c8db.internal.C8DBAsyncImpl;
 import com.c8db.internal.C8DBImpl;
 import com.c8db.internal.C8Defaults;
 import com.c8db.internal.InternalC8DBBuilder;
+import com.c8db.internal.http.HttpClientFactory;
 import com.c8db.internal.http.HttpCommunication;
+import com.c8db.internal.http.HttpCommunicationAsync;
+import com.c8db.internal.http.HttpConnectionAsync;
 import com.c8db.internal.http.HttpConnectionFactory;
+import com.c8db.internal.net.CircuitBreakerConfig;
 import com.c8db.internal.net.ConnectionFactory;
+import com.c8db.internal.net.ConnectionPoolConfig;
 import com.c8db.internal.net.Host;
 import com.c8db.internal.net.HostDescription;
 import com.c8db.internal.net.HostHandle;
 import com.c8db.internal.net.HostHandler;
 import com.c8db.internal.net.HostResolver;
+import com.c8db.internal.net.RedirectCache;
 import com.c8db.internal.util.C8DeserializerImpl;
 import com.c8db.internal.util.C8SerializationFactory;
+import com.c8db.internal.util.C8SerializationFactory.Serializer;
 import com.c8db.internal.util.C8SerializerImpl;
 import com.c8db.internal.util.DefaultC8Serialization;
 import com.c8db.internal.velocystream.VstCommunicationSync;
@@ -48,8 +56,10 @@ import com.c8db.model.UserCreateOptions;
 import com.c8db.model.UserUpdateOptions;
 import com.c8db.util.C8CursorInitializer;
 import com.c8db.util.C8Deserializer;
+import com.c8db.util.C8JsonSerialization;
 import com.c8db.util.C8Serialization;
 import com.c8db.util.C8Serializer;
+import com.c8db.util.JitteredRetryPolicy;
 import com.c8db.velocystream.Request;
 import com.c8db.velocystream.Response;
 
@@ -255,6 +265,20 @@ public interface C8DB extends C8SerializationAccessor {
             return this;
         }
 
+        /**
+         * Sets the largest chunk size when {@link Protocol#VST} is used. A message up to this size that is the only
+         * one on its connection is sent as a single chunk, larger ones in chunks of this size rounded down to a
+         * multiple of the socket send buffer. Messages sharing a connection with others are still sent in chunks of
+         * {@link #chunksize(Integer)}. Must not exceed the maximal chunk size of the server.
+         *
+         * @param maxChunksize largest size of a chunk in bytes, defaults to the chunk size
+         * @return {@link C8DB.Builder}
+         */
+        public Builder maxChunksize(final Integer maxChunksize) {
+            setMaxChunksize(maxChunksize);
+            return this;
+        }
+
         /**
          * Sets the maximum number of connections the built in connection pool will open
          * per host.
@@ -267,6 +291,8 @@ public interface C8DB extends C8SerializationAccessor {
          * {@link Protocol#VST} == 1
          * {@link Protocol#HTTP_JSON} == 20
          * {@link Protocol#HTTP_VPACK} == 20
+         * {@link Protocol#HTTP2_JSON} == 20
+         * {@link Protocol#HTTP2_VPACK} == 20
          * </pre>
          *
          * @param maxConnections max number of connections
@@ -277,6 +303,160 @@ public interface C8DB extends C8SerializationAccessor {
             return this;
         }
 
+        /**
+         * Sets the maximum number of connections of one service per host, for example to keep a burst of function
+         * calls from taking the connections of document requests. Each service has its own connections.
+         *
+         * @param service        the service
+         * @param maxConnections max number of connections of the service (default: value of
+         *                       {@link #maxConnections(Integer)})
+         * @return {@link C8DB.Builder}
+         */
+        public Builder maxConnections(final Service service, final Integer maxConnections) {
+            setMaxConnections(service, maxConnections);
+            return this;
+        }
+
+        /**
+         * Sets the share of the connections of a host that bulk requests, like inserting or deleting many documents
+         * at once, may use. The other connections are kept for interactive requests.
+         *
+         * @param bulkConnectionsRatio share of the connections, at least one connection (default: 0.5)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder bulkConnectionsRatio(final Double bulkConnectionsRatio) {
+            setBulkConnectionsRatio(bulkConnectionsRatio);
+            return this;
+        }
+
+        /**
+         * Sets how many requests may wait for a connection of a host. Further requests fail at once with
+         * {@code 503} instead of waiting.
+         *
+         * @param maxConnectionQueue max number of waiting requests, {@code 0} for no limit (default: 0)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder maxConnectionQueue(final Integer maxConnectionQueue) {
+            setMaxConnectionQueue(maxConnectionQueue);
+            return this;
+        }
+
+        /**
+         * Sets how many requests may share a VelocyStream connection at a time. Requests are written to the
+         * connection concurrently, with their chunks interleaved, and responses are matched to them by message id
+         * in whatever order they arrive. A further connection is opened only once all connections carry this many
+         * requests. Does not apply to the HTTP protocols.
+         *
+         * @param maxRequestsPerConnection max number of requests in flight per connection, {@code 1} for a
+         *                                 connection per request (default: 1)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder maxRequestsPerConnection(final Integer maxRequestsPerConnection) {
+            setMaxRequestsPerConnection(maxRequestsPerConnection);
+            return this;
+        }
+
+        /**
+         * Sets whether the requests in flight to each host are limited to an estimate of what the host can take,
+         * derived from its response times. Requests above the limit wait like for a connection and fail with
+         * {@code 503} after the connection acquire timeout. The limit of each host is published over JMX as
+         * {@code com.c8db:type=ConcurrencyLimiter}.
+         *
+         * @param adaptiveConcurrency whether to limit the requests in flight (default: false)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder adaptiveConcurrency(final Boolean adaptiveConcurrency) {
+            setAdaptiveConcurrency(adaptiveConcurrency);
+            return this;
+        }
+
+        /**
+         * Sets the upper bound of the adaptive concurrency limit of each host.
+         *
+         * @param maxConcurrencyLimit max number of requests in flight, {@code 0} for the max number of connections
+         *                            (default: 0)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder maxConcurrencyLimit(final Integer maxConcurrencyLimit) {
+            setMaxConcurrencyLimit(maxConcurrencyLimit);
+            return this;
+        }
+
+        /**
+         * Sets how long a request waits for a free connection of the host's connection pool before it fails with a
+         * {@link C8DBException}.
+         *
+         * @param connectionAcquireTimeout time in milliseconds, {@code 0} waits without limit (default: 60000)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder connectionAcquireTimeout(final Integer connectionAcquireTimeout) {
+            setConnectionAcquireTimeout(connectionAcquireTimeout);
+            return this;
+        }
+
+        /**
+         * Sets whether requests waiting for a connection get one in the order they asked for it. An unfair pool
+         * has a higher throughput, but a single request may wait longer under contention.
+         *
+         * @param fairConnectionPool whether to hand out connections first come first served (default:
+         *                           {@code false})
+         * @return {@link C8DB.Builder}
+         */
+        public Builder fairConnectionPool(final Boolean fairConnectionPool) {
+            setFairConnectionPool(fairConnectionPool);
+            return this;
+        }
+
+        /**
+         * Sets the number of idle connections each host's connection pool keeps open. They are opened in the
+         * background as soon as the driver is built and are replaced when they break or expire.
+         *
+         * @param minIdleConnections number of idle connections per host, at most {@code maxConnections} (default:
+         *                           0)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder minIdleConnections(final Integer minIdleConnections) {
+            setMinIdleConnections(minIdleConnections);
+            return this;
+        }
+
+        /**
+         * Sets how long a pooled connection is used at most. Older connections are closed when they are returned to
+         * or found idle in the pool, so that the driver picks up server side changes such as new load balancer
+         * targets.
+         *
+         * @param connectionMaxLifetime time in milliseconds, {@code 0} for no limit (default: 0)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder connectionMaxLifetime(final Long connectionMaxLifetime) {
+            setConnectionMaxLifetime(connectionMaxLifetime);
+            return this;
+        }
+
+        /**
+         * Sets how long a pooled connection may stay idle before it is closed. Connections within
+         * {@link #minIdleConnections(Integer)} are kept open.
+         *
+         * @param connectionMaxIdleTime time in milliseconds, {@code 0} to keep idle connections open (default: 0)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder connectionMaxIdleTime(final Long connectionMaxIdleTime) {
+            setConnectionMaxIdleTime(connectionMaxIdleTime);
+            return this;
+        }
+
+        /**
+         * Sets how often idle pooled connections are checked, closed if broken or expired and topped up to
+         * {@link #minIdleConnections(Integer)}.
+         *
+         * @param connectionValidationInterval time in milliseconds (default: 30000)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder connectionValidationInterval(final Long connectionValidationInterval) {
+            setConnectionValidationInterval(connectionValidationInterval);
+            return this;
+        }
+
         /**
          * Set the maximum time to life of a connection. After this time the connection
          * will be closed automatically.
@@ -289,6 +469,132 @@ public interface C8DB extends C8SerializationAccessor {
             return this;
         }
 
+        /**
+         * Sets the interval of keepalive requests when {@link Protocol#VST} is used. A connection that received
+         * nothing for that long sends a {@code HEAD /_api/version} and is closed if no response arrives within the
+         * timeout, or the interval if no timeout is set. Requests in flight on it then fail over to a new connection
+         * if they were not sent yet or are idempotent.
+         *
+         * @param connectionKeepAlive keepalive interval in milliseconds, {@code null} for none
+         * @return {@link C8DB.Builder}
+         */
+        public Builder connectionKeepAlive(final Long connectionKeepAlive) {
+            setConnectionKeepAlive(connectionKeepAlive);
+            return this;
+        }
+
+        /**
+         * If set to {@code true} all HTTP connections to the same host share one pooled http client instead of
+         * opening a separate client per connection. Keep-alive sockets and TLS sessions are then reused across
+         * threads.
+         *
+         * @param sharedHttpClient whether or not to share the http client per host (default: {@code false})
+         * @return {@link C8DB.Builder}
+         */
+        public Builder sharedHttpClient(final Boolean sharedHttpClient) {
+            setSharedHttpClient(sharedHttpClient);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of sockets the shared http client keeps open per host. Only used together with
+         * {@link #sharedHttpClient(Boolean)}.
+         *
+         * @param maxConnectionsPerRoute max number of sockets per host (default: value of
+         *                               {@link #maxConnections(Integer)})
+         * @return {@link C8DB.Builder}
+         */
+        public Builder maxConnectionsPerRoute(final Integer maxConnectionsPerRoute) {
+            setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of sockets of the shared http client. Only used together with
+         * {@link #sharedHttpClient(Boolean)}.
+         *
+         * @param maxConnectionsTotal max number of sockets (default: value of
+         *                            {@link #maxConnectionsPerRoute(Integer)})
+         * @return {@link C8DB.Builder}
+         */
+        public Builder maxConnectionsTotal(final Integer maxConnectionsTotal) {
+            setMaxConnectionsTotal(maxConnectionsTotal);
+            return this;
+        }
+
+        /**
+         * Sets the time after which idle sockets of the shared http client are closed. Only used together with
+         * {@link #sharedHttpClient(Boolean)}.
+         *
+         * @param connectionIdleTimeout idle time in milliseconds (default: 30000)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder connectionIdleTimeout(final Long connectionIdleTimeout) {
+            setConnectionIdleTimeout(connectionIdleTimeout);
+            return this;
+        }
+
+        /**
+         * Sets the period of inactivity after which a pooled socket is validated before it is reused.
+         *
+         * @param validateAfterInactivity inactivity in milliseconds (default: 2000)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder validateAfterInactivity(final Integer validateAfterInactivity) {
+            setValidateAfterInactivity(validateAfterInactivity);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of concurrent streams of the HTTP/2 connection to a host. Only used together with
+         * {@link Protocol#HTTP2_JSON} or {@link Protocol#HTTP2_VPACK}.
+         *
+         * @param maxConcurrentStreams max number of in-flight requests per HTTP/2 connection (default: 100)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder maxConcurrentStreams(final Integer maxConcurrentStreams) {
+            setMaxConcurrentStreams(maxConcurrentStreams);
+            return this;
+        }
+
+        /**
+         * If set to {@code true} documents are mapped directly between JSON and objects, without building
+         * VelocyPack in between. Only takes effect with {@link Protocol#HTTP_JSON} or {@link Protocol#HTTP2_JSON}
+         * and a serializer that implements {@link C8JsonSerialization}, like {@link VelocyJack}.
+         *
+         * @param directJson whether or not to bypass VelocyPack for documents (default: {@code false})
+         * @return {@link C8DB.Builder}
+         */
+        public Builder directJson(final Boolean directJson) {
+            setDirectJson(directJson);
+            return this;
+        }
+
+        /**
+         * Sets the compression of HTTP request and response bodies. Request bodies of at least
+         * {@link #compressionThreshold(Integer)} bytes are compressed and compressed responses are accepted and
+         * decoded while they are read. Not used with {@link Protocol#VST}.
+         *
+         * @param compression content encoding of HTTP bodies (default: {@link Compression#NONE})
+         * @return {@link C8DB.Builder}
+         */
+        public Builder compression(final Compression compression) {
+            setCompression(compression);
+            return this;
+        }
+
+        /**
+         * Sets the minimum size of a request body to be compressed. Smaller bodies are sent as they are, since
+         * compressing them costs more than it saves.
+         *
+         * @param compressionThreshold minimum body size in bytes (default: 1024)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder compressionThreshold(final Integer compressionThreshold) {
+            setCompressionThreshold(compressionThreshold);
+            return this;
+        }
+
         /**
          * Whether or not the driver should acquire a list of available coordinators in
          * an ArangoDB cluster or a single server with active failover.
@@ -330,6 +636,139 @@ public interface C8DB extends C8SerializationAccessor {
             return this;
         }
 
+        /**
+         * Sets whether hosts are ejected from load balancing while too many of their requests fail. Ejected hosts
+         * get single probe requests until they answer again. The last available host is never ejected.
+         *
+         * @param circuitBreaker whether to eject failing hosts (default: {@code true})
+         * @return {@link C8DB.Builder}
+         */
+        public Builder circuitBreaker(final Boolean circuitBreaker) {
+            setCircuitBreaker(circuitBreaker);
+            return this;
+        }
+
+        /**
+         * Sets the ratio of failed requests of a host within the last 10 seconds from which on the host is ejected.
+         * Requests fail if the host cannot be reached or answers with a server error or 429.
+         *
+         * @param circuitBreakerFailureRate ratio between 0 and 1 (default: 0.5)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder circuitBreakerFailureRate(final Double circuitBreakerFailureRate) {
+            setCircuitBreakerFailureRate(circuitBreakerFailureRate);
+            return this;
+        }
+
+        /**
+         * Sets the response time from which on a request counts as failed for the circuit breaker.
+         *
+         * @param circuitBreakerSlowCallDuration time in milliseconds, {@code 0} to not count slow requests (default:
+         *                                       0)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder circuitBreakerSlowCallDuration(final Long circuitBreakerSlowCallDuration) {
+            setCircuitBreakerSlowCallDuration(circuitBreakerSlowCallDuration);
+            return this;
+        }
+
+        /**
+         * Sets the number of requests of a host within the last 10 seconds below which the host is not ejected.
+         *
+         * @param circuitBreakerMinimumCalls number of requests (default: 20)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder circuitBreakerMinimumCalls(final Integer circuitBreakerMinimumCalls) {
+            setCircuitBreakerMinimumCalls(circuitBreakerMinimumCalls);
+            return this;
+        }
+
+        /**
+         * Sets how long a host is ejected the first time. The time doubles with every failed probe, up to 5
+         * minutes.
+         *
+         * @param circuitBreakerEjectionTime time in milliseconds (default: 5000)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder circuitBreakerEjectionTime(final Long circuitBreakerEjectionTime) {
+            setCircuitBreakerEjectionTime(circuitBreakerEjectionTime);
+            return this;
+        }
+
+        /**
+         * Sets how often the round trip time to every host is measured, used by
+         * {@link LoadBalancingStrategy#NEAREST_REGION}.
+         *
+         * @param regionProbeInterval time in milliseconds (default: 60000)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder regionProbeInterval(final Long regionProbeInterval) {
+            setRegionProbeInterval(regionProbeInterval);
+            return this;
+        }
+
+        /**
+         * Sets the host of the spot region. With {@link LoadBalancingStrategy#NEAREST_REGION} all writes go to this
+         * host, while reads go to the nearest host.
+         *
+         * @param host address of the host
+         * @param port port of the host
+         * @return {@link C8DB.Builder}
+         */
+        public Builder spotRegionHost(final String host, final int port) {
+            setSpotRegionHost(host, port);
+            return this;
+        }
+
+        /**
+         * Sends a duplicate of a slow {@code GET} or {@code HEAD} request to a second host and uses the response
+         * that arrives first. Only applies to the HTTP protocols, requests bound to a host like cursor batches are
+         * never duplicated.
+         *
+         * @param hedgedReads whether slow reads are sent to a second host (default: false)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder hedgedReads(final Boolean hedgedReads) {
+            setHedgedReads(hedgedReads);
+            return this;
+        }
+
+        /**
+         * Sets after how long without a response a read is sent to a second host.
+         *
+         * @param hedgeDelay time in milliseconds, {@code 0} to use the 95th percentile of the observed response times
+         *                   (default: 0)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder hedgeDelay(final Long hedgeDelay) {
+            setHedgeDelay(hedgeDelay);
+            return this;
+        }
+
+        /**
+         * Sets how many reads may be sent to a second host, as share of all reads within the last 10 seconds. 10
+         * duplicates are always allowed.
+         *
+         * @param hedgeBudgetRatio share of the reads (default: 0.1)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder hedgeBudgetRatio(final Double hedgeBudgetRatio) {
+            setHedgeBudgetRatio(hedgeBudgetRatio);
+            return this;
+        }
+
+        /**
+         * Sets how long the driver remembers that the server redirected requests of a collection or database to
+         * another endpoint. Until then such requests go to that endpoint directly.
+         *
+         * @param redirectCacheTtl time in milliseconds, {@code 0} to follow every redirect anew (default: 60000)
+         * @return {@link C8DB.Builder}
+         */
+        public Builder redirectCacheTtl(final Long redirectCacheTtl) {
+            setRedirectCacheTtl(redirectCacheTtl);
+            return this;
+        }
+
         /**
          * Sets the secret provider for retrieving the authentication token.
          *
@@ -352,6 +791,18 @@ public interface C8DB extends C8SerializationAccessor {
             return this;
         }
 
+        /**
+         * Sets the policy that decides whether and when failed HTTP requests are retried.
+         *
+         * @param retryPolicy the retry policy (default: {@link JitteredRetryPolicy} with the configured
+         *                    {@link #retryTimeout(Integer)})
+         * @return {@link C8DB.Builder}
+         */
+        public Builder retryPolicy(final RetryPolicy retryPolicy) {
+            setRetryPolicy(retryPolicy);
+            return this;
+        }
+
         /**
          * Register a custom {@link VPackSerializer} for a specific type to be used
          * within the internal serialization process.
@@ -477,6 +928,7 @@ public interface C8DB extends C8SerializationAccessor {
          */
         public <T> Builder registerJsonSerializer(final Class<T> clazz, final VPackJsonSerializer<T> serializer) {
             vpackParserBuilder.registerSerializer(clazz, serializer);
+            customJsonSerializers = true;
             return this;
         }
 
@@ -497,6 +949,7 @@ public interface C8DB extends C8SerializationAccessor {
         public <T> Builder registerJsonSerializer(final String attribute, final Class<T> clazz,
                 final VPackJsonSerializer<T> serializer) {
             vpackParserBuilder.registerSerializer(attribute, clazz, serializer);
+            customJsonSerializers = true;
             return this;
         }
 
@@ -586,6 +1039,7 @@ public interface C8DB extends C8SerializationAccessor {
          */
         public Builder registerJsonModule(final VPackParserModule module) {
             vpackParserBuilder.registerModule(module);
+            customJsonSerializers = true;
             return this;
         }
 
@@ -603,6 +1057,7 @@ public interface C8DB extends C8SerializationAccessor {
          */
         public Builder registerJsonModules(final VPackParserModule... modules) {
             vpackParserBuilder.registerModules(modules);
+            customJsonSerializers = true;
             return this;
         }
 
@@ -659,6 +1114,86 @@ public interface C8DB extends C8SerializationAccessor {
          * @return {@link C8DB}
          */
         public synchronized C8DB build() {
+            completeHosts();
+            final HostDescription auxHost = hosts.get(Service.C8DB).get(0);
+            final C8SerializationFactory util = createSerializationFactory(protocol);
+            final C8Serialization custom = util.get(Serializer.CUSTOM);
+
+            int protocolMaxConnections = protocol == Protocol.VST ? C8Defaults.MAX_CONNECTIONS_VST_DEFAULT
+                    : C8Defaults.MAX_CONNECTIONS_HTTP_DEFAULT;
+            final int max = maxConnections != null ? Math.max(1, maxConnections) : protocolMaxConnections;
+
+            final ConnectionFactory connectionFactory;
+            if (protocol == null || Protocol.VST == protocol) {
+                connectionFactory = new VstConnectionFactorySync(timeout, connectionTtl, connectionKeepAlive, useSsl,
+                        sslContext);
+            } else {
+                connectionFactory = new HttpConnectionFactory(user, password, secretProvider, email, jwtAuth, jwtToken,
+                        useSsl, custom, protocol, apiKey, auxHost, createHttpClientFactory(max), util.json() != null);
+            }
+            final ConnectionPoolConfig poolConfig = createConnectionPoolConfig(max,
+                    connectionFactory instanceof VstConnectionFactorySync ? maxRequestsPerConnection : 1);
+            final CircuitBreakerConfig circuitBreakerConfig = createCircuitBreakerConfig();
+            final Map<Service, Collection<Host>> hostsMatrix = createHostMatrix(poolConfig, circuitBreakerConfig,
+                    connectionFactory);
+            final HostResolver hostResolver = createHostResolver(hostsMatrix, poolConfig, circuitBreakerConfig,
+                    connectionFactory);
+            final Map<Service, HostHandler> hostHandlerMatrix = createHostHandlerMatrix(hostResolver);
+            final RedirectCache redirects = createRedirectCache(hostResolver, poolConfig, circuitBreakerConfig,
+                    connectionFactory);
+            return createC8DB(
+                    new VstCommunicationSync.Builder(hostHandlerMatrix).timeout(timeout).user(user).password(password)
+                            .useSsl(useSsl).sslContext(sslContext).chunksize(chunksize).maxChunksize(maxChunksize)
+                            .maxConnections(maxConnections).connectionTtl(connectionTtl).redirects(redirects),
+                    new HttpCommunication.Builder(hostHandlerMatrix).retryPolicy(createRetryPolicy())
+                            .hedger(createRequestHedger()).redirects(redirects), util, protocol, hostResolver,
+                    new C8Context());
+        }
+
+        /**
+         * Returns an instance of {@link C8DBAsync}. The asynchronous API is only served over HTTP/1.1, so
+         * {@link Protocol#VST} falls back to {@link Protocol#HTTP_JSON} and the HTTP/2 protocols to their HTTP/1.1
+         * counterparts.
+         *
+         * @return {@link C8DBAsync}
+         */
+        public synchronized C8DBAsync buildAsync() {
+            completeHosts();
+            final HostDescription auxHost = hosts.get(Service.C8DB).get(0);
+            final Protocol httpProtocol = protocol == Protocol.HTTP_VPACK || protocol == Protocol.HTTP2_VPACK
+                    ? Protocol.HTTP_VPACK : Protocol.HTTP_JSON;
+            final C8SerializationFactory util = createSerializationFactory(httpProtocol);
+            final C8Serialization custom = util.get(Serializer.CUSTOM);
+            final int max = maxConnections != null ? Math.max(1, maxConnections)
+                    : C8Defaults.MAX_CONNECTIONS_HTTP_DEFAULT;
+            final HttpClientFactory httpClientFactory = createHttpClientFactory(max);
+            final ConnectionFactory connectionFactory = new HttpConnectionFactory(user, password, secretProvider,
+                    email, jwtAuth, jwtToken, useSsl, custom, httpProtocol, apiKey, auxHost, httpClientFactory,
+                    util.json() != null);
+            final ConnectionPoolConfig poolConfig = createConnectionPoolConfig(max);
+            final CircuitBreakerConfig circuitBreakerConfig = createCircuitBreakerConfig();
+            final Map<Service, Collection<Host>> hostsMatrix = createHostMatrix(poolConfig, circuitBreakerConfig,
+                    connectionFactory);
+            final HostResolver hostResolver = createHostResolver(hostsMatrix, poolConfig, circuitBreakerConfig,
+                    connectionFactory);
+            final Map<Service, HostHandler> hostHandlerMatrix = createHostHandlerMatrix(hostResolver);
+            final HttpConnectionAsync.Builder connectionBuilder = new HttpConnectionAsync.Builder().timeout(timeout)
+                    .useSsl(useSsl).sslContext(sslContext).httpCookieSpec(httpCookieSpec)
+                    .maxConnections(maxConnectionsPerRoute != null ? maxConnectionsPerRoute : max)
+                    .clientFactory(httpClientFactory).user(user).password(password).email(email)
+                    .jwtAuthEnabled(jwtAuth).serializationUtil(custom).contentType(httpProtocol).jwt(jwtToken)
+                    .apiKey(apiKey).auxHost(auxHost).secretProvider(secretProvider).rawJson(util.json() != null);
+            final RetryPolicy policy = createRetryPolicy();
+            final RedirectCache redirects = createRedirectCache(hostResolver, poolConfig, circuitBreakerConfig,
+                    connectionFactory);
+            return new C8DBAsyncImpl(
+                    new HttpCommunicationAsync.Builder(hostHandlerMatrix, connectionBuilder).retryPolicy(policy)
+                            .redirects(redirects),
+                    new HttpCommunication.Builder(hostHandlerMatrix).retryPolicy(policy).redirects(redirects), util,
+                    hostResolver, new C8Context());
+        }
+
+        private void completeHosts() {
             if (hosts.get(Service.C8DB).isEmpty()) {
                 hosts.get(Service.C8DB).add(host);
             }
@@ -675,39 +1210,35 @@ public interface C8DB extends C8SerializationAccessor {
             if (hosts.get(Service.C8KMS).isEmpty()) {
                 hosts.get(Service.C8KMS).addAll(hosts.get(Service.C8DB));
             }
-            final HostDescription auxHost = hosts.get(Service.C8DB).get(0);
+        }
+
+        private C8SerializationFactory createSerializationFactory(final Protocol protocol) {
             final VPack vpacker = vpackBuilder.serializeNullValues(false).build();
             final VPack vpackerNull = vpackBuilder.serializeNullValues(true).build();
             final VPackParser vpackParser = vpackParserBuilder.build();
             final C8Serializer serializerTemp = serializer != null ? serializer
-                    : new C8SerializerImpl(vpacker, vpackerNull, vpackParser);
+                    : new C8SerializerImpl(vpacker, vpackerNull, vpackParser, !customJsonSerializers);
             final C8Deserializer deserializerTemp = deserializer != null ? deserializer
                     : new C8DeserializerImpl(vpackerNull, vpackParser);
             final DefaultC8Serialization internal = new DefaultC8Serialization(serializerTemp,
                     deserializerTemp);
             final C8Serialization custom = customSerializer != null ? customSerializer : internal;
-            final C8SerializationFactory util = new C8SerializationFactory(internal, custom);
+            return new C8SerializationFactory(internal, custom, Boolean.TRUE == directJson
+                    && (protocol == Protocol.HTTP_JSON || protocol == Protocol.HTTP2_JSON));
+        }
 
-            int protocolMaxConnections = protocol == Protocol.VST ? C8Defaults.MAX_CONNECTIONS_VST_DEFAULT
-                    : C8Defaults.MAX_CONNECTIONS_HTTP_DEFAULT;
-            final int max = maxConnections != null ? Math.max(1, maxConnections) : protocolMaxConnections;
+        private HttpClientFactory createHttpClientFactory(final int max) {
+            return new HttpClientFactory.Builder().timeout(timeout).responseSizeLimit(responseSizeLimit)
+                    .useSsl(useSsl).sslContext(sslContext).ttl(connectionTtl).httpCookieSpec(httpCookieSpec)
+                    .shared(sharedHttpClient)
+                    .maxConnectionsPerRoute(maxConnectionsPerRoute != null ? maxConnectionsPerRoute : max)
+                    .maxConnectionsTotal(maxConnectionsTotal).idleTimeout(connectionIdleTimeout)
+                    .validateAfterInactivity(validateAfterInactivity).maxConcurrentStreams(maxConcurrentStreams)
+                    .compression(compression).compressionThreshold(compressionThreshold).build();
+        }
 
-            final ConnectionFactory connectionFactory;
-            if (protocol == null || Protocol.VST == protocol) {
-                connectionFactory = new VstConnectionFactorySync(timeout, connectionTtl, useSsl, sslContext);
-            } else {
-                connectionFactory = new HttpConnectionFactory(timeout, responseSizeLimit, user, password, secretProvider, email, jwtAuth, jwtToken, useSsl,
-                    sslContext, custom, protocol, connectionTtl, httpCookieSpec, apiKey, auxHost, retryTimeout);
-            }
-            final Map<Service, Collection<Host>> hostsMatrix = createHostMatrix(max, connectionFactory);
-            final HostResolver hostResolver = createHostResolver(hostsMatrix, max, connectionFactory);
-            final Map<Service, HostHandler> hostHandlerMatrix = createHostHandlerMatrix(hostResolver);
-            return createC8DB(
-                    new VstCommunicationSync.Builder(hostHandlerMatrix).timeout(timeout).user(user).password(password)
-                            .useSsl(useSsl).sslContext(sslContext).chunksize(chunksize).maxConnections(maxConnections)
-                            .connectionTtl(connectionTtl),
-                    new HttpCommunication.Builder(hostHandlerMatrix), util, protocol, hostResolver,
-                    new C8Context());
+        private RetryPolicy createRetryPolicy() {
+            return retryPolicy != null ? retryPolicy : new JitteredRetryPolicy(retryTimeout);
         }
 
         protected C8DB createC8DB(final VstCommunicationSync.Builder vstBuilder, final HttpCommunication.Builder httpBuilder,
@@ -725,6 +1256,15 @@ public interface C8DB extends C8SerializationAccessor {
      */
     void shutdown() throws C8DBException;
 
+    /**
+     * Opens connections to all configured hosts, so that the first requests do not pay for connecting and the SSL
+     * handshake. Call it before the application takes traffic. Each host gets at least one connection, or as many as
+     * configured with {@link Builder#minIdleConnections(Integer)}.
+     *
+     * @throws C8DBException if a host could not be reached
+     */
+    void warmUp() throws C8DBException;
+
     /**
      * Returns a {@code ArangoDatabase} instance for the {@code _system} database.
      *
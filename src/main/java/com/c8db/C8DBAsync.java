@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+import com.c8db.entity.C8DBVersion;
+import com.c8db.entity.ServerRole;
+import com.c8db.internal.net.HostHandle;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.Response;
+
+/**
+ * Central access point for applications to communicate asynchronously with an C8DB server. Requests are sent over a
+ * non-blocking http transport, so waiting for a response does not occupy a thread.
+ *
+ * <p>
+ * Will be instantiated through {@link C8DB.Builder#buildAsync()}
+ * </p>
+ *
+ * <pre>
+ * C8DBAsync c8db = new C8DB.Builder().useProtocol(Protocol.HTTP_JSON).buildAsync();
+ * </pre>
+ *
+ */
+public interface C8DBAsync extends C8SerializationAccessor {
+
+    /**
+     * Releases all connections to the server.
+     *
+     * @throws C8DBException
+     */
+    void shutdown() throws C8DBException;
+
+    /**
+     * Returns a {@code C8DatabaseAsync} instance for the {@code _system} database.
+     *
+     * @return database handler
+     */
+    C8DatabaseAsync db();
+
+    /**
+     * Returns a {@code C8DatabaseAsync} instance for the given database name and tenant.
+     *
+     * @param tenant Name of the tenant
+     * @param name   Name of the database
+     * @return database handler
+     */
+    C8DatabaseAsync db(String tenant, String name);
+
+    /**
+     * Retrieves a list of all existing databases
+     *
+     * @return a list of all existing databases
+     */
+    CompletableFuture<Collection<String>> getGeoFabrics();
+
+    /**
+     * Returns the server name and version number.
+     *
+     * @return the server version, number
+     */
+    CompletableFuture<C8DBVersion> getVersion();
+
+    /**
+     * Returns the server role.
+     *
+     * @return the server role
+     */
+    CompletableFuture<ServerRole> getRole();
+
+    /**
+     * Generic Execute. Use this method to execute custom FOXX services.
+     *
+     * @param request VelocyStream request
+     * @return VelocyStream response
+     */
+    CompletableFuture<Response> execute(Request request);
+
+    /**
+     * Generic Execute. Use this method to execute custom FOXX services.
+     *
+     * @param request    VelocyStream request
+     * @param hostHandle Used to stick to a specific host when using {@link LoadBalancingStrategy#ROUND_ROBIN}
+     * @return VelocyStream response
+     */
+    CompletableFuture<Response> execute(Request request, HostHandle hostHandle);
+
+}
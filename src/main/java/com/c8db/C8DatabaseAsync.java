@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+import com.c8db.entity.C8DBVersion;
+import com.c8db.entity.CollectionEntity;
+import com.c8db.entity.DatabaseEntity;
+import com.c8db.model.CollectionCreateOptions;
+import com.c8db.model.CollectionsReadOptions;
+
+/**
+ * Interface for asynchronous operations on C8DB database level. See {@link C8Database} for the semantics of the
+ * single operations.
+ */
+public interface C8DatabaseAsync extends C8SerializationAccessor {
+
+    /**
+     * Return the main entry point for the C8DB driver
+     *
+     * @return main entry point
+     */
+    C8DBAsync c8db();
+
+    /**
+     * Returns the name of the tenant
+     *
+     * @return tenant name
+     */
+    String tenant();
+
+    /**
+     * Returns the name of the database
+     *
+     * @return database name
+     */
+    String name();
+
+    /**
+     * Returns the server name and version number.
+     *
+     * @return the server version, number
+     */
+    CompletableFuture<C8DBVersion> getVersion();
+
+    /**
+     * Checks whether the database exists
+     *
+     * @return true if the database exists, otherwise false
+     */
+    CompletableFuture<Boolean> exists();
+
+    /**
+     * Retrieves information about the current database
+     *
+     * @return information about the current database
+     */
+    CompletableFuture<DatabaseEntity> getInfo();
+
+    /**
+     * Returns a {@code C8CollectionAsync} instance for the given collection name.
+     *
+     * @param name Name of the collection
+     * @return collection handler
+     */
+    C8CollectionAsync collection(String name);
+
+    /**
+     * Creates a collection for the given collection's name, then returns collection information from the server.
+     *
+     * @param name The name of the collection
+     * @return information about the collection
+     */
+    CompletableFuture<CollectionEntity> createCollection(String name);
+
+    /**
+     * Creates a collection with the given {@code options} for this collection's name, then returns collection
+     * information from the server.
+     *
+     * @param name    The name of the collection
+     * @param options Additional options, can be null
+     * @return information about the collection
+     */
+    CompletableFuture<CollectionEntity> createCollection(String name, CollectionCreateOptions options);
+
+    /**
+     * Fetches all collections from the database and returns an list of collection descriptions.
+     *
+     * @return list of information about all collections
+     */
+    CompletableFuture<Collection<CollectionEntity>> getCollections();
+
+    /**
+     * Fetches all collections from the database and returns an list of collection descriptions.
+     *
+     * @param options Additional options, can be null
+     * @return list of information about all collections
+     */
+    CompletableFuture<Collection<CollectionEntity>> getCollections(CollectionsReadOptions options);
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db;
+
+/**
+ * Content encoding of HTTP request and response bodies.
+ */
+public enum Compression {
+    /**
+     * Bodies are sent uncompressed
+     */
+    NONE,
+    /**
+     * Bodies are compressed with gzip
+     */
+    GZIP,
+    /**
+     * Bodies are compressed with deflate (zlib)
+     */
+    DEFLATE;
+
+    /**
+     * @return the value of the {@code Content-Encoding} header, {@code null} for {@link #NONE}
+     */
+    public String contentEncoding() {
+        switch (this) {
+            case GZIP:
+                return "gzip";
+            case DEFLATE:
+                return "deflate";
+            case NONE:
+            default:
+                return null;
+        }
+    }
+}
@@ -38,5 +38,18 @@ public enum Protocol {
      * @see <a href="https://github.com/arangodb/velocypack">VelocyPack
      *      specification</a>
      */
-    HTTP_VPACK
+    HTTP_VPACK,
+    /**
+     * HTTP/2 with JSON body. Requests to the same host are multiplexed as
+     * concurrent streams over a single connection.
+     */
+    HTTP2_JSON,
+    /**
+     * HTTP/2 with VelocyPack body. Requests to the same host are multiplexed as
+     * concurrent streams over a single connection.
+     * 
+     * @see <a href="https://github.com/arangodb/velocypack">VelocyPack
+     *      specification</a>
+     */
+    HTTP2_VPACK
 }
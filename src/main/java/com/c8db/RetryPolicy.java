@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db;
+
+import com.c8db.velocystream.Request;
+
+/**
+ * Decides whether and when a failed HTTP request is sent again. One policy instance is shared by all requests of a
+ * driver instance, the state of a single request is kept in the {@link Attempts} returned by {@link #start(Request)}.
+ *
+ * @see com.c8db.util.JitteredRetryPolicy
+ */
+public interface RetryPolicy {
+
+    /**
+     * Called once before a request is sent for the first time.
+     *
+     * @param request the request
+     * @return the retry state of the request
+     */
+    Attempts start(Request request);
+
+    interface Attempts {
+
+        /**
+         * Called after an attempt failed.
+         *
+         * @param responseCode the status code of the response, or {@code null} if no response has been received
+         * @param cause        the error of the attempt
+         * @return the delay in milliseconds before the next attempt, or a negative value to give up
+         */
+        long nextDelay(Integer responseCode, Throwable cause);
+
+        /**
+         * Called before a retry, after {@link #nextDelay(Integer, Throwable)} asked for one.
+         *
+         * @param responseCode the status code of the response, or {@code null} if no response has been received
+         * @param cause        the error of the attempt
+         * @return whether the next attempt should be sent to another host
+         */
+        boolean failover(Integer responseCode, Throwable cause);
+    }
+
+}
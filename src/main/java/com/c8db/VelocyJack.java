@@ -20,23 +20,25 @@ package com.c8db;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Iterator;
 
 import com.c8db.jackson.dataformat.velocypack.VPackMapper;
-import com.c8db.util.C8Serialization;
+import com.c8db.util.C8JsonSerialization;
 import com.c8db.util.C8Serializer;
 import com.arangodb.velocypack.VPackParser;
 import com.arangodb.velocypack.VPackSlice;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  *
  */
-public class VelocyJack implements C8Serialization {
+public class VelocyJack implements C8JsonSerialization {
 
     public interface ConfigureFunction {
         void configure(ObjectMapper mapper);
@@ -45,6 +47,8 @@ public class VelocyJack implements C8Serialization {
     private final ObjectMapper vpackMapper;
     private final ObjectMapper vpackMapperNull;
     private final ObjectMapper jsonMapper;
+    private final ObjectMapper documentMapper;
+    private final ObjectMapper documentMapperNull;
     private final VPackParser vpackParser;
 
     public VelocyJack() {
@@ -52,6 +56,11 @@ public class VelocyJack implements C8Serialization {
         vpackMapper = new VPackMapper().setSerializationInclusion(Include.NON_NULL);
         vpackMapperNull = new VPackMapper().setSerializationInclusion(Include.ALWAYS);
         jsonMapper = new ObjectMapper().setSerializationInclusion(Include.NON_NULL);
+        // integers become Long like in VelocyPack, no matter whether a document is read from JSON or VelocyPack
+        documentMapper = VPackMapper.setup(new ObjectMapper()).setSerializationInclusion(Include.NON_NULL)
+                .enable(DeserializationFeature.USE_LONG_FOR_INTS);
+        documentMapperNull = VPackMapper.setup(new ObjectMapper()).setSerializationInclusion(Include.ALWAYS)
+                .enable(DeserializationFeature.USE_LONG_FOR_INTS);
         vpackParser = new VPackParser.Builder().build();
     }
 
@@ -59,6 +68,8 @@ public class VelocyJack implements C8Serialization {
         f.configure(vpackMapper);
         f.configure(vpackMapperNull);
         f.configure(jsonMapper);
+        f.configure(documentMapper);
+        f.configure(documentMapperNull);
     }
 
     @Override
@@ -115,4 +126,44 @@ public class VelocyJack implements C8Serialization {
         }
     }
 
+    @Override
+    public byte[] serializeJson(final Object entity, final Options options) throws C8DBException {
+        try {
+            if (entity instanceof String) {
+                return ((String) entity).getBytes(StandardCharsets.UTF_8);
+            }
+            if (options.isStringAsJson() && entity instanceof Iterable) {
+                final Iterator<?> iterator = ((Iterable<?>) entity).iterator();
+                if (iterator.hasNext() && iterator.next() instanceof String) {
+                    final StringBuilder json = new StringBuilder("[");
+                    for (final Object value : (Iterable<?>) entity) {
+                        if (json.length() > 1) {
+                            json.append(',');
+                        }
+                        json.append((String) value);
+                    }
+                    return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+                }
+            }
+            final ObjectMapper mapper = options.isSerializeNullValues() ? documentMapperNull : documentMapper;
+            return mapper.writeValueAsBytes(entity);
+        } catch (final JsonProcessingException e) {
+            throw new C8DBException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T deserializeJson(final byte[] json, final Type type) throws C8DBException {
+        try {
+            if (type == String.class) {
+                final JsonNode node = documentMapper.readTree(json);
+                return (T) (node.isTextual() ? node.textValue() : new String(json, StandardCharsets.UTF_8));
+            }
+            return documentMapper.readValue(json, documentMapper.constructType(type));
+        } catch (final IOException e) {
+            throw new C8DBException(e);
+        }
+    }
+
 }
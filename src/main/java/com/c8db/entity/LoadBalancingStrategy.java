@@ -21,5 +21,13 @@ package com.c8db.entity;
  *
  */
 public enum LoadBalancingStrategy {
-    NONE, ROUND_ROBIN, ONE_RANDOM
+    NONE, ROUND_ROBIN, ONE_RANDOM,
+    /**
+     * Sends each request to the less loaded of two random hosts, by requests in flight and response time.
+     */
+    LEAST_LOADED,
+    /**
+     * Sends each request to the host with the lowest round trip time, writes optionally to a fixed spot region host.
+     */
+    NEAREST_REGION
 }
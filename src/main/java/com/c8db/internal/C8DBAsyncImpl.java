@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arangodb.velocypack.exception.VPackException;
+import com.c8db.C8DBAsync;
+import com.c8db.C8DBException;
+import com.c8db.C8DatabaseAsync;
+import com.c8db.entity.C8DBVersion;
+import com.c8db.entity.ServerRole;
+import com.c8db.internal.C8Executor.ResponseDeserializer;
+import com.c8db.internal.http.HttpCommunication;
+import com.c8db.internal.http.HttpCommunicationAsync;
+import com.c8db.internal.http.HttpProtocol;
+import com.c8db.internal.net.CommunicationProtocol;
+import com.c8db.internal.net.HostHandle;
+import com.c8db.internal.net.HostResolver;
+import com.c8db.internal.util.C8SerializationFactory;
+import com.c8db.internal.util.C8SerializationFactory.Serializer;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.Response;
+
+/**
+ *
+ */
+public class C8DBAsyncImpl extends InternalC8DB<C8ExecutorAsync> implements C8DBAsync {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(C8DBAsyncImpl.class);
+
+    private final CommunicationProtocol cp;
+    private final HostResolver hostResolver;
+
+    public C8DBAsyncImpl(final HttpCommunicationAsync.Builder asyncBuilder, final HttpCommunication.Builder httpBuilder,
+            final C8SerializationFactory util, final HostResolver hostResolver, final C8Context context) {
+
+        super(new C8ExecutorAsync(asyncBuilder.build(), util, new DocumentCache()), util, context);
+
+        // acquiring the host list is rare and stays on the blocking transport
+        cp = new HttpProtocol(new HttpCommunication.Builder(httpBuilder).build(util.get(Serializer.INTERNAL)));
+        this.hostResolver = hostResolver;
+        hostResolver.init(new C8ExecutorSync(cp, util, new DocumentCache()), util());
+
+        LOGGER.debug("C8DB async client is ready to use");
+    }
+
+    @Override
+    protected C8ExecutorAsync executor() {
+        return executor;
+    }
+
+    @Override
+    public void shutdown() throws C8DBException {
+        try {
+            hostResolver.close();
+            executor.disconnect();
+            cp.close();
+        } catch (final IOException e) {
+            throw new C8DBException(e);
+        }
+    }
+
+    @Override
+    public C8DatabaseAsync db() {
+        return db(C8RequestParam.DEMO_TENANT, C8RequestParam.SYSTEM);
+    }
+
+    @Override
+    public C8DatabaseAsync db(final String tenant, final String name) {
+        return new C8DatabaseAsyncImpl(this, tenant, name, "", "");
+    }
+
+    @Override
+    public CompletableFuture<Collection<String>> getGeoFabrics() {
+        return executor.execute(getGeoFabricsRequest(db().tenant(), db().name()), getGeoFabricsResponseDeserializer());
+    }
+
+    @Override
+    public CompletableFuture<C8DBVersion> getVersion() {
+        return db().getVersion();
+    }
+
+    @Override
+    public CompletableFuture<ServerRole> getRole() {
+        return executor.execute(getRoleRequest(), getRoleResponseDeserializer());
+    }
+
+    @Override
+    public CompletableFuture<Response> execute(final Request request) {
+        return execute(request, null);
+    }
+
+    @Override
+    public CompletableFuture<Response> execute(final Request request, final HostHandle hostHandle) {
+        return executor.execute(request, new ResponseDeserializer<Response>() {
+            @Override
+            public Response deserialize(final Response response) throws VPackException {
+                return response;
+            }
+        }, hostHandle);
+    }
+
+}
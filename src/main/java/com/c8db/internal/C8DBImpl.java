@@ -18,6 +18,7 @@ import com.c8db.C8DB;
 import com.c8db.C8DBException;
 import com.c8db.C8Database;
 import com.c8db.Protocol;
+import com.c8db.Service;
 import com.c8db.entity.C8DBVersion;
 import com.c8db.entity.DataCenterEntity;
 import com.c8db.entity.DcInfoEntity;
@@ -31,6 +32,7 @@ import com.c8db.internal.C8Executor.ResponseDeserializer;
 import com.c8db.internal.http.HttpCommunication;
 import com.c8db.internal.http.HttpProtocol;
 import com.c8db.internal.net.CommunicationProtocol;
+import com.c8db.internal.net.Host;
 import com.c8db.internal.net.HostHandle;
 import com.c8db.internal.net.HostResolver;
 import com.c8db.internal.util.C8SerializationFactory;
@@ -54,6 +56,7 @@ public class C8DBImpl extends InternalC8DB<C8ExecutorSync> implements C8DB {
 
     private C8CursorInitializer cursorInitializer;
     private CommunicationProtocol cp;
+    private final HostResolver hostResolver;
 
     public C8DBImpl(final VstCommunicationSync.Builder vstBuilder, final HttpCommunication.Builder httpBuilder,
             final C8SerializationFactory util, final Protocol protocol, final HostResolver hostResolver,
@@ -65,6 +68,7 @@ public class C8DBImpl extends InternalC8DB<C8ExecutorSync> implements C8DB {
         cp = createProtocol(new VstCommunicationSync.Builder(vstBuilder).maxConnections(1),
                 new HttpCommunication.Builder(httpBuilder), util.get(Serializer.INTERNAL), protocol);
 
+        this.hostResolver = hostResolver;
         hostResolver.init(this.executor(), util());
 
         LOGGER.debug("ArangoDB Client is ready to use");
@@ -96,6 +100,7 @@ public class C8DBImpl extends InternalC8DB<C8ExecutorSync> implements C8DB {
     @Override
     public void shutdown() throws C8DBException {
         try {
+            hostResolver.close();
             executor.disconnect();
             cp.close();
         } catch (final IOException e) {
@@ -103,6 +108,13 @@ public class C8DBImpl extends InternalC8DB<C8ExecutorSync> implements C8DB {
         }
     }
 
+    @Override
+    public void warmUp() throws C8DBException {
+        for (final Host host : hostResolver.resolve(Service.C8DB, true, false).getHostsList()) {
+            host.warmUp();
+        }
+    }
+
     @Override
     public C8Database db() {
         return db(C8RequestParam.DEMO_TENANT, C8RequestParam.SYSTEM, "", "");
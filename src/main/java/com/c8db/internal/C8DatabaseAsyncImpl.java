@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+import com.c8db.C8CollectionAsync;
+import com.c8db.C8DatabaseAsync;
+import com.c8db.C8DBException;
+import com.c8db.entity.C8DBVersion;
+import com.c8db.entity.CollectionEntity;
+import com.c8db.entity.DatabaseEntity;
+import com.c8db.model.CollectionCreateOptions;
+import com.c8db.model.CollectionsReadOptions;
+
+/**
+ *
+ */
+public class C8DatabaseAsyncImpl extends InternalC8Database<C8DBAsyncImpl, C8ExecutorAsync>
+        implements C8DatabaseAsync {
+
+    protected C8DatabaseAsyncImpl(final C8DBAsyncImpl c8DB, final String tenant, final String name,
+            final String spotDc, final String dcList) {
+        super(c8DB, tenant, name, spotDc, dcList);
+    }
+
+    @Override
+    public CompletableFuture<C8DBVersion> getVersion() {
+        return executor.execute(getVersionRequest(), C8DBVersion.class);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists() {
+        return getInfo().handle(new BiFunction<DatabaseEntity, Throwable, Boolean>() {
+            @Override
+            public Boolean apply(final DatabaseEntity info, final Throwable t) {
+                if (t == null) {
+                    return true;
+                }
+                final C8DBException e = C8ExecutorAsync.unwrap(t);
+                if (C8Errors.ERROR_C8_DATABASE_NOT_FOUND.equals(e.getErrorNum())) {
+                    return false;
+                }
+                throw e;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<DatabaseEntity> getInfo() {
+        return executor.execute(getInfoRequest(), getInfoResponseDeserializer());
+    }
+
+    @Override
+    public C8CollectionAsync collection(final String name) {
+        return new C8CollectionAsyncImpl(this, name);
+    }
+
+    @Override
+    public CompletableFuture<CollectionEntity> createCollection(final String name) {
+        return executor.execute(createCollectionRequest(name, new CollectionCreateOptions()), CollectionEntity.class);
+    }
+
+    @Override
+    public CompletableFuture<CollectionEntity> createCollection(final String name,
+            final CollectionCreateOptions options) {
+        return executor.execute(createCollectionRequest(name, options), CollectionEntity.class);
+    }
+
+    @Override
+    public CompletableFuture<Collection<CollectionEntity>> getCollections() {
+        return executor.execute(getCollectionsRequest(new CollectionsReadOptions()),
+                getCollectionsResponseDeserializer());
+    }
+
+    @Override
+    public CompletableFuture<Collection<CollectionEntity>> getCollections(final CollectionsReadOptions options) {
+        return executor.execute(getCollectionsRequest(options), getCollectionsResponseDeserializer());
+    }
+
+}
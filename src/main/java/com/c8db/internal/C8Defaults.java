@@ -16,6 +16,7 @@
 
 package com.c8db.internal;
 
+import com.c8db.Compression;
 import com.c8db.Protocol;
 import com.c8db.entity.LoadBalancingStrategy;
 
@@ -48,9 +49,47 @@ public final class C8Defaults {
     public static final int MAX_CONNECTIONS_VST_DEFAULT = 1;
     public static final Integer CONNECTION_TTL_VST_DEFAULT = null;
     public static final int MAX_CONNECTIONS_HTTP_DEFAULT = 20;
+    public static final boolean DEFAULT_SHARED_HTTP_CLIENT = false;
+    public static final int DEFAULT_CONNECTION_ACQUIRE_TIMEOUT = 60 * 1000;
+    public static final boolean DEFAULT_FAIR_CONNECTION_POOL = false;
+    public static final int DEFAULT_MIN_IDLE_CONNECTIONS = 0;
+    public static final long DEFAULT_CONNECTION_MAX_LIFETIME = 0L;
+    public static final long DEFAULT_CONNECTION_MAX_IDLE_TIME = 0L;
+    public static final long DEFAULT_CONNECTION_VALIDATION_INTERVAL = 30L * 1000L;
+    public static final double DEFAULT_BULK_CONNECTIONS_RATIO = 0.5;
+    public static final int DEFAULT_MAX_CONNECTION_QUEUE = 0;
+    public static final int DEFAULT_MAX_REQUESTS_PER_CONNECTION = 1;
+    public static final boolean DEFAULT_ADAPTIVE_CONCURRENCY = false;
+    public static final int DEFAULT_INITIAL_CONCURRENCY_LIMIT = 20;
+    public static final int DEFAULT_MAX_CONCURRENCY_LIMIT = 0;
+    public static final boolean DEFAULT_CIRCUIT_BREAKER = true;
+    public static final double DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE = 0.5;
+    public static final long DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_DURATION = 0L;
+    public static final int DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS = 20;
+    public static final long DEFAULT_CIRCUIT_BREAKER_WINDOW = 10L * 1000L;
+    public static final long DEFAULT_CIRCUIT_BREAKER_EJECTION_TIME = 5L * 1000L;
+    public static final long DEFAULT_CIRCUIT_BREAKER_MAX_EJECTION_TIME = 5L * 60L * 1000L;
+    public static final long DEFAULT_CONNECTION_IDLE_TIMEOUT = 30L * 1000L;
+    public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 2000;
+    public static final int DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS = 100;
+    public static final boolean DEFAULT_DIRECT_JSON = false;
+    public static final Compression DEFAULT_COMPRESSION = Compression.NONE;
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
     public static final Protocol DEFAULT_NETWORK_PROTOCOL = Protocol.HTTP_JSON;
     public static final boolean DEFAULT_ACQUIRE_HOST_LIST = false;
     public static final int DEFAULT_ACQUIRE_HOST_LIST_INTERVAL = 60 * 60 * 1000; // hour
     public static final LoadBalancingStrategy DEFAULT_LOAD_BALANCING_STRATEGY = LoadBalancingStrategy.NONE;
+    public static final long DEFAULT_REGION_PROBE_INTERVAL = 60L * 1000L;
+    public static final int DEFAULT_REGION_PROBE_TIMEOUT = 2000;
     public static final Integer DEFAULT_RETRY_TIMEOUT = 256000;
+    public static final long DEFAULT_RETRY_BASE_DELAY = 1000L;
+    public static final long DEFAULT_RETRY_BUDGET_WINDOW = 10L * 1000L;
+    public static final double DEFAULT_RETRY_BUDGET_RATIO = 0.2;
+    public static final int DEFAULT_RETRY_BUDGET_MIN_RETRIES = 10;
+    public static final boolean DEFAULT_HEDGED_READS = false;
+    public static final long DEFAULT_HEDGE_DELAY = 0L;
+    public static final long DEFAULT_HEDGE_BUDGET_WINDOW = 10L * 1000L;
+    public static final double DEFAULT_HEDGE_BUDGET_RATIO = 0.1;
+    public static final int DEFAULT_HEDGE_BUDGET_MIN_HEDGES = 10;
+    public static final long DEFAULT_REDIRECT_CACHE_TTL = 60L * 1000L;
 }
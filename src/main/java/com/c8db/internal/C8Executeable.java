@@ -26,7 +26,11 @@ import com.c8db.internal.util.C8SerializationFactory;
 import com.c8db.internal.util.EncodeUtils;
 import com.c8db.internal.util.C8SerializationFactory.Serializer;
 import com.c8db.util.C8Serialization;
+import com.c8db.util.C8Serializer;
+import com.c8db.velocystream.JsonRequestBody;
+import com.c8db.velocystream.RawJsonRequestBody;
 import com.c8db.velocystream.Request;
+import com.c8db.velocystream.RequestBody;
 import com.c8db.velocystream.RequestType;
 
 /**
@@ -62,6 +66,17 @@ public abstract class C8Executeable<E extends C8Executor> {
         return util.get(serializer);
     }
 
+    /**
+     * Serializes a user provided value with the custom serializer. In direct JSON mode the value is written straight
+     * to JSON, otherwise to VelocyPack.
+     */
+    protected RequestBody customBody(final Object value, final C8Serializer.Options options) {
+        if (util.json() != null) {
+            return new RawJsonRequestBody(util.json().serializeJson(value, options));
+        }
+        return new JsonRequestBody(util(Serializer.CUSTOM).serialize(value, options));
+    }
+
     protected Request request(final String pathTenant, final String pathDatabase, final RequestType requestType,
                               final String... path) {
         return request(pathTenant, pathDatabase, requestType, true, path);
@@ -84,7 +99,10 @@ public abstract class C8Executeable<E extends C8Executor> {
             }
             try {
                 final String param;
-                if (params[i].contains(SLASH)) {
+                if (EncodeUtils.isSafePath(params[i])) {
+                    // path constants and plain names are used as they are
+                    param = params[i];
+                } else if (params[i].contains(SLASH)) {
                     param = createPath(params[i].split(SLASH));
                 } else {
                     param = EncodeUtils.encodeURL(params[i]);
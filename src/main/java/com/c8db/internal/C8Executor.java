@@ -18,6 +18,7 @@ package com.c8db.internal;
 
 import java.lang.reflect.Type;
 
+import com.arangodb.velocypack.VPackSlice;
 import com.arangodb.velocypack.exception.VPackException;
 import com.c8db.entity.Entity;
 import com.c8db.internal.util.C8SerializationFactory;
@@ -47,8 +48,16 @@ public abstract class C8Executor {
 
     @SuppressWarnings("unchecked")
     protected <T> T createResult(final Type type, final Response response) {
-        if (type != Void.class && response.getBody() != null) {
-            if (type instanceof Class && Entity.class.isAssignableFrom((Class) type)  ) {
+        if (type == Void.class) {
+            return (T) null;
+        }
+        final boolean entity = type instanceof Class && Entity.class.isAssignableFrom((Class) type);
+        if (!entity && type != VPackSlice.class && util.json() != null && response.getRawJson() != null) {
+            // documents are mapped straight from the received JSON, VelocyPack is never built
+            return (T) util.json().deserializeJson(response.getRawJson(), type);
+        }
+        if (response.getBody() != null) {
+            if (entity) {
                 return (T) util.get(Serializer.INTERNAL).deserialize(response.getBody(), type);
             } else {
                 return (T) util.get(Serializer.CUSTOM).deserialize(response.getBody(), type);
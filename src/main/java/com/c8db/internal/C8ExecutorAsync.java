@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import com.arangodb.velocypack.exception.VPackException;
+import com.c8db.C8DBException;
+import com.c8db.Service;
+import com.c8db.entity.MetaAware;
+import com.c8db.internal.net.CommunicationProtocolAsync;
+import com.c8db.internal.net.HostHandle;
+import com.c8db.internal.util.C8SerializationFactory;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.Response;
+
+/**
+ * Non-blocking counterpart of {@link C8ExecutorSync}. The futures are completed on the transport threads, so
+ * callbacks attached to them should not block.
+ */
+public class C8ExecutorAsync extends C8Executor {
+
+    private final CommunicationProtocolAsync protocol;
+
+    public C8ExecutorAsync(final CommunicationProtocolAsync protocol, final C8SerializationFactory util,
+            final DocumentCache documentCache) {
+        super(util, documentCache);
+        this.protocol = protocol;
+    }
+
+    public <T> CompletableFuture<T> execute(final Request request, final Type type) {
+        return execute(request, type, null);
+    }
+
+    public <T> CompletableFuture<T> execute(final Request request, final Type type, final HostHandle hostHandle) {
+        return execute(request, type, hostHandle, Service.C8DB);
+    }
+
+    public <T> CompletableFuture<T> execute(final Request request, final Type type, final HostHandle hostHandle,
+            final Service service) {
+        return execute(request, new ResponseDeserializer<T>() {
+            @Override
+            public T deserialize(final Response response) throws VPackException {
+                return createResult(type, response);
+            }
+        }, hostHandle, service);
+    }
+
+    public <T> CompletableFuture<T> execute(final Request request,
+            final ResponseDeserializer<T> responseDeserializer) {
+        return execute(request, responseDeserializer, null);
+    }
+
+    public <T> CompletableFuture<T> execute(final Request request, final ResponseDeserializer<T> responseDeserializer,
+            final HostHandle hostHandle) {
+        return execute(request, responseDeserializer, hostHandle, Service.C8DB);
+    }
+
+    public <T> CompletableFuture<T> execute(final Request request, final ResponseDeserializer<T> responseDeserializer,
+            final HostHandle hostHandle, final Service service) {
+        return protocol.execute(request, hostHandle, service).thenApply(new Function<Response, T>() {
+            @Override
+            public T apply(final Response response) {
+                try {
+                    final T deserialize = responseDeserializer.deserialize(response);
+                    if (deserialize instanceof MetaAware) {
+                        ((MetaAware) deserialize).setMeta(response.getMeta());
+                    }
+                    return deserialize;
+                } catch (final VPackException e) {
+                    throw new C8DBException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the {@link C8DBException} a future of this executor was completed with.
+     */
+    public static C8DBException unwrap(final Throwable t) {
+        final Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        return cause instanceof C8DBException ? (C8DBException) cause : new C8DBException(cause);
+    }
+
+    public void disconnect() {
+        try {
+            protocol.close();
+        } catch (final IOException e) {
+            throw new C8DBException(e);
+        }
+    }
+
+}
@@ -63,6 +63,7 @@ import com.c8db.model.TTLIndexOptions;
 import com.c8db.model.UserAccessOptions;
 import com.c8db.util.C8Serializer;
 import com.c8db.velocystream.Request;
+import com.c8db.velocystream.RequestPriority;
 import com.c8db.velocystream.RequestType;
 import com.c8db.velocystream.Response;
 
@@ -118,7 +119,7 @@ public abstract class InternalC8Collection<A extends InternalC8DB<E>, D extends
                 .putQueryParam(OVERWRITE, params.getOverwrite())
                 .putQueryParam(STRONG_CONSISTENCY, params.hasStrongConsistency())
                 .putHeaderParam(TRANSACTION_ID, params.getStreamTransactionId())
-                .setBody(util(Serializer.CUSTOM).serialize(value));
+                .setBody(customBody(value, new C8Serializer.Options()));
     }
 
     protected <T> ResponseDeserializer<DocumentCreateEntity<T>> insertDocumentResponseDeserializer(final T value,
@@ -151,13 +152,14 @@ public abstract class InternalC8Collection<A extends InternalC8DB<E>, D extends
 
     protected <T> Request insertDocumentsRequest(final Collection<T> values, final DocumentCreateOptions params) {
         return request(db.tenant(), db.name(), RequestType.POST, PATH_API_DOCUMENT, name)
+                .setPriority(RequestPriority.BULK)
                 .putQueryParam(C8RequestParam.WAIT_FOR_SYNC, params.getWaitForSync())
                 .putQueryParam(RETURN_NEW, params.getReturnNew())
                 .putQueryParam(RETURN_OLD, params.getReturnOld())
                 .putQueryParam(SILENT, params.getSilent())
                 .putQueryParam(OVERWRITE, params.getOverwrite())
                 .putHeaderParam(TRANSACTION_ID, params.getStreamTransactionId())
-                .setBody(util(Serializer.CUSTOM).serialize(values,
+                .setBody(customBody(values,
                         new C8Serializer.Options().serializeNullValues(false).stringAsJson(true)));
     }
 
@@ -273,7 +275,7 @@ public abstract class InternalC8Collection<A extends InternalC8DB<E>, D extends
                 .putQueryParam(RETURN_OLD, params.getReturnOld())
                 .putQueryParam(SILENT, params.getSilent())
                 .putQueryParam(STRONG_CONSISTENCY, params.hasStrongConsistency())
-                .setBody(util(Serializer.CUSTOM).serialize(value));
+                .setBody(customBody(value, new C8Serializer.Options()));
     }
 
     protected <T> ResponseDeserializer<DocumentUpdateEntity<T>> replaceDocumentResponseDeserializer(final T value,
@@ -304,6 +306,7 @@ public abstract class InternalC8Collection<A extends InternalC8DB<E>, D extends
 
     protected <T> Request replaceDocumentsRequest(final Collection<T> values, final DocumentReplaceOptions params) {
         return request(db.tenant(), db.name(), RequestType.PUT, PATH_API_DOCUMENT, name)
+                .setPriority(RequestPriority.BULK)
                 .putHeaderParam(C8RequestParam.IF_MATCH, params.getIfMatch())
                 .putHeaderParam(TRANSACTION_ID, params.getStreamTransactionId())
                 .putQueryParam(C8RequestParam.WAIT_FOR_SYNC, params.getWaitForSync())
@@ -312,7 +315,7 @@ public abstract class InternalC8Collection<A extends InternalC8DB<E>, D extends
                 .putQueryParam(RETURN_OLD, params.getReturnOld())
                 .putQueryParam(SILENT, params.getSilent())
                 .putQueryParam(STRONG_CONSISTENCY, params.hasStrongConsistency())
-                .setBody(util(Serializer.CUSTOM).serialize(values,
+                .setBody(customBody(values,
                         new C8Serializer.Options().serializeNullValues(false).stringAsJson(true)));
     }
 
@@ -378,7 +381,7 @@ public abstract class InternalC8Collection<A extends InternalC8DB<E>, D extends
                 .putQueryParam(RETURN_OLD, params.getReturnOld())
                 .putQueryParam(SILENT, params.getSilent())
                 .putQueryParam(STRONG_CONSISTENCY, params.hasStrongConsistency())
-                .setBody(util(Serializer.CUSTOM).serialize(value, new C8Serializer.Options()
+                .setBody(customBody(value, new C8Serializer.Options()
                         .serializeNullValues(params.getSerializeNull() == null || params.getSerializeNull())));
     }
 
@@ -411,6 +414,7 @@ public abstract class InternalC8Collection<A extends InternalC8DB<E>, D extends
     protected <T> Request updateDocumentsRequest(final Collection<T> values, final DocumentUpdateOptions params) {
         final Boolean keepNull = params.getKeepNull();
         return request(db.tenant(), db.name(), RequestType.PATCH, PATH_API_DOCUMENT, name)
+                .setPriority(RequestPriority.BULK)
                 .putHeaderParam(C8RequestParam.IF_MATCH, params.getIfMatch())
                 .putHeaderParam(TRANSACTION_ID, params.getStreamTransactionId())
                 .putQueryParam(C8RequestParam.KEEP_NULL, keepNull)
@@ -421,7 +425,7 @@ public abstract class InternalC8Collection<A extends InternalC8DB<E>, D extends
                 .putQueryParam(RETURN_OLD, params.getReturnOld())
                 .putQueryParam(SILENT, params.getSilent())
                 .putQueryParam(STRONG_CONSISTENCY, params.hasStrongConsistency())
-                .setBody(util(Serializer.CUSTOM).serialize(values,
+                .setBody(customBody(values,
                         new C8Serializer.Options()
                                 .serializeNullValues(params.getSerializeNull() == null || params.getSerializeNull())
                                 .stringAsJson(true)));
@@ -507,6 +511,7 @@ public abstract class InternalC8Collection<A extends InternalC8DB<E>, D extends
     protected <T> Request deleteDocumentsRequest(final Collection<T> keys, final DocumentDeleteOptions options) {
         final DocumentDeleteOptions params = (options != null ? options : new DocumentDeleteOptions());
         return request(db.tenant(), db.name(), RequestType.DELETE, PATH_API_DOCUMENT, name)
+                .setPriority(RequestPriority.BULK)
                 .putHeaderParam(TRANSACTION_ID, params.getStreamTransactionId())
                 .putQueryParam(C8RequestParam.WAIT_FOR_SYNC, params.getWaitForSync())
                 .putQueryParam(RETURN_OLD, params.getReturnOld())
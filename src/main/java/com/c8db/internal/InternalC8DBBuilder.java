@@ -22,10 +22,15 @@ import com.arangodb.velocypack.VPack;
 import com.arangodb.velocypack.VPackParser;
 import com.c8db.C8DB;
 import com.c8db.C8DBException;
+import com.c8db.Compression;
+import com.c8db.RetryPolicy;
 import com.c8db.SecretProvider;
 import com.c8db.Service;
 import com.c8db.entity.LoadBalancingStrategy;
+import com.c8db.internal.http.RequestHedger;
+import com.c8db.internal.net.CircuitBreakerConfig;
 import com.c8db.internal.net.ConnectionFactory;
+import com.c8db.internal.net.ConnectionPoolConfig;
 import com.c8db.internal.net.DirtyReadHostHandler;
 import com.c8db.internal.net.ExtendedHostResolver;
 import com.c8db.internal.net.FallbackHostHandler;
@@ -33,7 +38,11 @@ import com.c8db.internal.net.Host;
 import com.c8db.internal.net.HostDescription;
 import com.c8db.internal.net.HostHandler;
 import com.c8db.internal.net.HostResolver;
+import com.c8db.internal.net.LeastLoadedHostHandler;
+import com.c8db.internal.net.NearestRegionHostHandler;
 import com.c8db.internal.net.RandomHostHandler;
+import com.c8db.internal.net.RedirectCache;
+import com.c8db.internal.net.RegionProber;
 import com.c8db.internal.net.RoundRobinHostHandler;
 import com.c8db.internal.net.SimpleHostResolver;
 import com.c8db.internal.util.HostUtils;
@@ -41,6 +50,7 @@ import com.c8db.internal.velocypack.VPackDriverModule;
 import com.c8db.util.C8Deserializer;
 import com.c8db.util.C8Serialization;
 import com.c8db.util.C8Serializer;
+import com.c8db.util.RetryBudget;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +60,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -78,11 +89,45 @@ public abstract class InternalC8DBBuilder {
     private static final String PROPERTY_KEY_USE_SSL = "c8db.usessl";
     private static final String PROPERTY_KEY_COOKIE_SPEC = "c8db.httpCookieSpec";
     private static final String PROPERTY_KEY_V_STREAM_CHUNK_CONTENT_SIZE = "c8db.chunksize";
+    private static final String PROPERTY_KEY_V_STREAM_MAX_CHUNK_CONTENT_SIZE = "c8db.chunksize.max";
     private static final String PROPERTY_KEY_MAX_CONNECTIONS = "c8db.connections.max";
     private static final String PROPERTY_KEY_CONNECTION_TTL = "c8db.connections.ttl";
+    private static final String PROPERTY_KEY_CONNECTION_KEEP_ALIVE = "c8db.connections.keepAlive";
+    private static final String PROPERTY_KEY_CONNECTION_ACQUIRE_TIMEOUT = "c8db.connections.acquireTimeout";
+    private static final String PROPERTY_KEY_FAIR_CONNECTION_POOL = "c8db.connections.fair";
+    private static final String PROPERTY_KEY_MIN_IDLE_CONNECTIONS = "c8db.connections.minIdle";
+    private static final String PROPERTY_KEY_CONNECTION_MAX_LIFETIME = "c8db.connections.maxLifetime";
+    private static final String PROPERTY_KEY_CONNECTION_MAX_IDLE_TIME = "c8db.connections.maxIdleTime";
+    private static final String PROPERTY_KEY_CONNECTION_VALIDATION_INTERVAL = "c8db.connections.validationInterval";
+    private static final String PROPERTY_KEY_BULK_CONNECTIONS_RATIO = "c8db.connections.bulkRatio";
+    private static final String PROPERTY_KEY_MAX_CONNECTION_QUEUE = "c8db.connections.maxQueue";
+    private static final String PROPERTY_KEY_MAX_REQUESTS_PER_CONNECTION = "c8db.connections.maxRequests";
+    private static final String PROPERTY_KEY_ADAPTIVE_CONCURRENCY = "c8db.adaptiveConcurrency";
+    private static final String PROPERTY_KEY_MAX_CONCURRENCY_LIMIT = "c8db.adaptiveConcurrency.maxLimit";
+    private static final String PROPERTY_KEY_SHARED_HTTP_CLIENT = "c8db.connections.shared";
+    private static final String PROPERTY_KEY_MAX_CONNECTIONS_PER_ROUTE = "c8db.connections.maxPerRoute";
+    private static final String PROPERTY_KEY_MAX_CONNECTIONS_TOTAL = "c8db.connections.maxTotal";
+    private static final String PROPERTY_KEY_CONNECTION_IDLE_TIMEOUT = "c8db.connections.idleTimeout";
+    private static final String PROPERTY_KEY_VALIDATE_AFTER_INACTIVITY = "c8db.connections.validateAfterInactivity";
+    private static final String PROPERTY_KEY_HTTP2_MAX_CONCURRENT_STREAMS = "c8db.http2.maxConcurrentStreams";
+    private static final String PROPERTY_KEY_DIRECT_JSON = "c8db.directJson";
+    private static final String PROPERTY_KEY_COMPRESSION = "c8db.compression";
+    private static final String PROPERTY_KEY_COMPRESSION_THRESHOLD = "c8db.compression.threshold";
     private static final String PROPERTY_KEY_ACQUIRE_HOST_LIST = "c8db.acquireHostList";
     private static final String PROPERTY_KEY_ACQUIRE_HOST_LIST_INTERVAL = "c8db.acquireHostList.interval";
     private static final String PROPERTY_KEY_LOAD_BALANCING_STRATEGY = "c8db.loadBalancingStrategy";
+    private static final String PROPERTY_KEY_CIRCUIT_BREAKER = "c8db.circuitBreaker";
+    private static final String PROPERTY_KEY_CIRCUIT_BREAKER_FAILURE_RATE = "c8db.circuitBreaker.failureRate";
+    private static final String PROPERTY_KEY_CIRCUIT_BREAKER_SLOW_CALL_DURATION =
+            "c8db.circuitBreaker.slowCallDuration";
+    private static final String PROPERTY_KEY_CIRCUIT_BREAKER_MINIMUM_CALLS = "c8db.circuitBreaker.minimumCalls";
+    private static final String PROPERTY_KEY_CIRCUIT_BREAKER_EJECTION_TIME = "c8db.circuitBreaker.ejectionTime";
+    private static final String PROPERTY_KEY_REGION_PROBE_INTERVAL = "c8db.regionProbeInterval";
+    private static final String PROPERTY_KEY_SPOT_REGION_HOST = "c8db.spotRegionHost";
+    private static final String PROPERTY_KEY_HEDGED_READS = "c8db.hedgedReads";
+    private static final String PROPERTY_KEY_HEDGE_DELAY = "c8db.hedgedReads.delay";
+    private static final String PROPERTY_KEY_HEDGE_BUDGET_RATIO = "c8db.hedgedReads.budgetRatio";
+    private static final String PROPERTY_KEY_REDIRECT_CACHE_TTL = "c8db.redirectCacheTtl";
     private static final String DEFAULT_PROPERTY_FILE = "/c8db.properties";
 
     protected final Map<Service, List<HostDescription>> hosts;
@@ -98,16 +143,52 @@ public abstract class InternalC8DBBuilder {
     protected String httpCookieSpec;
     protected SSLContext sslContext;
     protected Integer chunksize;
+    protected Integer maxChunksize;
     protected Integer maxConnections;
+    protected Integer connectionAcquireTimeout;
+    protected Boolean fairConnectionPool;
+    protected Integer minIdleConnections;
+    protected Long connectionMaxLifetime;
+    protected Long connectionMaxIdleTime;
+    protected Long connectionValidationInterval;
+    protected final Map<Service, Integer> serviceMaxConnections;
+    protected Double bulkConnectionsRatio;
+    protected Integer maxConnectionQueue;
+    protected Integer maxRequestsPerConnection;
+    protected Boolean adaptiveConcurrency;
+    protected Integer maxConcurrencyLimit;
     protected Long connectionTtl;
+    protected Long connectionKeepAlive;
+    protected Boolean sharedHttpClient;
+    protected Integer maxConnectionsPerRoute;
+    protected Integer maxConnectionsTotal;
+    protected Long connectionIdleTimeout;
+    protected Integer validateAfterInactivity;
+    protected Integer maxConcurrentStreams;
+    protected Boolean directJson;
+    protected Compression compression;
+    protected Integer compressionThreshold;
     protected final VPack.Builder vpackBuilder;
     protected final VPackParser.Builder vpackParserBuilder;
+    protected boolean customJsonSerializers;
     protected C8Serializer serializer;
     protected C8Deserializer deserializer;
     protected Boolean acquireHostList;
     protected Integer acquireHostListInterval;
     protected LoadBalancingStrategy loadBalancingStrategy;
+    protected Boolean circuitBreaker;
+    protected Double circuitBreakerFailureRate;
+    protected Long circuitBreakerSlowCallDuration;
+    protected Integer circuitBreakerMinimumCalls;
+    protected Long circuitBreakerEjectionTime;
+    protected Long regionProbeInterval;
+    protected HostDescription spotRegionHost;
+    protected Boolean hedgedReads;
+    protected Long hedgeDelay;
+    protected Double hedgeBudgetRatio;
+    protected Long redirectCacheTtl;
     protected Integer retryTimeout;
+    protected RetryPolicy retryPolicy;
     protected C8Serialization customSerializer;
     protected String apiKey;
     protected SecretProvider secretProvider;
@@ -123,6 +204,7 @@ public abstract class InternalC8DBBuilder {
         for (Service key : Service.values()) {
             hosts.put(key, new ArrayList<>());
         }
+        serviceMaxConnections = new EnumMap<>(Service.class);
         user = C8Defaults.DEFAULT_USER;
         loadProperties(C8DB.class.getResourceAsStream(DEFAULT_PROPERTY_FILE));
     }
@@ -163,11 +245,46 @@ public abstract class InternalC8DBBuilder {
         useSsl = loadUseSsl(properties, useSsl);
         httpCookieSpec = loadhttpCookieSpec(properties, httpCookieSpec);
         chunksize = loadChunkSize(properties, chunksize);
+        maxChunksize = loadMaxChunkSize(properties, maxChunksize);
         maxConnections = loadMaxConnections(properties, maxConnections);
+        connectionAcquireTimeout = loadConnectionAcquireTimeout(properties, connectionAcquireTimeout);
+        fairConnectionPool = loadFairConnectionPool(properties, fairConnectionPool);
+        minIdleConnections = loadMinIdleConnections(properties, minIdleConnections);
+        connectionMaxLifetime = loadConnectionMaxLifetime(properties, connectionMaxLifetime);
+        connectionMaxIdleTime = loadConnectionMaxIdleTime(properties, connectionMaxIdleTime);
+        connectionValidationInterval = loadConnectionValidationInterval(properties, connectionValidationInterval);
+        loadServiceMaxConnections(properties, serviceMaxConnections);
+        bulkConnectionsRatio = loadBulkConnectionsRatio(properties, bulkConnectionsRatio);
+        maxConnectionQueue = loadMaxConnectionQueue(properties, maxConnectionQueue);
+        maxRequestsPerConnection = loadMaxRequestsPerConnection(properties, maxRequestsPerConnection);
+        adaptiveConcurrency = loadAdaptiveConcurrency(properties, adaptiveConcurrency);
+        maxConcurrencyLimit = loadMaxConcurrencyLimit(properties, maxConcurrencyLimit);
         connectionTtl = loadConnectionTtl(properties, connectionTtl);
+        connectionKeepAlive = loadConnectionKeepAlive(properties, connectionKeepAlive);
+        sharedHttpClient = loadSharedHttpClient(properties, sharedHttpClient);
+        maxConnectionsPerRoute = loadMaxConnectionsPerRoute(properties, maxConnectionsPerRoute);
+        maxConnectionsTotal = loadMaxConnectionsTotal(properties, maxConnectionsTotal);
+        connectionIdleTimeout = loadConnectionIdleTimeout(properties, connectionIdleTimeout);
+        validateAfterInactivity = loadValidateAfterInactivity(properties, validateAfterInactivity);
+        maxConcurrentStreams = loadMaxConcurrentStreams(properties, maxConcurrentStreams);
+        directJson = loadDirectJson(properties, directJson);
+        compression = loadCompression(properties, compression);
+        compressionThreshold = loadCompressionThreshold(properties, compressionThreshold);
         acquireHostList = loadAcquireHostList(properties, acquireHostList);
         acquireHostListInterval = loadAcquireHostListInterval(properties, acquireHostListInterval);
         loadBalancingStrategy = loadLoadBalancingStrategy(properties, loadBalancingStrategy);
+        circuitBreaker = loadCircuitBreaker(properties, circuitBreaker);
+        circuitBreakerFailureRate = loadCircuitBreakerFailureRate(properties, circuitBreakerFailureRate);
+        circuitBreakerSlowCallDuration = loadCircuitBreakerSlowCallDuration(properties,
+                circuitBreakerSlowCallDuration);
+        circuitBreakerMinimumCalls = loadCircuitBreakerMinimumCalls(properties, circuitBreakerMinimumCalls);
+        circuitBreakerEjectionTime = loadCircuitBreakerEjectionTime(properties, circuitBreakerEjectionTime);
+        regionProbeInterval = loadRegionProbeInterval(properties, regionProbeInterval);
+        spotRegionHost = loadSpotRegionHost(properties, spotRegionHost);
+        hedgedReads = loadHedgedReads(properties, hedgedReads);
+        hedgeDelay = loadHedgeDelay(properties, hedgeDelay);
+        hedgeBudgetRatio = loadHedgeBudgetRatio(properties, hedgeBudgetRatio);
+        redirectCacheTtl = loadRedirectCacheTtl(properties, redirectCacheTtl);
         retryTimeout = loadRetryTimeout(properties, retryTimeout);
     }
 
@@ -219,6 +336,10 @@ public abstract class InternalC8DBBuilder {
         this.chunksize = chunksize;
     }
 
+    protected void setMaxChunksize(final Integer maxChunksize) {
+        this.maxChunksize = maxChunksize;
+    }
+
     protected void setMaxConnections(final Integer maxConnections) {
         this.maxConnections = maxConnections;
     }
@@ -227,6 +348,98 @@ public abstract class InternalC8DBBuilder {
         this.connectionTtl = connectionTtl;
     }
 
+    protected void setConnectionKeepAlive(final Long connectionKeepAlive) {
+        this.connectionKeepAlive = connectionKeepAlive;
+    }
+
+    protected void setSharedHttpClient(final Boolean sharedHttpClient) {
+        this.sharedHttpClient = sharedHttpClient;
+    }
+
+    protected void setConnectionAcquireTimeout(final Integer connectionAcquireTimeout) {
+        this.connectionAcquireTimeout = connectionAcquireTimeout;
+    }
+
+    protected void setFairConnectionPool(final Boolean fairConnectionPool) {
+        this.fairConnectionPool = fairConnectionPool;
+    }
+
+    protected void setMinIdleConnections(final Integer minIdleConnections) {
+        this.minIdleConnections = minIdleConnections;
+    }
+
+    protected void setConnectionMaxLifetime(final Long connectionMaxLifetime) {
+        this.connectionMaxLifetime = connectionMaxLifetime;
+    }
+
+    protected void setConnectionMaxIdleTime(final Long connectionMaxIdleTime) {
+        this.connectionMaxIdleTime = connectionMaxIdleTime;
+    }
+
+    protected void setConnectionValidationInterval(final Long connectionValidationInterval) {
+        this.connectionValidationInterval = connectionValidationInterval;
+    }
+
+    protected void setMaxConnections(final Service service, final Integer maxConnections) {
+        if (maxConnections != null) {
+            serviceMaxConnections.put(service, maxConnections);
+        } else {
+            serviceMaxConnections.remove(service);
+        }
+    }
+
+    protected void setBulkConnectionsRatio(final Double bulkConnectionsRatio) {
+        this.bulkConnectionsRatio = bulkConnectionsRatio;
+    }
+
+    protected void setMaxConnectionQueue(final Integer maxConnectionQueue) {
+        this.maxConnectionQueue = maxConnectionQueue;
+    }
+
+    protected void setMaxRequestsPerConnection(final Integer maxRequestsPerConnection) {
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+    }
+
+    protected void setAdaptiveConcurrency(final Boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+    }
+
+    protected void setMaxConcurrencyLimit(final Integer maxConcurrencyLimit) {
+        this.maxConcurrencyLimit = maxConcurrencyLimit;
+    }
+
+    protected void setMaxConnectionsPerRoute(final Integer maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    protected void setMaxConnectionsTotal(final Integer maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
+    protected void setConnectionIdleTimeout(final Long connectionIdleTimeout) {
+        this.connectionIdleTimeout = connectionIdleTimeout;
+    }
+
+    protected void setValidateAfterInactivity(final Integer validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    protected void setMaxConcurrentStreams(final Integer maxConcurrentStreams) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+
+    protected void setDirectJson(final Boolean directJson) {
+        this.directJson = directJson;
+    }
+
+    protected void setCompression(final Compression compression) {
+        this.compression = compression;
+    }
+
+    protected void setCompressionThreshold(final Integer compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
     protected void setAcquireHostList(final Boolean acquireHostList) {
         this.acquireHostList = acquireHostList;
     }
@@ -239,6 +452,50 @@ public abstract class InternalC8DBBuilder {
         this.loadBalancingStrategy = loadBalancingStrategy;
     }
 
+    protected void setCircuitBreaker(final Boolean circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    protected void setCircuitBreakerFailureRate(final Double circuitBreakerFailureRate) {
+        this.circuitBreakerFailureRate = circuitBreakerFailureRate;
+    }
+
+    protected void setCircuitBreakerSlowCallDuration(final Long circuitBreakerSlowCallDuration) {
+        this.circuitBreakerSlowCallDuration = circuitBreakerSlowCallDuration;
+    }
+
+    protected void setCircuitBreakerMinimumCalls(final Integer circuitBreakerMinimumCalls) {
+        this.circuitBreakerMinimumCalls = circuitBreakerMinimumCalls;
+    }
+
+    protected void setCircuitBreakerEjectionTime(final Long circuitBreakerEjectionTime) {
+        this.circuitBreakerEjectionTime = circuitBreakerEjectionTime;
+    }
+
+    protected void setRegionProbeInterval(final Long regionProbeInterval) {
+        this.regionProbeInterval = regionProbeInterval;
+    }
+
+    protected void setSpotRegionHost(final String host, final int port) {
+        spotRegionHost = new HostDescription(host, port);
+    }
+
+    protected void setHedgedReads(final Boolean hedgedReads) {
+        this.hedgedReads = hedgedReads;
+    }
+
+    protected void setHedgeDelay(final Long hedgeDelay) {
+        this.hedgeDelay = hedgeDelay;
+    }
+
+    protected void setHedgeBudgetRatio(final Double hedgeBudgetRatio) {
+        this.hedgeBudgetRatio = hedgeBudgetRatio;
+    }
+
+    protected void setRedirectCacheTtl(final Long redirectCacheTtl) {
+        this.redirectCacheTtl = redirectCacheTtl;
+    }
+
     protected void setSecretProvider(final SecretProvider secretProvider) {
         this.secretProvider = secretProvider;
     }
@@ -267,6 +524,15 @@ public abstract class InternalC8DBBuilder {
                 case ROUND_ROBIN:
                     hostHandler = new RoundRobinHostHandler(hostResolver, service);
                     break;
+                case LEAST_LOADED:
+                    hostHandler = new LeastLoadedHostHandler(hostResolver, service);
+                    break;
+                case NEAREST_REGION:
+                    hostHandler = new NearestRegionHostHandler(hostResolver, service,
+                            new RegionProber(hostResolver, service, regionProbeInterval,
+                                    C8Defaults.DEFAULT_REGION_PROBE_TIMEOUT),
+                            spotRegionHost);
+                    break;
                 case NONE:
                 default:
                     hostHandler = new FallbackHostHandler(hostResolver, service);
@@ -284,6 +550,10 @@ public abstract class InternalC8DBBuilder {
         this.retryTimeout = retryTimeout;
     }
 
+    protected void setRetryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
     protected void deserializer(final C8Deserializer deserializer) {
         this.deserializer = deserializer;
     }
@@ -292,13 +562,15 @@ public abstract class InternalC8DBBuilder {
         this.customSerializer = serializer;
     }
 
-    protected HostResolver createHostResolver(final Map<Service, Collection<Host>> hostsMatrix, final int maxConnections,
+    protected HostResolver createHostResolver(final Map<Service, Collection<Host>> hostsMatrix,
+                                              final ConnectionPoolConfig poolConfig,
+                                              final CircuitBreakerConfig circuitBreakerConfig,
                                               final ConnectionFactory connectionFactory) {
 
         if (acquireHostList != null && acquireHostList) {
             LOG.debug("acquireHostList -> Use ExtendedHostResolver");
-            return new ExtendedHostResolver(HostUtils.cloneHostMatrix(hostsMatrix), maxConnections, connectionFactory,
-                    acquireHostListInterval);
+            return new ExtendedHostResolver(HostUtils.cloneHostMatrix(hostsMatrix), poolConfig,
+                    circuitBreakerConfig, connectionFactory, acquireHostListInterval);
         } else {
             LOG.debug("Use SimpleHostResolver");
             return new SimpleHostResolver(HostUtils.cloneHostMatrix(hostsMatrix));
@@ -311,13 +583,13 @@ public abstract class InternalC8DBBuilder {
         if (hostsProp != null) {
             final String[] hostsSplit = hostsProp.split(",");
             for (final String host : hostsSplit) {
-                final String[] split = host.split(":");
-                if (split.length != 2 || !split[1].matches("[0-9]+")) {
+                final HostDescription description = HostUtils.parseEndpoint(host);
+                if (description == null) {
                     throw new C8DBException(String.format(
-                            "Could not load property-value c8db.hosts=%s. Expected format ip:port,ip:port,...",
+                            "Could not load property-value c8db.hosts=%s. Expected format ip:port,[ipv6]:port,...",
                             hostsProp));
                 } else {
-                    hosts.get(service).add(new HostDescription(split[0], Integer.valueOf(split[1])));
+                    hosts.get(service).add(description);
                 }
             }
         }
@@ -390,6 +662,11 @@ public abstract class InternalC8DBBuilder {
                 C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE));
     }
 
+    private static Integer loadMaxChunkSize(final Properties properties, final Integer currentValue) {
+        final String max = getProperty(properties, PROPERTY_KEY_V_STREAM_MAX_CHUNK_CONTENT_SIZE, currentValue, null);
+        return max != null ? Integer.parseInt(max) : null;
+    }
+
     private static Integer loadMaxConnections(final Properties properties, final Integer currentValue) {
         final String max = getProperty(properties, PROPERTY_KEY_MAX_CONNECTIONS, currentValue,
                 null);
@@ -402,6 +679,122 @@ public abstract class InternalC8DBBuilder {
         return ttl != null ? Long.parseLong(ttl) : null;
     }
 
+    private static Long loadConnectionKeepAlive(final Properties properties, final Long currentValue) {
+        final String keepAlive = getProperty(properties, PROPERTY_KEY_CONNECTION_KEEP_ALIVE, currentValue, null);
+        return keepAlive != null ? Long.parseLong(keepAlive) : null;
+    }
+
+    private static Integer loadConnectionAcquireTimeout(final Properties properties, final Integer currentValue) {
+        return Integer.parseInt(getProperty(properties, PROPERTY_KEY_CONNECTION_ACQUIRE_TIMEOUT, currentValue,
+                C8Defaults.DEFAULT_CONNECTION_ACQUIRE_TIMEOUT));
+    }
+
+    private static Boolean loadFairConnectionPool(final Properties properties, final Boolean currentValue) {
+        return Boolean.parseBoolean(getProperty(properties, PROPERTY_KEY_FAIR_CONNECTION_POOL, currentValue,
+                C8Defaults.DEFAULT_FAIR_CONNECTION_POOL));
+    }
+
+    private static Integer loadMinIdleConnections(final Properties properties, final Integer currentValue) {
+        return Integer.parseInt(getProperty(properties, PROPERTY_KEY_MIN_IDLE_CONNECTIONS, currentValue,
+                C8Defaults.DEFAULT_MIN_IDLE_CONNECTIONS));
+    }
+
+    private static Long loadConnectionMaxLifetime(final Properties properties, final Long currentValue) {
+        return Long.parseLong(getProperty(properties, PROPERTY_KEY_CONNECTION_MAX_LIFETIME, currentValue,
+                C8Defaults.DEFAULT_CONNECTION_MAX_LIFETIME));
+    }
+
+    private static Long loadConnectionMaxIdleTime(final Properties properties, final Long currentValue) {
+        return Long.parseLong(getProperty(properties, PROPERTY_KEY_CONNECTION_MAX_IDLE_TIME, currentValue,
+                C8Defaults.DEFAULT_CONNECTION_MAX_IDLE_TIME));
+    }
+
+    private static Long loadConnectionValidationInterval(final Properties properties, final Long currentValue) {
+        return Long.parseLong(getProperty(properties, PROPERTY_KEY_CONNECTION_VALIDATION_INTERVAL, currentValue,
+                C8Defaults.DEFAULT_CONNECTION_VALIDATION_INTERVAL));
+    }
+
+    private static Boolean loadSharedHttpClient(final Properties properties, final Boolean currentValue) {
+        return Boolean.parseBoolean(getProperty(properties, PROPERTY_KEY_SHARED_HTTP_CLIENT, currentValue,
+                C8Defaults.DEFAULT_SHARED_HTTP_CLIENT));
+    }
+
+    private static void loadServiceMaxConnections(final Properties properties,
+            final Map<Service, Integer> serviceMaxConnections) {
+        for (final Service service : Service.values()) {
+            final String key = PROPERTY_KEY_MAX_CONNECTIONS + "." + service.name().toLowerCase();
+            final String max = properties.getProperty(key);
+            if (max != null) {
+                serviceMaxConnections.put(service, Integer.parseInt(max));
+            }
+        }
+    }
+
+    private static Double loadBulkConnectionsRatio(final Properties properties, final Double currentValue) {
+        return Double.parseDouble(getProperty(properties, PROPERTY_KEY_BULK_CONNECTIONS_RATIO, currentValue,
+                C8Defaults.DEFAULT_BULK_CONNECTIONS_RATIO));
+    }
+
+    private static Integer loadMaxConnectionQueue(final Properties properties, final Integer currentValue) {
+        return Integer.parseInt(getProperty(properties, PROPERTY_KEY_MAX_CONNECTION_QUEUE, currentValue,
+                C8Defaults.DEFAULT_MAX_CONNECTION_QUEUE));
+    }
+
+    private static Integer loadMaxRequestsPerConnection(final Properties properties, final Integer currentValue) {
+        return Integer.parseInt(getProperty(properties, PROPERTY_KEY_MAX_REQUESTS_PER_CONNECTION, currentValue,
+                C8Defaults.DEFAULT_MAX_REQUESTS_PER_CONNECTION));
+    }
+
+    private static Boolean loadAdaptiveConcurrency(final Properties properties, final Boolean currentValue) {
+        return Boolean.parseBoolean(getProperty(properties, PROPERTY_KEY_ADAPTIVE_CONCURRENCY, currentValue,
+                C8Defaults.DEFAULT_ADAPTIVE_CONCURRENCY));
+    }
+
+    private static Integer loadMaxConcurrencyLimit(final Properties properties, final Integer currentValue) {
+        return Integer.parseInt(getProperty(properties, PROPERTY_KEY_MAX_CONCURRENCY_LIMIT, currentValue,
+                C8Defaults.DEFAULT_MAX_CONCURRENCY_LIMIT));
+    }
+
+    private static Integer loadMaxConnectionsPerRoute(final Properties properties, final Integer currentValue) {
+        final String max = getProperty(properties, PROPERTY_KEY_MAX_CONNECTIONS_PER_ROUTE, currentValue, null);
+        return max != null ? Integer.parseInt(max) : null;
+    }
+
+    private static Integer loadMaxConnectionsTotal(final Properties properties, final Integer currentValue) {
+        final String max = getProperty(properties, PROPERTY_KEY_MAX_CONNECTIONS_TOTAL, currentValue, null);
+        return max != null ? Integer.parseInt(max) : null;
+    }
+
+    private static Long loadConnectionIdleTimeout(final Properties properties, final Long currentValue) {
+        return Long.parseLong(getProperty(properties, PROPERTY_KEY_CONNECTION_IDLE_TIMEOUT, currentValue,
+                C8Defaults.DEFAULT_CONNECTION_IDLE_TIMEOUT));
+    }
+
+    private static Integer loadValidateAfterInactivity(final Properties properties, final Integer currentValue) {
+        return Integer.parseInt(getProperty(properties, PROPERTY_KEY_VALIDATE_AFTER_INACTIVITY, currentValue,
+                C8Defaults.DEFAULT_VALIDATE_AFTER_INACTIVITY));
+    }
+
+    private static Integer loadMaxConcurrentStreams(final Properties properties, final Integer currentValue) {
+        return Integer.parseInt(getProperty(properties, PROPERTY_KEY_HTTP2_MAX_CONCURRENT_STREAMS, currentValue,
+                C8Defaults.DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS));
+    }
+
+    private static Boolean loadDirectJson(final Properties properties, final Boolean currentValue) {
+        return Boolean.parseBoolean(getProperty(properties, PROPERTY_KEY_DIRECT_JSON, currentValue,
+                C8Defaults.DEFAULT_DIRECT_JSON));
+    }
+
+    private static Compression loadCompression(final Properties properties, final Compression currentValue) {
+        return Compression.valueOf(getProperty(properties, PROPERTY_KEY_COMPRESSION, currentValue,
+                C8Defaults.DEFAULT_COMPRESSION).toUpperCase());
+    }
+
+    private static Integer loadCompressionThreshold(final Properties properties, final Integer currentValue) {
+        return Integer.parseInt(getProperty(properties, PROPERTY_KEY_COMPRESSION_THRESHOLD, currentValue,
+                C8Defaults.DEFAULT_COMPRESSION_THRESHOLD));
+    }
+
     private static Boolean loadAcquireHostList(final Properties properties, final Boolean currentValue) {
         return Boolean.parseBoolean(getProperty(properties, PROPERTY_KEY_ACQUIRE_HOST_LIST, currentValue,
                 C8Defaults.DEFAULT_ACQUIRE_HOST_LIST));
@@ -418,6 +811,70 @@ public abstract class InternalC8DBBuilder {
                 C8Defaults.DEFAULT_LOAD_BALANCING_STRATEGY).toUpperCase());
     }
 
+    private static Boolean loadCircuitBreaker(final Properties properties, final Boolean currentValue) {
+        return Boolean.parseBoolean(getProperty(properties, PROPERTY_KEY_CIRCUIT_BREAKER, currentValue,
+                C8Defaults.DEFAULT_CIRCUIT_BREAKER));
+    }
+
+    private static Double loadCircuitBreakerFailureRate(final Properties properties, final Double currentValue) {
+        return Double.parseDouble(getProperty(properties, PROPERTY_KEY_CIRCUIT_BREAKER_FAILURE_RATE, currentValue,
+                C8Defaults.DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE));
+    }
+
+    private static Long loadCircuitBreakerSlowCallDuration(final Properties properties, final Long currentValue) {
+        return Long.parseLong(getProperty(properties, PROPERTY_KEY_CIRCUIT_BREAKER_SLOW_CALL_DURATION, currentValue,
+                C8Defaults.DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_DURATION));
+    }
+
+    private static Integer loadCircuitBreakerMinimumCalls(final Properties properties, final Integer currentValue) {
+        return Integer.parseInt(getProperty(properties, PROPERTY_KEY_CIRCUIT_BREAKER_MINIMUM_CALLS, currentValue,
+                C8Defaults.DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS));
+    }
+
+    private static Long loadCircuitBreakerEjectionTime(final Properties properties, final Long currentValue) {
+        return Long.parseLong(getProperty(properties, PROPERTY_KEY_CIRCUIT_BREAKER_EJECTION_TIME, currentValue,
+                C8Defaults.DEFAULT_CIRCUIT_BREAKER_EJECTION_TIME));
+    }
+
+    private static Long loadRegionProbeInterval(final Properties properties, final Long currentValue) {
+        return Long.parseLong(getProperty(properties, PROPERTY_KEY_REGION_PROBE_INTERVAL, currentValue,
+                C8Defaults.DEFAULT_REGION_PROBE_INTERVAL));
+    }
+
+    private static HostDescription loadSpotRegionHost(final Properties properties,
+            final HostDescription currentValue) {
+        final String host = properties.getProperty(PROPERTY_KEY_SPOT_REGION_HOST);
+        if (host == null) {
+            return currentValue;
+        }
+        final HostDescription description = HostUtils.parseEndpoint(host);
+        if (description == null) {
+            throw new C8DBException(String.format(
+                    "Could not load property-value c8db.spotRegionHost=%s. Expected format ip:port", host));
+        }
+        return description;
+    }
+
+    private static Boolean loadHedgedReads(final Properties properties, final Boolean currentValue) {
+        return Boolean.parseBoolean(getProperty(properties, PROPERTY_KEY_HEDGED_READS, currentValue,
+                C8Defaults.DEFAULT_HEDGED_READS));
+    }
+
+    private static Long loadHedgeDelay(final Properties properties, final Long currentValue) {
+        return Long.parseLong(getProperty(properties, PROPERTY_KEY_HEDGE_DELAY, currentValue,
+                C8Defaults.DEFAULT_HEDGE_DELAY));
+    }
+
+    private static Double loadHedgeBudgetRatio(final Properties properties, final Double currentValue) {
+        return Double.parseDouble(getProperty(properties, PROPERTY_KEY_HEDGE_BUDGET_RATIO, currentValue,
+                C8Defaults.DEFAULT_HEDGE_BUDGET_RATIO));
+    }
+
+    private static Long loadRedirectCacheTtl(final Properties properties, final Long currentValue) {
+        return Long.parseLong(getProperty(properties, PROPERTY_KEY_REDIRECT_CACHE_TTL, currentValue,
+                C8Defaults.DEFAULT_REDIRECT_CACHE_TTL));
+    }
+
     private static Integer loadRetryTimeout(final Properties properties, final Integer currentValue) {
         return Integer
                 .parseInt(getProperty(properties, PROPERTY_KEY_RETRY_TIMEOUT, currentValue,
@@ -438,14 +895,55 @@ public abstract class InternalC8DBBuilder {
         return properties.getProperty(key, overrideDefaultValue);
     }
 
-    protected Map<Service, Collection<Host>> createHostMatrix(final int maxConnections,
+    protected ConnectionPoolConfig createConnectionPoolConfig(final int maxConnections) {
+        return createConnectionPoolConfig(maxConnections, 1);
+    }
+
+    /**
+     * @param maxRequestsPerConnection number of requests that may share a connection, only VelocyStream
+     *                                 connections can be shared
+     */
+    protected ConnectionPoolConfig createConnectionPoolConfig(final int maxConnections,
+            final Integer maxRequestsPerConnection) {
+        return new ConnectionPoolConfig.Builder().maxConnections(maxConnections)
+                .maxRequestsPerConnection(maxRequestsPerConnection)
+                .acquireTimeout(connectionAcquireTimeout).fair(fairConnectionPool).minIdle(minIdleConnections)
+                .maxLifetime(connectionMaxLifetime).maxIdleTime(connectionMaxIdleTime)
+                .validationInterval(connectionValidationInterval).maxConnections(serviceMaxConnections)
+                .bulkRatio(bulkConnectionsRatio).maxQueue(maxConnectionQueue)
+                .adaptiveConcurrency(adaptiveConcurrency).maxConcurrencyLimit(maxConcurrencyLimit).build();
+    }
+
+    protected RequestHedger createRequestHedger() {
+        if (hedgedReads == null || !hedgedReads) {
+            return null;
+        }
+        return new RequestHedger(hedgeDelay, new RetryBudget(C8Defaults.DEFAULT_HEDGE_BUDGET_WINDOW,
+                hedgeBudgetRatio, C8Defaults.DEFAULT_HEDGE_BUDGET_MIN_HEDGES));
+    }
+
+    protected RedirectCache createRedirectCache(final HostResolver hostResolver, final ConnectionPoolConfig poolConfig,
+            final CircuitBreakerConfig circuitBreakerConfig, final ConnectionFactory connectionFactory) {
+        return new RedirectCache(hostResolver, poolConfig, circuitBreakerConfig, connectionFactory,
+                Math.max(0L, redirectCacheTtl));
+    }
+
+    protected CircuitBreakerConfig createCircuitBreakerConfig() {
+        return new CircuitBreakerConfig.Builder().enabled(circuitBreaker).failureRate(circuitBreakerFailureRate)
+                .slowCallDuration(circuitBreakerSlowCallDuration).minimumCalls(circuitBreakerMinimumCalls)
+                .ejectionTime(circuitBreakerEjectionTime).build();
+    }
+
+    protected Map<Service, Collection<Host>> createHostMatrix(final ConnectionPoolConfig poolConfig,
+                                                              final CircuitBreakerConfig circuitBreakerConfig,
                                                               final ConnectionFactory connectionFactory) {
         final Map matrix = new HashMap();
 
         for (Service service : Service.values()) {
             final Collection<Host> hostList = new ArrayList<>();
             for (final HostDescription host : hosts.get(service)) {
-                hostList.add(HostUtils.createHost(host, maxConnections, connectionFactory, service));
+                hostList.add(HostUtils.createHost(host, poolConfig, circuitBreakerConfig, connectionFactory,
+                        service));
             }
             matrix.put(service, hostList);
         }
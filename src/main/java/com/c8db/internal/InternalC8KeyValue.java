@@ -18,6 +18,7 @@ import com.c8db.velocystream.JsonRequestBody;
 import com.c8db.velocystream.MultipartResponseBody;
 import com.c8db.velocystream.Request;
 import com.c8db.velocystream.RequestBody;
+import com.c8db.velocystream.RequestPriority;
 import com.c8db.velocystream.RequestType;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.http.HttpHeaders;
@@ -74,6 +75,7 @@ public abstract class InternalC8KeyValue<A extends InternalC8DB<E>, D extends In
                 new C8Serializer.Options().serializeNullValues(false).stringAsJson(true)));
 
         return request(db.tenant(), db.name(), RequestType.PUT, PATH_API_KV, name, PATH_API_KV_PAIR)
+                .setPriority(RequestPriority.BULK)
                 .putQueryParam(STRONG_CONSISTENCY, params.hasStrongConsistency())
                 .putHeaderParam(TRANSACTION_ID, params.getStreamTransactionId())
                 .setBody(body);
@@ -88,6 +90,7 @@ public abstract class InternalC8KeyValue<A extends InternalC8DB<E>, D extends In
         }).collect(Collectors.toList());
 
         return request(db.tenant(), db.name(), RequestType.PUT, PATH_API_KV, name, PATH_API_KV_PAIR)
+                .setPriority(RequestPriority.BULK)
                 .putQueryParam(STRONG_CONSISTENCY, params.hasStrongConsistency())
                 .putHeaderParam(TRANSACTION_ID, params.getStreamTransactionId())
                 .setBody(new BinaryRequestBody(binaryItems));
@@ -359,6 +362,7 @@ public abstract class InternalC8KeyValue<A extends InternalC8DB<E>, D extends In
 
     protected <T> Request deleteKVPairsRequest(final Collection<T> keys, C8KVDeleteValuesOptions options) {
         return request(db.tenant(), db.name(), RequestType.DELETE, PATH_API_KV, name, PATH_API_KV_PAIRS)
+                .setPriority(RequestPriority.BULK)
                 .putQueryParam(STRONG_CONSISTENCY, options != null && options.hasStrongConsistency())
                 .setBody(util().serialize(keys));
     }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.Compression;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HTTP;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the wrapped entity while it is written to the socket. The compressed size is not known upfront, so the
+ * entity is sent with chunked transfer encoding. It is repeatable if the wrapped entity is.
+ */
+public class CompressingEntity extends HttpEntityWrapper {
+
+    private final Compression compression;
+
+    public CompressingEntity(final HttpEntity entity, final Compression compression) {
+        super(entity);
+        this.compression = compression;
+    }
+
+    @Override
+    public Header getContentEncoding() {
+        return new BasicHeader(HTTP.CONTENT_ENCODING, compression.contentEncoding());
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return true;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        // only used by the non-blocking client, which reads the content instead of writing it to the socket
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Override
+    public void writeTo(final OutputStream outstream) throws IOException {
+        // closing the compressing stream releases the native deflater, the socket stream is owned by the client
+        final OutputStream socket = new FilterOutputStream(outstream) {
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        try (final DeflaterOutputStream out = compression == Compression.GZIP ? new GZIPOutputStream(socket)
+                : new DeflaterOutputStream(socket)) {
+            wrappedEntity.writeTo(out);
+        }
+    }
+
+}
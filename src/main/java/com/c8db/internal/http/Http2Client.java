@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * HTTP/2 client of one host. All {@link HttpConnection}s of the host send their requests as concurrent streams over
+ * the same socket. Requests and responses are converted from and to the apache http 4 types used by the rest of the
+ * http transport. The client is reference counted like {@link PooledHttpClient}.
+ */
+public class Http2Client implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Http2Client.class);
+
+    private final CloseableHttpAsyncClient client;
+    private int references;
+
+    Http2Client(final CloseableHttpAsyncClient client) {
+        super();
+        this.client = client;
+        this.references = 0;
+        client.start();
+    }
+
+    /**
+     * Sends the request as a new stream and blocks until the response has been received.
+     */
+    public HttpResponse execute(final HttpRequestBase request) throws IOException {
+        final SimpleHttpResponse response;
+        final Future<SimpleHttpResponse> future = client.execute(toRequestProducer(request),
+                SimpleResponseConsumer.create(), null);
+        try {
+            response = future.get();
+        } catch (final InterruptedException e) {
+            // resets the stream, the caller does not wait for the response anymore
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        return toHttpResponse(response);
+    }
+
+    private static AsyncRequestProducer toRequestProducer(final HttpRequestBase request) throws IOException {
+        final SimpleHttpRequest h2Request = SimpleHttpRequest.create(request.getMethod(), request.getURI());
+        for (final Header header : request.getAllHeaders()) {
+            // connection specific headers are not allowed in HTTP/2, the content type is sent with the body
+            if (!HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(header.getName())
+                    && !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getName())
+                    && !HttpHeaders.CONNECTION.equalsIgnoreCase(header.getName())
+                    && !HttpHeaders.HOST.equalsIgnoreCase(header.getName())) {
+                h2Request.addHeader(header.getName(), header.getValue());
+            }
+        }
+        AsyncEntityProducer entityProducer = null;
+        if (request instanceof HttpEntityEnclosingRequest) {
+            final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            if (entity != null) {
+                final ContentType contentType = entity.getContentType() != null
+                        ? ContentType.parse(entity.getContentType().getValue()) : null;
+                final ByteBuffer content;
+                if (entity instanceof VPackEntity) {
+                    content = ((VPackEntity) entity).asByteBuffer();
+                } else {
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream(
+                            entity.getContentLength() > 0 ? (int) entity.getContentLength() : 256);
+                    entity.writeTo(out);
+                    content = ByteBuffer.wrap(out.toByteArray());
+                }
+                entityProducer = new ByteBufferEntityProducer(content, contentType);
+            }
+        }
+        return new BasicRequestProducer(h2Request, entityProducer);
+    }
+
+    private static HttpResponse toHttpResponse(final SimpleHttpResponse h2Response) {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, h2Response.getCode(),
+                h2Response.getReasonPhrase());
+        for (final org.apache.hc.core5.http.Header header : h2Response.getHeaders()) {
+            response.addHeader(header.getName(), header.getValue());
+        }
+        final byte[] body = h2Response.getBodyBytes();
+        if (body != null) {
+            final ContentType contentType = h2Response.getContentType();
+            response.setEntity(new ByteArrayEntity(body, contentType != null
+                    ? org.apache.http.entity.ContentType.parse(contentType.toString()) : null));
+        }
+        return response;
+    }
+
+    /**
+     * Sends the content of a buffer without copying it. The content is sent again from the start if the request is
+     * repeated.
+     */
+    private static final class ByteBufferEntityProducer implements AsyncEntityProducer {
+
+        private final ByteBuffer content;
+        private final ContentType contentType;
+        private volatile ByteBuffer remaining;
+
+        ByteBufferEntityProducer(final ByteBuffer content, final ContentType contentType) {
+            super();
+            this.content = content;
+            this.contentType = contentType;
+            this.remaining = content.duplicate();
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return content.remaining();
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType != null ? contentType.toString() : null;
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return null;
+        }
+
+        @Override
+        public boolean isChunked() {
+            return false;
+        }
+
+        @Override
+        public Set<String> getTrailerNames() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public int available() {
+            return remaining.remaining();
+        }
+
+        @Override
+        public void produce(final DataStreamChannel channel) throws IOException {
+            if (remaining.hasRemaining()) {
+                channel.write(remaining);
+            }
+            if (!remaining.hasRemaining()) {
+                channel.endStream();
+            }
+        }
+
+        @Override
+        public void failed(final Exception cause) {
+        }
+
+        @Override
+        public void releaseResources() {
+            remaining = content.duplicate();
+        }
+
+    }
+
+    synchronized Http2Client retain() {
+        references++;
+        return this;
+    }
+
+    /**
+     * @return {@code true} if this was the last reference and the client has been closed
+     */
+    synchronized boolean release() {
+        if (--references > 0) {
+            return false;
+        }
+        close();
+        return true;
+    }
+
+    synchronized int references() {
+        return references;
+    }
+
+    @Override
+    public void close() {
+        LOGGER.debug("Close http2 client");
+        client.close(CloseMode.GRACEFUL);
+    }
+
+}
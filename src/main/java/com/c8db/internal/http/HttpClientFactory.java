@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.Compression;
+import com.c8db.internal.C8Defaults;
+import com.c8db.internal.net.HostDescription;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.Consts;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.MessageConstraints;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+
+import java.io.IOException;
+import java.nio.charset.CodingErrorAction;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+
+/**
+ * Creates the apache http clients used by {@link HttpConnection}.
+ *
+ * <p>
+ * In the default mode every connection gets its own client with a single pooled socket. In shared mode one pooled
+ * client is created per {@link HostDescription} and handed out to all connections of that host, so keep-alive sockets
+ * and TLS sessions are reused across threads.
+ * </p>
+ *
+ * <p>
+ * HTTP/2 clients are always shared per host, since a single socket multiplexes the requests of all connections.
+ * </p>
+ */
+public class HttpClientFactory {
+
+    private final Integer timeout;
+    private final Integer responseSizeLimit;
+    private final Boolean useSsl;
+    private final SSLContext sslContext;
+    private final Long ttl;
+    private final String httpCookieSpec;
+    private final boolean shared;
+    private final int maxConnectionsPerRoute;
+    private final int maxConnectionsTotal;
+    private final Long idleTimeout;
+    private final Integer validateAfterInactivity;
+    private final int maxConcurrentStreams;
+    private final Compression compression;
+    private final int compressionThreshold;
+
+    private final JwtTokenManager tokenManager;
+
+    private final Map<HostDescription, PooledHttpClient> sharedClients;
+    private final Map<HostDescription, Http2Client> http2Clients;
+    private PooledHttpClient authClient;
+
+    private HttpClientFactory(final Integer timeout, final Integer responseSizeLimit, final Boolean useSsl,
+            final SSLContext sslContext, final Long ttl, final String httpCookieSpec, final Boolean shared,
+            final Integer maxConnectionsPerRoute, final Integer maxConnectionsTotal, final Long idleTimeout,
+            final Integer validateAfterInactivity, final Integer maxConcurrentStreams, final Compression compression,
+            final Integer compressionThreshold) {
+        super();
+        this.timeout = timeout;
+        this.responseSizeLimit = responseSizeLimit;
+        this.useSsl = useSsl;
+        this.sslContext = sslContext;
+        this.ttl = ttl;
+        this.httpCookieSpec = httpCookieSpec;
+        this.shared = Boolean.TRUE == shared;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute != null ? Math.max(1, maxConnectionsPerRoute) : 1;
+        this.maxConnectionsTotal = maxConnectionsTotal != null ? Math.max(this.maxConnectionsPerRoute,
+                maxConnectionsTotal) : this.maxConnectionsPerRoute;
+        this.idleTimeout = idleTimeout;
+        this.validateAfterInactivity = validateAfterInactivity;
+        this.maxConcurrentStreams = maxConcurrentStreams != null ? Math.max(1, maxConcurrentStreams)
+                : C8Defaults.DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS;
+        this.compression = compression != null ? compression : C8Defaults.DEFAULT_COMPRESSION;
+        this.compressionThreshold = compressionThreshold != null ? Math.max(0, compressionThreshold)
+                : C8Defaults.DEFAULT_COMPRESSION_THRESHOLD;
+        this.tokenManager = new JwtTokenManager();
+        this.sharedClients = new HashMap<>();
+        this.http2Clients = new HashMap<>();
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * @return the JWT cache shared by all connections created with this factory
+     */
+    public JwtTokenManager getTokenManager() {
+        return tokenManager;
+    }
+
+    /**
+     * @return milliseconds after which an idle socket is checked before it is used again
+     */
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity != null ? validateAfterInactivity
+                : C8Defaults.DEFAULT_VALIDATE_AFTER_INACTIVITY;
+    }
+
+    /**
+     * @return content encoding of request bodies and accepted encoding of response bodies
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return minimum size in bytes of a request body to be compressed
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Returns a client for the given host. Every call has to be paired with {@link #release(HostDescription,
+     * PooledHttpClient)}.
+     */
+    public synchronized PooledHttpClient acquire(final HostDescription host) {
+        if (!shared) {
+            return createClient(1, 1).retain();
+        }
+        PooledHttpClient client = sharedClients.get(host);
+        if (client == null) {
+            client = createClient(maxConnectionsPerRoute, maxConnectionsTotal);
+            sharedClients.put(host, client);
+        }
+        return client.retain();
+    }
+
+    public synchronized void release(final HostDescription host, final PooledHttpClient client) throws IOException {
+        if (client.release() && shared) {
+            sharedClients.remove(host, client);
+        }
+    }
+
+    /**
+     * Returns the HTTP/2 client for the given host. Every call has to be paired with
+     * {@link #releaseHttp2(HostDescription, Http2Client)}.
+     */
+    public synchronized Http2Client acquireHttp2(final HostDescription host) {
+        Http2Client client = http2Clients.get(host);
+        if (client == null) {
+            client = createHttp2Client();
+            http2Clients.put(host, client);
+        }
+        return client.retain();
+    }
+
+    public synchronized void releaseHttp2(final HostDescription host, final Http2Client client) {
+        if (client.release()) {
+            http2Clients.remove(host, client);
+        }
+    }
+
+    /**
+     * Returns the client the secret providers of connections that do not talk HTTP/1.1 to the host fetch secrets
+     * with. It is shared by all of them and only opens sockets when a secret is fetched. Every call has to be paired
+     * with {@link #releaseAuth(PooledHttpClient)}.
+     */
+    public synchronized PooledHttpClient acquireAuth() {
+        if (authClient == null) {
+            authClient = createClient(maxConnectionsPerRoute, maxConnectionsTotal);
+        }
+        return authClient.retain();
+    }
+
+    public synchronized void releaseAuth(final PooledHttpClient client) throws IOException {
+        if (client.release() && client == authClient) {
+            authClient = null;
+        }
+    }
+
+    private Http2Client createHttp2Client() {
+        final H2AsyncClientBuilder builder = HttpAsyncClients.customHttp2()
+                .setH2Config(H2Config.custom().setMaxConcurrentStreams(maxConcurrentStreams).setPushEnabled(false)
+                        .build());
+        if (Boolean.TRUE == useSsl) {
+            builder.setTlsStrategy(ClientTlsStrategyBuilder.create()
+                    .setSslContext(sslContext != null ? sslContext : SSLContexts.createSystemDefault()).build());
+        }
+        if (timeout != null && timeout > 0) {
+            builder.setIOReactorConfig(IOReactorConfig.custom().setSoTimeout(Timeout.ofMilliseconds(timeout)).build())
+                    .setDefaultConnectionConfig(org.apache.hc.client5.http.config.ConnectionConfig.custom()
+                            .setConnectTimeout(Timeout.ofMilliseconds(timeout)).build())
+                    .setDefaultRequestConfig(org.apache.hc.client5.http.config.RequestConfig.custom()
+                            .setResponseTimeout(Timeout.ofMilliseconds(timeout)).build());
+        }
+        return new Http2Client(builder.build());
+    }
+
+    private PooledHttpClient createClient(final int maxPerRoute, final int maxTotal) {
+        final RegistryBuilder<ConnectionSocketFactory> registryBuilder = RegistryBuilder.create();
+        if (Boolean.TRUE == useSsl) {
+            if (sslContext != null) {
+                registryBuilder.register("https", new SSLConnectionSocketFactory(sslContext));
+            } else {
+                registryBuilder.register("https", new SSLConnectionSocketFactory(SSLContexts.createSystemDefault()));
+            }
+        } else {
+            registryBuilder.register("http", new PlainConnectionSocketFactory());
+        }
+        final MessageConstraints messageConstraints = MessageConstraints.custom()
+            .setMaxLineLength(responseSizeLimit != null ? responseSizeLimit : -1)
+            .build();
+
+        final ConnectionConfig connectionConfig = ConnectionConfig.custom()
+            .setMalformedInputAction(CodingErrorAction.IGNORE)
+            .setUnmappableInputAction(CodingErrorAction.IGNORE)
+            .setCharset(Consts.UTF_8)
+            .setMessageConstraints(messageConstraints)
+            .build();
+
+        final PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager(registryBuilder.build());
+        cm.setDefaultConnectionConfig(connectionConfig);
+        cm.setDefaultMaxPerRoute(maxPerRoute);
+        cm.setMaxTotal(maxTotal);
+        if (validateAfterInactivity != null) {
+            cm.setValidateAfterInactivity(validateAfterInactivity);
+        }
+
+        final RequestConfig.Builder requestConfig = RequestConfig.custom();
+        if (timeout != null && timeout >= 0) {
+            requestConfig.setConnectTimeout(timeout);
+            requestConfig.setConnectionRequestTimeout(timeout);
+            requestConfig.setSocketTimeout(timeout);
+        }
+
+        if (httpCookieSpec != null && httpCookieSpec.length() > 1) {
+            requestConfig.setCookieSpec(httpCookieSpec);
+        }
+
+        final ConnectionKeepAliveStrategy keepAliveStrategy = new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(final HttpResponse response, final HttpContext context) {
+                return HttpClientFactory.this.getKeepAliveDuration(response);
+            }
+        };
+        final HttpClientBuilder builder = HttpClientBuilder.create().setDefaultRequestConfig(requestConfig.build())
+                .setConnectionManager(cm).setKeepAliveStrategy(keepAliveStrategy)
+                .setRetryHandler(new HttpRequestRetryHandler());
+        if (shared && idleTimeout != null && idleTimeout > 0) {
+            builder.evictExpiredConnections().evictIdleConnections(idleTimeout.longValue(), TimeUnit.MILLISECONDS);
+        }
+        return new PooledHttpClient(cm, builder.build());
+    }
+
+    private long getKeepAliveDuration(final HttpResponse response) {
+        final HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+        while (it.hasNext()) {
+            final HeaderElement he = it.nextElement();
+            final String param = he.getName();
+            final String value = he.getValue();
+            if (value != null && "timeout".equalsIgnoreCase(param)) {
+                try {
+                    long timeout = Long.parseLong(value) * 1000L;
+                    return ttl != null ? Math.min(timeout, ttl) : timeout;
+                } catch (final NumberFormatException ignore) {
+                }
+            }
+        }
+        if (ttl != null) {
+            return ttl;
+        }
+        return 30L * 1000L;
+    }
+
+    public static class Builder {
+
+        private Integer timeout;
+        private Integer responseSizeLimit;
+        private Boolean useSsl;
+        private SSLContext sslContext;
+        private Long ttl;
+        private String httpCookieSpec;
+        private Boolean shared;
+        private Integer maxConnectionsPerRoute;
+        private Integer maxConnectionsTotal;
+        private Long idleTimeout;
+        private Integer validateAfterInactivity;
+        private Integer maxConcurrentStreams;
+        private Compression compression;
+        private Integer compressionThreshold;
+
+        public Builder timeout(final Integer timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder responseSizeLimit(final Integer responseSizeLimit) {
+            this.responseSizeLimit = responseSizeLimit;
+            return this;
+        }
+
+        public Builder useSsl(final Boolean useSsl) {
+            this.useSsl = useSsl;
+            return this;
+        }
+
+        public Builder sslContext(final SSLContext sslContext) {
+            this.sslContext = sslContext;
+            return this;
+        }
+
+        public Builder ttl(final Long ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public Builder httpCookieSpec(final String httpCookieSpec) {
+            this.httpCookieSpec = httpCookieSpec;
+            return this;
+        }
+
+        public Builder shared(final Boolean shared) {
+            this.shared = shared;
+            return this;
+        }
+
+        public Builder maxConnectionsPerRoute(final Integer maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        public Builder maxConnectionsTotal(final Integer maxConnectionsTotal) {
+            this.maxConnectionsTotal = maxConnectionsTotal;
+            return this;
+        }
+
+        public Builder idleTimeout(final Long idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        public Builder validateAfterInactivity(final Integer validateAfterInactivity) {
+            this.validateAfterInactivity = validateAfterInactivity;
+            return this;
+        }
+
+        public Builder maxConcurrentStreams(final Integer maxConcurrentStreams) {
+            this.maxConcurrentStreams = maxConcurrentStreams;
+            return this;
+        }
+
+        public Builder compression(final Compression compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        public Builder compressionThreshold(final Integer compressionThreshold) {
+            this.compressionThreshold = compressionThreshold;
+            return this;
+        }
+
+        public HttpClientFactory build() {
+            return new HttpClientFactory(timeout, responseSizeLimit, useSsl, sslContext, ttl, httpCookieSpec, shared,
+                    maxConnectionsPerRoute, maxConnectionsTotal, idleTimeout, validateAfterInactivity,
+                    maxConcurrentStreams, compression, compressionThreshold);
+        }
+    }
+
+}
@@ -20,38 +20,52 @@ package com.c8db.internal.http;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.net.ConnectException;
 import java.net.SocketException;
+import java.net.UnknownHostException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.http.NoHttpResponseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.c8db.C8DBException;
+import com.c8db.RetryPolicy;
 import com.c8db.Service;
 import com.c8db.internal.net.AccessType;
 import com.c8db.internal.net.C8DBRedirectException;
 import com.c8db.internal.net.Connection;
 import com.c8db.internal.net.Host;
-import com.c8db.internal.net.HostDescription;
 import com.c8db.internal.net.HostHandle;
 import com.c8db.internal.net.HostHandler;
+import com.c8db.internal.net.HostLoad;
 import com.c8db.internal.net.ManagedConnection;
-import com.c8db.internal.util.HostUtils;
+import com.c8db.internal.net.RedirectCache;
 import com.c8db.internal.util.RequestUtils;
 import com.c8db.util.C8Serialization;
+import com.c8db.util.JitteredRetryPolicy;
 import com.c8db.velocystream.Request;
 import com.c8db.velocystream.Response;
 
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
+
 /**
- *
+ * Sends requests over the {@link HttpConnection} of the current host. Failed requests are retried as the
+ * {@link RetryPolicy} decides, on another host if the policy asks for a failover.
  */
 public class HttpCommunication implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpCommunication.class);
 
+    static final int MAX_REDIRECTS = 3;
+
     public static class Builder {
 
         private final Map<Service, HostHandler> hostHandlerMatrix;
+        private RetryPolicy retryPolicy;
+        private RequestHedger hedger;
+        private RedirectCache redirects;
 
         public Builder(final Map<Service, HostHandler> hostHandlerMatrix) {
             super();
@@ -60,18 +74,63 @@ public class HttpCommunication implements Closeable {
 
         public Builder(final Builder builder) {
             this(builder.hostHandlerMatrix);
+            retryPolicy(builder.retryPolicy);
+            hedger(builder.hedger);
+            redirects(builder.redirects);
+        }
+
+        public Builder retryPolicy(final RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * @param hedger sends duplicates of slow reads to a second host, {@code null} to send every request once
+         */
+        public Builder hedger(final RequestHedger hedger) {
+            this.hedger = hedger;
+            return this;
+        }
+
+        /**
+         * @param redirects remembers the endpoints requests were redirected to, {@code null} to not follow redirects
+         */
+        public Builder redirects(final RedirectCache redirects) {
+            this.redirects = redirects;
+            return this;
         }
 
         public HttpCommunication build(final C8Serialization util) {
-            return new HttpCommunication(hostHandlerMatrix);
+            return new HttpCommunication(hostHandlerMatrix,
+                    retryPolicy != null ? retryPolicy : new JitteredRetryPolicy(null), hedger, redirects);
         }
     }
 
     private final Map<Service, HostHandler> hostHandlerMatrix;
+    private final RetryPolicy retryPolicy;
+    private final RequestHedger hedger;
+    private final RedirectCache redirects;
 
     protected HttpCommunication(final Map<Service, HostHandler> hostHandlerMatrix) {
+        this(hostHandlerMatrix, new JitteredRetryPolicy(null));
+    }
+
+    protected HttpCommunication(final Map<Service, HostHandler> hostHandlerMatrix, final RetryPolicy retryPolicy) {
+        this(hostHandlerMatrix, retryPolicy, null);
+    }
+
+    protected HttpCommunication(final Map<Service, HostHandler> hostHandlerMatrix, final RetryPolicy retryPolicy,
+            final RequestHedger hedger) {
+        this(hostHandlerMatrix, retryPolicy, hedger, null);
+    }
+
+    protected HttpCommunication(final Map<Service, HostHandler> hostHandlerMatrix, final RetryPolicy retryPolicy,
+            final RequestHedger hedger, final RedirectCache redirects) {
         super();
         this.hostHandlerMatrix = hostHandlerMatrix;
+        this.retryPolicy = retryPolicy;
+        this.hedger = hedger;
+        this.redirects = redirects;
     }
 
     @Override
@@ -79,21 +138,58 @@ public class HttpCommunication implements Closeable {
         for (HostHandler hostHandler : hostHandlerMatrix.values()) {
             hostHandler.close();
         }
+        if (redirects != null) {
+            redirects.close();
+        }
     }
 
     public Response execute(final Request request, final HostHandle hostHandle, Service service) throws C8DBException, IOException {
         final AccessType accessType = RequestUtils.determineAccessType(request);
-        HostHandler hostHandler = hostHandlerMatrix.get(service);
-        Host host = hostHandler.get(hostHandle, accessType);
-        try {
-            while (true) {
-                try (final ManagedConnection<Connection> managedConnection = host.connection()) {
-                    final HttpConnection connection = (HttpConnection) managedConnection.connection();
-                    final Response response = connection.execute(request);
-                    hostHandler.success();
-                    hostHandler.confirm();
-                    return response;
-                } catch (final SocketException se) {
+        HostHandler hostHandler = hostHandlerMatrix.get(service).forAccessType(accessType);
+        final RetryPolicy.Attempts attempts = retryPolicy.start(request);
+        Host host = redirects != null ? redirects.get(service, request, hostHandle) : null;
+        // a request that follows a redirect or is bound to a host by it must stay on that host
+        final boolean hedged = hedger != null && host == null && hedger.isHedgeable(request, hostHandle);
+        if (host == null) {
+            host = hostHandler.get(hostHandle, accessType);
+        }
+        int redirected = 0;
+        while (true) {
+            try {
+                final Response response = hedged ? hedger.execute(request, host, hostHandler, accessType)
+                        : send(host, request);
+                hostHandler.success();
+                hostHandler.confirm();
+                return response;
+            } catch (final C8DBRedirectException e) {
+                if (redirects == null || ++redirected > MAX_REDIRECTS) {
+                    throw e;
+                }
+                // follow the redirect on the pool of the endpoint, the pool of the current host stays open
+                host = redirects.redirect(service, request, e.getLocation(), hostHandle);
+            } catch (final C8DBException | IOException e) {
+                final Integer responseCode = e instanceof C8DBException
+                        ? ((C8DBException) e).getResponseCode() : null;
+                final long delay = attempts.nextDelay(responseCode, e);
+                if (delay >= 0) {
+                    if (attempts.failover(responseCode, e)) {
+                        evict(service, request, host);
+                        host = failover(hostHandler, hostHandle, accessType, host);
+                    }
+                    LOGGER.info(String.format("Retrying request to %s in %s ms...", host.getDescription(),
+                            delay));
+                    try {
+                        // a synchronous caller waits for the response anyway, so the delay blocks its thread
+                        TimeUnit.MILLISECONDS.sleep(delay);
+                    } catch (final InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new C8DBException("Interrupted while waiting to retry the request", e);
+                    }
+                } else if (isConnectFailure(e)) {
+                    evict(service, request, host);
+                    throw exhausted(e);
+                } else if (e instanceof SocketException) {
+                    evict(service, request, host);
                     hostHandler.fail();
                     if (hostHandle != null && hostHandle.getHost() != null) {
                         hostHandle.setHost(null);
@@ -104,21 +200,86 @@ public class HttpCommunication implements Closeable {
                         LOGGER.warn(String.format("Could not connect to %s. Try connecting to %s",
                                 failedHost.getDescription(), host.getDescription()));
                     } else {
-                        throw se;
+                        throw e;
                     }
+                } else {
+                    throw e;
                 }
             }
-        } catch (final C8DBException e) {
-            if (e instanceof C8DBRedirectException) {
-                final String location = C8DBRedirectException.class.cast(e).getLocation();
-                final HostDescription redirectHost = HostUtils.createFromLocation(location);
-                hostHandler.closeCurrentOnError();
-                hostHandler.fail();
-                return execute(request, new HostHandle().setHost(redirectHost), service);
-            } else {
+        }
+    }
+
+    private void evict(final Service service, final Request request, final Host host) {
+        if (redirects != null) {
+            redirects.evict(service, request, host);
+        }
+    }
+
+    private static Response send(final Host host, final Request request) throws IOException {
+        final HostLoad load = host.getLoad();
+        try (final ManagedConnection<Connection> managedConnection = checkout(host, request)) {
+            final HttpConnection connection = (HttpConnection) managedConnection.connection();
+            final long start = System.nanoTime();
+            try {
+                final Response response = connection.execute(request);
+                load.end(start, null);
+                return response;
+            } catch (final IOException | RuntimeException e) {
+                load.end(start, e);
                 throw e;
             }
         }
     }
 
+    /**
+     * Counts the request as in flight, which may wait for the concurrency limit of the host, and only then takes a
+     * connection of the pool, so that requests held back by the limit do not hold connections. The caller ends the
+     * request with {@link HostLoad#end(long, Throwable)} or {@link HostLoad#cancel()}.
+     */
+    static ManagedConnection<Connection> checkout(final Host host, final Request request) {
+        final HostLoad load = host.getLoad();
+        load.start();
+        try {
+            return host.connection(request.getPriority());
+        } catch (final RuntimeException e) {
+            load.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Moves on to the next host of the handler. If there is none left, the request stays on the current one.
+     */
+    static Host failover(final HostHandler hostHandler, final HostHandle hostHandle, final AccessType accessType,
+            final Host host) {
+        if (hostHandle != null && hostHandle.getHost() != null) {
+            hostHandle.setHost(null);
+        }
+        Host next = null;
+        try {
+            hostHandler.fail();
+            next = hostHandler.get(hostHandle, accessType);
+        } catch (final C8DBException e) {
+            LOGGER.debug("No other host to fail over to", e);
+        }
+        if (next == null) {
+            hostHandler.reset();
+            return host;
+        }
+        if (next != host) {
+            LOGGER.warn(String.format("Request to %s failed. Try connecting to %s", host.getDescription(),
+                    next.getDescription()));
+        }
+        return next;
+    }
+
+    static boolean isConnectFailure(final Throwable e) {
+        return e instanceof UnknownHostException || e instanceof NoHttpResponseException
+                || e instanceof ConnectException;
+    }
+
+    static C8DBException exhausted(final Throwable e) {
+        return new C8DBException("c84j exhausted all retries.", SC_SERVICE_UNAVAILABLE, e);
+    }
+
 }
@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.c8db.C8DBException;
+import com.c8db.RetryPolicy;
+import com.c8db.Service;
+import com.c8db.internal.net.AccessType;
+import com.c8db.internal.net.C8DBRedirectException;
+import com.c8db.internal.net.CommunicationProtocolAsync;
+import com.c8db.internal.net.Host;
+import com.c8db.internal.net.HostDescription;
+import com.c8db.internal.net.HostHandle;
+import com.c8db.internal.net.HostHandler;
+import com.c8db.internal.net.RedirectCache;
+import com.c8db.internal.util.RequestUtils;
+import com.c8db.util.JitteredRetryPolicy;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.Response;
+
+/**
+ * Non-blocking http transport. Host selection, retries, failover and redirects work like in
+ * {@link HttpCommunication}, but the requests are executed by one {@link HttpConnectionAsync} per host instead of
+ * connections borrowed from the host pools, and retries are scheduled on a timer instead of blocking a thread.
+ * Blocking work, i.e. JWT refreshes and closing the connections of hosts the resolver removed, runs on a small
+ * bounded worker pool so that it never delays the timer.
+ */
+public class HttpCommunicationAsync implements CommunicationProtocolAsync {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpCommunicationAsync.class);
+
+    private static final int WORKER_THREADS = 2;
+    private static final int WORKER_QUEUE = 1024;
+    private static final long PRUNE_INTERVAL = 30000L;
+
+    public static class Builder {
+
+        private final Map<Service, HostHandler> hostHandlerMatrix;
+        private final HttpConnectionAsync.Builder connectionBuilder;
+        private RetryPolicy retryPolicy;
+        private RedirectCache redirects;
+
+        public Builder(final Map<Service, HostHandler> hostHandlerMatrix,
+                final HttpConnectionAsync.Builder connectionBuilder) {
+            super();
+            this.hostHandlerMatrix = hostHandlerMatrix;
+            this.connectionBuilder = connectionBuilder;
+        }
+
+        public Builder retryPolicy(final RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * @param redirects remembers the endpoints requests were redirected to, {@code null} to not follow redirects
+         */
+        public Builder redirects(final RedirectCache redirects) {
+            this.redirects = redirects;
+            return this;
+        }
+
+        public HttpCommunicationAsync build() {
+            return new HttpCommunicationAsync(hostHandlerMatrix, connectionBuilder,
+                    retryPolicy != null ? retryPolicy : new JitteredRetryPolicy(null), redirects);
+        }
+    }
+
+    private final Map<Service, HostHandler> hostHandlerMatrix;
+    private final HttpConnectionAsync.Builder connectionBuilder;
+    private final RetryPolicy retryPolicy;
+    private final RedirectCache redirects;
+    private final ConcurrentMap<HostDescription, HostConnection> connections;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadPoolExecutor worker;
+
+    protected HttpCommunicationAsync(final Map<Service, HostHandler> hostHandlerMatrix,
+            final HttpConnectionAsync.Builder connectionBuilder, final RetryPolicy retryPolicy) {
+        this(hostHandlerMatrix, connectionBuilder, retryPolicy, null);
+    }
+
+    protected HttpCommunicationAsync(final Map<Service, HostHandler> hostHandlerMatrix,
+            final HttpConnectionAsync.Builder connectionBuilder, final RetryPolicy retryPolicy,
+            final RedirectCache redirects) {
+        super();
+        this.hostHandlerMatrix = hostHandlerMatrix;
+        this.connectionBuilder = connectionBuilder;
+        this.retryPolicy = retryPolicy;
+        this.redirects = redirects;
+        this.connections = new ConcurrentHashMap<>();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "c8db-http-async");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.worker = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(WORKER_QUEUE), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread thread = new Thread(r, "c8db-http-async-worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        this.worker.allowCoreThreadTimeOut(true);
+        this.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                prune();
+            }
+        }, PRUNE_INTERVAL, PRUNE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        worker.shutdownNow();
+        if (redirects != null) {
+            redirects.close();
+        }
+        IOException failure = null;
+        for (final HostConnection connection : connections.values()) {
+            try {
+                connection.connection.close();
+            } catch (final IOException e) {
+                failure = e;
+            }
+        }
+        connections.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> execute(final Request request, final HostHandle hostHandle,
+            final Service service) {
+        final CompletableFuture<Response> result = new CompletableFuture<>();
+        // the outcome is reported from the reactor and retry threads, to the handler that chose the host
+        final HostHandler hostHandler = hostHandlerMatrix.get(service)
+                .forAccessType(RequestUtils.determineAccessType(request));
+        execute(request, hostHandle, service, hostHandler, retryPolicy.start(request), result);
+        return result;
+    }
+
+    private void execute(final Request request, final HostHandle hostHandle, final Service service,
+            final HostHandler hostHandler, final RetryPolicy.Attempts attempts,
+            final CompletableFuture<Response> result) {
+        final AccessType accessType = RequestUtils.determineAccessType(request);
+        final Host host;
+        try {
+            final Host routedHost = redirects != null ? redirects.get(service, request, hostHandle) : null;
+            host = routedHost != null ? routedHost : hostHandler.get(hostHandle, accessType);
+        } catch (final C8DBException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        execute(request, hostHandle, service, hostHandler, host, attempts, 0, result);
+    }
+
+    private void execute(final Request request, final HostHandle hostHandle, final Service service,
+            final HostHandler hostHandler, final Host host, final RetryPolicy.Attempts attempts,
+            final int redirected, final CompletableFuture<Response> result) {
+        if (host == null) {
+            result.completeExceptionally(new C8DBException("Cannot contact any host!"));
+            return;
+        }
+        final HttpConnectionAsync connection;
+        try {
+            connection = connection(host);
+        } catch (final RuntimeException e) {
+            result.completeExceptionally(e instanceof C8DBException ? e : new C8DBException(e));
+            return;
+        }
+        final long start;
+        try {
+            // never wait for the concurrency limit on the thread that completes other requests
+            start = host.getLoad().tryStart();
+        } catch (final C8DBException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        connection.execute(request).whenComplete(new BiConsumer<Response, Throwable>() {
+            @Override
+            public void accept(final Response response, final Throwable t) {
+                host.getLoad().end(start, t instanceof CompletionException && t.getCause() != null
+                        ? t.getCause() : t);
+                if (t == null) {
+                    hostHandler.success();
+                    hostHandler.confirm();
+                    result.complete(response);
+                    return;
+                }
+                final Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                if (cause instanceof C8DBRedirectException && redirects != null
+                        && redirected < HttpCommunication.MAX_REDIRECTS) {
+                    // follow the redirect on the connection of the endpoint, the current one stays open
+                    final Host next;
+                    try {
+                        next = redirects.redirect(service, request, ((C8DBRedirectException) cause).getLocation(),
+                                hostHandle);
+                    } catch (final C8DBException e) {
+                        result.completeExceptionally(e);
+                        return;
+                    }
+                    execute(request, hostHandle, service, hostHandler, next, attempts, redirected + 1, result);
+                    return;
+                }
+                final Integer responseCode = cause instanceof C8DBException
+                        ? ((C8DBException) cause).getResponseCode() : null;
+                final long delay = attempts.nextDelay(responseCode, cause);
+                if (delay >= 0) {
+                    final boolean failover = attempts.failover(responseCode, cause);
+                    if (failover) {
+                        evict(service, request, host);
+                    }
+                    final Host next = failover ? HttpCommunication.failover(hostHandler, hostHandle,
+                            RequestUtils.determineAccessType(request), host) : host;
+                    LOGGER.info(String.format("Retrying request to %s in %s ms...", next.getDescription(), delay));
+                    retry(request, hostHandle, service, hostHandler, next, attempts, redirected, result, delay);
+                } else if (HttpCommunication.isConnectFailure(cause)) {
+                    evict(service, request, host);
+                    result.completeExceptionally(HttpCommunication.exhausted(cause));
+                } else if (cause instanceof SocketException) {
+                    evict(service, request, host);
+                    hostHandler.fail();
+                    if (hostHandle != null && hostHandle.getHost() != null) {
+                        hostHandle.setHost(null);
+                    }
+                    final Host next;
+                    try {
+                        next = hostHandler.get(hostHandle, RequestUtils.determineAccessType(request));
+                    } catch (final C8DBException e) {
+                        result.completeExceptionally(e);
+                        return;
+                    }
+                    if (next != null) {
+                        LOGGER.warn(String.format("Could not connect to %s. Try connecting to %s",
+                                host.getDescription(), next.getDescription()));
+                        execute(request, hostHandle, service, hostHandler, next, attempts, redirected, result);
+                    } else {
+                        result.completeExceptionally(new C8DBException(cause));
+                    }
+                } else if (cause instanceof C8DBException) {
+                    result.completeExceptionally(cause);
+                } else {
+                    result.completeExceptionally(new C8DBException(cause));
+                }
+            }
+        });
+    }
+
+    private void retry(final Request request, final HostHandle hostHandle, final Service service,
+            final HostHandler hostHandler, final Host host, final RetryPolicy.Attempts attempts,
+            final int redirected, final CompletableFuture<Response> result, final long delay) {
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    execute(request, hostHandle, service, hostHandler, host, attempts, redirected, result);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+            // closed in the meantime
+            result.completeExceptionally(new C8DBException(e));
+        }
+    }
+
+    private void evict(final Service service, final Request request, final Host host) {
+        if (redirects != null) {
+            redirects.evict(service, request, host);
+        }
+    }
+
+    private HttpConnectionAsync connection(final Host host) {
+        final HostDescription description = host.getDescription();
+        final HostConnection current = connections.get(description);
+        if (current != null && current.host.isClosed() && current.host != host) {
+            // the host was removed and added again
+            discard(description, current);
+        }
+        return connections.computeIfAbsent(description, new Function<HostDescription, HostConnection>() {
+            @Override
+            public HostConnection apply(final HostDescription description) {
+                return new HostConnection(host, new HttpConnectionAsync.Builder(connectionBuilder).host(description)
+                        .authExecutor(worker).build());
+            }
+        }).connection;
+    }
+
+    /**
+     * Closes the connections of the hosts the resolver removed. The resolver only closes a host once its requests in
+     * flight have finished.
+     */
+    private void prune() {
+        for (final Map.Entry<HostDescription, HostConnection> entry : connections.entrySet()) {
+            if (entry.getValue().host.isClosed()) {
+                discard(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void discard(final HostDescription description, final HostConnection connection) {
+        if (!connections.remove(description, connection)) {
+            return;
+        }
+        final Runnable close = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    connection.connection.close();
+                } catch (final IOException e) {
+                    LOGGER.debug("Could not close the connection to removed Host " + description, e);
+                }
+            }
+        };
+        try {
+            worker.execute(close);
+        } catch (final RejectedExecutionException e) {
+            close.run();
+        }
+    }
+
+    private static final class HostConnection {
+
+        private final Host host;
+        private final HttpConnectionAsync connection;
+
+        private HostConnection(final Host host, final HttpConnectionAsync connection) {
+            super();
+            this.host = host;
+            this.connection = connection;
+        }
+    }
+
+}
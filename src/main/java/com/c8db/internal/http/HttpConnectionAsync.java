@@ -0,0 +1,430 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.C8DBException;
+import com.c8db.Protocol;
+import com.c8db.SecretProvider;
+import com.c8db.internal.C8RemoteSecretProvider;
+import com.c8db.internal.SecretProviderContext;
+import com.c8db.internal.net.C8DBRedirectException;
+import com.c8db.internal.net.HostDescription;
+import com.c8db.internal.util.CURLLogger;
+import com.c8db.internal.util.RequestUtils;
+import com.c8db.internal.util.ResponseUtils;
+import com.c8db.util.C8Serialization;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.Response;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.auth.AuthenticationException;
+import org.apache.http.auth.Credentials;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.ssl.SSLContexts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javax.net.ssl.SSLContext;
+
+/**
+ * Non-blocking http connection to a single host. All requests to the host are multiplexed over one apache async
+ * client, so an in-flight request does not occupy a thread.
+ *
+ * <p>
+ * Authentication follows {@link HttpConnection}, retries are scheduled by {@link HttpCommunicationAsync}. JWTs that
+ * are not cached yet, and refreshes, are fetched on a small bounded executor, as requests are also sent from the I/O
+ * reactor threads and the retry timer, which must not wait for the auth endpoint.
+ * </p>
+ */
+public class HttpConnectionAsync implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpConnectionAsync.class);
+
+    private final HostDescription host;
+    private final CloseableHttpAsyncClient client;
+    private final HttpClientFactory clientFactory;
+    private final PooledHttpClient authClient;
+    private final Executor authExecutor;
+    private final String user;
+    private final String password;
+    private final Boolean jwtAuthEnabled;
+    private final C8Serialization util;
+    private final Boolean useSsl;
+    private final Protocol contentType;
+    private final String defaultJWT;
+    private final String apiKey;
+    private final SecretProvider secretProvider;
+    private final boolean rawJson;
+    private final UrlBuilder urlBuilder;
+    private final JwtTokenManager tokenManager;
+
+    private HttpConnectionAsync(final HostDescription host, final Integer timeout, final Boolean useSsl,
+            final SSLContext sslContext, final String httpCookieSpec, final Integer maxConnections,
+            final HttpClientFactory clientFactory, final Executor authExecutor, final String user,
+            final String password, final String email, final Boolean jwtAuthEnabled, final C8Serialization util,
+            final Protocol contentType, final String jwt, final String apiKey, final HostDescription auxHost,
+            final SecretProvider secretProvider, final Boolean rawJson) {
+        super();
+        this.host = host;
+        this.clientFactory = clientFactory;
+        this.authExecutor = authExecutor;
+        this.user = user;
+        this.password = password != null ? password : "";
+        this.jwtAuthEnabled = jwtAuthEnabled;
+        this.useSsl = useSsl;
+        this.util = util;
+        this.contentType = contentType;
+        this.defaultJWT = jwt;
+        this.apiKey = apiKey;
+        this.rawJson = Boolean.TRUE == rawJson;
+        this.urlBuilder = new UrlBuilder(host, useSsl);
+        this.tokenManager = clientFactory.getTokenManager();
+
+        final RequestConfig.Builder requestConfig = RequestConfig.custom();
+        if (timeout != null && timeout >= 0) {
+            requestConfig.setConnectTimeout(timeout);
+            requestConfig.setConnectionRequestTimeout(timeout);
+            requestConfig.setSocketTimeout(timeout);
+        }
+        if (httpCookieSpec != null && httpCookieSpec.length() > 1) {
+            requestConfig.setCookieSpec(httpCookieSpec);
+        }
+        final int max = maxConnections != null ? Math.max(1, maxConnections) : 1;
+        final HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+                .setDefaultRequestConfig(requestConfig.build()).setMaxConnPerRoute(max).setMaxConnTotal(max);
+        if (Boolean.TRUE == useSsl) {
+            builder.setSSLContext(sslContext != null ? sslContext : SSLContexts.createSystemDefault());
+        }
+        this.client = builder.build();
+        this.client.start();
+
+        // the secret providers talk to the auth endpoint synchronously
+        this.authClient = clientFactory.acquireAuth();
+        final SecretProviderContext secCtx = new SecretProviderContext.Builder().email(email).username(user)
+                .useSsl(useSsl).password(this.password.toCharArray()).client(authClient.getClient()).host(auxHost)
+                .serialization(util).contentType(contentType).build();
+        this.secretProvider = secretProvider == null ? new C8RemoteSecretProvider() : secretProvider;
+        this.secretProvider.init(secCtx);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            client.close();
+        } finally {
+            clientFactory.releaseAuth(authClient);
+        }
+    }
+
+    public CompletableFuture<Response> execute(final Request request) {
+        final CompletableFuture<Response> result = new CompletableFuture<>();
+        String jwt = null;
+        if (jwtAuthEnabled) {
+            jwt = defaultJWT != null ? defaultJWT
+                    : tokenManager.getCachedToken(request.getDbTenant(), user, secretProvider);
+        }
+        if (!jwtAuthEnabled || jwt != null || StringUtils.isNotEmpty(apiKey)) {
+            buildAndSend(request, jwt, result);
+            return result;
+        }
+        // fetching a token blocks, so keep it away from the reactor threads and the retry timer
+        try {
+            authExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final String token;
+                    try {
+                        token = tokenManager.getToken(request.getDbTenant(), user, secretProvider);
+                    } catch (final C8DBException e) {
+                        result.completeExceptionally(e);
+                        return;
+                    } catch (final RuntimeException e) {
+                        result.completeExceptionally(new C8DBException(e));
+                        return;
+                    }
+                    buildAndSend(request, token, result);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            result.completeExceptionally(new C8DBException(e));
+        }
+        return result;
+    }
+
+    private void buildAndSend(final Request request, final String jwt, final CompletableFuture<Response> result) {
+        final HttpRequestBase httpRequest;
+        try {
+            httpRequest = buildHttpRequest(request, jwt);
+        } catch (final C8DBException e) {
+            result.completeExceptionally(e);
+            return;
+        } catch (final IOException | RuntimeException e) {
+            result.completeExceptionally(new C8DBException(e));
+            return;
+        }
+        send(request, httpRequest, true, result);
+    }
+
+    /**
+     * @param jwt the token to authenticate with, {@code null} for the API key if JWT authentication is enabled
+     */
+    private HttpRequestBase buildHttpRequest(final Request request, final String jwt) throws IOException {
+        final String url = urlBuilder.build(request);
+        final HttpRequestBase httpRequest = RequestUtils.buildHttpRequestBase(request, url, contentType);
+        RequestUtils.compress(httpRequest, clientFactory.getCompression(), clientFactory.getCompressionThreshold());
+        httpRequest.setHeader(HttpHeaders.USER_AGENT, HttpConnection.USER_AGENT);
+        if (contentType == Protocol.HTTP_VPACK) {
+            httpRequest.setHeader(HttpHeaders.ACCEPT, "application/x-velocypack");
+        }
+        HttpConnection.addHeader(request, httpRequest);
+        if (jwtAuthEnabled) {
+            if (jwt == null) {
+                httpRequest.addHeader(HttpHeaders.AUTHORIZATION, "apikey " + apiKey);
+            } else {
+                httpRequest.addHeader(HttpHeaders.AUTHORIZATION, HttpConnection.BEARER + jwt);
+            }
+        } else {
+            final Credentials credentials = addCredentials(httpRequest);
+            if (LOGGER.isDebugEnabled()) {
+                CURLLogger.log(url, request, credentials, util);
+            }
+        }
+        return httpRequest;
+    }
+
+    private void send(final Request request, final HttpRequestBase httpRequest, final boolean refreshJwt,
+            final CompletableFuture<Response> result) {
+        client.execute(httpRequest, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(final HttpResponse httpResponse) {
+                final Response response;
+                try {
+                    response = ResponseUtils.buildResponse(util, httpResponse, contentType, rawJson);
+                    ResponseUtils.checkError(util, response);
+                } catch (final C8DBRedirectException e) {
+                    result.completeExceptionally(e);
+                    return;
+                } catch (final C8DBException e) {
+                    final Integer code = e.getResponseCode();
+                    if (code != null && code == 401 && refreshJwt && jwtAuthEnabled && defaultJWT == null) {
+                        refreshAndResend(request, httpRequest, result);
+                    } else {
+                        result.completeExceptionally(e);
+                    }
+                    return;
+                } catch (final IOException | RuntimeException e) {
+                    result.completeExceptionally(new C8DBException(e));
+                    return;
+                }
+                result.complete(response);
+            }
+
+            @Override
+            public void failed(final Exception ex) {
+                result.completeExceptionally(new C8DBException(ex));
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+    }
+
+    private void refreshAndResend(final Request request, final HttpRequestBase httpRequest,
+            final CompletableFuture<Response> result) {
+        // fetching a secret blocks, so keep it away from the reactor threads
+        try {
+            authExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final String jwt = tokenManager.refreshToken(request.getDbTenant(), user, secretProvider,
+                                HttpConnection.bearerToken(httpRequest));
+                        httpRequest.removeHeaders(HttpHeaders.AUTHORIZATION);
+                        httpRequest.addHeader(HttpHeaders.AUTHORIZATION, HttpConnection.BEARER + jwt);
+                        send(request, httpRequest, false, result);
+                    } catch (final C8DBException e) {
+                        result.completeExceptionally(e);
+                    } catch (final RuntimeException e) {
+                        result.completeExceptionally(new C8DBException(e));
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // too many refreshes queued up, or closed in the meantime
+            result.completeExceptionally(new C8DBException(e));
+        }
+    }
+
+    private Credentials addCredentials(final HttpRequestBase httpRequest) {
+        Credentials credentials = null;
+        if (user != null) {
+            credentials = new UsernamePasswordCredentials(user, password);
+            try {
+                httpRequest.addHeader(new BasicScheme().authenticate(credentials, httpRequest, null));
+            } catch (final AuthenticationException e) {
+                throw new C8DBException(e);
+            }
+        }
+        return credentials;
+    }
+
+    public static class Builder {
+
+        private HostDescription host;
+        private Integer timeout;
+        private Boolean useSsl;
+        private SSLContext sslContext;
+        private String httpCookieSpec;
+        private Integer maxConnections;
+        private HttpClientFactory clientFactory;
+        private Executor authExecutor;
+        private String user;
+        private String password;
+        private String email;
+        private Boolean jwtAuthEnabled;
+        private C8Serialization util;
+        private Protocol contentType;
+        private String jwt;
+        private String apiKey;
+        private HostDescription auxHost;
+        private SecretProvider secretProvider;
+        private Boolean rawJson;
+
+        public Builder() {
+            super();
+        }
+
+        public Builder(final Builder builder) {
+            this();
+            host(builder.host).timeout(builder.timeout).useSsl(builder.useSsl).sslContext(builder.sslContext)
+                    .httpCookieSpec(builder.httpCookieSpec).maxConnections(builder.maxConnections)
+                    .clientFactory(builder.clientFactory).authExecutor(builder.authExecutor).user(builder.user)
+                    .password(builder.password).email(builder.email).jwtAuthEnabled(builder.jwtAuthEnabled)
+                    .serializationUtil(builder.util).contentType(builder.contentType).jwt(builder.jwt)
+                    .apiKey(builder.apiKey).auxHost(builder.auxHost).secretProvider(builder.secretProvider)
+                    .rawJson(builder.rawJson);
+        }
+
+        public Builder host(final HostDescription host) {
+            this.host = host;
+            return this;
+        }
+
+        public Builder timeout(final Integer timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder useSsl(final Boolean useSsl) {
+            this.useSsl = useSsl;
+            return this;
+        }
+
+        public Builder sslContext(final SSLContext sslContext) {
+            this.sslContext = sslContext;
+            return this;
+        }
+
+        public Builder httpCookieSpec(final String httpCookieSpec) {
+            this.httpCookieSpec = httpCookieSpec;
+            return this;
+        }
+
+        public Builder maxConnections(final Integer maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Builder clientFactory(final HttpClientFactory clientFactory) {
+            this.clientFactory = clientFactory;
+            return this;
+        }
+
+        /**
+         * @param authExecutor runs the blocking JWT fetches and refreshes
+         */
+        public Builder authExecutor(final Executor authExecutor) {
+            this.authExecutor = authExecutor;
+            return this;
+        }
+
+        public Builder user(final String user) {
+            this.user = user;
+            return this;
+        }
+
+        public Builder password(final String password) {
+            this.password = password;
+            return this;
+        }
+
+        public Builder email(final String email) {
+            this.email = email;
+            return this;
+        }
+
+        public Builder jwtAuthEnabled(final Boolean jwtAuthEnabled) {
+            this.jwtAuthEnabled = jwtAuthEnabled;
+            return this;
+        }
+
+        public Builder serializationUtil(final C8Serialization util) {
+            this.util = util;
+            return this;
+        }
+
+        public Builder contentType(final Protocol contentType) {
+            this.contentType = contentType;
+            return this;
+        }
+
+        public Builder jwt(final String jwt) {
+            this.jwt = jwt;
+            return this;
+        }
+
+        public Builder apiKey(final String apiKey) {
+            this.apiKey = apiKey;
+            return this;
+        }
+
+        public Builder auxHost(final HostDescription auxHost) {
+            this.auxHost = auxHost;
+            return this;
+        }
+
+        public Builder secretProvider(final SecretProvider secretProvider) {
+            this.secretProvider = secretProvider;
+            return this;
+        }
+
+        public Builder rawJson(final Boolean rawJson) {
+            this.rawJson = rawJson;
+            return this;
+        }
+
+        public HttpConnectionAsync build() {
+            return new HttpConnectionAsync(host, timeout, useSsl, sslContext, httpCookieSpec, maxConnections,
+                    clientFactory, authExecutor, user, password, email, jwtAuthEnabled, util, contentType, jwt, apiKey,
+                    auxHost, secretProvider, rawJson);
+        }
+    }
+
+}
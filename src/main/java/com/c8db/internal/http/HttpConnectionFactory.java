@@ -37,24 +37,32 @@ public class HttpConnectionFactory implements ConnectionFactory {
                                  final String password, final String email, final Boolean jwtAuth, final Boolean useSsl,
                                  final SSLContext sslContext, final C8Serialization util, final Protocol protocol,
                                  final Long connectionTtl, String httpCookieSpec, final String jwtToken, final String apiKey,
-                                 final HostDescription auxiliaryHost, Integer retryTimeout) {
-        super();
-        builder = new HttpConnection.Builder().timeout(timeout).responseSizeLimit(responseSizeLimit).user(user)
-                .password(password).email(email)
-                .jwtAuthEnabled(jwtAuth).useSsl(useSsl).sslContext(sslContext).serializationUtil(util)
-                .contentType(protocol).ttl(connectionTtl).httpCookieSpec(httpCookieSpec).jwt(jwtToken)
-                .apiKey(apiKey).auxHost(auxiliaryHost).retryTimeout(retryTimeout);
+                                 final HostDescription auxiliaryHost) {
+        this(user, password, null, email, jwtAuth, jwtToken, useSsl, util, protocol, apiKey, auxiliaryHost,
+                new HttpClientFactory.Builder().timeout(timeout).responseSizeLimit(responseSizeLimit)
+                        .useSsl(useSsl).sslContext(sslContext).ttl(connectionTtl).httpCookieSpec(httpCookieSpec)
+                        .build());
+    }
+
+    public HttpConnectionFactory(final String user, final String password, SecretProvider secretProvider,
+        final String email, final Boolean jwtAuth, final String jwtToken, final Boolean useSsl,
+        final C8Serialization util, final Protocol protocol, final String apiKey, final HostDescription auxiliaryHost,
+        final HttpClientFactory clientFactory) {
+        this(user, password, secretProvider, email, jwtAuth, jwtToken, useSsl, util, protocol, apiKey, auxiliaryHost,
+                clientFactory, false);
     }
 
-    public HttpConnectionFactory(final Integer timeout, final Integer responseSizeLimit, final String user, final String password,
-        SecretProvider secretProvider, final String email, final Boolean jwtAuth, final String jwtToken, final Boolean useSsl,
-        final SSLContext sslContext, final C8Serialization util, final Protocol protocol, final Long connectionTtl,
-        String httpCookieSpec, final String apiKey, final HostDescription auxiliaryHost, Integer retryTimeout) {
+    public HttpConnectionFactory(final String user, final String password, SecretProvider secretProvider,
+        final String email, final Boolean jwtAuth, final String jwtToken, final Boolean useSsl,
+        final C8Serialization util, final Protocol protocol, final String apiKey, final HostDescription auxiliaryHost,
+        final HttpClientFactory clientFactory, final boolean rawJson) {
         super();
-        builder = new HttpConnection.Builder().timeout(timeout).responseSizeLimit(responseSizeLimit).secretProvider(secretProvider).email(email)
-            .jwtAuthEnabled(jwtAuth).jwt(jwtToken).useSsl(useSsl).sslContext(sslContext).serializationUtil(util)
-            .contentType(protocol).ttl(connectionTtl).httpCookieSpec(httpCookieSpec)
-            .apiKey(apiKey).auxHost(auxiliaryHost).user(user).password(password).retryTimeout(retryTimeout);
+        builder = new HttpConnection.Builder().clientFactory(clientFactory).secretProvider(secretProvider).email(email)
+            .jwtAuthEnabled(jwtAuth).jwt(jwtToken).useSsl(useSsl).serializationUtil(util)
+            .contentType(protocol == Protocol.HTTP2_VPACK ? Protocol.HTTP_VPACK
+                : protocol == Protocol.HTTP2_JSON ? Protocol.HTTP_JSON : protocol)
+            .http2(protocol == Protocol.HTTP2_JSON || protocol == Protocol.HTTP2_VPACK).apiKey(apiKey)
+            .auxHost(auxiliaryHost).user(user).password(password).rawJson(rawJson);
     }
 
     @Override
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.C8DBException;
+import com.c8db.SecretProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT cache shared by all http connections of a driver instance, keyed by tenant and user.
+ *
+ * <p>
+ * Cached tokens are read without locking. The expiry is taken from the {@code exp} claim of the token, and a token
+ * that gets close to it is refreshed in the background while it is still handed out, so requests do not wait for
+ * {@code /_open/auth} or run into a 401 when the token expires. Concurrent fetches of the same token are merged into
+ * one request to the secret provider.
+ * </p>
+ */
+public class JwtTokenManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwtTokenManager.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long REFRESH_AHEAD = 60L * 1000L;
+    private static final long RETRY_REFRESH = 1000L;
+
+    private final ConcurrentMap<TenantUser, Token> tokens;
+    private final ConcurrentMap<TenantUser, CompletableFuture<Token>> inflight;
+    private final ExecutorService refresher;
+
+    public JwtTokenManager() {
+        super();
+        tokens = new ConcurrentHashMap<>();
+        inflight = new ConcurrentHashMap<>();
+        refresher = new ThreadPoolExecutor(0, 1, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread thread = new Thread(r, "c8db-jwt-refresh");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Returns the cached token without blocking. If the token is about to expire a refresh is started in the
+     * background.
+     *
+     * @return a token that has not expired yet, or {@code null} if there is none
+     */
+    public String getCachedToken(final String tenant, final String user, final SecretProvider provider) {
+        final TenantUser key = new TenantUser(tenant, user);
+        final Token token = tokens.get(key);
+        if (token == null) {
+            return null;
+        }
+        final long now = System.currentTimeMillis();
+        if (now >= token.refreshAt && !inflight.containsKey(key)) {
+            refreshInBackground(key, provider);
+        }
+        return now < token.expiresAt ? token.jwt : null;
+    }
+
+    /**
+     * Returns the cached token, or fetches a new one if there is none or it has expired.
+     */
+    public String getToken(final String tenant, final String user, final SecretProvider provider) {
+        final String jwt = getCachedToken(tenant, user, provider);
+        return jwt != null ? jwt : fetch(new TenantUser(tenant, user), provider, null);
+    }
+
+    /**
+     * Replaces a token that has been rejected by the server. If another thread has already replaced it, the newer
+     * token is returned without fetching again.
+     *
+     * @param rejected the token the server answered with 401, may be {@code null}
+     */
+    public String refreshToken(final String tenant, final String user, final SecretProvider provider,
+            final String rejected) {
+        return fetch(new TenantUser(tenant, user), provider, rejected);
+    }
+
+    private String fetch(final TenantUser key, final SecretProvider provider, final String rejected) {
+        final CompletableFuture<Token> future = new CompletableFuture<>();
+        while (true) {
+            final Token token = tokens.get(key);
+            if (usable(token, rejected)) {
+                // replaced in the meantime
+                return token.jwt;
+            }
+            final CompletableFuture<Token> running = inflight.putIfAbsent(key, future);
+            if (running == null) {
+                break;
+            }
+            await(running);
+        }
+        // check again, the fetch that just finished might have been missed
+        final Token token = tokens.get(key);
+        if (usable(token, rejected)) {
+            inflight.remove(key, future);
+            future.complete(token);
+            return token.jwt;
+        }
+        load(key, provider, future);
+        return await(future).jwt;
+    }
+
+    private static boolean usable(final Token token, final String rejected) {
+        return token != null && !token.jwt.equals(rejected) && System.currentTimeMillis() < token.expiresAt;
+    }
+
+    private void refreshInBackground(final TenantUser key, final SecretProvider provider) {
+        final CompletableFuture<Token> future = new CompletableFuture<>();
+        if (inflight.putIfAbsent(key, future) != null) {
+            return;
+        }
+        refresher.execute(new Runnable() {
+            @Override
+            public void run() {
+                load(key, provider, future);
+            }
+        });
+    }
+
+    private void load(final TenantUser key, final SecretProvider provider, final CompletableFuture<Token> future) {
+        try {
+            final Token token = Token.of(provider.fetchSecret(key.tenant, key.user), System.currentTimeMillis());
+            tokens.put(key, token);
+            future.complete(token);
+        } catch (final RuntimeException e) {
+            LOGGER.debug("Failed to fetch jwt", e);
+            final Token token = tokens.get(key);
+            if (token != null) {
+                // keep serving the current token, but do not retry the refresh on every request
+                tokens.replace(key, token, token.retryAt(System.currentTimeMillis() + RETRY_REFRESH));
+            }
+            future.completeExceptionally(e);
+        } finally {
+            inflight.remove(key, future);
+        }
+    }
+
+    private static Token await(final CompletableFuture<Token> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new C8DBException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the value of the {@code exp} claim in milliseconds, or {@code null} if the token has none
+     */
+    static Long parseExpiry(final String jwt) {
+        final int start = jwt.indexOf('.');
+        final int end = start >= 0 ? jwt.indexOf('.', start + 1) : -1;
+        if (end < 0) {
+            return null;
+        }
+        try {
+            final JsonNode exp = MAPPER.readTree(Base64.getUrlDecoder().decode(jwt.substring(start + 1, end)))
+                    .get("exp");
+            return exp != null && exp.canConvertToLong() ? exp.asLong() * 1000L : null;
+        } catch (final Exception e) {
+            LOGGER.debug("Failed to parse jwt expiry", e);
+            return null;
+        }
+    }
+
+    private static final class Token {
+
+        private final String jwt;
+        private final long expiresAt;
+        private final long refreshAt;
+
+        private Token(final String jwt, final long expiresAt, final long refreshAt) {
+            this.jwt = jwt;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+
+        Token retryAt(final long time) {
+            return new Token(jwt, expiresAt, Math.min(time, expiresAt));
+        }
+
+        static Token of(final String jwt, final long now) {
+            final Long expiry = parseExpiry(jwt);
+            if (expiry == null) {
+                // refreshed once the server rejects it
+                return new Token(jwt, Long.MAX_VALUE, Long.MAX_VALUE);
+            }
+            // refresh a minute ahead, or halfway through the lifetime of short lived tokens
+            final long ahead = Math.min(REFRESH_AHEAD, Math.max(0L, expiry - now) / 2);
+            return new Token(jwt, expiry, expiry - ahead);
+        }
+    }
+
+    private static final class TenantUser {
+
+        private final String tenant;
+        private final String user;
+
+        private TenantUser(final String tenant, final String user) {
+            this.tenant = tenant;
+            this.user = user;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final TenantUser that = (TenantUser) o;
+            return Objects.equals(tenant, that.tenant) && Objects.equals(user, that.user);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenant, user);
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Apache http client together with its connection manager. The client is reference counted, so it can be shared by
+ * several {@link HttpConnection}s and is closed when the last one releases it.
+ */
+public class PooledHttpClient implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledHttpClient.class);
+
+    private final PoolingHttpClientConnectionManager cm;
+    private final CloseableHttpClient client;
+    private int references;
+
+    PooledHttpClient(final PoolingHttpClientConnectionManager cm, final CloseableHttpClient client) {
+        super();
+        this.cm = cm;
+        this.client = client;
+        this.references = 0;
+    }
+
+    public CloseableHttpClient getClient() {
+        return client;
+    }
+
+    public PoolingHttpClientConnectionManager getConnectionManager() {
+        return cm;
+    }
+
+    synchronized PooledHttpClient retain() {
+        references++;
+        return this;
+    }
+
+    /**
+     * @return {@code true} if this was the last reference and the client has been closed
+     */
+    synchronized boolean release() throws IOException {
+        if (--references > 0) {
+            return false;
+        }
+        close();
+        return true;
+    }
+
+    synchronized int references() {
+        return references;
+    }
+
+    @Override
+    public void close() throws IOException {
+        LOGGER.debug("Close http client " + cm.getTotalStats());
+        cm.shutdown();
+        client.close();
+    }
+
+}
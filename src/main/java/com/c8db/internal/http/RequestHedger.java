@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.c8db.C8DBException;
+import com.c8db.internal.net.AccessType;
+import com.c8db.internal.net.Connection;
+import com.c8db.internal.net.Host;
+import com.c8db.internal.net.HostHandle;
+import com.c8db.internal.net.HostHandler;
+import com.c8db.internal.net.HostLoad;
+import com.c8db.internal.net.ManagedConnection;
+import com.c8db.util.RetryBudget;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.RequestType;
+import com.c8db.velocystream.Response;
+
+/**
+ * Sends a duplicate of a slow read to a second host and takes the response that arrives first, the other request is
+ * aborted. The duplicate is sent after a fixed delay or, without one, after the 95th percentile of the observed
+ * response times. Duplicates are taken from a {@link RetryBudget}, so that they cannot double the load of a cluster
+ * that is slow as a whole.
+ * <p>
+ * The request itself is sent on the calling thread, only the duplicates run on a pool of at most
+ * {@link #MAX_HEDGES} threads. While all of them are busy, slow requests are not duplicated.
+ * </p>
+ * <p>
+ * Only {@code GET} and {@code HEAD} requests are hedged, and only if they are not bound to a host, like the batches
+ * of a cursor.
+ * </p>
+ */
+public class RequestHedger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestHedger.class);
+
+    private static final int SAMPLES = 512;
+    private static final int MIN_SAMPLES = 64;
+    static final int MAX_HEDGES = 32;
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+    private static final ThreadPoolExecutor HEDGES = createHedgeExecutor();
+
+    private final long delay;
+    private final RetryBudget budget;
+    private final AtomicLongArray samples;
+    private final AtomicLong sampleCount;
+    private volatile long percentile;
+
+    /**
+     * @param delay  time in milliseconds after which a duplicate is sent, {@code 0} to use the 95th percentile of the
+     *               response times
+     * @param budget budget the duplicates are taken from
+     */
+    public RequestHedger(final long delay, final RetryBudget budget) {
+        super();
+        this.delay = TimeUnit.MILLISECONDS.toNanos(delay);
+        this.budget = budget;
+        samples = new AtomicLongArray(SAMPLES);
+        sampleCount = new AtomicLong();
+        percentile = -1L;
+    }
+
+    /**
+     * @return whether the request may be sent twice
+     */
+    public boolean isHedgeable(final Request request, final HostHandle hostHandle) {
+        final RequestType type = request.getRequestType();
+        return (type == RequestType.GET || type == RequestType.HEAD)
+                && (hostHandle == null || hostHandle.getHost() == null);
+    }
+
+    /**
+     * Sends the request to the host and, if it does not answer within the hedge delay, a duplicate to another host
+     * of the handler.
+     */
+    public Response execute(final Request request, final Host host, final HostHandler hostHandler,
+            final AccessType accessType) throws IOException {
+        budget.onRequest();
+        final long hedgeDelay = delay > 0 ? delay : percentile;
+        final Attempt primary = new Attempt(host, request);
+        if (hedgeDelay < 0) {
+            // not enough response times observed yet
+            primary.run();
+            return await(primary.result);
+        }
+        final Hedge hedge = new Hedge(primary, request, hostHandler, accessType, hedgeDelay);
+        final ScheduledFuture<?> timer = TIMER.schedule(hedge, hedgeDelay, TimeUnit.NANOSECONDS);
+        primary.run();
+        timer.cancel(false);
+        final Attempt duplicate = hedge.finish();
+        if (duplicate == null) {
+            return await(primary.result);
+        }
+        try {
+            return await(firstSuccess(primary.result, duplicate.result));
+        } finally {
+            duplicate.cancel();
+        }
+    }
+
+    private static CompletableFuture<Response> firstSuccess(final CompletableFuture<Response> primary,
+            final CompletableFuture<Response> hedge) {
+        final CompletableFuture<Response> first = new CompletableFuture<>();
+        final AtomicInteger failures = new AtomicInteger();
+        final BiConsumer<Response, Throwable> complete = new BiConsumer<Response, Throwable>() {
+            @Override
+            public void accept(final Response response, final Throwable e) {
+                if (e == null) {
+                    first.complete(response);
+                } else if (failures.incrementAndGet() == 2) {
+                    // both failed, report the error of the request that was sent first
+                    first.completeExceptionally(primary.handle(new BiFunction<Response, Throwable, Throwable>() {
+                        @Override
+                        public Throwable apply(final Response r, final Throwable cause) {
+                            return cause;
+                        }
+                    }).join());
+                }
+            }
+        };
+        primary.whenComplete(complete);
+        hedge.whenComplete(complete);
+        return first;
+    }
+
+    private static Response await(final CompletableFuture<Response> result) throws IOException {
+        try {
+            return result.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new C8DBException("Interrupted while waiting for the response", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new C8DBException(cause);
+        }
+    }
+
+    private void record(final long latency) {
+        final long index = sampleCount.getAndIncrement();
+        samples.set((int) (index % SAMPLES), latency);
+        if ((index + 1) % MIN_SAMPLES == 0) {
+            final int size = (int) Math.min(index + 1, SAMPLES);
+            final long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            percentile = sorted[(int) Math.ceil(size * 0.95) - 1];
+        }
+    }
+
+    /**
+     * Sends the duplicate once the hedge delay has passed, unless the request has been answered by then.
+     */
+    private final class Hedge implements Runnable {
+
+        private final Attempt primary;
+        private final Request request;
+        private final HostHandler hostHandler;
+        private final AccessType accessType;
+        private final long hedgeDelay;
+        private Attempt duplicate;
+        private boolean finished;
+
+        Hedge(final Attempt primary, final Request request, final HostHandler hostHandler,
+                final AccessType accessType, final long hedgeDelay) {
+            super();
+            this.primary = primary;
+            this.request = request;
+            this.hostHandler = hostHandler;
+            this.accessType = accessType;
+            this.hedgeDelay = hedgeDelay;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (finished || primary.result.isDone()) {
+                return;
+            }
+            final Host other = hostHandler.getHedge(primary.host, accessType);
+            if (other == null || !budget.tryAcquire()) {
+                return;
+            }
+            final Attempt attempt = new Attempt(other, request);
+            try {
+                attempt.task = HEDGES.submit(attempt);
+            } catch (final RejectedExecutionException e) {
+                LOGGER.debug(String.format("Too many requests hedged, do not send the request to %s",
+                        other.getDescription()));
+                return;
+            }
+            LOGGER.debug(String.format("No response of %s after %s ms, send request to %s too",
+                    primary.host.getDescription(), TimeUnit.NANOSECONDS.toMillis(hedgeDelay),
+                    other.getDescription()));
+            duplicate = attempt;
+            attempt.result.whenComplete(new BiConsumer<Response, Throwable>() {
+                @Override
+                public void accept(final Response response, final Throwable e) {
+                    if (e == null) {
+                        // release the calling thread
+                        primary.cancel();
+                    }
+                }
+            });
+        }
+
+        /**
+         * @return the duplicate if it was sent, no duplicate is sent after this
+         */
+        synchronized Attempt finish() {
+            finished = true;
+            return duplicate;
+        }
+    }
+
+    /**
+     * One request to one host. The connection is only aborted while the attempt uses it, once it is back in the
+     * pool it may already send another request.
+     */
+    private final class Attempt implements Runnable {
+
+        private final Host host;
+        private final Request request;
+        private final CompletableFuture<Response> result;
+        private volatile Future<?> task;
+        private HttpConnection connection;
+        private boolean cancelled;
+
+        Attempt(final Host host, final Request request) {
+            super();
+            this.host = host;
+            this.request = request;
+            this.result = new CompletableFuture<>();
+        }
+
+        @Override
+        public void run() {
+            final HostLoad load = host.getLoad();
+            try (final ManagedConnection<Connection> managedConnection = HttpCommunication.checkout(host, request)) {
+                final HttpConnection httpConnection = (HttpConnection) managedConnection.connection();
+                synchronized (this) {
+                    if (cancelled) {
+                        load.cancel();
+                        return;
+                    }
+                    connection = httpConnection;
+                }
+                final long start = System.nanoTime();
+                try {
+                    final Response response = httpConnection.execute(request);
+                    load.end(start, null);
+                    record(System.nanoTime() - start);
+                    result.complete(response);
+                } catch (final IOException | RuntimeException e) {
+                    synchronized (this) {
+                        // a request that lost the race says nothing about its host
+                        if (cancelled) {
+                            load.cancel();
+                        } else {
+                            load.end(start, e);
+                        }
+                    }
+                    result.completeExceptionally(e);
+                } finally {
+                    synchronized (this) {
+                        connection = null;
+                    }
+                }
+            } catch (final IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        void cancel() {
+            if (result.isDone()) {
+                return;
+            }
+            synchronized (this) {
+                cancelled = true;
+                if (connection != null) {
+                    connection.abort();
+                }
+            }
+            if (task != null) {
+                task.cancel(true);
+            }
+            result.cancel(false);
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "c8db-hedge-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private static ThreadPoolExecutor createHedgeExecutor() {
+        // a hedge is skipped rather than queued, a late duplicate does not help
+        return new ThreadPoolExecutor(0, MAX_HEDGES, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread thread = new Thread(r, "c8db-hedge");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+}
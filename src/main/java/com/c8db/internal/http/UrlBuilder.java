@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.internal.net.HostDescription;
+import com.c8db.internal.util.EncodeUtils;
+import com.c8db.internal.util.RequestUtils;
+import com.c8db.velocystream.Request;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds the request urls of one host. The base url and the {@code /_tenant/../_fabric/..} prefixes are computed once
+ * and reused, query parameters are encoded straight into the url.
+ */
+public class UrlBuilder {
+
+    private static final int MAX_CACHED_PREFIXES = 256;
+    private static final String NONE = "";
+
+    private final String baseUrl;
+    private final Map<String, Map<String, String>> prefixes;
+
+    public UrlBuilder(final HostDescription host, final Boolean useSsl) {
+        super();
+        this.baseUrl = RequestUtils.buildBaseUrl(host, useSsl);
+        this.prefixes = new ConcurrentHashMap<>();
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public String build(final Request request) {
+        final String path = request.getRequest();
+        final Map<String, String> queryParam = request.getQueryParam();
+        final String prefix = prefix(request.getPathTenant(), request.getPathDatabase());
+        final StringBuilder sb = new StringBuilder(prefix.length() + path.length() + 32 * queryParam.size());
+        sb.append(prefix).append(path);
+        boolean first = path.indexOf('?') < 0;
+        for (final Map.Entry<String, String> param : queryParam.entrySet()) {
+            if (param.getValue() != null) {
+                sb.append(first ? '?' : '&');
+                EncodeUtils.appendQueryParam(sb, param.getKey(), param.getValue());
+                first = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private String prefix(final String tenant, final String database) {
+        final String tenantKey = StringUtils.isNotEmpty(tenant) ? tenant : NONE;
+        final String databaseKey = database != null && !database.isEmpty() ? database : NONE;
+        Map<String, String> databases = prefixes.get(tenantKey);
+        if (databases == null) {
+            if (prefixes.size() >= MAX_CACHED_PREFIXES) {
+                prefixes.clear();
+            }
+            databases = prefixes.computeIfAbsent(tenantKey, k -> new ConcurrentHashMap<>());
+        }
+        String prefix = databases.get(databaseKey);
+        if (prefix == null) {
+            if (databases.size() >= MAX_CACHED_PREFIXES) {
+                databases.clear();
+            }
+            final StringBuilder sb = new StringBuilder(baseUrl);
+            if (!tenantKey.isEmpty()) {
+                sb.append("/_tenant/").append(tenantKey);
+            }
+            if (!databaseKey.isEmpty()) {
+                sb.append("/_fabric/").append(databaseKey);
+            }
+            prefix = sb.toString();
+            databases.put(databaseKey, prefix);
+        }
+        return prefix;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.arangodb.velocypack.VPackSlice;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Request entity that is written directly from the backing buffer of a {@link VPackSlice}, so the body of a request
+ * is never copied before it is sent. The entity is repeatable and can be sent again on retries. Chunked transfer
+ * encoding can be requested with {@link #setChunked(boolean)}.
+ */
+public class VPackEntity extends AbstractHttpEntity {
+
+    private final byte[] buffer;
+    private final int offset;
+    private final int length;
+
+    public VPackEntity(final VPackSlice slice, final ContentType contentType) {
+        super();
+        this.buffer = slice.getBuffer();
+        this.offset = slice.getStart();
+        this.length = slice.getByteSize();
+        if (contentType != null) {
+            setContentType(contentType.toString());
+        }
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() {
+        return new ByteArrayInputStream(buffer, offset, length);
+    }
+
+    @Override
+    public void writeTo(final OutputStream outstream) throws IOException {
+        outstream.write(buffer, offset, length);
+        outstream.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * @return a read-only view of the content without copying it
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(buffer, offset, length).slice().asReadOnlyBuffer();
+    }
+
+}
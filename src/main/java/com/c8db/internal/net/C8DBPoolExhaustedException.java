@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.net;
+
+import com.c8db.C8DBException;
+
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
+
+/**
+ * Thrown with response code {@code 503} if the connection pool of a host rejects a request because too many callers
+ * wait for a connection or none became free in time. The request was never sent and the pool is busy with requests
+ * of the same client, so unlike a {@code 503} of the server it is not retried.
+ */
+public class C8DBPoolExhaustedException extends C8DBException {
+
+    private static final long serialVersionUID = 3794587230462810651L;
+
+    public C8DBPoolExhaustedException(final String message) {
+        super(message, SC_SERVICE_UNAVAILABLE);
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.net;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ejects a {@link Host} from load balancing when too many of its recent requests failed or were slow. While the
+ * host is ejected, the {@link HostHandler}s send requests to other hosts. When the ejection time is over, a single
+ * request at a time is let through as a probe: the first one that succeeds closes the circuit again, one that fails
+ * ejects the host for twice as long as before.
+ *
+ * <p>
+ * Requests are counted in buckets of a sliding window that are updated without locking, like in
+ * {@link com.c8db.util.RetryBudget}.
+ * </p>
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private static final int BUCKETS = 10;
+
+    private final HostDescription host;
+    private final CircuitBreakerConfig config;
+    private final long bucketNanos;
+    private final long slowCallNanos;
+    private final AtomicLongArray epochs;
+    private final AtomicLongArray calls;
+    private final AtomicLongArray failures;
+    private final AtomicInteger ejections;
+    private final AtomicLong nextProbeAt;
+    private volatile boolean open;
+    private volatile long openedAt;
+
+    public CircuitBreaker(final HostDescription host, final CircuitBreakerConfig config) {
+        super();
+        this.host = host;
+        this.config = config;
+        bucketNanos = Math.max(1L, TimeUnit.MILLISECONDS.toNanos(config.getWindow()) / BUCKETS);
+        slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallDuration());
+        epochs = new AtomicLongArray(BUCKETS);
+        calls = new AtomicLongArray(BUCKETS);
+        failures = new AtomicLongArray(BUCKETS);
+        ejections = new AtomicInteger();
+        nextProbeAt = new AtomicLong();
+        for (int i = 0; i < BUCKETS; i++) {
+            epochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * @return {@code true} if a request may be sent to the host. While the circuit is open this lets through one
+     *         probe at a time once the ejection time is over.
+     */
+    public boolean allowRequest() {
+        if (!open) {
+            return true;
+        }
+        final long now = System.nanoTime();
+        final long next = nextProbeAt.get();
+        if (now - next < 0) {
+            return false;
+        }
+        // let another probe through if this one does not return within the ejection time
+        return nextProbeAt.compareAndSet(next, now + TimeUnit.MILLISECONDS.toNanos(config.getEjectionTime()));
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Records the outcome of a request to the host.
+     *
+     * @param start   start of the request as of {@link System#nanoTime()}
+     * @param elapsed duration of the request in nanoseconds
+     * @param failed  whether the request failed because of the host
+     */
+    public void record(final long start, final long elapsed, final boolean failed) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        final boolean failure = failed || (slowCallNanos > 0 && elapsed >= slowCallNanos);
+        if (open) {
+            // requests sent before the host was ejected tell nothing about its recovery
+            if (start - openedAt >= 0) {
+                if (failure) {
+                    trip(start, start + elapsed);
+                } else {
+                    close();
+                }
+            }
+            return;
+        }
+        final long epoch = Math.floorDiv(start + elapsed, bucketNanos);
+        final int bucket = bucket(epoch);
+        calls.incrementAndGet(bucket);
+        if (failure) {
+            failures.incrementAndGet(bucket);
+            long sentCalls = 0;
+            long failedCalls = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                if (epochs.get(i) > epoch - BUCKETS) {
+                    sentCalls += calls.get(i);
+                    failedCalls += failures.get(i);
+                }
+            }
+            if (sentCalls >= config.getMinimumCalls() && failedCalls >= config.getFailureRate() * sentCalls) {
+                trip(start, start + elapsed);
+            }
+        }
+    }
+
+    private synchronized void trip(final long start, final long now) {
+        if (open && start - openedAt < 0) {
+            // ejected by a concurrent request already
+            return;
+        }
+        final int times = Math.min(ejections.getAndIncrement(), 30);
+        final long ejectionTime = Math.min(config.getEjectionTime() << times, config.getMaxEjectionTime());
+        LOGGER.warn(String.format("Ejecting %s for %s ms", host, ejectionTime));
+        openedAt = now;
+        nextProbeAt.set(now + TimeUnit.MILLISECONDS.toNanos(ejectionTime));
+        open = true;
+    }
+
+    private synchronized void close() {
+        if (open) {
+            LOGGER.info(String.format("%s is back", host));
+            for (int i = 0; i < BUCKETS; i++) {
+                epochs.set(i, Long.MIN_VALUE);
+            }
+            ejections.set(0);
+            open = false;
+        }
+    }
+
+    private int bucket(final long epoch) {
+        final int index = (int) Math.floorMod(epoch, (long) BUCKETS);
+        final long stamp = epochs.get(index);
+        if (stamp != epoch && epochs.compareAndSet(index, stamp, epoch)) {
+            // the bucket is reused for a new period
+            calls.set(index, 0L);
+            failures.set(index, 0L);
+        }
+        return index;
+    }
+
+    /**
+     * Finds a host that may take a request, starting at {@code first} and wrapping around.
+     *
+     * @return the host, or {@code null} if all hosts are ejected
+     */
+    static Host firstAvailable(final List<Host> hosts, final int first) {
+        final int size = hosts.size();
+        for (int i = 0; i < size; i++) {
+            final Host host = hosts.get((first + i) % size);
+            if (host.getCircuitBreaker().allowRequest()) {
+                return host;
+            }
+        }
+        return null;
+    }
+
+}
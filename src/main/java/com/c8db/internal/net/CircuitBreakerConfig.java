@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.net;
+
+import com.c8db.internal.C8Defaults;
+
+/**
+ * Settings of the {@link CircuitBreaker} of each host.
+ */
+public class CircuitBreakerConfig {
+
+    private final boolean enabled;
+    private final double failureRate;
+    private final long slowCallDuration;
+    private final int minimumCalls;
+    private final long window;
+    private final long ejectionTime;
+    private final long maxEjectionTime;
+
+    private CircuitBreakerConfig(final boolean enabled, final double failureRate, final long slowCallDuration,
+            final int minimumCalls, final long window, final long ejectionTime, final long maxEjectionTime) {
+        super();
+        this.enabled = enabled;
+        this.failureRate = failureRate;
+        this.slowCallDuration = slowCallDuration;
+        this.minimumCalls = minimumCalls;
+        this.window = window;
+        this.ejectionTime = ejectionTime;
+        this.maxEjectionTime = maxEjectionTime;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return ratio of failed or slow requests within {@link #getWindow()} from which on the host is ejected
+     */
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    /**
+     * @return time in milliseconds from which on a request counts as failed, {@code 0} to not count slow requests
+     */
+    public long getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    /**
+     * @return number of requests within {@link #getWindow()} below which the host is not ejected
+     */
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    /**
+     * @return time in milliseconds over which requests are counted
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * @return time in milliseconds the host is ejected the first time, doubled with every ejection in a row
+     */
+    public long getEjectionTime() {
+        return ejectionTime;
+    }
+
+    /**
+     * @return time in milliseconds the host is ejected at most
+     */
+    public long getMaxEjectionTime() {
+        return maxEjectionTime;
+    }
+
+    public static class Builder {
+
+        private Boolean enabled;
+        private Double failureRate;
+        private Long slowCallDuration;
+        private Integer minimumCalls;
+        private Long window;
+        private Long ejectionTime;
+        private Long maxEjectionTime;
+
+        public Builder enabled(final Boolean enabled) {
+            this.enabled = enabled;
+            return this;
+        }
+
+        public Builder failureRate(final Double failureRate) {
+            this.failureRate = failureRate;
+            return this;
+        }
+
+        public Builder slowCallDuration(final Long slowCallDuration) {
+            this.slowCallDuration = slowCallDuration;
+            return this;
+        }
+
+        public Builder minimumCalls(final Integer minimumCalls) {
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        public Builder window(final Long window) {
+            this.window = window;
+            return this;
+        }
+
+        public Builder ejectionTime(final Long ejectionTime) {
+            this.ejectionTime = ejectionTime;
+            return this;
+        }
+
+        public Builder maxEjectionTime(final Long maxEjectionTime) {
+            this.maxEjectionTime = maxEjectionTime;
+            return this;
+        }
+
+        public CircuitBreakerConfig build() {
+            final long ejection = Math.max(1L, ejectionTime != null ? ejectionTime
+                    : C8Defaults.DEFAULT_CIRCUIT_BREAKER_EJECTION_TIME);
+            return new CircuitBreakerConfig(enabled != null ? enabled : C8Defaults.DEFAULT_CIRCUIT_BREAKER,
+                    failureRate != null ? failureRate : C8Defaults.DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE,
+                    Math.max(0L, slowCallDuration != null ? slowCallDuration
+                            : C8Defaults.DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_DURATION),
+                    Math.max(1, minimumCalls != null ? minimumCalls
+                            : C8Defaults.DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS),
+                    Math.max(1L, window != null ? window : C8Defaults.DEFAULT_CIRCUIT_BREAKER_WINDOW),
+                    ejection,
+                    Math.max(ejection, maxEjectionTime != null ? maxEjectionTime
+                            : C8Defaults.DEFAULT_CIRCUIT_BREAKER_MAX_EJECTION_TIME));
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.net;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+
+import com.c8db.Service;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.Response;
+
+/**
+ * Non-blocking counterpart of {@link CommunicationProtocol}. The returned future is completed exceptionally with a
+ * {@link com.c8db.C8DBException} if the request fails.
+ */
+public interface CommunicationProtocolAsync extends Closeable {
+
+    CompletableFuture<Response> execute(final Request request, HostHandle hostHandle, Service service);
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.net;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.c8db.C8DBException;
+import com.c8db.Service;
+
+import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
+
+/**
+ * Limits the requests in flight to a host to an estimate of what the host can take, following TCP Vegas. The
+ * response time without load is the lowest one observed, it is measured again every {@link #PROBE_SAMPLES}
+ * requests. From it and each response time the limiter estimates how many requests queue up at the host: while
+ * that are only a few, the limit grows, if more queue up it shrinks, and on a failure of the host it is cut by
+ * {@link #BACKOFF_RATIO}. The limit only grows while at least half of it is used.
+ * <p>
+ * Requests above the limit wait like for a connection of the pool, up to the acquire timeout and with at most max
+ * queue callers waiting, and are rejected with response code 503 after that. The limit is registered as
+ * {@link ConcurrencyLimiterMXBean}.
+ * </p>
+ */
+public class ConcurrencyLimiter implements ConcurrencyLimiterMXBean, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    static final int PROBE_SAMPLES = 1000;
+    static final double BACKOFF_RATIO = 0.9;
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private final HostDescription host;
+    private final int maxLimit;
+    private final long acquireTimeout;
+    private final int maxQueue;
+    private final AtomicLong rejected;
+    private final ObjectName name;
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private long noLoadTime;
+    private long samples;
+
+    /**
+     * @param acquireTimeout time in milliseconds a request waits for the limit, {@code 0} to wait without limit
+     * @param maxQueue       number of requests that may wait for the limit, {@code 0} for no limit
+     */
+    public ConcurrencyLimiter(final HostDescription host, final Service service, final int initialLimit,
+            final int maxLimit, final long acquireTimeout, final int maxQueue) {
+        super();
+        this.host = host;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.acquireTimeout = TimeUnit.MILLISECONDS.toNanos(acquireTimeout);
+        this.maxQueue = maxQueue;
+        rejected = new AtomicLong();
+        limit = Math.max(1, Math.min(initialLimit, this.maxLimit));
+        name = register(host, service);
+    }
+
+    /**
+     * Counts a request as in flight, if the limit allows it.
+     *
+     * @param wait whether to wait for the limit, otherwise a request above the limit is rejected at once
+     * @throws C8DBException with response code 503 if the limit was reached
+     */
+    public synchronized void acquire(final boolean wait) {
+        if (inFlight >= (int) limit) {
+            if (!wait || (maxQueue > 0 && waiting >= maxQueue)) {
+                throw reject();
+            }
+            final long deadline = System.nanoTime() + acquireTimeout;
+            waiting++;
+            boolean acquired = false;
+            try {
+                while (inFlight >= (int) limit) {
+                    final long remaining = deadline - System.nanoTime();
+                    if (acquireTimeout > 0 && remaining <= 0) {
+                        throw reject();
+                    }
+                    if (acquireTimeout > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } else {
+                        wait();
+                    }
+                }
+                acquired = true;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new C8DBException("Interrupted while waiting for the concurrency limit", e);
+            } finally {
+                waiting--;
+                if (!acquired) {
+                    // a wakeup this caller may have taken goes to the next one
+                    signal();
+                }
+            }
+        }
+        inFlight++;
+    }
+
+    /**
+     * Counts a request as done and adapts the limit to its response time.
+     *
+     * @param elapsed response time in nanoseconds
+     * @param dropped whether the request failed because of the host
+     */
+    public synchronized void release(final long elapsed, final boolean dropped) {
+        final int sent = inFlight--;
+        final int before = (int) limit;
+        update(elapsed, dropped, sent);
+        if ((int) limit != before && LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Concurrency limit of %s is %s", host, (int) limit));
+        }
+        signal();
+    }
+
+    /**
+     * Counts a request as done without adapting the limit, for a request that was abandoned before it ended.
+     */
+    public synchronized void cancel() {
+        inFlight--;
+        signal();
+    }
+
+    /**
+     * Wakes up as many waiting requests as there are free slots, instead of all of them to compete for one.
+     */
+    private void signal() {
+        for (int free = Math.min(waiting, (int) limit - inFlight); free > 0; free--) {
+            notify();
+        }
+    }
+
+    private void update(final long elapsed, final boolean dropped, final int sent) {
+        if (dropped) {
+            limit = Math.max(1.0, limit * BACKOFF_RATIO);
+            return;
+        }
+        if (elapsed <= 0) {
+            return;
+        }
+        if (noLoadTime == 0 || elapsed < noLoadTime || ++samples % PROBE_SAMPLES == 0) {
+            noLoadTime = elapsed;
+            return;
+        }
+        final double step = Math.max(1.0, Math.log10(limit));
+        final double queued = Math.ceil(limit * (1.0 - (double) noLoadTime / elapsed));
+        if (queued <= 3 * step) {
+            if (2 * sent >= limit) {
+                limit = Math.min(maxLimit, limit + step);
+            }
+        } else if (queued >= 6 * step) {
+            limit = Math.max(1.0, limit - step);
+        }
+    }
+
+    private C8DBException reject() {
+        rejected.incrementAndGet();
+        return new C8DBException(String.format("Concurrency limit of %s reached for %s", (int) limit, host),
+                SC_SERVICE_UNAVAILABLE);
+    }
+
+    @Override
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    @Override
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public void close() {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (final JMException e) {
+            LOGGER.debug(String.format("Could not unregister %s", name), e);
+        }
+    }
+
+    private ObjectName register(final HostDescription host, final Service service) {
+        try {
+            final ObjectName objectName = new ObjectName(String.format(
+                    "com.c8db:type=ConcurrencyLimiter,service=%s,host=%s,id=%s", service,
+                    ObjectName.quote(host.getHost() + ":" + host.getPort()), IDS.incrementAndGet()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (final JMException | RuntimeException e) {
+            LOGGER.debug(String.format("Could not register the concurrency limiter of %s", host), e);
+            return null;
+        }
+    }
+
+}
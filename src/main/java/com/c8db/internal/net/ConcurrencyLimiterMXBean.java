@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.net;
+
+/**
+ * Metrics of the {@link ConcurrencyLimiter} of a host, registered as {@code com.c8db:type=ConcurrencyLimiter}.
+ */
+public interface ConcurrencyLimiterMXBean {
+
+    /**
+     * @return number of requests that may currently be in flight to the host
+     */
+    int getLimit();
+
+    int getInFlight();
+
+    /**
+     * @return number of requests rejected because the limit was reached
+     */
+    long getRejected();
+
+}
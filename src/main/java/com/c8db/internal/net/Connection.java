@@ -17,10 +17,37 @@
 package com.c8db.internal.net;
 
 import java.io.Closeable;
+import java.io.IOException;
 
 /**
  *
  */
 public interface Connection extends Closeable {
 
+    /**
+     * Establishes the connection ahead of the first request, so that it does not pay for the connect and the
+     * handshakes.
+     */
+    default void open() throws IOException {
+    }
+
+    /**
+     * Does not block, the pool calls it whenever it hands a connection out or takes it back.
+     *
+     * @return {@code false} if the connection is known to be broken and should be replaced
+     */
+    default boolean isValid() {
+        return true;
+    }
+
+    /**
+     * Checks the connection, with a round trip to the host if need be. The pool calls it on idle connections in the
+     * background only.
+     *
+     * @return {@code false} if the connection is broken and should be replaced
+     */
+    default boolean validate() {
+        return isValid();
+    }
+
 }
@@ -19,6 +19,9 @@
 package com.c8db.internal.net;
 
 import java.io.Closeable;
+import java.io.IOException;
+
+import com.c8db.velocystream.RequestPriority;
 
 /**
  *
@@ -27,4 +30,14 @@ public interface ConnectionPool extends Closeable, ConnectionDisposer {
 
     ManagedConnection<Connection> connection();
 
+    /**
+     * @param priority lane of the request the connection is used for
+     */
+    ManagedConnection<Connection> connection(RequestPriority priority);
+
+    /**
+     * Opens connections until the pool holds its minimum number of idle connections, at least one.
+     */
+    void warmUp() throws IOException;
+
 }
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.net;
+
+import com.c8db.Service;
+import com.c8db.internal.C8Defaults;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings of the {@link ConnectionPoolImpl} of each host.
+ */
+public class ConnectionPoolConfig {
+
+    private final int maxConnections;
+    private final long acquireTimeout;
+    private final boolean fair;
+    private final int minIdle;
+    private final long maxLifetime;
+    private final long maxIdleTime;
+    private final long validationInterval;
+    private final Map<Service, Integer> serviceMaxConnections;
+    private final double bulkRatio;
+    private final int maxQueue;
+    private final boolean adaptiveConcurrency;
+    private final int maxConcurrencyLimit;
+    private final int maxRequestsPerConnection;
+
+    private ConnectionPoolConfig(final int maxConnections, final long acquireTimeout, final boolean fair,
+            final int minIdle, final long maxLifetime, final long maxIdleTime, final long validationInterval,
+            final Map<Service, Integer> serviceMaxConnections, final double bulkRatio, final int maxQueue,
+            final boolean adaptiveConcurrency, final int maxConcurrencyLimit, final int maxRequestsPerConnection) {
+        super();
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+        this.adaptiveConcurrency = adaptiveConcurrency;
+        this.maxConcurrencyLimit = maxConcurrencyLimit;
+        this.serviceMaxConnections = serviceMaxConnections;
+        this.bulkRatio = bulkRatio;
+        this.maxQueue = maxQueue;
+        this.maxConnections = maxConnections;
+        this.acquireTimeout = acquireTimeout;
+        this.fair = fair;
+        this.minIdle = minIdle;
+        this.maxLifetime = maxLifetime;
+        this.maxIdleTime = maxIdleTime;
+        this.validationInterval = validationInterval;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return maximum number of connections of a host of the service, {@link #getMaxConnections()} unless the service
+     *         has its own limit
+     */
+    public int getMaxConnections(final Service service) {
+        final Integer max = service != null ? serviceMaxConnections.get(service) : null;
+        return max != null ? max : maxConnections;
+    }
+
+    /**
+     * @return share of the connections that {@link com.c8db.velocystream.RequestPriority#BULK} requests may use
+     */
+    public double getBulkRatio() {
+        return bulkRatio;
+    }
+
+    /**
+     * @return number of callers that may wait for a connection, further callers are rejected at once, {@code 0}
+     *         for no limit
+     */
+    public int getMaxQueue() {
+        return maxQueue;
+    }
+
+    /**
+     * @return number of requests that may share a connection at a time, {@code 1} if each request has a
+     *         connection of its own
+     */
+    public int getMaxRequestsPerConnection() {
+        return maxRequestsPerConnection;
+    }
+
+    /**
+     * @return whether each host gets a {@link ConcurrencyLimiter}
+     */
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    /**
+     * @return upper bound of the concurrency limit of a host of the service, the maximum number of requests the
+     *         connections can carry unless set otherwise
+     */
+    public int getMaxConcurrencyLimit(final Service service) {
+        return maxConcurrencyLimit > 0 ? maxConcurrencyLimit : getMaxConnections(service) * maxRequestsPerConnection;
+    }
+
+    /**
+     * @return time in milliseconds to wait for a free connection, {@code 0} to wait without limit
+     */
+    public long getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    /**
+     * @return whether waiting callers get a connection in the order they asked for one
+     */
+    public boolean isFair() {
+        return fair;
+    }
+
+    /**
+     * @return number of idle connections the pool opens ahead of requests, at most {@link #getMaxConnections()}
+     */
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    /**
+     * @return time in milliseconds after which a connection is closed once it is idle, {@code 0} for no limit
+     */
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    /**
+     * @return time in milliseconds after which an idle connection above {@link #getMinIdle()} is closed,
+     *         {@code 0} to keep idle connections open
+     */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * @return time in milliseconds between two checks of the idle connections
+     */
+    public long getValidationInterval() {
+        return validationInterval;
+    }
+
+    public static class Builder {
+
+        private Integer maxConnections;
+        private Integer acquireTimeout;
+        private Boolean fair;
+        private Integer minIdle;
+        private Long maxLifetime;
+        private Long maxIdleTime;
+        private Long validationInterval;
+        private final Map<Service, Integer> serviceMaxConnections = new EnumMap<>(Service.class);
+        private Double bulkRatio;
+        private Integer maxQueue;
+        private Boolean adaptiveConcurrency;
+        private Integer maxConcurrencyLimit;
+        private Integer maxRequestsPerConnection;
+
+        public Builder maxConnections(final Integer maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Builder acquireTimeout(final Integer acquireTimeout) {
+            this.acquireTimeout = acquireTimeout;
+            return this;
+        }
+
+        public Builder fair(final Boolean fair) {
+            this.fair = fair;
+            return this;
+        }
+
+        public Builder minIdle(final Integer minIdle) {
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        public Builder maxLifetime(final Long maxLifetime) {
+            this.maxLifetime = maxLifetime;
+            return this;
+        }
+
+        public Builder maxIdleTime(final Long maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+            return this;
+        }
+
+        public Builder validationInterval(final Long validationInterval) {
+            this.validationInterval = validationInterval;
+            return this;
+        }
+
+        public Builder maxConnections(final Service service, final Integer maxConnections) {
+            if (maxConnections != null) {
+                serviceMaxConnections.put(service, Math.max(1, maxConnections));
+            } else {
+                serviceMaxConnections.remove(service);
+            }
+            return this;
+        }
+
+        public Builder maxConnections(final Map<Service, Integer> maxConnections) {
+            if (maxConnections != null) {
+                for (final Map.Entry<Service, Integer> entry : maxConnections.entrySet()) {
+                    maxConnections(entry.getKey(), entry.getValue());
+                }
+            }
+            return this;
+        }
+
+        public Builder bulkRatio(final Double bulkRatio) {
+            this.bulkRatio = bulkRatio;
+            return this;
+        }
+
+        public Builder maxQueue(final Integer maxQueue) {
+            this.maxQueue = maxQueue;
+            return this;
+        }
+
+        public Builder adaptiveConcurrency(final Boolean adaptiveConcurrency) {
+            this.adaptiveConcurrency = adaptiveConcurrency;
+            return this;
+        }
+
+        public Builder maxConcurrencyLimit(final Integer maxConcurrencyLimit) {
+            this.maxConcurrencyLimit = maxConcurrencyLimit;
+            return this;
+        }
+
+        public Builder maxRequestsPerConnection(final Integer maxRequestsPerConnection) {
+            this.maxRequestsPerConnection = maxRequestsPerConnection;
+            return this;
+        }
+
+        public ConnectionPoolConfig build() {
+            final int max = maxConnections != null ? Math.max(1, maxConnections)
+                    : C8Defaults.MAX_CONNECTIONS_HTTP_DEFAULT;
+            return new ConnectionPoolConfig(max,
+                    Math.max(0, acquireTimeout != null ? acquireTimeout
+                            : C8Defaults.DEFAULT_CONNECTION_ACQUIRE_TIMEOUT),
+                    fair != null ? fair : C8Defaults.DEFAULT_FAIR_CONNECTION_POOL,
+                    Math.min(max, Math.max(0, minIdle != null ? minIdle : C8Defaults.DEFAULT_MIN_IDLE_CONNECTIONS)),
+                    Math.max(0L, maxLifetime != null ? maxLifetime : C8Defaults.DEFAULT_CONNECTION_MAX_LIFETIME),
+                    Math.max(0L, maxIdleTime != null ? maxIdleTime : C8Defaults.DEFAULT_CONNECTION_MAX_IDLE_TIME),
+                    Math.max(1L, validationInterval != null ? validationInterval
+                            : C8Defaults.DEFAULT_CONNECTION_VALIDATION_INTERVAL),
+                    Collections.unmodifiableMap(new EnumMap<>(serviceMaxConnections)),
+                    Math.min(1.0, Math.max(0.0, bulkRatio != null ? bulkRatio
+                            : C8Defaults.DEFAULT_BULK_CONNECTIONS_RATIO)),
+                    Math.max(0, maxQueue != null ? maxQueue : C8Defaults.DEFAULT_MAX_CONNECTION_QUEUE),
+                    adaptiveConcurrency != null ? adaptiveConcurrency : C8Defaults.DEFAULT_ADAPTIVE_CONCURRENCY,
+                    Math.max(0, maxConcurrencyLimit != null ? maxConcurrencyLimit
+                            : C8Defaults.DEFAULT_MAX_CONCURRENCY_LIMIT),
+                    Math.max(1, maxRequestsPerConnection != null ? maxRequestsPerConnection
+                            : C8Defaults.DEFAULT_MAX_REQUESTS_PER_CONNECTION));
+        }
+    }
+
+}
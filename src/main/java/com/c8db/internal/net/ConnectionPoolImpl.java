@@ -19,13 +19,16 @@
 package com.c8db.internal.net;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
-import java.util.Stack;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,73 +37,161 @@ import com.c8db.C8DBException;
 import com.c8db.Service;
 import com.c8db.internal.velocystream.internal.VstConnection;
 import com.c8db.internal.velocystream.internal.VstConnectionSync;
+import com.c8db.velocystream.RequestPriority;
 
 /**
- *
+ * Connection pool of a single host. A semaphore with one permit per connection bounds the number of connections in
+ * use, idle connections are kept in a concurrent deque and the most recently used one is handed out first. Callers
+ * wait at most {@link ConnectionPoolConfig#getAcquireTimeout()} for a connection.
+ * <p>
+ * If the pool keeps a minimum of idle connections or limits their lifetime or idle time, a background task validates,
+ * opens and closes idle connections every {@link ConnectionPoolConfig#getValidationInterval()}. Connections that are
+ * known to be broken or are too old are also closed instead of being handed out or taken back, without a round trip
+ * to the host.
+ * <p>
+ * Each service has its own pool per host, sized by {@link ConnectionPoolConfig#getMaxConnections(Service)}. Within a
+ * pool, {@link RequestPriority#BULK} requests also need a permit of a second, smaller semaphore, which keeps the rest
+ * of the connections free for interactive requests. If more than {@link ConnectionPoolConfig#getMaxQueue()} callers
+ * are waiting already, a caller is rejected at once instead of queueing up. Callers that are rejected or time out get
+ * a {@link C8DBPoolExhaustedException}, which is not retried.
+ * <p>
+ * If {@link ConnectionPoolConfig#getMaxRequestsPerConnection()} is above one, the connections are multiplexed and
+ * shared by that many callers: a caller gets the least busy connection in use that has room for another request, and
+ * an idle or new connection only if all of them are full. The semaphores then count requests instead of connections.
+ * The requests of a connection are counted with compare and set, and connections are created and validated outside
+ * of any lock, so that callers never wait for each other beyond the semaphores. Two callers that find all
+ * connections full at the same moment may both create one, the one left over becomes idle.
  */
 public class ConnectionPoolImpl implements ConnectionPool {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPoolImpl.class);
 
+    private static final ScheduledThreadPoolExecutor MAINTENANCE = createMaintenanceExecutor();
+
     private final HostDescription host;
     private final int maxConnections;
-    private final Stack<Connection> connections;
-    private final Set<Connection> usedConnections;
-    private final Queue<CompletableFuture<Connection>> waitingQueue;
+    private final int maxRequestsPerConnection;
+    private final long acquireTimeout;
+    private final int minIdle;
+    private final long maxLifetime;
+    private final long maxIdleTime;
+    private final Semaphore permits;
+    private final Semaphore bulkPermits;
+    private final int maxQueue;
+    private final AtomicInteger waiting;
+    private final Deque<Entry> connections;
+    private final Map<Connection, Entry> usedConnections;
     private final ConnectionFactory factory;
     private final Service service;
+    private final ScheduledFuture<?> maintenance;
+    private volatile boolean closed;
 
-    public ConnectionPoolImpl(final HostDescription host, final Integer maxConnections,
-            final ConnectionFactory factory, Service service) {
+    public ConnectionPoolImpl(final HostDescription host, final ConnectionPoolConfig config,
+            final ConnectionFactory factory, final Service service) {
         super();
         this.host = host;
-        this.maxConnections = maxConnections;
+        this.maxConnections = config.getMaxConnections(service);
+        this.maxRequestsPerConnection = config.getMaxRequestsPerConnection();
+        this.acquireTimeout = TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeout());
+        this.minIdle = Math.min(maxConnections, config.getMinIdle());
+        this.maxLifetime = TimeUnit.MILLISECONDS.toNanos(config.getMaxLifetime());
+        this.maxIdleTime = TimeUnit.MILLISECONDS.toNanos(config.getMaxIdleTime());
         this.factory = factory;
         this.service = service;
-        this.connections = new Stack<>();
-        this.usedConnections = new HashSet<>();
-        this.waitingQueue = new LinkedList<>();
+        final int maxRequests = maxConnections * maxRequestsPerConnection;
+        this.permits = new Semaphore(maxRequests, config.isFair());
+        this.bulkPermits = new Semaphore(Math.max(1, (int) (maxRequests * config.getBulkRatio())), config.isFair());
+        this.maxQueue = config.getMaxQueue();
+        this.waiting = new AtomicInteger();
+        this.connections = new ConcurrentLinkedDeque<>();
+        this.usedConnections = new ConcurrentHashMap<>();
+        if (minIdle > 0 || maxLifetime > 0 || maxIdleTime > 0) {
+            // the first run pre-warms the pool
+            this.maintenance = MAINTENANCE.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    maintain();
+                }
+            }, 0L, config.getValidationInterval(), TimeUnit.MILLISECONDS);
+        } else {
+            this.maintenance = null;
+        }
     }
 
     @Override
     public ManagedConnection<Connection> connection() {
-        final Connection connection = getConnection();
+        return connection(RequestPriority.INTERACTIVE);
+    }
+
+    @Override
+    public ManagedConnection<Connection> connection(final RequestPriority priority) {
+        final boolean bulk = priority == RequestPriority.BULK;
+        final Connection connection = getConnection(bulk);
 
         if (connection instanceof VstConnectionSync) {
             LOGGER.debug("Return Connection " + ((VstConnection) connection).getConnectionName());
         }
 
-        return new ManagedConnection<>(connection, this);
+        if (maxRequestsPerConnection == 1) {
+            return new ManagedConnection<>(connection, this);
+        }
+        // the callers sharing a connection may differ in priority
+        return new ManagedConnection<>(connection, new ConnectionDisposer() {
+            @Override
+            public void dispose(final Connection connection) {
+                release(connection, bulk);
+            }
+        });
+    }
+
+    @Override
+    public void warmUp() throws IOException {
+        fill(Math.max(1, minIdle));
     }
 
     @Override
     public void close() throws IOException {
-        synchronized (this) {
-            if (!usedConnections.isEmpty()) {
-                throw new C8DBException("Attempting to close connection pool with active connections remaining.");
-            }
+        if (!usedConnections.isEmpty()) {
+            throw new C8DBException("Attempting to close connection pool with active connections remaining.");
         }
-        for (final Connection connection : connections) {
-            connection.close();
+        closed = true;
+        if (maintenance != null) {
+            maintenance.cancel(false);
+        }
+        Entry entry;
+        while ((entry = connections.pollFirst()) != null) {
+            entry.connection.close();
         }
-        connections.clear();
     }
 
     @Override
     public void dispose(Connection connection) {
-        synchronized (this) {
-            if (!usedConnections.remove(connection)) {
-                throw new C8DBException("Connection disposed to incorrect connection pool.");
-            }
-            // Check if there are any threads waiting to get connections
-            CompletableFuture<Connection> future;
-            while ((future = waitingQueue.poll()) != null && future.isCancelled()) {};
-            if (future != null) {
-            	usedConnections.add(connection);
-                future.complete(connection);
+        final Entry entry = usedConnections.get(connection);
+        release(connection, entry != null && entry.bulk);
+    }
+
+    private void release(final Connection connection, final boolean bulk) {
+        final Entry entry = usedConnections.get(connection);
+        if (entry == null) {
+            throw new C8DBException("Connection disposed to incorrect connection pool.");
+        }
+        try {
+            // once at zero, no caller shares the connection anymore, see sharedEntry()
+            if (entry.requests.decrementAndGet() > 0) {
+                return;
+            }
+            usedConnections.remove(connection, entry);
+            final long now = System.nanoTime();
+            if (closed || isExpired(entry, now) || !connection.isValid()) {
+                close(entry.connection);
             } else {
-                // No threads waiting for connections
-                connections.push(connection);
+                entry.idleSince = now;
+                connections.offerFirst(entry);
+            }
+        } finally {
+            permits.release();
+            if (bulk) {
+                bulkPermits.release();
             }
         }
     }
@@ -108,34 +199,198 @@ public class ConnectionPoolImpl implements ConnectionPool {
     @Override
     public String toString() {
         return "ConnectionPoolImpl [host=" + host + ", maxConnections=" + maxConnections + ", connections="
-                + connections.size() + ", usedconnections=" + usedConnections.size() + ", factory=" + factory.getClass().getSimpleName() + "]";
+                + connections.size() + ", usedconnections=" + usedConnections.size() + ", factory="
+                + factory.getClass().getSimpleName() + "]";
     }
-    
+
     private Connection createConnection(final HostDescription host) {
         return factory.create(host, service);
     }
-    
-    private Connection getConnection() {
-        CompletableFuture<Connection> future;
-        synchronized (this) {
-            if (!connections.empty()) {
-                Connection connection = connections.pop();
-                usedConnections.add(connection);
-                return connection;
-            } else if (usedConnections.size() < maxConnections) {
-                Connection connection = createConnection(host);
-                usedConnections.add(connection);
-                return connection;
-            } else {
-                future = new CompletableFuture<>();
-                waitingQueue.add(future);
+
+    private Connection getConnection(final boolean bulk) {
+        final long deadline = System.nanoTime() + acquireTimeout;
+        if (bulk) {
+            acquirePermit(bulkPermits, deadline);
+        }
+        try {
+            acquirePermit(permits, deadline);
+        } catch (final RuntimeException e) {
+            if (bulk) {
+                bulkPermits.release();
             }
+            throw e;
         }
         try {
-            return future.get();
-        } catch (InterruptedException | ExecutionException e) {
+            if (maxRequestsPerConnection > 1) {
+                final Entry shared = sharedEntry();
+                if (shared != null) {
+                    return shared.connection;
+                }
+            }
+            Entry entry;
+            while ((entry = connections.pollFirst()) != null
+                    && (isExpired(entry, System.nanoTime()) || !entry.connection.isValid())) {
+                close(entry.connection);
+            }
+            if (entry == null) {
+                entry = new Entry(createConnection(host), System.nanoTime());
+            }
+            entry.bulk = bulk;
+            // published before it counts a request, so that a caller sharing it can also give it back
+            usedConnections.put(entry.connection, entry);
+            entry.requests.set(1);
+            return entry.connection;
+        } catch (final RuntimeException e) {
+            permits.release();
+            if (bulk) {
+                bulkPermits.release();
+            }
+            throw e;
+        }
+    }
+
+    private void acquirePermit(final Semaphore semaphore, final long deadline) {
+        try {
+            // a timed try honors the fairness of the semaphore, unlike tryAcquire()
+            if (semaphore.tryAcquire(0L, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+            if (waiting.incrementAndGet() > maxQueue && maxQueue > 0) {
+                waiting.decrementAndGet();
+                throw new C8DBPoolExhaustedException(
+                        String.format("Too many requests waiting for a connection to %s", host));
+            }
+            try {
+                if (acquireTimeout <= 0) {
+                    semaphore.acquire();
+                } else if (!semaphore.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    throw new C8DBPoolExhaustedException(String.format(
+                            "Timed out after %s ms waiting for a connection to %s",
+                            TimeUnit.NANOSECONDS.toMillis(acquireTimeout), host));
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new C8DBException(e);
         }
     }
 
+    /**
+     * Counts another request on the connection in use with the fewest requests in flight, if one has room for it.
+     *
+     * @return the connection, or {@code null} if all are full
+     */
+    private Entry sharedEntry() {
+        while (true) {
+            final long now = System.nanoTime();
+            Entry shared = null;
+            int fewest = maxRequestsPerConnection;
+            for (final Entry entry : usedConnections.values()) {
+                final int requests = entry.requests.get();
+                if (requests > 0 && requests < fewest && !isExpired(entry, now) && entry.connection.isValid()) {
+                    shared = entry;
+                    fewest = requests;
+                }
+            }
+            if (shared == null) {
+                return null;
+            }
+            // a connection whose last request just ended goes back to the idle ones and is not shared anymore
+            if (shared.requests.compareAndSet(fewest, fewest + 1)) {
+                return shared;
+            }
+        }
+    }
+
+    /**
+     * Closes broken, too old and, above {@link #minIdle}, too long idle connections and opens new ones until there
+     * are {@link #minIdle} idle connections again.
+     */
+    void maintain() {
+        final long now = System.nanoTime();
+        int idle = connections.size();
+        for (final Entry entry : connections.toArray(new Entry[0])) {
+            // a connection handed out in the meantime is not in the deque anymore, one being checked is not handed out
+            if (!connections.remove(entry)) {
+                continue;
+            }
+            if (isExpired(entry, now) || (maxIdleTime > 0 && idle > minIdle && now - entry.idleSince >= maxIdleTime)
+                    || !entry.connection.validate()) {
+                idle--;
+                close(entry.connection);
+            } else {
+                connections.offerLast(entry);
+            }
+        }
+        try {
+            fill(minIdle);
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.debug(String.format("Could not open an idle connection to %s", host), e);
+        }
+    }
+
+    /**
+     * Opens idle connections until there are {@code target} of them, as long as the pool has a free permit.
+     */
+    private void fill(final int target) throws IOException {
+        while (!closed && connections.size() < target
+                && connections.size() + usedConnections.size() < maxConnections && permits.tryAcquire()) {
+            try {
+                final Connection connection = createConnection(host);
+                try {
+                    connection.open();
+                } catch (final IOException | RuntimeException e) {
+                    close(connection);
+                    throw e;
+                }
+                connections.offerLast(new Entry(connection, System.nanoTime()));
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private boolean isExpired(final Entry entry, final long now) {
+        return maxLifetime > 0 && now - entry.createdAt >= maxLifetime;
+    }
+
+    private void close(final Connection connection) {
+        try {
+            connection.close();
+        } catch (final IOException e) {
+            LOGGER.debug(String.format("Could not close a connection to %s", host), e);
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createMaintenanceExecutor() {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "c8db-pool-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private static final class Entry {
+
+        private final Connection connection;
+        private final long createdAt;
+        private volatile long idleSince;
+        private volatile boolean bulk;
+        private final AtomicInteger requests;
+
+        private Entry(final Connection connection, final long now) {
+            this.connection = connection;
+            this.createdAt = now;
+            this.idleSince = now;
+            this.requests = new AtomicInteger();
+        }
+    }
+
 }
@@ -19,13 +19,14 @@ package com.c8db.internal.net;
 import java.io.IOException;
 
 /**
- *
+ * Sends dirty reads to the follower handler and everything else to the master handler. Requests report their outcome
+ * to the handler returned by {@link #forAccessType(AccessType)}, as they may end on another thread than the one that
+ * started them; outcomes reported to this handler itself go to the master handler.
  */
 public class DirtyReadHostHandler implements HostHandler {
 
     private final HostHandler master;
     private final HostHandler follower;
-    private AccessType currentAccessType;
 
     public DirtyReadHostHandler(final HostHandler master, final HostHandler follower) {
         super();
@@ -33,39 +34,39 @@ public class DirtyReadHostHandler implements HostHandler {
         this.follower = follower;
     }
 
-    private HostHandler determineHostHandler() {
-        switch (currentAccessType) {
-            case DIRTY_READ:
-                return follower;
-            default:
-                return master;
-        }
+    @Override
+    public HostHandler forAccessType(final AccessType accessType) {
+        return accessType == AccessType.DIRTY_READ ? follower : master;
     }
 
     @Override
     public Host get(final HostHandle hostHandle, final AccessType accessType) {
-        this.currentAccessType = accessType;
-        return determineHostHandler().get(hostHandle, accessType);
+        return forAccessType(accessType).get(hostHandle, accessType);
+    }
+
+    @Override
+    public Host getHedge(final Host host, final AccessType accessType) {
+        return forAccessType(accessType).getHedge(host, accessType);
     }
 
     @Override
     public void success() {
-        determineHostHandler().success();
+        master.success();
     }
 
     @Override
     public void fail() {
-        determineHostHandler().fail();
+        master.fail();
     }
 
     @Override
     public void reset() {
-        determineHostHandler().reset();
+        master.reset();
     }
 
     @Override
     public void confirm() {
-        determineHostHandler().confirm();
+        master.confirm();
     }
 
     @Override
@@ -76,7 +77,7 @@ public class DirtyReadHostHandler implements HostHandler {
 
     @Override
     public void closeCurrentOnError() {
-        determineHostHandler().closeCurrentOnError();
+        master.closeCurrentOnError();
     }
 
 }
@@ -26,6 +26,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import com.c8db.Service;
 import org.slf4j.Logger;
@@ -44,33 +48,39 @@ import com.c8db.velocystream.RequestType;
 import com.c8db.velocystream.Response;
 
 /**
- *
+ * Acquires the hosts of the cluster from the server in the background, right after {@link #init} and then every
+ * acquire host list interval. Requests never wait for the host list. Hosts that are no longer listed are removed at
+ * once, but only closed after their requests in flight have finished.
  */
 public class ExtendedHostResolver implements HostResolver {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ExtendedHostResolver.class);
 
-    private Map<Service, HostSet> hostMatrix;
+    private static final long DRAIN_CHECK_INTERVAL = 1000L;
+    private static final ScheduledThreadPoolExecutor REFRESH = createRefreshExecutor();
+
+    private final Map<Service, HostSet> hostMatrix;
 
-    private final Integer maxConnections;
+    private final ConnectionPoolConfig poolConfig;
+    private final CircuitBreakerConfig circuitBreakerConfig;
     private final ConnectionFactory connectionFactory;
 
-    private long lastUpdate;
-    private Integer acquireHostListInterval;
+    private final Integer acquireHostListInterval;
 
-    private C8ExecutorSync executor;
-    private C8Serialization arangoSerialization;
+    private volatile C8ExecutorSync executor;
+    private volatile C8Serialization arangoSerialization;
+    private ScheduledFuture<?> task;
 
-    public ExtendedHostResolver(final Map<Service, List<Host>> hostMatrix, final Integer maxConnections,
+    public ExtendedHostResolver(final Map<Service, List<Host>> hostMatrix, final ConnectionPoolConfig poolConfig,
+                                final CircuitBreakerConfig circuitBreakerConfig,
                                 final ConnectionFactory connectionFactory, Integer acquireHostListInterval) {
 
         this.acquireHostListInterval = acquireHostListInterval;
 
         this.hostMatrix = toHostSetsMap(hostMatrix);
-        this.maxConnections = maxConnections;
+        this.poolConfig = poolConfig;
+        this.circuitBreakerConfig = circuitBreakerConfig;
         this.connectionFactory = connectionFactory;
-
-        lastUpdate = 0;
     }
 
     private Map<Service, HostSet> toHostSetsMap(Map<Service, List<Host>> hostMatrix) {
@@ -82,59 +92,100 @@ public class ExtendedHostResolver implements HostResolver {
     }
 
     @Override
-    public void init(C8ExecutorSync executor, C8Serialization arangoSerialization) {
+    public synchronized void init(C8ExecutorSync executor, C8Serialization arangoSerialization) {
         this.executor = executor;
         this.arangoSerialization = arangoSerialization;
+        if (task == null) {
+            task = REFRESH.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    refresh();
+                }
+            }, 0L, acquireHostListInterval, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
     public HostSet resolve(Service service, boolean initial, boolean closeConnections) {
-        if (!initial && isExpired()) {
-            HostSet hosts = hostMatrix.get(Service.C8DB);
-            lastUpdate = System.currentTimeMillis();
-
-            final Collection<String> endpoints = resolveFromServer();
-            LOGGER.debug("Resolve " + endpoints.size() + " Endpoints");
-            LOGGER.debug("Endpoints " + Arrays.deepToString(endpoints.toArray()));
+        return hostMatrix.get(service);
+    }
 
-            if (!endpoints.isEmpty()) {
-                hosts.markAllForDeletion();
+    void refresh() {
+        final Collection<String> endpoints;
+        try {
+            endpoints = resolveFromServer();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Could not acquire the host list, keep the current hosts", e);
+            return;
+        }
+        LOGGER.debug("Resolve " + endpoints.size() + " Endpoints");
+        LOGGER.debug("Endpoints " + Arrays.deepToString(endpoints.toArray()));
+
+        final List<HostDescription> descriptions = new ArrayList<HostDescription>();
+        for (final String endpoint : endpoints) {
+            final HostDescription description = HostUtils.parseEndpoint(endpoint);
+            if (description != null) {
+                descriptions.add(description);
+            } else {
+                LOGGER.warn("Skip Endpoint (Format)" + endpoint);
             }
+        }
+        if (descriptions.isEmpty()) {
+            return;
+        }
 
-            for (final String endpoint : endpoints) {
-                LOGGER.debug("Create HOST from " + endpoint);
-
-                if (endpoint.matches(".*://.+:[0-9]+")) {
-
-                    final String[] s = endpoint.replaceAll(".*://", "").split(":");
-                    if (s.length == 2) {
-                        final HostDescription description = new HostDescription(s[0], Integer.valueOf(s[1]));
-                        hosts.addHost(HostUtils.createHost(description, maxConnections, connectionFactory, service));
-                    } else if (s.length == 4) {
-                        // IPV6 Address - TODO: we need a proper function to resolve AND support IPV4 &
-                        // IPV6 functions
-                        // globally
-                        final HostDescription description = new HostDescription("127.0.0.1", Integer.valueOf(s[3]));
-                        hosts.addHost(HostUtils.createHost(description, maxConnections, connectionFactory, service));
-                    } else {
-                        LOGGER.warn("Skip Endpoint (Missing Port)" + endpoint);
-                    }
+        final HostSet hosts = hostMatrix.get(Service.C8DB);
+        final List<Host> current = hosts.getHostsList();
+        hosts.markAllForDeletion();
+        for (final HostDescription description : descriptions) {
+            Host host = find(current, description);
+            if (host == null) {
+                LOGGER.debug("Create HOST from " + description);
+                host = HostUtils.createHost(description, poolConfig, circuitBreakerConfig, connectionFactory,
+                        Service.C8DB);
+            }
+            hosts.addHost(host);
+        }
+        for (final Host host : hosts.removeAllMarkedForDeletion()) {
+            drain(host);
+        }
+    }
 
-                } else {
-                    LOGGER.warn("Skip Endpoint (Format)" + endpoint);
-                }
+    private static Host find(final List<Host> hosts, final HostDescription description) {
+        for (final Host host : hosts) {
+            if (description.equals(host.getDescription())) {
+                return host;
             }
+        }
+        return null;
+    }
 
-            try {
-                hosts.clearAllMarkedForDeletion();
-            } catch (IOException e) {
-                LOGGER.error("Cant close all Hosts with MarkedForDeletion", e);
+    /**
+     * Closes a removed host as soon as it has no requests in flight anymore.
+     */
+    private static void drain(final Host host) {
+        REFRESH.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (host.getLoad().getInFlight() == 0) {
+                    try {
+                        host.close();
+                        LOGGER.debug("Closed removed Host " + host);
+                        return;
+                    } catch (final IOException | C8DBException e) {
+                        LOGGER.debug("Could not close removed Host " + host + " yet", e);
+                    }
+                }
+                drain(host);
             }
+        }, DRAIN_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
 
+    @Override
+    public synchronized void close() {
+        if (task != null) {
+            task.cancel(false);
         }
-
-        HostSet hosts = hostMatrix.get(service);
-        return hosts;
     }
 
     private Collection<String> resolveFromServer() throws C8DBException {
@@ -177,8 +228,17 @@ public class ExtendedHostResolver implements HostResolver {
         return response;
     }
 
-    private boolean isExpired() {
-        return System.currentTimeMillis() > (lastUpdate + acquireHostListInterval);
+    private static ScheduledThreadPoolExecutor createRefreshExecutor() {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "c8db-host-list");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
     }
 
 }
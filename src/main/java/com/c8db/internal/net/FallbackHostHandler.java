@@ -21,43 +21,56 @@ import com.c8db.Service;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.apache.http.HttpStatus.SC_SERVICE_UNAVAILABLE;
 
 public class FallbackHostHandler implements HostHandler {
 
-    private Host current;
-    private Host lastSuccess;
-    private int iterations;
+    private volatile Host current;
+    private volatile Host lastSuccess;
+    private volatile int iterations;
     private final HostResolver resolver;
     private final Service service;
-    private boolean firstOpened;
+    private final AtomicBoolean firstOpened;
 
     public FallbackHostHandler(final HostResolver resolver, final Service service) {
         this.resolver = resolver;
         this.service = service;
         iterations = 0;
         current = lastSuccess = resolver.resolve(service, true, false).getHostsList().get(0);
-        firstOpened = true;
+        firstOpened = new AtomicBoolean(true);
     }
 
     @Override
     public Host get(final HostHandle hostHandle, AccessType accessType) {
-        if (current != lastSuccess || iterations < 3) {
-            return current;
+        final Host host = current;
+        if (host != lastSuccess || iterations < 3) {
+            if (host.getCircuitBreaker().allowRequest()) {
+                return host;
+            }
+            // route around the ejected host without giving up on it, if all hosts are ejected use it anyway
+            final List<Host> hosts = resolver.resolve(service, false, false).getHostsList();
+            final Host available = CircuitBreaker.firstAvailable(hosts, hosts.indexOf(host) + 1);
+            return available != null ? available : host;
         } else {
             reset();
             throw new C8DBException("Cannot contact any host!", SC_SERVICE_UNAVAILABLE);
         }
     }
 
+    @Override
+    public Host getHedge(final Host host, final AccessType accessType) {
+        return resolver.resolve(service, false, false).nextAvailable(host);
+    }
+
     @Override
     public void success() {
         lastSuccess = current;
     }
 
     @Override
-    public void fail() {
+    public synchronized void fail() {
         final List<Host> hosts = resolver.resolve(service, false, false).getHostsList();
         final int index = hosts.indexOf(current) + 1;
         final boolean inBound = index < hosts.size();
@@ -74,10 +87,9 @@ public class FallbackHostHandler implements HostHandler {
 
     @Override
     public void confirm() {
-        if (firstOpened) {
+        if (firstOpened.compareAndSet(true, false)) {
             // after first successful established connection, update host list
             resolver.resolve(service, false, false);
-            firstOpened = false;
         }
     }
 
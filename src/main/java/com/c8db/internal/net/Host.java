@@ -20,6 +20,9 @@ package com.c8db.internal.net;
 
 import java.io.IOException;
 
+import com.c8db.C8DBException;
+import com.c8db.velocystream.RequestPriority;
+
 /**
  *
  */
@@ -27,12 +30,39 @@ public interface Host {
 
     HostDescription getDescription();
 
+    /**
+     * @return requests in flight and response times of the host, as reported by the communication
+     */
+    HostLoad getLoad();
+
+    /**
+     * @return the circuit breaker that ejects the host from load balancing while it fails
+     */
+    CircuitBreaker getCircuitBreaker();
+
     ManagedConnection<Connection> connection();
 
+    /**
+     * @param priority lane of the request the connection is used for
+     */
+    ManagedConnection<Connection> connection(RequestPriority priority);
+
+    /**
+     * Opens the idle connections of the host's pool before it takes traffic.
+     *
+     * @throws C8DBException if a connection could not be opened
+     */
+    void warmUp();
+
     void closeOnError();
 
     void close() throws IOException;
 
+    /**
+     * @return whether the host was closed, e.g. after the resolver removed it
+     */
+    boolean isClosed();
+
     void setMarkforDeletion(boolean markforDeletion);
 
     boolean isMarkforDeletion();
@@ -23,6 +23,23 @@ public interface HostHandler {
 
     Host get(HostHandle hostHandle, AccessType accessType);
 
+    /**
+     * Chooses the host for a duplicate of a request that was sent to the given host and is slow to answer. Unlike
+     * {@link #get(HostHandle, AccessType)} this does not change the state of the handler.
+     *
+     * @return another host that is not ejected, or {@code null} if there is none
+     */
+    Host getHedge(Host host, AccessType accessType);
+
+    /**
+     * Takes the handler that serves requests of the given access type. A request keeps it from its start to its
+     * end, so that {@link #success()}, {@link #fail()} and the other outcomes reach the handler that chose its host,
+     * whichever thread reports them.
+     */
+    default HostHandler forAccessType(final AccessType accessType) {
+        return this;
+    }
+
     void success();
 
     void fail();
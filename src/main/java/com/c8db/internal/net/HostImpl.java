@@ -21,6 +21,7 @@ package com.c8db.internal.net;
 import java.io.IOException;
 
 import com.c8db.C8DBException;
+import com.c8db.velocystream.RequestPriority;
 
 /**
  *
@@ -29,17 +30,49 @@ public class HostImpl implements Host {
 
     private final ConnectionPool connectionPool;
     private final HostDescription description;
+    private final CircuitBreaker circuitBreaker;
+    private final HostLoad load;
+    private final ConcurrencyLimiter limiter;
     private boolean markforDeletion = false;
+    private volatile boolean closed = false;
 
     public HostImpl(final ConnectionPool connectionPool, final HostDescription description) {
+        this(connectionPool, description, new CircuitBreakerConfig.Builder().build());
+    }
+
+    public HostImpl(final ConnectionPool connectionPool, final HostDescription description,
+            final CircuitBreakerConfig circuitBreakerConfig) {
+        this(connectionPool, description, circuitBreakerConfig, null);
+    }
+
+    /**
+     * @param limiter adapts the requests in flight to the host, or {@code null} for no limit
+     */
+    public HostImpl(final ConnectionPool connectionPool, final HostDescription description,
+            final CircuitBreakerConfig circuitBreakerConfig, final ConcurrencyLimiter limiter) {
         super();
         this.connectionPool = connectionPool;
         this.description = description;
+        this.circuitBreaker = new CircuitBreaker(description, circuitBreakerConfig);
+        this.limiter = limiter;
+        this.load = new HostLoad(circuitBreaker, limiter);
     }
 
     @Override
     public void close() throws IOException {
-        connectionPool.close();
+        closed = true;
+        try {
+            connectionPool.close();
+        } finally {
+            if (limiter != null) {
+                limiter.close();
+            }
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
     }
 
     @Override
@@ -47,9 +80,33 @@ public class HostImpl implements Host {
         return description;
     }
 
+    @Override
+    public HostLoad getLoad() {
+        return load;
+    }
+
+    @Override
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
     @Override
     public ManagedConnection<Connection> connection() {
-        return connectionPool.connection();
+        return connectionPool.connection().host(this);
+    }
+
+    @Override
+    public ManagedConnection<Connection> connection(final RequestPriority priority) {
+        return connectionPool.connection(priority).host(this);
+    }
+
+    @Override
+    public void warmUp() {
+        try {
+            connectionPool.warmUp();
+        } catch (final IOException e) {
+            throw new C8DBException(e);
+        }
     }
 
     @Override
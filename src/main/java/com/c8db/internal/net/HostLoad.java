@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.net;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.c8db.C8DBException;
+
+/**
+ * Load of a single {@link Host}: the number of requests in flight and a moving average of the response time. The
+ * average follows a slower response immediately and decays towards faster ones over
+ * {@link #DECAY_TIME_NANOS}, also while the host gets no requests, so that a host recovers after a slow period.
+ * Finished requests are passed on to the {@link CircuitBreaker} of the host and, if adaptive concurrency is enabled,
+ * to its {@link ConcurrencyLimiter}, which may hold back or reject requests at their start.
+ * <p>
+ * Every request updates and every choice of a host reads the average, so it is kept without a lock: the bits of the
+ * average are swapped with compare and set. The average and the time of its last update are not swapped together, a
+ * request that ends at the same time as another may decay the average by a slightly different weight.
+ * </p>
+ */
+public class HostLoad {
+
+    private static final long DECAY_TIME_NANOS = TimeUnit.SECONDS.toNanos(10L);
+    private static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+    private final CircuitBreaker circuitBreaker;
+    private final ConcurrencyLimiter limiter;
+    private final AtomicInteger inFlight;
+    // the bits of the average in nanoseconds, see Double.doubleToLongBits
+    private final AtomicLong latency;
+    private final AtomicLong updatedAt;
+
+    public HostLoad(final CircuitBreaker circuitBreaker) {
+        this(circuitBreaker, null);
+    }
+
+    /**
+     * @param limiter limits the requests in flight, or {@code null} for no limit
+     */
+    public HostLoad(final CircuitBreaker circuitBreaker, final ConcurrencyLimiter limiter) {
+        super();
+        this.circuitBreaker = circuitBreaker;
+        this.limiter = limiter;
+        inFlight = new AtomicInteger();
+        latency = new AtomicLong(Double.doubleToLongBits(0.0));
+        updatedAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Counts a request as in flight, waiting for the concurrency limit of the host if there is one.
+     *
+     * @return the start time to pass to {@link #end(long, Throwable)}
+     * @throws C8DBException with response code 503 if the concurrency limit was reached
+     */
+    public long start() {
+        return start(true);
+    }
+
+    /**
+     * Like {@link #start()}, but rejects the request at once if the concurrency limit is reached, for callers that
+     * must not block.
+     */
+    public long tryStart() {
+        return start(false);
+    }
+
+    private long start(final boolean wait) {
+        if (limiter != null) {
+            limiter.acquire(wait);
+        }
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Counts a request as done and adds its response time to the average. A request that failed because of the
+     * host counts at least as slow as {@link #FAILURE_PENALTY_NANOS}.
+     *
+     * @param start the value returned by {@link #start()}, or the later time the request was sent if it waited for
+     *              a connection in between
+     * @param cause why the request failed, or {@code null}
+     */
+    public void end(final long start, final Throwable cause) {
+        inFlight.decrementAndGet();
+        final long now = System.nanoTime();
+        final long elapsed = now - start;
+        final boolean failed = isHostFailure(cause);
+        update(failed ? Math.max(elapsed, FAILURE_PENALTY_NANOS) : elapsed, now);
+        circuitBreaker.record(start, elapsed, failed);
+        if (limiter != null) {
+            limiter.release(elapsed, failed);
+        }
+    }
+
+    /**
+     * Counts a request as done that was abandoned before it ended, like the duplicate of a hedged request that lost
+     * the race. Its response time and outcome say nothing about the host, so neither is recorded.
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+        if (limiter != null) {
+            limiter.cancel();
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the concurrency limiter of the host, or {@code null} if adaptive concurrency is disabled
+     */
+    public ConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * @return the average response time in nanoseconds
+     */
+    public double getLatency() {
+        return decay(System.nanoTime());
+    }
+
+    /**
+     * @return the expected cost of another request, lower is better
+     */
+    public double cost() {
+        return (getLatency() + 1.0) * (getInFlight() + 1);
+    }
+
+    private void update(final long sample, final long now) {
+        long last;
+        do {
+            last = updatedAt.get();
+        } while (now > last && !updatedAt.compareAndSet(last, now));
+        final double weight = weight(now - last);
+        long bits;
+        double next;
+        do {
+            bits = latency.get();
+            final double current = Double.longBitsToDouble(bits);
+            next = sample > current ? sample : current + (sample - current) * weight;
+        } while (!latency.compareAndSet(bits, Double.doubleToLongBits(next)));
+    }
+
+    private double decay(final long now) {
+        return Double.longBitsToDouble(latency.get()) * (1.0 - weight(now - updatedAt.get()));
+    }
+
+    private static double weight(final long elapsed) {
+        return elapsed > 0 ? 1.0 - Math.exp(-(double) elapsed / DECAY_TIME_NANOS) : 0.0;
+    }
+
+    /**
+     * @return whether the request failed because the host did not answer or answered with a server error, as
+     *         opposed to a rejected request
+     */
+    static boolean isHostFailure(final Throwable cause) {
+        if (cause instanceof IOException) {
+            return true;
+        }
+        if (cause instanceof C8DBException) {
+            final Integer responseCode = ((C8DBException) cause).getResponseCode();
+            return responseCode == null || responseCode >= 500 || responseCode == 429;
+        }
+        return false;
+    }
+
+}
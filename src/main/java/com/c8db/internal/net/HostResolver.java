@@ -29,4 +29,10 @@ public interface HostResolver {
 
     HostSet resolve(Service service, boolean initial, boolean closeConnections);
 
+    /**
+     * Stops acquiring hosts in the background, the hosts themselves are closed by the host handlers.
+     */
+    default void close() {
+    }
+
 }
@@ -24,10 +24,14 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Set of the hosts of a service. Changes replace the list of hosts with a new one, so readers can iterate
+ * {@link #getHostsList()} while the hosts are updated.
+ */
 public class HostSet {
     private static final Logger LOGGER = LoggerFactory.getLogger(HostSet.class);
 
-    private ArrayList<Host> hosts = new ArrayList<Host>();
+    private volatile List<Host> hosts = Collections.emptyList();
 
     public HostSet() {
         super();
@@ -42,11 +46,29 @@ public class HostSet {
 
     }
 
+    /**
+     * @return a snapshot of the hosts, which does not change when hosts are added or removed later
+     */
     public List<Host> getHostsList() {
-        return Collections.unmodifiableList(hosts);
+        return hosts;
+    }
+
+    /**
+     * @return the first host after the given one whose circuit breaker is closed, or {@code null} if there is none
+     */
+    public Host nextAvailable(final Host host) {
+        final List<Host> snapshot = hosts;
+        final int index = snapshot.indexOf(host);
+        for (int i = 1; i < snapshot.size(); i++) {
+            final Host next = snapshot.get(Math.floorMod(index + i, snapshot.size()));
+            if (!next.equals(host) && !next.getCircuitBreaker().isOpen()) {
+                return next;
+            }
+        }
+        return null;
     }
 
-    public void addHost(Host newHost) {
+    public synchronized void addHost(Host newHost) {
 
         if (hosts.contains(newHost)) {
             LOGGER.debug("Host" + newHost + " allready in Set");
@@ -58,8 +80,10 @@ public class HostSet {
             }
 
         } else {
-            hosts.add(newHost);
-            LOGGER.debug("Added Host " + newHost + " - now " + hosts.size() + " Hosts in List");
+            final List<Host> copy = new ArrayList<Host>(hosts);
+            copy.add(newHost);
+            hosts = Collections.unmodifiableList(copy);
+            LOGGER.debug("Added Host " + newHost + " - now " + copy.size() + " Hosts in List");
         }
 
     }
@@ -79,7 +103,7 @@ public class HostSet {
         }
     }
 
-    public void markAllForDeletion() {
+    public synchronized void markAllForDeletion() {
 
         for (Host host : hosts) {
             host.setMarkforDeletion(true);
@@ -87,29 +111,49 @@ public class HostSet {
 
     }
 
+    /**
+     * Removes the hosts marked for deletion from the set without closing them, requests may still use them.
+     *
+     * @return the removed hosts
+     */
+    public synchronized List<Host> removeAllMarkedForDeletion() {
+        final List<Host> kept = new ArrayList<Host>();
+        final List<Host> removed = new ArrayList<Host>();
+        for (Host host : hosts) {
+            if (host.isMarkforDeletion()) {
+                removed.add(host);
+            } else {
+                kept.add(host);
+            }
+        }
+        if (!removed.isEmpty()) {
+            hosts = Collections.unmodifiableList(kept);
+            LOGGER.debug("Removed Hosts " + removed + " - now " + kept.size() + " Hosts in List");
+        }
+        return removed;
+    }
+
     public void clearAllMarkedForDeletion() throws IOException {
 
         LOGGER.debug("Clear all Hosts in Set with markForDeletion");
 
-        for (Host host : hosts) {
-            if (host.isMarkforDeletion()) {
-                try {
+        for (Host host : removeAllMarkedForDeletion()) {
+            try {
 
-                    LOGGER.debug("Try to close Host " + host);
-                    host.close();
+                LOGGER.debug("Try to close Host " + host);
+                host.close();
 
-                } catch (IOException e) {
-                    LOGGER.warn("Error during closing the Host " + host, e);
-                }
+            } catch (IOException e) {
+                LOGGER.warn("Error during closing the Host " + host, e);
             }
         }
 
     }
 
-    public void clear() {
+    public synchronized void clear() {
         LOGGER.debug("Clear all Hosts in Set");
 
         close();
-        hosts.clear();
+        hosts = Collections.emptyList();
     }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.net;
+
+import com.c8db.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends each request to the less loaded of two randomly chosen hosts, judged by the {@link HostLoad} of the hosts.
+ * Comparing two random hosts instead of all of them keeps hosts that just answered fast from getting all the
+ * traffic at once.
+ */
+public class LeastLoadedHostHandler implements HostHandler {
+
+    private final HostResolver resolver;
+    private final Service service;
+    private final AtomicInteger fails;
+    private volatile Host currentHost;
+
+    public LeastLoadedHostHandler(final HostResolver resolver, final Service service) {
+        super();
+        this.resolver = resolver;
+        this.service = service;
+        resolver.resolve(service, true, false);
+        fails = new AtomicInteger();
+    }
+
+    @Override
+    public Host get(final HostHandle hostHandle, final AccessType accessType) {
+        final List<Host> hosts = resolver.resolve(service, false, false).getHostsList();
+        final int size = hosts.size();
+
+        if (size == 0 || fails.get() > size) {
+            return null;
+        }
+
+        Host host = null;
+        if (hostHandle != null && hostHandle.getHost() != null) {
+            for (final Host candidate : hosts) {
+                if (hostHandle.getHost().equals(candidate.getDescription())) {
+                    host = candidate;
+                    break;
+                }
+            }
+        }
+        if (host == null) {
+            host = choose(hosts);
+            if (hostHandle != null && hostHandle.getHost() == null) {
+                hostHandle.setHost(host.getDescription());
+            }
+        }
+        currentHost = host;
+        return host;
+    }
+
+    static Host choose(final List<Host> hosts) {
+        final int size = hosts.size();
+        if (size == 1) {
+            // ejecting the only host would fail every request
+            return hosts.get(0);
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        final Host a = hosts.get(first);
+        final Host b = hosts.get(second);
+        final Host cheaper = a.getLoad().cost() <= b.getLoad().cost() ? a : b;
+        if (cheaper.getCircuitBreaker().allowRequest()) {
+            return cheaper;
+        }
+        final Host other = cheaper == a ? b : a;
+        if (other.getCircuitBreaker().allowRequest()) {
+            return other;
+        }
+        final Host available = CircuitBreaker.firstAvailable(hosts, first);
+        return available != null ? available : cheaper;
+    }
+
+    @Override
+    public Host getHedge(final Host host, final AccessType accessType) {
+        return resolver.resolve(service, false, false).nextAvailable(host);
+    }
+
+    @Override
+    public void success() {
+        fails.set(0);
+    }
+
+    @Override
+    public void fail() {
+        fails.incrementAndGet();
+    }
+
+    @Override
+    public void reset() {
+        fails.set(0);
+    }
+
+    @Override
+    public void confirm() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        final HostSet hosts = resolver.resolve(service, false, false);
+        hosts.close();
+    }
+
+    @Override
+    public void closeCurrentOnError() {
+        final Host host = currentHost;
+        if (host != null) {
+            host.closeOnError();
+        }
+    }
+
+}
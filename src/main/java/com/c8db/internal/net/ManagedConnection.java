@@ -9,6 +9,7 @@ public class ManagedConnection<C extends Connection> implements AutoCloseable {
     
     private C connection;
     private ConnectionDisposer disposer;
+    private Host host;
     
     public ManagedConnection(C connection, ConnectionDisposer disposer) {
         this.connection = connection;
@@ -18,12 +19,24 @@ public class ManagedConnection<C extends Connection> implements AutoCloseable {
     public C connection() {
         return this.connection;
     }
+
+    /**
+     * @return the host the connection belongs to, or {@code null} if unknown
+     */
+    public Host host() {
+        return this.host;
+    }
+
+    ManagedConnection<C> host(final Host host) {
+        this.host = host;
+        return this;
+    }
     
     public <C2 extends C> ManagedConnection<C2> castConnection() {
         final C2 resource = (C2) this.connection;
         final ConnectionDisposer disposer = this.disposer;
         this.disposer = null;
-        return new ManagedConnection<>(resource, disposer);
+        return new ManagedConnection<>(resource, disposer).host(host);
     }
 
     @Override
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.net;
+
+import com.c8db.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends requests to the nearest host, as measured by a {@link RegionProber}. Writes go to the spot region host if
+ * one is configured and known to the resolver. If the nearest host is ejected by its {@link CircuitBreaker}, the
+ * nearest one that is not ejected is used instead, and after failures the next nearest host is tried.
+ */
+public class NearestRegionHostHandler implements HostHandler {
+
+    private final HostResolver resolver;
+    private final Service service;
+    private final RegionProber prober;
+    private final HostDescription spotHost;
+    private final AtomicInteger fails;
+    private volatile Host currentHost;
+
+    /**
+     * @param spotHost host that takes all writes, or {@code null} to send writes to the nearest host as well
+     */
+    public NearestRegionHostHandler(final HostResolver resolver, final Service service, final RegionProber prober,
+            final HostDescription spotHost) {
+        super();
+        this.resolver = resolver;
+        this.service = service;
+        this.prober = prober;
+        this.spotHost = spotHost;
+        resolver.resolve(service, true, false);
+        fails = new AtomicInteger();
+    }
+
+    @Override
+    public Host get(final HostHandle hostHandle, final AccessType accessType) {
+        final List<Host> hosts = resolver.resolve(service, false, false).getHostsList();
+        final int size = hosts.size();
+
+        if (size == 0 || fails.get() > size) {
+            return null;
+        }
+
+        Host host = null;
+        if (hostHandle != null && hostHandle.getHost() != null) {
+            host = find(hosts, hostHandle.getHost());
+        }
+        if (host == null && spotHost != null && accessType == AccessType.WRITE) {
+            host = find(hosts, spotHost);
+        }
+        if (host == null) {
+            host = nearest(hosts, fails.get());
+            if (hostHandle != null && hostHandle.getHost() == null) {
+                hostHandle.setHost(host.getDescription());
+            }
+        }
+        currentHost = host;
+        return host;
+    }
+
+    private Host nearest(final List<Host> hosts, final int skip) {
+        if (skip > 0) {
+            final List<Host> sorted = prober.nearestFirst(hosts);
+            final Host available = CircuitBreaker.firstAvailable(sorted, skip % sorted.size());
+            return available != null ? available : sorted.get(skip % sorted.size());
+        }
+        Host nearest = null;
+        Host nearestAvailable = null;
+        long nearestTime = Long.MAX_VALUE;
+        long nearestAvailableTime = Long.MAX_VALUE;
+        for (final Host host : hosts) {
+            final long time = prober.getRoundTripTime(host.getDescription());
+            if (nearest == null || time < nearestTime) {
+                nearest = host;
+                nearestTime = time;
+            }
+            if (!host.getCircuitBreaker().isOpen() && (nearestAvailable == null || time < nearestAvailableTime)) {
+                nearestAvailable = host;
+                nearestAvailableTime = time;
+            }
+        }
+        // probes of an ejected host only go to the nearest one, it is the only one that matters
+        if (nearest.getCircuitBreaker().allowRequest() || nearestAvailable == null) {
+            return nearest;
+        }
+        return nearestAvailable;
+    }
+
+    private static Host find(final List<Host> hosts, final HostDescription description) {
+        for (final Host host : hosts) {
+            if (description.equals(host.getDescription())) {
+                return host;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Host getHedge(final Host host, final AccessType accessType) {
+        for (final Host next : prober.nearestFirst(resolver.resolve(service, false, false).getHostsList())) {
+            if (!next.equals(host) && !next.getCircuitBreaker().isOpen()) {
+                return next;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void success() {
+        fails.set(0);
+    }
+
+    @Override
+    public void fail() {
+        fails.incrementAndGet();
+    }
+
+    @Override
+    public void reset() {
+        fails.set(0);
+    }
+
+    @Override
+    public void confirm() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        prober.close();
+        final HostSet hosts = resolver.resolve(service, false, false);
+        hosts.close();
+    }
+
+    @Override
+    public void closeCurrentOnError() {
+        final Host host = currentHost;
+        if (host != null) {
+            host.closeOnError();
+        }
+    }
+
+}
@@ -33,8 +33,8 @@ public class RandomHostHandler implements HostHandler {
     private final HostResolver resolver;
     private final HostHandler fallback;
     private final Service service;
-    private Host origin;
-    private Host current;
+    private volatile Host origin;
+    private volatile Host current;
 
     public RandomHostHandler(final HostResolver resolver, final HostHandler fallback, final Service service) {
         super();
@@ -46,10 +46,25 @@ public class RandomHostHandler implements HostHandler {
 
     @Override
     public Host get(final HostHandle hostHandle, AccessType accessType) {
-        if (current == null) {
-            origin = current = getRandomHost(false, true);
+        Host host = current;
+        if (host == null) {
+            synchronized (this) {
+                host = current;
+                if (host == null) {
+                    origin = current = host = getRandomHost(false, true);
+                }
+            }
         }
-        return current;
+        if (!host.getCircuitBreaker().allowRequest()) {
+            // the fallback handler routes around ejected hosts
+            return fallback.get(null, null);
+        }
+        return host;
+    }
+
+    @Override
+    public Host getHedge(final Host host, final AccessType accessType) {
+        return resolver.resolve(service, false, false).nextAvailable(host);
     }
 
     @Override
@@ -58,7 +73,7 @@ public class RandomHostHandler implements HostHandler {
     }
 
     @Override
-    public void fail() {
+    public synchronized void fail() {
         fallback.fail();
         current = fallback.get(null, null);
     }
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.c8db.C8DBException;
+import com.c8db.Service;
+import com.c8db.internal.util.HostUtils;
+import com.c8db.velocystream.Request;
+
+/**
+ * Remembers the endpoints the server redirected requests to, per collection or, for other requests, per database.
+ * Later requests to the same collection or database go straight to that endpoint until the route expires or the
+ * endpoint fails. Endpoints are served by the pooled {@link Host} of the resolver if it knows them, otherwise by a
+ * host of their own that is kept for further redirects. The pools of the other hosts stay open.
+ * <p>
+ * Without any redirect a lookup costs a single check. Expired routes and, above {@link #MAX_ROUTES}, arbitrary ones
+ * are dropped at most every {@link #SWEEP_INTERVAL}, together with the hosts of their own that no route leads to and
+ * that were not used for {@link #MAX_HOST_IDLE_TIME}.
+ * </p>
+ */
+public class RedirectCache implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedirectCache.class);
+
+    private static final int MAX_ROUTES = 1024;
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(10L);
+    private static final long MAX_HOST_IDLE_TIME = TimeUnit.MINUTES.toNanos(5L);
+    private static final String API = "/_api/";
+    private static final String[] COLLECTION_RESOURCES = { "document/", "collection/", "kv/" };
+
+    private final HostResolver resolver;
+    private final ConnectionPoolConfig poolConfig;
+    private final CircuitBreakerConfig circuitBreakerConfig;
+    private final ConnectionFactory connectionFactory;
+    private final long ttl;
+    private final ConcurrentMap<String, Route> routes;
+    private final Map<Service, ConcurrentMap<HostDescription, RedirectHost>> redirectHosts;
+    private final AtomicLong sweptAt;
+    private volatile boolean closed;
+
+    /**
+     * @param ttl time in milliseconds a redirect is remembered, {@code 0} to follow redirects without remembering
+     *            them
+     */
+    public RedirectCache(final HostResolver resolver, final ConnectionPoolConfig poolConfig,
+            final CircuitBreakerConfig circuitBreakerConfig, final ConnectionFactory connectionFactory,
+            final long ttl) {
+        super();
+        this.resolver = resolver;
+        this.poolConfig = poolConfig;
+        this.circuitBreakerConfig = circuitBreakerConfig;
+        this.connectionFactory = connectionFactory;
+        this.ttl = TimeUnit.MILLISECONDS.toNanos(ttl);
+        routes = new ConcurrentHashMap<>();
+        redirectHosts = new EnumMap<>(Service.class);
+        for (final Service service : Service.values()) {
+            redirectHosts.put(service, new ConcurrentHashMap<HostDescription, RedirectHost>());
+        }
+        sweptAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @return the host the request is routed to after an earlier redirect, or {@code null} to let the host handler
+     *         choose one. A handle without a host is bound to the returned host.
+     */
+    public Host get(final Service service, final Request request, final HostHandle hostHandle) {
+        if (hostHandle != null && hostHandle.getHost() != null) {
+            // requests bound to a host that is only known from a redirect, like the batches of a cursor
+            final RedirectHost host = redirectHosts.get(service).get(hostHandle.getHost());
+            return host != null ? host.use(System.nanoTime()) : null;
+        }
+        if (routes.isEmpty()) {
+            return null;
+        }
+        final long now = System.nanoTime();
+        sweep(now);
+        final String databaseKey = databaseKey(service, request);
+        final String collectionKey = collectionKey(databaseKey, request);
+        Route route = collectionKey != null ? valid(routes.get(collectionKey), now) : null;
+        if (route == null) {
+            route = valid(routes.get(databaseKey), now);
+        }
+        if (route == null) {
+            return null;
+        }
+        final Host host = host(service, route.endpoint, now);
+        if (hostHandle != null) {
+            hostHandle.setHost(host.getDescription());
+        }
+        return host;
+    }
+
+    /**
+     * Remembers the redirect of the request.
+     *
+     * @return the host to send the request to instead
+     * @throws C8DBException if the location is no valid endpoint
+     */
+    public Host redirect(final Service service, final Request request, final String location,
+            final HostHandle hostHandle) {
+        final HostDescription endpoint = HostUtils.createFromLocation(location);
+        if (endpoint == null) {
+            throw new C8DBException(String.format("Invalid redirect location: %s", location));
+        }
+        final long now = System.nanoTime();
+        if (ttl > 0) {
+            final String databaseKey = databaseKey(service, request);
+            final String collectionKey = collectionKey(databaseKey, request);
+            routes.put(collectionKey != null ? collectionKey : databaseKey, new Route(endpoint, now + ttl));
+        }
+        sweep(now);
+        LOGGER.debug(String.format("Request %s redirected to %s", request.getRequest(), endpoint));
+        final Host host = host(service, endpoint, now);
+        if (hostHandle != null) {
+            hostHandle.setHost(host.getDescription());
+        }
+        return host;
+    }
+
+    /**
+     * Forgets the redirects of the request to the host, after the host failed.
+     */
+    public void evict(final Service service, final Request request, final Host host) {
+        if (routes.isEmpty()) {
+            return;
+        }
+        final String databaseKey = databaseKey(service, request);
+        evict(collectionKey(databaseKey, request), host);
+        evict(databaseKey, host);
+    }
+
+    private void evict(final String key, final Host host) {
+        if (key == null) {
+            return;
+        }
+        final Route route = routes.get(key);
+        if (route != null && route.endpoint.equals(host.getDescription())) {
+            routes.remove(key, route);
+        }
+    }
+
+    /**
+     * Drops expired routes, arbitrary ones above {@link #MAX_ROUTES}, and the idle hosts no route leads to anymore.
+     * Only one caller sweeps at a time, at most every {@link #SWEEP_INTERVAL} unless there are too many routes.
+     */
+    private void sweep(final long now) {
+        final long last = sweptAt.get();
+        if ((now - last < SWEEP_INTERVAL && routes.size() <= MAX_ROUTES) || !sweptAt.compareAndSet(last, now)) {
+            return;
+        }
+        final Set<HostDescription> endpoints = new HashSet<>();
+        int size = routes.size();
+        for (final Iterator<Route> it = routes.values().iterator(); it.hasNext();) {
+            final Route route = it.next();
+            if (valid(route, now) == null || size > MAX_ROUTES) {
+                it.remove();
+                size--;
+            } else {
+                endpoints.add(route.endpoint);
+            }
+        }
+        for (final ConcurrentMap<HostDescription, RedirectHost> hosts : redirectHosts.values()) {
+            for (final Map.Entry<HostDescription, RedirectHost> entry : hosts.entrySet()) {
+                final RedirectHost host = entry.getValue();
+                if (!endpoints.contains(entry.getKey()) && now - host.usedAt >= MAX_HOST_IDLE_TIME
+                        && host.host.getLoad().getInFlight() == 0 && hosts.remove(entry.getKey(), host)) {
+                    LOGGER.debug(String.format("Close idle redirect endpoint %s", entry.getKey()));
+                    closeQuietly(host.host);
+                }
+            }
+        }
+    }
+
+    private Route valid(final Route route, final long now) {
+        return route != null && now - route.expiresAt < 0 ? route : null;
+    }
+
+    private Host host(final Service service, final HostDescription endpoint, final long now) {
+        for (final Host host : resolver.resolve(service, false, false).getHostsList()) {
+            if (endpoint.equals(host.getDescription())) {
+                return host;
+            }
+        }
+        final ConcurrentMap<HostDescription, RedirectHost> hosts = redirectHosts.get(service);
+        RedirectHost host = hosts.get(endpoint);
+        if (host == null) {
+            final RedirectHost created = new RedirectHost(HostUtils.createHost(endpoint, poolConfig,
+                    circuitBreakerConfig, connectionFactory, service), now);
+            host = hosts.putIfAbsent(endpoint, created);
+            if (host == null) {
+                host = created;
+            } else {
+                closeQuietly(created.host);
+            }
+        }
+        if (closed) {
+            closeQuietly(host.host);
+            throw new C8DBException("The driver is shut down");
+        }
+        return host.use(now);
+    }
+
+    /**
+     * @return the key of the collection for paths like /_api/document/&lt;collection&gt;/&lt;key&gt;, otherwise
+     *         {@code null}
+     */
+    private static String collectionKey(final String databaseKey, final Request request) {
+        final String path = request.getRequest();
+        if (path == null || !path.startsWith(API)) {
+            return null;
+        }
+        for (final String resource : COLLECTION_RESOURCES) {
+            if (path.startsWith(resource, API.length())) {
+                final int start = API.length() + resource.length();
+                final int end = path.indexOf('/', start);
+                final String collection = path.substring(start, end < 0 ? path.length() : end);
+                return collection.isEmpty() ? null : databaseKey + "/" + collection;
+            }
+        }
+        return null;
+    }
+
+    private static String databaseKey(final Service service, final Request request) {
+        return service + "/" + request.getDbTenant() + "/" + request.getPathTenant() + "/"
+                + request.getPathDatabase();
+    }
+
+    private static void closeQuietly(final Host host) {
+        try {
+            host.close();
+        } catch (final IOException e) {
+            LOGGER.debug(String.format("Could not close %s", host.getDescription()), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        routes.clear();
+        for (final ConcurrentMap<HostDescription, RedirectHost> hosts : redirectHosts.values()) {
+            for (final RedirectHost host : hosts.values()) {
+                closeQuietly(host.host);
+            }
+            hosts.clear();
+        }
+    }
+
+    /**
+     * A host that is only known from redirects, with the last time a request was routed to it.
+     */
+    private static final class RedirectHost {
+
+        private final Host host;
+        private volatile long usedAt;
+
+        private RedirectHost(final Host host, final long now) {
+            this.host = host;
+            this.usedAt = now;
+        }
+
+        private Host use(final long now) {
+            usedAt = now;
+            return host;
+        }
+    }
+
+    private static final class Route {
+
+        private final HostDescription endpoint;
+        private final long expiresAt;
+
+        private Route(final HostDescription endpoint, final long expiresAt) {
+            this.endpoint = endpoint;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.c8db.Service;
+
+/**
+ * Measures the round trip time to every host of a service by timing a TCP connect, right away and then every probe
+ * interval. The host name is resolved before, so DNS lookups do not count, and the fastest of a few connects is taken
+ * to filter out outliers. Hosts that cannot be reached count as farthest away, hosts that have not been measured yet
+ * come right before them.
+ */
+public class RegionProber implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegionProber.class);
+
+    static final long UNKNOWN = Long.MAX_VALUE - 1;
+    static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private static final int SAMPLES = 3;
+
+    private static final ScheduledThreadPoolExecutor PROBES = createProbeExecutor();
+
+    private final HostResolver resolver;
+    private final Service service;
+    private final int timeout;
+    private final Map<HostDescription, Long> roundTripTimes;
+    private final ScheduledFuture<?> task;
+
+    /**
+     * @param interval time in milliseconds between two measurements
+     * @param timeout  time in milliseconds after which a host counts as unreachable
+     */
+    public RegionProber(final HostResolver resolver, final Service service, final long interval, final int timeout) {
+        super();
+        this.resolver = resolver;
+        this.service = service;
+        this.timeout = timeout;
+        roundTripTimes = new ConcurrentHashMap<>();
+        task = PROBES.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                probe();
+            }
+        }, 0L, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return round trip time to the host in nanoseconds, {@link #UNKNOWN} or {@link #UNREACHABLE}
+     */
+    public long getRoundTripTime(final HostDescription host) {
+        final Long roundTripTime = roundTripTimes.get(host);
+        return roundTripTime != null ? roundTripTime : UNKNOWN;
+    }
+
+    /**
+     * @return a copy of the hosts ordered from nearest to farthest, hosts at the same distance keep their order
+     */
+    public List<Host> nearestFirst(final List<Host> hosts) {
+        final List<Host> sorted = new ArrayList<>(hosts);
+        Collections.sort(sorted, new Comparator<Host>() {
+            @Override
+            public int compare(final Host a, final Host b) {
+                return Long.compare(getRoundTripTime(a.getDescription()), getRoundTripTime(b.getDescription()));
+            }
+        });
+        return sorted;
+    }
+
+    void probe() {
+        try {
+            final Set<HostDescription> probed = new HashSet<>();
+            for (final Host host : resolver.resolve(service, false, false).getHostsList()) {
+                final HostDescription description = host.getDescription();
+                if (probed.add(description)) {
+                    roundTripTimes.put(description, measure(description));
+                }
+            }
+            roundTripTimes.keySet().retainAll(probed);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Round trip times of %s: %s", service, roundTripTimes));
+            }
+        } catch (final RuntimeException e) {
+            LOGGER.debug(String.format("Could not probe the hosts of %s", service), e);
+        }
+    }
+
+    private long measure(final HostDescription host) {
+        final InetSocketAddress address = new InetSocketAddress(host.getHost(), host.getPort());
+        if (address.isUnresolved()) {
+            LOGGER.debug(String.format("Could not resolve %s", host));
+            return UNREACHABLE;
+        }
+        long roundTripTime = UNREACHABLE;
+        for (int i = 0; i < SAMPLES; i++) {
+            try (Socket socket = new Socket()) {
+                final long start = System.nanoTime();
+                socket.connect(address, timeout);
+                roundTripTime = Math.min(roundTripTime, System.nanoTime() - start);
+            } catch (final IOException e) {
+                LOGGER.debug(String.format("Could not reach %s", host), e);
+            }
+        }
+        return roundTripTime;
+    }
+
+    @Override
+    public void close() {
+        task.cancel(false);
+    }
+
+    private static ScheduledThreadPoolExecutor createProbeExecutor() {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "c8db-region-probe");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+}
@@ -22,6 +22,8 @@ package com.c8db.internal.net;
 import com.c8db.Service;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *
@@ -30,17 +32,17 @@ public class RoundRobinHostHandler implements HostHandler {
 
     private final HostResolver resolver;
     private final Service service;
-    private int current;
-    private int fails;
-    private Host currentHost;
+    private final AtomicInteger current;
+    private final AtomicInteger fails;
+    private volatile Host currentHost;
 
     public RoundRobinHostHandler(final HostResolver resolver, final Service service) {
         super();
         this.resolver = resolver;
         this.service = service;
         resolver.resolve(service, true, false);
-        current = 0;
-        fails = 0;
+        current = new AtomicInteger();
+        fails = new AtomicInteger();
     }
 
     @Override
@@ -49,11 +51,11 @@ public class RoundRobinHostHandler implements HostHandler {
         final HostSet hosts = resolver.resolve(service, false, false);
         final int size = hosts.getHostsList().size();
 
-        if (fails > size) {
+        if (fails.get() > size) {
             return null;
         }
 
-        final int index = (current++) % size;
+        final int index = Math.floorMod(current.getAndIncrement(), size);
         Host host = hosts.getHostsList().get(index);
         if (hostHandle != null) {
             final HostDescription hostDescription = hostHandle.getHost();
@@ -65,26 +67,42 @@ public class RoundRobinHostHandler implements HostHandler {
                     }
                 }
             } else {
+                host = available(hosts.getHostsList(), index, host);
                 hostHandle.setHost(host.getDescription());
             }
+        } else {
+            host = available(hosts.getHostsList(), index, host);
         }
         currentHost = host;
         return host;
     }
 
+    private static Host available(final List<Host> hosts, final int index, final Host host) {
+        if (host.getCircuitBreaker().allowRequest()) {
+            return host;
+        }
+        final Host available = CircuitBreaker.firstAvailable(hosts, index + 1);
+        return available != null ? available : host;
+    }
+
+    @Override
+    public Host getHedge(final Host host, final AccessType accessType) {
+        return resolver.resolve(service, false, false).nextAvailable(host);
+    }
+
     @Override
     public void success() {
-        fails = 0;
+        fails.set(0);
     }
 
     @Override
     public void fail() {
-        fails++;
+        fails.incrementAndGet();
     }
 
     @Override
     public void reset() {
-        fails = 0;
+        fails.set(0);
     }
 
     @Override
@@ -99,7 +117,10 @@ public class RoundRobinHostHandler implements HostHandler {
 
     @Override
     public void closeCurrentOnError() {
-        currentHost.closeOnError();
+        final Host host = currentHost;
+        if (host != null) {
+            host.closeOnError();
+        }
     }
 
 }
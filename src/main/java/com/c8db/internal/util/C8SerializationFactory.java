@@ -16,6 +16,7 @@
 
 package com.c8db.internal.util;
 
+import com.c8db.util.C8JsonSerialization;
 import com.c8db.util.C8Serialization;
 
 /**
@@ -29,11 +30,22 @@ public class C8SerializationFactory {
 
     private final C8Serialization interal;
     private final C8Serialization custom;
+    private final C8JsonSerialization json;
 
     public C8SerializationFactory(final C8Serialization interal, final C8Serialization custom) {
+        this(interal, custom, false);
+    }
+
+    /**
+     * @param directJson whether or not documents are mapped directly between JSON and objects. Only takes effect if
+     *                   the custom serialization is a {@link C8JsonSerialization}.
+     */
+    public C8SerializationFactory(final C8Serialization interal, final C8Serialization custom,
+            final boolean directJson) {
         super();
         this.interal = interal;
         this.custom = custom;
+        this.json = directJson && custom instanceof C8JsonSerialization ? (C8JsonSerialization) custom : null;
     }
 
     public C8Serialization get(final Serializer serializer) {
@@ -46,4 +58,12 @@ public class C8SerializationFactory {
         }
     }
 
+    /**
+     * @return the custom serialization if documents are mapped directly between JSON and objects, otherwise
+     *         {@code null}
+     */
+    public C8JsonSerialization json() {
+        return json;
+    }
+
 }
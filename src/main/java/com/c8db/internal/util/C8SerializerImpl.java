@@ -16,6 +16,8 @@
 
 package com.c8db.internal.util;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Iterator;
 
 import com.arangodb.velocypack.VPack;
@@ -25,6 +27,7 @@ import com.arangodb.velocypack.VPackSlice;
 import com.arangodb.velocypack.exception.VPackException;
 import com.c8db.C8DBException;
 import com.c8db.util.C8Serializer;
+import com.fasterxml.jackson.core.JsonProcessingException;
 
 /**
  *
@@ -34,12 +37,23 @@ public class C8SerializerImpl implements C8Serializer {
     private final VPack vpacker;
     private final VPack vpackerNull;
     private final VPackParser vpackParser;
+    private final boolean streamJson;
 
     public C8SerializerImpl(final VPack vpacker, final VPack vpackerNull, final VPackParser vpackParser) {
+        this(vpacker, vpackerNull, vpackParser, false);
+    }
+
+    /**
+     * @param streamJson whether or not JSON streams are parsed without the {@link VPackParser}. Must be
+     *                   {@code false} if custom JSON serializers are registered on the parser.
+     */
+    public C8SerializerImpl(final VPack vpacker, final VPack vpackerNull, final VPackParser vpackParser,
+            final boolean streamJson) {
         super();
         this.vpacker = vpacker;
         this.vpackerNull = vpackerNull;
         this.vpackParser = vpackParser;
+        this.streamJson = streamJson;
     }
 
     @Override
@@ -79,4 +93,16 @@ public class C8SerializerImpl implements C8Serializer {
         }
     }
 
+    @Override
+    public VPackSlice serialize(final InputStream json, final Options options) throws C8DBException, IOException {
+        if (!streamJson) {
+            return C8Serializer.super.serialize(json, options);
+        }
+        try {
+            return JsonStreamParser.parse(json, options.isSerializeNullValues());
+        } catch (final JsonProcessingException | VPackException e) {
+            throw new C8DBException(e);
+        }
+    }
+
 }
@@ -18,9 +18,11 @@
 
 package com.c8db.internal.util;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map.Entry;
 
 import com.c8db.velocystream.JsonRequestBody;
+import com.c8db.velocystream.RawJsonRequestBody;
 import org.apache.http.auth.Credentials;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -66,7 +68,12 @@ public final class CURLLogger {
         buffer.append(" '").append(url).append("'");
         if (includeBody) {
             buffer.append("\n");
-            buffer.append((String) util.deserialize(((JsonRequestBody)request.getBody()).getValue(), String.class));
+            if (request.getBody() instanceof RawJsonRequestBody) {
+                buffer.append(new String(((RawJsonRequestBody) request.getBody()).getValue(), StandardCharsets.UTF_8));
+            } else {
+                buffer.append((String) util.deserialize(((JsonRequestBody) request.getBody()).getValue(),
+                        String.class));
+            }
             buffer.append("\n");
             buffer.append("___EOB___");
         }
@@ -18,6 +18,9 @@ package com.c8db.internal.util;
 
 import java.lang.reflect.Type;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 import com.arangodb.velocypack.VPackSlice;
 import com.c8db.util.C8Serialization;
 import com.c8db.C8DBException;
@@ -48,6 +51,11 @@ public class DefaultC8Serialization implements C8Serialization {
         return serializer.serialize(entity, options);
     }
 
+    @Override
+    public VPackSlice serialize(final InputStream json, final Options options) throws C8DBException, IOException {
+        return serializer.serialize(json, options);
+    }
+
     @Override
     public <T> T deserialize(final VPackSlice vpack, final Type type) throws C8DBException {
         return deserializer.deserialize(vpack, type);
@@ -17,19 +17,132 @@
 package com.c8db.internal.util;
 
 import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
 
 /**
- *
+ * Percent encoding of path segments and query parameters. Values that need no encoding, like most keys and all path
+ * constants, are appended as they are without allocating.
  */
 public final class EncodeUtils {
 
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * characters kept as they are in path segments, same as {@link java.net.URLEncoder} plus {@code !'()~}
+     */
+    private static final BitSet PATH_SAFE = safe("-._*!'()~");
+
+    /**
+     * characters kept as they are in query parameters, same as
+     * {@link org.apache.http.client.utils.URLEncodedUtils#format(java.util.List, String)}
+     */
+    private static final BitSet QUERY_SAFE = safe("-._*");
+
     private EncodeUtils() {
     }
 
+    private static BitSet safe(final String punctuation) {
+        final BitSet safe = new BitSet(128);
+        for (char c = 'a'; c <= 'z'; c++) {
+            safe.set(c);
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            safe.set(c);
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            safe.set(c);
+        }
+        for (int i = 0; i < punctuation.length(); i++) {
+            safe.set(punctuation.charAt(i));
+        }
+        return safe;
+    }
+
     public static String encodeURL(final String value) throws UnsupportedEncodingException {
-        return URLEncoder.encode(value, "UTF-8").replaceAll("\\+", "%20").replaceAll("\\%21", "!")
-                .replaceAll("\\%27", "'").replaceAll("\\%28", "(").replaceAll("\\%29", ")").replaceAll("\\%7E", "~");
+        if (isSafe(value, PATH_SAFE)) {
+            return value;
+        }
+        final StringBuilder sb = new StringBuilder(value.length() + 16);
+        encode(sb, value, PATH_SAFE, "%20");
+        return sb.toString();
+    }
+
+    /**
+     * Appends the path segment, encoded like {@link #encodeURL(String)}.
+     */
+    public static StringBuilder appendPathSegment(final StringBuilder sb, final String value) {
+        return encode(sb, value, PATH_SAFE, "%20");
+    }
+
+    /**
+     * Appends {@code key=value} encoded as {@code application/x-www-form-urlencoded}.
+     */
+    public static StringBuilder appendQueryParam(final StringBuilder sb, final String key, final String value) {
+        encode(sb, key, QUERY_SAFE, "+");
+        sb.append('=');
+        return encode(sb, value, QUERY_SAFE, "+");
+    }
+
+    /**
+     * @return whether or not the value is a path that needs no encoding. Slashes are allowed, trailing slashes are not.
+     */
+    public static boolean isSafePath(final String value) {
+        final int length = value.length();
+        if (length > 0 && value.charAt(length - 1) == '/') {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c != '/' && !PATH_SAFE.get(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSafe(final String value, final BitSet safe) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!safe.get(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static StringBuilder encode(final StringBuilder sb, final String value, final BitSet safe,
+            final String space) {
+        final int length = value.length();
+        int i = 0;
+        while (i < length) {
+            final char c = value.charAt(i);
+            if (safe.get(c)) {
+                sb.append(c);
+                i++;
+            } else if (c == ' ') {
+                sb.append(space);
+                i++;
+            } else {
+                // encode the whole run of unsafe characters at once, so surrogate pairs stay together
+                int end = i + 1;
+                while (end < length && !safe.get(value.charAt(end)) && value.charAt(end) != ' ') {
+                    end++;
+                }
+                if (end == i + 1 && c < 0x80) {
+                    appendHex(sb, c);
+                } else {
+                    for (final byte b : value.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                        appendHex(sb, b & 0xFF);
+                    }
+                }
+                i = end;
+            }
+        }
+        return sb;
+    }
+
+    private static void appendHex(final StringBuilder sb, final int b) {
+        sb.append('%').append(HEX[b >> 4]).append(HEX[b & 0xF]);
     }
 
 }
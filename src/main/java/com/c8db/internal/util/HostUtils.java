@@ -19,7 +19,11 @@
 package com.c8db.internal.util;
 
 import com.c8db.Service;
+import com.c8db.internal.C8Defaults;
+import com.c8db.internal.net.CircuitBreakerConfig;
+import com.c8db.internal.net.ConcurrencyLimiter;
 import com.c8db.internal.net.ConnectionFactory;
+import com.c8db.internal.net.ConnectionPoolConfig;
 import com.c8db.internal.net.ConnectionPoolImpl;
 import com.c8db.internal.net.Host;
 import com.c8db.internal.net.HostDescription;
@@ -38,19 +42,48 @@ public final class HostUtils {
     }
 
     public static HostDescription createFromLocation(final String location) {
-        final HostDescription host;
-        if (location != null) {
-            final String[] tmp = location.replaceAll(".*://", "").replaceAll("/.*", "").split(":");
-            host = tmp.length == 2 ? new HostDescription(tmp[0], Integer.valueOf(tmp[1])) : null;
-        } else {
-            host = null;
+        return location != null ? parseEndpoint(location) : null;
+    }
+
+    /**
+     * Parses endpoints like {@code host:port}, {@code tcp://10.0.0.1:8529} or {@code ssl://[fe80::1]:8529}. A
+     * scheme and a path are ignored, IPv6 addresses have to be put in brackets.
+     *
+     * @return the host and port of the endpoint, or {@code null} if the endpoint has no valid host and port
+     */
+    public static HostDescription parseEndpoint(final String endpoint) {
+        String address = endpoint.trim();
+        final int scheme = address.indexOf("://");
+        if (scheme >= 0) {
+            address = address.substring(scheme + 3);
+        }
+        final int path = address.indexOf('/');
+        if (path >= 0) {
+            address = address.substring(0, path);
+        }
+        final int colon = address.lastIndexOf(':');
+        if (colon <= 0 || !address.substring(colon + 1).matches("[0-9]{1,5}")) {
+            return null;
+        }
+        String host = address.substring(0, colon);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        } else if (host.contains(":") || host.contains("[") || host.contains("]")) {
+            return null;
         }
-        return host;
+        final int port = Integer.parseInt(address.substring(colon + 1));
+        return host.isEmpty() || port > 65535 ? null : new HostDescription(host, port);
     }
 
-    public static Host createHost(final HostDescription description, final int maxConnections,
-            final ConnectionFactory factory, final Service service) {
-        return new HostImpl(new ConnectionPoolImpl(description, maxConnections, factory, service), description);
+    public static Host createHost(final HostDescription description, final ConnectionPoolConfig poolConfig,
+            final CircuitBreakerConfig circuitBreakerConfig, final ConnectionFactory factory, final Service service) {
+        final ConcurrencyLimiter limiter = poolConfig.isAdaptiveConcurrency()
+                ? new ConcurrencyLimiter(description, service, C8Defaults.DEFAULT_INITIAL_CONCURRENCY_LIMIT,
+                        poolConfig.getMaxConcurrencyLimit(service), poolConfig.getAcquireTimeout(),
+                        poolConfig.getMaxQueue())
+                : null;
+        return new HostImpl(new ConnectionPoolImpl(description, poolConfig, factory, service), description,
+                circuitBreakerConfig, limiter);
     }
 
     public static Map<Service, List<Host>> cloneHostMatrix(final Map<Service, Collection<Host>> hostsMatrix) {
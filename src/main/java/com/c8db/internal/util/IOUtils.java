@@ -18,6 +18,7 @@ package com.c8db.internal.util;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -74,4 +75,24 @@ public final class IOUtils {
         return buffer.toByteArray();
     }
 
+    /**
+     * Reads exactly {@code length} bytes into a single array without intermediate buffers. Falls back to
+     * {@link #toByteArray(InputStream)} if the length is unknown.
+     */
+    public static byte[] toByteArray(final InputStream input, final long length) throws IOException {
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            return toByteArray(input);
+        }
+        final byte[] data = new byte[(int) length];
+        int offset = 0;
+        while (offset < data.length) {
+            final int nRead = input.read(data, offset, data.length - offset);
+            if (nRead == -1) {
+                throw new EOFException(String.format("Expected %s bytes but stream ended after %s", length, offset));
+            }
+            offset += nRead;
+        }
+        return data;
+    }
+
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.util;
+
+import com.arangodb.velocypack.VPackBuilder;
+import com.arangodb.velocypack.VPackSlice;
+import com.arangodb.velocypack.ValueType;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Builds VelocyPack directly from a JSON stream. Unlike {@link com.arangodb.velocypack.VPackParser#fromJson(String)}
+ * the input is never materialized as a {@code String}; the tokens are copied from the stream into the
+ * {@link VPackBuilder} in one pass. Read buffers are recycled per thread by the shared {@link JsonFactory}.
+ */
+public final class JsonStreamParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private JsonStreamParser() {
+        super();
+    }
+
+    /**
+     * @param json              JSON input, closed after parsing
+     * @param includeNullValues whether or not {@code null} values are kept
+     * @return the parsed VelocyPack or {@code null} if the stream is empty
+     */
+    public static VPackSlice parse(final InputStream json, final boolean includeNullValues) throws IOException {
+        try (final JsonParser parser = JSON_FACTORY.createParser(json)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return null;
+            }
+            final VPackBuilder builder = new VPackBuilder();
+            String fieldName = null;
+            for (; token != null; token = parser.nextToken()) {
+                switch (token) {
+                    case START_OBJECT:
+                        builder.add(fieldName, ValueType.OBJECT);
+                        break;
+                    case START_ARRAY:
+                        builder.add(fieldName, ValueType.ARRAY);
+                        break;
+                    case END_OBJECT:
+                    case END_ARRAY:
+                        builder.close();
+                        break;
+                    case FIELD_NAME:
+                        fieldName = parser.getCurrentName();
+                        continue;
+                    case VALUE_STRING:
+                        builder.add(fieldName, parser.getText());
+                        break;
+                    case VALUE_NUMBER_INT:
+                        if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                            builder.add(fieldName, parser.getBigIntegerValue());
+                        } else {
+                            builder.add(fieldName, parser.getLongValue());
+                        }
+                        break;
+                    case VALUE_NUMBER_FLOAT:
+                        builder.add(fieldName, parser.getDoubleValue());
+                        break;
+                    case VALUE_TRUE:
+                    case VALUE_FALSE:
+                        builder.add(fieldName, parser.getBooleanValue());
+                        break;
+                    case VALUE_NULL:
+                        if (includeNullValues) {
+                            builder.add(fieldName, ValueType.NULL);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                fieldName = null;
+            }
+            return builder.slice();
+        }
+    }
+
+}
@@ -20,19 +20,26 @@ package com.c8db.internal.util;
 
 import com.arangodb.velocypack.VPackSlice;
 import com.c8db.C8DBException;
+import com.c8db.Compression;
 import com.c8db.Protocol;
+import com.c8db.internal.http.CompressingEntity;
 import com.c8db.internal.http.HttpDeleteWithBody;
+import com.c8db.internal.http.VPackEntity;
 import com.c8db.internal.net.AccessType;
 import com.c8db.internal.net.HostDescription;
 import com.c8db.velocystream.BinaryRequestBody;
 import com.c8db.velocystream.JsonRequestBody;
+import com.c8db.velocystream.RawJsonRequestBody;
 import com.c8db.velocystream.Request;
 import com.c8db.velocystream.RequestBody;
 import com.c8db.velocystream.RequestType;
 
-import java.util.Arrays;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
@@ -53,6 +60,7 @@ public final class RequestUtils {
 
     private static final ContentType CONTENT_TYPE_APPLICATION_JSON_UTF8 = ContentType.APPLICATION_JSON;
     private static final ContentType CONTENT_TYPE_VPACK = ContentType.create("application/x-velocypack");
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
 
     private RequestUtils() {
         super();
@@ -66,7 +74,9 @@ public final class RequestUtils {
     }
 
     public static String buildBaseUrl(final HostDescription host, boolean useSsl) {
-        return (Boolean.TRUE == useSsl ? "https://" : "http://") + host.getHost() + ":" + host.getPort()
+        // IPv6 addresses need brackets in URLs
+        final String address = host.getHost().contains(":") ? "[" + host.getHost() + "]" : host.getHost();
+        return (Boolean.TRUE == useSsl ? "https://" : "http://") + address + ":" + host.getPort()
                 + (host.getPath() != null ? host.getPath() : "");
     }
 
@@ -103,11 +113,9 @@ public final class RequestUtils {
         if (body != null) {
             if (contentType == Protocol.HTTP_VPACK) {
                 if (body instanceof JsonRequestBody) {
-                    VPackSlice vPackSlice = ((JsonRequestBody) body).getValue();
-                    httpRequest.setEntity(new ByteArrayEntity(
-                            Arrays.copyOfRange(vPackSlice.getBuffer(), vPackSlice.getStart(),
-                                    vPackSlice.getStart() + vPackSlice.getByteSize()),
-                            CONTENT_TYPE_VPACK));
+                    httpRequest.setEntity(new VPackEntity(((JsonRequestBody) body).getValue(), CONTENT_TYPE_VPACK));
+                } else if (body instanceof RawJsonRequestBody) {
+                    httpRequest.setEntity(new VPackEntity(toVPack((RawJsonRequestBody) body), CONTENT_TYPE_VPACK));
                 } else {
                     throw new C8DBException("This protocol doesn't support this type of body " + body.getClass());
                 }
@@ -115,6 +123,9 @@ public final class RequestUtils {
                 if (body instanceof JsonRequestBody) {
                     VPackSlice vPackSlice = ((JsonRequestBody) body).getValue();
                     httpRequest.setEntity(new StringEntity(vPackSlice.toString(), CONTENT_TYPE_APPLICATION_JSON_UTF8));
+                } else if (body instanceof RawJsonRequestBody) {
+                    httpRequest.setEntity(new ByteArrayEntity(((RawJsonRequestBody) body).getValue(),
+                            CONTENT_TYPE_APPLICATION_JSON_UTF8));
                 } else if (body instanceof BinaryRequestBody) {
                     BinaryRequestBody binaryBody = (BinaryRequestBody) body;
                     final MultipartEntityBuilder builder = MultipartEntityBuilder.create();
@@ -132,4 +143,34 @@ public final class RequestUtils {
         }
         return httpRequest;
     }
+
+    /**
+     * Compresses the body of the request if it is at least {@code threshold} bytes long and announces that
+     * compressed responses are accepted. Does nothing for {@link Compression#NONE}.
+     */
+    public static void compress(final HttpRequestBase httpRequest, final Compression compression,
+        final int threshold) {
+        if (compression == null || compression == Compression.NONE) {
+            return;
+        }
+        httpRequest.setHeader(HttpHeaders.ACCEPT_ENCODING, ACCEPT_ENCODING);
+        if (httpRequest instanceof HttpEntityEnclosingRequest) {
+            final HttpEntityEnclosingRequest request = (HttpEntityEnclosingRequest) httpRequest;
+            final HttpEntity entity = request.getEntity();
+            // bodies of unknown length are streamed and sent as they are
+            if (entity != null && entity.getContentEncoding() == null && entity.getContentLength() >= threshold) {
+                request.setEntity(new CompressingEntity(entity, compression));
+                // set on the request as well, HTTP/2 does not take it from the entity
+                httpRequest.setHeader(HttpHeaders.CONTENT_ENCODING, compression.contentEncoding());
+            }
+        }
+    }
+
+    private static VPackSlice toVPack(final RawJsonRequestBody body) {
+        try {
+            return JsonStreamParser.parse(new ByteArrayInputStream(body.getValue()), true);
+        } catch (final IOException e) {
+            throw new C8DBException(e);
+        }
+    }
 }
@@ -28,15 +28,22 @@ import com.c8db.internal.net.C8DBRedirectException;
 import com.c8db.util.C8Serialization;
 import com.c8db.util.C8Serializer.Options;
 import com.c8db.velocystream.MultipartResponseBody;
+import com.c8db.velocystream.RawJsonResponseBody;
 import com.c8db.velocystream.Response;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.entity.DeflateDecompressingEntity;
+import org.apache.http.client.entity.GzipDecompressingEntity;
 import org.apache.http.entity.ContentType;
 
 import javax.mail.BodyPart;
@@ -56,13 +63,23 @@ public final class ResponseUtils {
         super();
     }
 
+    private static String getEndpoint(final Response response) {
+        // header names are case-insensitive, and proxies do not always keep their case
+        for (final Map.Entry<String, String> header : response.getMeta().entrySet()) {
+            if (HEADER_ENDPOINT.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
     public static void checkError(final C8Serialization util, final Response response) throws C8DBException {
         try {
             final int responseCode = response.getResponseCode();
             if (responseCode >= ERROR_STATUS) {
-                if (responseCode == ERROR_INTERNAL && response.getMeta().containsKey(HEADER_ENDPOINT)) {
-                    throw new C8DBRedirectException(String.format("Response Code: %s", responseCode),
-                            response.getMeta().get(HEADER_ENDPOINT));
+                final String endpoint = responseCode == ERROR_INTERNAL ? getEndpoint(response) : null;
+                if (endpoint != null) {
+                    throw new C8DBRedirectException(String.format("Response Code: %s", responseCode), endpoint);
                 } else if (responseCode == ERROR_INTERNAL) {
                     throw new C8DBException(String.format("Response Code: %s", responseCode), responseCode);
                 }
@@ -85,15 +102,52 @@ public final class ResponseUtils {
         }
     }
 
-    public static Response buildResponse(final C8Serialization util, final CloseableHttpResponse httpResponse,
+    /**
+     * Wraps the entity of a compressed response, so it is decoded while it is read. The blocking client already
+     * decodes responses itself and removes the {@code Content-Encoding} header.
+     */
+    private static HttpEntity decompress(final HttpResponse httpResponse) {
+        final HttpEntity entity = httpResponse.getEntity();
+        final Header encoding = httpResponse.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+        if (entity == null || encoding == null) {
+            return entity;
+        }
+        final String value = encoding.getValue().trim().toLowerCase(Locale.ROOT);
+        if ("gzip".equals(value) || "x-gzip".equals(value)) {
+            return new GzipDecompressingEntity(entity);
+        } else if ("deflate".equals(value)) {
+            return new DeflateDecompressingEntity(entity);
+        }
+        return entity;
+    }
+
+    /**
+     * Reads the entity into a single array. The stream is closed, since it is not read up to its end if the length is
+     * known and the connection would not be released otherwise.
+     */
+    private static byte[] toByteArray(final HttpEntity entity) throws IOException {
+        try (final InputStream input = entity.getContent()) {
+            return IOUtils.toByteArray(input, entity.getContentLength());
+        }
+    }
+
+    public static Response buildResponse(final C8Serialization util, final HttpResponse httpResponse,
         final Protocol contentType) throws UnsupportedOperationException, IOException {
+        return buildResponse(util, httpResponse, contentType, false);
+    }
+
+    /**
+     * @param rawJson whether or not JSON bodies are kept as received instead of being converted to VelocyPack
+     */
+    public static Response buildResponse(final C8Serialization util, final HttpResponse httpResponse,
+        final Protocol contentType, final boolean rawJson) throws UnsupportedOperationException, IOException {
         final Response response = new Response();
         response.setResponseCode(httpResponse.getStatusLine().getStatusCode());
-        final HttpEntity entity = httpResponse.getEntity();
+        final HttpEntity entity = decompress(httpResponse);
 
         if (entity != null && entity.getContent() != null) {
             if (contentType == Protocol.HTTP_VPACK) {
-                final byte[] content = IOUtils.toByteArray(entity.getContent());
+                final byte[] content = toByteArray(entity);
                 if (content.length > 0) {
                     response.setBody(new VPackSlice(content));
                 }
@@ -101,7 +155,26 @@ public final class ResponseUtils {
                 Header[] httpContentTypes = httpResponse.getHeaders("Content-Type");
                 String httpContentType = httpContentTypes.length > 0 ?
                         httpContentTypes[0].getValue() : "application/json; charset=utf-8";
-                if (httpContentType.startsWith("multipart/form-data")) {
+                if (httpContentTypes.length > 0
+                        && httpContentType.startsWith(ContentType.APPLICATION_JSON.getMimeType()) && rawJson) {
+                    final byte[] content = toByteArray(entity);
+                    if (content.length > 0) {
+                        response.setBody(new RawJsonResponseBody(content));
+                    }
+                } else if (httpContentTypes.length > 0
+                        && httpContentType.startsWith(ContentType.APPLICATION_JSON.getMimeType())) {
+                    // parse the bytes straight into VelocyPack instead of decoding them into a String first, but keep
+                    // them for a body that is not valid JSON
+                    final byte[] content = toByteArray(entity);
+                    if (content.length > 0) {
+                        try {
+                            response.setBody(util.serialize(new ByteArrayInputStream(content),
+                                    new Options().stringAsJson(true).serializeNullValues(true)));
+                        } catch (C8DBException e) {
+                            response.setBody(new VPackSlice(content));
+                        }
+                    }
+                } else if (httpContentType.startsWith("multipart/form-data")) {
                     try {
                         ByteArrayDataSource datasource = new ByteArrayDataSource(entity.getContent(), httpContentType);
                         System.setProperty("mail.mime.multipart.allowempty", "true");
@@ -20,8 +20,6 @@ package com.c8db.internal.velocystream;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -32,25 +30,26 @@ import com.c8db.velocystream.JsonRequestBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.arangodb.velocypack.VPackSlice;
 import com.arangodb.velocypack.exception.VPackParserException;
 import com.c8db.C8DBException;
 import com.c8db.internal.C8Defaults;
 import com.c8db.internal.net.AccessType;
 import com.c8db.internal.net.C8DBRedirectException;
 import com.c8db.internal.net.Host;
-import com.c8db.internal.net.HostDescription;
 import com.c8db.internal.net.HostHandle;
 import com.c8db.internal.net.HostHandler;
+import com.c8db.internal.net.HostLoad;
 import com.c8db.internal.net.ManagedConnection;
-import com.c8db.internal.util.HostUtils;
+import com.c8db.internal.net.RedirectCache;
 import com.c8db.internal.util.RequestUtils;
 import com.c8db.internal.util.ResponseUtils;
-import com.c8db.internal.velocystream.internal.Chunk;
 import com.c8db.internal.velocystream.internal.Message;
+import com.c8db.internal.velocystream.internal.UnsentMessageException;
 import com.c8db.internal.velocystream.internal.VstConnection;
 import com.c8db.util.C8Serialization;
+import com.c8db.util.JitteredRetryPolicy;
 import com.c8db.velocystream.Request;
+import com.c8db.velocystream.RequestPriority;
 import com.c8db.velocystream.Response;
 
 /**
@@ -60,6 +59,8 @@ public abstract class VstCommunication<R, C extends VstConnection> implements Cl
 
     protected static final String ENCRYPTION_PLAIN = "plain";
     private static final Logger LOGGER = LoggerFactory.getLogger(VstCommunication.class);
+    private static final int MAX_REDIRECTS = 3;
+    private static final int MAX_FAILOVERS = 1;
 
     protected static final AtomicLong mId = new AtomicLong(0L);
     protected final C8Serialization util;
@@ -68,46 +69,93 @@ public abstract class VstCommunication<R, C extends VstConnection> implements Cl
     protected final String password;
 
     protected final Integer chunksize;
+    protected final Integer maxChunksize;
     private final Map<Service, HostHandler> hostHandlerMatrix;
+    private final RedirectCache redirects;
 
     protected VstCommunication(final Integer timeout, final String user, final String password, final Boolean useSsl,
             final SSLContext sslContext, final C8Serialization util, final Integer chunksize,
             final Map<Service, HostHandler> hostHandlerMatrix) {
+        this(timeout, user, password, useSsl, sslContext, util, chunksize, hostHandlerMatrix, null);
+    }
+
+    protected VstCommunication(final Integer timeout, final String user, final String password, final Boolean useSsl,
+            final SSLContext sslContext, final C8Serialization util, final Integer chunksize,
+            final Map<Service, HostHandler> hostHandlerMatrix, final RedirectCache redirects) {
+        this(timeout, user, password, useSsl, sslContext, util, chunksize, null, hostHandlerMatrix, redirects);
+    }
+
+    protected VstCommunication(final Integer timeout, final String user, final String password, final Boolean useSsl,
+            final SSLContext sslContext, final C8Serialization util, final Integer chunksize,
+            final Integer maxChunksize, final Map<Service, HostHandler> hostHandlerMatrix,
+            final RedirectCache redirects) {
         this.user = user;
         this.password = password;
         this.util = util;
         this.hostHandlerMatrix = hostHandlerMatrix;
+        this.redirects = redirects;
         this.chunksize = chunksize != null ? chunksize : C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE;
+        this.maxChunksize = maxChunksize != null ? Math.max(maxChunksize, this.chunksize) : this.chunksize;
     }
 
+    /**
+     * Takes an open and authenticated connection, failing over to the next host if it cannot be opened. The request
+     * is counted as in flight on the load of the host before, the caller ends it there.
+     */
     @SuppressWarnings("unchecked")
-    protected synchronized ManagedConnection<C> connect(final HostHandle hostHandle, final AccessType accessType, Service service) {
-        HostHandler hostHandler = hostHandlerMatrix.get(service);
-        Host host = hostHandler.get(hostHandle, accessType);
+    protected ManagedConnection<C> connect(final Request request, final Host routedHost, final HostHandle hostHandle,
+            final Service service) {
+        final AccessType accessType = RequestUtils.determineAccessType(request);
+        final RequestPriority priority = request.getPriority();
+        HostHandler hostHandler = hostHandlerMatrix.get(service).forAccessType(accessType);
+        Host host = routedHost != null ? routedHost : hostHandler.get(hostHandle, accessType);
         while (true) {
             if (host == null) {
                 hostHandler.reset();
                 throw new C8DBException("Was not able to connect to any host");
             }
-            final ManagedConnection<C> managedConnection = host.connection().castConnection();
+            final HostLoad load = host.getLoad();
+            // wait for the concurrency limit before taking a connection, requests held back must not hold one
+            load.start();
+            final ManagedConnection<C> managedConnection;
+            try {
+                managedConnection = host.connection(priority).castConnection();
+            } catch (final RuntimeException e) {
+                load.cancel();
+                throw e;
+            }
             final C connection = managedConnection.connection();
-            if (connection.isOpen()) {
+            // a connection shared with other requests may be open but not authenticated yet
+            if (connection.isOpen() && (user == null || connection.isAuthenticated())) {
                 return managedConnection;
             } else {
                 try {
                     connection.open();
                     hostHandler.success();
-                    if (user != null) {
+                    if (user != null && !connection.isAuthenticated()) {
                         authenticate(connection);
+                        connection.setAuthenticated(true);
                     }
                     hostHandler.confirm();
                     return managedConnection;
+                } catch (final RuntimeException e) {
+                    load.cancel();
+                    try {
+                        managedConnection.close();
+                    } catch (final IOException e2) {
+                        LOGGER.warn("Failed to dispose managed connection");
+                    }
+                    throw e;
                 } catch (final IOException e) {
+                    load.cancel();
                     try {
                         managedConnection.close();
                     } catch (final IOException e2) {
                         LOGGER.warn("Failed to dispose managed connection");
                 	}
+                    if (redirects != null) {
+                        redirects.evict(service, request, host);
+                    }
                     hostHandler.fail();
                     if (hostHandle != null && hostHandle.getHost() != null) {
                         hostHandle.setHost(null);
@@ -134,31 +182,63 @@ public abstract class VstCommunication<R, C extends VstConnection> implements Cl
         for (HostHandler hostHandler : hostHandlerMatrix.values()) {
             hostHandler.close();
         }
+        if (redirects != null) {
+            redirects.close();
+        }
     }
 
     public R execute(final Request request, final HostHandle hostHandle, Service service) throws C8DBException {
-        try {
-            try (final ManagedConnection<C> managedConnection = connect(hostHandle, RequestUtils.determineAccessType(request), service)) {
-            	return execute(request, managedConnection.connection());
+        Host routedHost = redirects != null ? redirects.get(service, request, hostHandle) : null;
+        int redirected = 0;
+        int failedOver = 0;
+        while (true) {
+            try (final ManagedConnection<C> managedConnection = connect(request, routedHost, hostHandle, service)) {
+                // connect counted the request as in flight
+                final HostLoad load = managedConnection.host().getLoad();
+                final long start = System.nanoTime();
+                try {
+                    final R response = execute(request, managedConnection.connection());
+                    load.end(start, null);
+                    return response;
+                } catch (final RuntimeException e) {
+                    load.end(start, e);
+                    if (failedOver++ < MAX_FAILOVERS && isFailover(request, e)) {
+                        // the broken connection is discarded when it is given back, connect opens a new one
+                        LOGGER.warn(String.format("Connection to %s failed, send request again",
+                                managedConnection.host().getDescription()), e);
+                        continue;
+                    }
+                    throw e;
+                }
+            } catch (final C8DBRedirectException e) {
+                if (redirects == null || ++redirected > MAX_REDIRECTS) {
+                    throw e;
+                }
+                // follow the redirect on the pool of the endpoint, the pool of the current host stays open
+                routedHost = redirects.redirect(service, request, e.getLocation(), hostHandle);
             } catch (final Exception e) {
             	throw new C8DBException(e);
             }
-        } catch (final C8DBException e) {
-            if (e instanceof C8DBRedirectException) {
-                final String location = C8DBRedirectException.class.cast(e).getLocation();
-                final HostDescription redirectHost = HostUtils.createFromLocation(location);
-                HostHandler hostHandler = hostHandlerMatrix.get(service);
-                hostHandler.closeCurrentOnError();
-                hostHandler.fail();
-                return execute(request, new HostHandle().setHost(redirectHost), service);
-            } else {
-                throw e;
-            }
         }
     }
 
     protected abstract R execute(final Request request, C connection) throws C8DBException;
 
+    /**
+     * @return whether the request failed because its connection broke, and can be sent again because not a byte of
+     *         it was written or it is idempotent
+     */
+    private static boolean isFailover(final Request request, final Throwable e) {
+        boolean broken = false;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnsentMessageException) {
+                return true;
+            }
+            broken |= cause instanceof IOException;
+        }
+        return broken && request.isRetryEnabled() && JitteredRetryPolicy.isIdempotent(request);
+    }
+
     protected void checkError(final Response response) throws C8DBException {
         ResponseUtils.checkError(util, response);
     }
@@ -176,26 +256,4 @@ public abstract class VstCommunication<R, C extends VstConnection> implements Cl
         return new Message(id, util.serialize(request), ((JsonRequestBody)request.getBody()).getValue());
     }
 
-    protected Collection<Chunk> buildChunks(final Message message) {
-        final Collection<Chunk> chunks = new ArrayList<Chunk>();
-        final VPackSlice head = message.getHead();
-        int size = head.getByteSize();
-        final VPackSlice body = message.getBody();
-        if (body != null) {
-            size += body.getByteSize();
-        }
-        final int n = size / chunksize;
-        final int numberOfChunks = (size % chunksize != 0) ? (n + 1) : n;
-        int off = 0;
-        for (int i = 0; size > 0; i++) {
-            final int len = Math.min(chunksize, size);
-            final long messageLength = (i == 0 && numberOfChunks > 1) ? size : -1L;
-            final Chunk chunk = new Chunk(message.getId(), i, numberOfChunks, messageLength, off, len);
-            size -= len;
-            off += len;
-            chunks.add(chunk);
-        }
-        return chunks;
-    }
-
 }
@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 import com.arangodb.velocypack.exception.VPackParserException;
 import com.c8db.C8DBException;
 import com.c8db.internal.net.HostHandler;
+import com.c8db.internal.net.RedirectCache;
 import com.c8db.internal.velocystream.internal.AuthenticationRequest;
 import com.c8db.internal.velocystream.internal.Message;
 import com.c8db.internal.velocystream.internal.VstConnectionSync;
@@ -51,7 +52,9 @@ public class VstCommunicationSync extends VstCommunication<Response, VstConnecti
         private Boolean useSsl;
         private SSLContext sslContext;
         private Integer chunksize;
+        private Integer maxChunksize;
         private Integer maxConnections;
+        private RedirectCache redirects;
 
         public Builder(final Map<Service, HostHandler> hostHandlerMatrix) {
             super();
@@ -61,7 +64,8 @@ public class VstCommunicationSync extends VstCommunication<Response, VstConnecti
         public Builder(final Builder builder) {
             this(builder.hostHandlerMatrix);
             timeout(builder.timeout).user(builder.user).password(builder.password).useSsl(builder.useSsl)
-                    .sslContext(builder.sslContext).chunksize(builder.chunksize).maxConnections(builder.maxConnections);
+                    .sslContext(builder.sslContext).chunksize(builder.chunksize).maxChunksize(builder.maxChunksize)
+                    .maxConnections(builder.maxConnections).redirects(builder.redirects);
         }
 
         public Builder timeout(final Integer timeout) {
@@ -94,6 +98,15 @@ public class VstCommunicationSync extends VstCommunication<Response, VstConnecti
             return this;
         }
 
+        /**
+         * @param maxChunksize largest chunk size for messages that have a connection to themselves, {@code null} for
+         *                     the chunk size
+         */
+        public Builder maxChunksize(final Integer maxChunksize) {
+            this.maxChunksize = maxChunksize;
+            return this;
+        }
+
         public Builder maxConnections(final Integer maxConnections) {
             this.maxConnections = maxConnections;
             return this;
@@ -104,17 +117,27 @@ public class VstCommunicationSync extends VstCommunication<Response, VstConnecti
             return this;
         }
 
+        /**
+         * @param redirects remembers the endpoints requests were redirected to, {@code null} to not follow redirects
+         */
+        public Builder redirects(final RedirectCache redirects) {
+            this.redirects = redirects;
+            return this;
+        }
+
         public VstCommunication<Response, VstConnectionSync> build(final C8Serialization util) {
             return new VstCommunicationSync(hostHandlerMatrix, timeout, user, password, useSsl, sslContext, util, chunksize,
-                    maxConnections, connectionTtl);
+                    maxChunksize, maxConnections, connectionTtl, redirects);
         }
 
     }
 
     protected VstCommunicationSync(final Map<Service, HostHandler> hostHandlerMatrix, final Integer timeout, final String user,
             final String password, final Boolean useSsl, final SSLContext sslContext, final C8Serialization util,
-            final Integer chunksize, final Integer maxConnections, final Long ttl) {
-        super(timeout, user, password, useSsl, sslContext, util, chunksize, hostHandlerMatrix);
+            final Integer chunksize, final Integer maxChunksize, final Integer maxConnections, final Long ttl,
+            final RedirectCache redirects) {
+        super(timeout, user, password, useSsl, sslContext, util, chunksize, maxChunksize, hostHandlerMatrix,
+                redirects);
     }
 
     @Override
@@ -135,7 +158,7 @@ public class VstCommunicationSync extends VstCommunication<Response, VstConnecti
             LOGGER.debug(String.format("Send Message (id=%s, head=%s, body=%s)", message.getId(), message.getHead(),
                     message.getBody() != null ? message.getBody() : "{}"));
         }
-        return connection.write(message, buildChunks(message));
+        return connection.write(message, chunksize, maxChunksize);
     }
 
     @Override
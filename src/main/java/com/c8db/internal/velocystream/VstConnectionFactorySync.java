@@ -34,9 +34,14 @@ public class VstConnectionFactorySync implements ConnectionFactory {
 
     public VstConnectionFactorySync(final Integer timeout, final Long connectionTtl,
             final Boolean useSsl, final SSLContext sslContext) {
+        this(timeout, connectionTtl, null, useSsl, sslContext);
+    }
+
+    public VstConnectionFactorySync(final Integer timeout, final Long connectionTtl, final Long keepAlive,
+            final Boolean useSsl, final SSLContext sslContext) {
         super();
-        builder = new VstConnectionSync.Builder().timeout(timeout).ttl(connectionTtl).useSsl(useSsl)
-                .sslContext(sslContext);
+        builder = new VstConnectionSync.Builder().timeout(timeout).ttl(connectionTtl).keepAlive(keepAlive)
+                .useSsl(useSsl).sslContext(sslContext);
     }
 
     @Override
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.velocystream.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Direct buffers of {@link #BUFFER_SIZE} bytes shared by the VelocyStream connections. A connection takes one while it
+ * writes and gives it back once everything is written, so that idle connections hold none. At most
+ * {@link #MAX_POOLED} buffers are kept, further ones are left to the garbage collector.
+ */
+public final class BufferPool {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int MAX_POOLED = 64;
+
+    // array based, so that taking and giving back a buffer does not allocate
+    private static final BlockingQueue<ByteBuffer> BUFFERS = new ArrayBlockingQueue<ByteBuffer>(MAX_POOLED);
+
+    private BufferPool() {
+        super();
+    }
+
+    /**
+     * @return an empty little endian buffer
+     */
+    static ByteBuffer acquire() {
+        final ByteBuffer buffer = BUFFERS.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    static void release(final ByteBuffer buffer) {
+        BUFFERS.offer(buffer);
+    }
+
+}
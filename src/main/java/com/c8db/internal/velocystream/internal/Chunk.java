@@ -41,7 +41,7 @@ public class Chunk {
         this(messageId, chunkX(chunkIndex, numberOfChunks), messageLength, contentOffset, contentLength);
     }
 
-    private static int chunkX(final int chunkIndex, final int numberOfChunks) {
+    static int chunkX(final int chunkIndex, final int numberOfChunks) {
         int chunkX;
         if (numberOfChunks == 1) {
             chunkX = 3;// last byte: 0000 0011
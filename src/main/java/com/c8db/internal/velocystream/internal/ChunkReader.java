@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.velocystream.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.c8db.internal.C8Defaults;
+
+/**
+ * Reassembles the chunks received on a connection from the bytes as they arrive, which may end anywhere in a chunk,
+ * and hands them to the {@link ChunkStore}. The content is copied straight into the buffer of its message.
+ */
+public class ChunkReader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChunkReader.class);
+
+    private final ChunkStore chunkStore;
+    private final ByteBuffer header;
+    private boolean inChunk;
+    private long messageId;
+    private ByteBuffer content;
+    private int remaining;
+
+    public ChunkReader(final ChunkStore chunkStore) {
+        super();
+        this.chunkStore = chunkStore;
+        header = ByteBuffer.allocate(C8Defaults.CHUNK_MAX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Consumes all remaining bytes of the buffer.
+     */
+    public void read(final ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            if (!inChunk && !readHeader(buffer)) {
+                return;
+            }
+            final int length = Math.min(remaining, buffer.remaining());
+            if (content != null) {
+                final int limit = buffer.limit();
+                buffer.limit(buffer.position() + length);
+                content.put(buffer);
+                buffer.limit(limit);
+            } else {
+                // the rest of a message that was cancelled
+                buffer.position(buffer.position() + length);
+            }
+            remaining -= length;
+            if (remaining == 0) {
+                if (content != null) {
+                    chunkStore.checkCompleteness(messageId);
+                }
+                inChunk = false;
+                content = null;
+                header.clear();
+            }
+        }
+    }
+
+    private boolean readHeader(final ByteBuffer buffer) {
+        if (!fill(buffer, C8Defaults.CHUNK_MIN_HEADER_SIZE)) {
+            return false;
+        }
+        final int chunkX = header.getInt(C8Defaults.INTEGER_BYTES);
+        final boolean hasMessageLength = (1 == (chunkX & 0x1)) && ((chunkX >> 1) > 1);
+        if (hasMessageLength && !fill(buffer, C8Defaults.CHUNK_MAX_HEADER_SIZE)) {
+            return false;
+        }
+        final int length = header.getInt(0);
+        messageId = header.getLong(C8Defaults.INTEGER_BYTES + C8Defaults.INTEGER_BYTES);
+        final long messageLength = hasMessageLength ? header.getLong(C8Defaults.CHUNK_MIN_HEADER_SIZE) : -1L;
+        remaining = length
+                - (hasMessageLength ? C8Defaults.CHUNK_MAX_HEADER_SIZE : C8Defaults.CHUNK_MIN_HEADER_SIZE);
+        final boolean firstChunk = 1 == (chunkX & 0x1);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Received chunk %s:%s from message %s", chunkX >> 1, firstChunk ? 1 : 0,
+                    messageId));
+        }
+        content = chunkStore.storeChunk(messageId, firstChunk, messageLength, remaining);
+        inChunk = true;
+        return true;
+    }
+
+    private boolean fill(final ByteBuffer buffer, final int size) {
+        while (header.position() < size && buffer.hasRemaining()) {
+            header.put(buffer.get());
+        }
+        return header.position() >= size;
+    }
+
+}
@@ -35,16 +35,20 @@ public class ChunkStore {
         data = new HashMap<Long, ByteBuffer>();
     }
 
-    public ByteBuffer storeChunk(final Chunk chunk) throws BufferUnderflowException, IndexOutOfBoundsException {
-        final long messageId = chunk.getMessageId();
+    /**
+     * @param messageLength length of the whole message, only known from the first of several chunks
+     * @return the buffer of the message to read the content of the chunk into, or {@code null} if the first chunk
+     *         of the message was missing
+     */
+    public ByteBuffer storeChunk(final long messageId, final boolean firstChunk, final long messageLength,
+            final int contentLength) throws BufferUnderflowException, IndexOutOfBoundsException {
         ByteBuffer chunkBuffer = data.get(messageId);
         if (chunkBuffer == null) {
-            if (!chunk.isFirstChunk()) {
+            if (!firstChunk) {
                 messageStore.cancel(messageId);
                 return null;
             }
-            final int length = (int) (chunk.getMessageLength() > 0 ? chunk.getMessageLength()
-                    : chunk.getContentLength());
+            final int length = (int) (messageLength > 0 ? messageLength : contentLength);
             chunkBuffer = ByteBuffer.allocate(length);
             data.put(messageId, chunkBuffer);
         }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.velocystream.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arangodb.velocypack.VPackSlice;
+import com.c8db.internal.C8Defaults;
+
+/**
+ * Splits a message into chunks and encodes them into a buffer, as much as fits at a time. Chunk headers and content
+ * are copied straight from the message into the buffer, nothing is allocated per chunk.
+ */
+public class ChunkWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChunkWriter.class);
+
+    private final long messageId;
+    private final VPackSlice head;
+    private final VPackSlice body;
+    private final int headLength;
+    private final int length;
+    private final int chunksize;
+    private final int numberOfChunks;
+    private int chunk;
+    private int offset;
+    private boolean headerWritten;
+
+    public ChunkWriter(final Message message, final int chunksize) {
+        super();
+        messageId = message.getId();
+        head = message.getHead();
+        body = message.getBody();
+        headLength = head.getByteSize();
+        length = headLength + (body != null ? body.getByteSize() : 0);
+        this.chunksize = chunksize;
+        numberOfChunks = (length + chunksize - 1) / chunksize;
+    }
+
+    /**
+     * Picks the chunk size for a message. A message that fits into the largest chunk is sent as a single chunk, one
+     * that does not in the largest chunks that fill the socket send buffer exactly a number of times.
+     *
+     * @param chunksize      chunk size of messages that fit into a single chunk anyway
+     * @param maxChunksize   largest chunk size, not less than the chunk size
+     * @param sendBufferSize size of the socket send buffer, {@code 0} if unknown
+     */
+    static int chunksize(final Message message, final int chunksize, final int maxChunksize,
+            final int sendBufferSize) {
+        final int length = message.getHead().getByteSize()
+                + (message.getBody() != null ? message.getBody().getByteSize() : 0);
+        if (length <= chunksize || maxChunksize <= chunksize) {
+            return chunksize;
+        }
+        if (length <= maxChunksize) {
+            return length;
+        }
+        final int aligned = sendBufferSize > 0 ? (maxChunksize + C8Defaults.CHUNK_MIN_HEADER_SIZE) / sendBufferSize
+                * sendBufferSize - C8Defaults.CHUNK_MIN_HEADER_SIZE : 0;
+        return aligned >= chunksize ? aligned : maxChunksize;
+    }
+
+    /**
+     * Encodes as much of the current chunk as fits into the buffer.
+     *
+     * @return whether the current chunk is encoded completely, the buffer is full otherwise
+     */
+    public boolean write(final ByteBuffer buffer) {
+        final int chunkStart = chunk * chunksize;
+        final int chunkEnd = Math.min(chunkStart + chunksize, length);
+        if (!headerWritten) {
+            final long messageLength = chunk == 0 && numberOfChunks > 1 ? length : -1L;
+            final int headerLength = messageLength > -1L ? C8Defaults.CHUNK_MAX_HEADER_SIZE
+                    : C8Defaults.CHUNK_MIN_HEADER_SIZE;
+            if (buffer.remaining() < headerLength) {
+                return false;
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Send chunk %s:%s from message %s", chunk, chunk == 0 ? 1 : 0, messageId));
+            }
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(chunkEnd - chunkStart + headerLength);
+            buffer.putInt(Chunk.chunkX(chunk, numberOfChunks));
+            buffer.putLong(messageId);
+            if (messageLength > -1L) {
+                buffer.putLong(messageLength);
+            }
+            headerWritten = true;
+        }
+        while (offset < chunkEnd && buffer.hasRemaining()) {
+            final int written;
+            if (offset < headLength) {
+                written = Math.min(Math.min(chunkEnd, headLength) - offset, buffer.remaining());
+                buffer.put(head.getBuffer(), head.getStart() + offset, written);
+            } else {
+                written = Math.min(chunkEnd - offset, buffer.remaining());
+                buffer.put(body.getBuffer(), body.getStart() + offset - headLength, written);
+            }
+            offset += written;
+        }
+        if (offset < chunkEnd) {
+            return false;
+        }
+        chunk++;
+        headerWritten = false;
+        return true;
+    }
+
+    /**
+     * @return whether encoding has begun, so that part of the message may have been sent
+     */
+    public boolean isStarted() {
+        return chunk > 0 || headerWritten;
+    }
+
+    /**
+     * @return the id of the message
+     */
+    public long getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * @return whether all chunks are encoded
+     */
+    public boolean isDone() {
+        return chunk == numberOfChunks;
+    }
+
+}
@@ -17,7 +17,6 @@
 package com.c8db.internal.velocystream.internal;
 
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.FutureTask;
 
@@ -27,7 +26,10 @@ import org.slf4j.LoggerFactory;
 import com.c8db.C8DBException;
 
 /**
- *
+ * Messages waiting for their response. Whoever removes the future of a message from the store completes it: a
+ * response, a failure, a cancel or the caller giving up, each takes the future out in one step and only the one that
+ * got it completes it. The result is handed over in the maps below and taken out again by the future while it runs,
+ * on the same thread, so they never keep a result behind.
  */
 public class MessageStore {
 
@@ -50,14 +52,19 @@ public class MessageStore {
 
     public void consume(final Message message) {
         final FutureTask<Message> future = task.remove(message.getId());
-        if (future != null) {
+        if (future == null) {
+            // the caller gave up on it or the connection failed it already
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(String.format("Received Message (id=%s, head=%s, body=%s)", message.getId(),
-                        message.getHead(), message.getBody() != null ? message.getBody() : "{}"));
+                LOGGER.debug(String.format("Dropped response of unknown Message (id=%s).", message.getId()));
             }
-            response.put(message.getId(), message);
-            future.run();
+            return;
         }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Received Message (id=%s, head=%s, body=%s)", message.getId(),
+                    message.getHead(), message.getBody() != null ? message.getBody() : "{}"));
+        }
+        response.put(message.getId(), message);
+        future.run();
     }
 
     public Message get(final long messageId) throws C8DBException {
@@ -79,28 +86,49 @@ public class MessageStore {
         }
     }
 
+    /**
+     * Forgets a message that is not waited for anymore, a response that still comes in is dropped.
+     */
+    public void remove(final long messageId) {
+        final FutureTask<Message> future = task.remove(messageId);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Completes a single message exceptionally.
+     */
+    public void fail(final long messageId, final Exception e) {
+        final FutureTask<Message> future = task.remove(messageId);
+        if (future != null) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Exceptionally complete Message (id=%s).", messageId));
+            }
+            error.put(messageId, e);
+            future.run();
+        }
+    }
+
     public void clear(final Exception e) {
         if (!task.isEmpty()) {
             LOGGER.error(e.getMessage(), e);
         }
-        for (final Entry<Long, FutureTask<Message>> entry : task.entrySet()) {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(String.format("Exceptionally complete Message (id=%s).", entry.getKey()));
-            }
-            error.put(entry.getKey(), e);
-            entry.getValue().run();
+        for (final Long messageId : task.keySet()) {
+            fail(messageId, e);
         }
-        task.clear();
     }
 
     public void clear() {
-        for (final Entry<Long, FutureTask<Message>> entry : task.entrySet()) {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(String.format("Cancel Message (id=%s).", entry.getKey()));
+        for (final Long messageId : task.keySet()) {
+            final FutureTask<Message> future = task.remove(messageId);
+            if (future != null) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(String.format("Cancel Message (id=%s).", messageId));
+                }
+                future.cancel(true);
             }
-            entry.getValue().cancel(true);
         }
-        task.clear();
     }
 
     public boolean isEmpty() {
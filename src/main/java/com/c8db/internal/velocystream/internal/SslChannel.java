@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.velocystream.internal;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLEngineResult.Status;
+import javax.net.ssl.SSLSession;
+
+/**
+ * TLS on a {@link SocketChannel} with an {@link SSLEngine}, so that SSL connections are served by the
+ * {@link VstEventLoop} like plain ones instead of a reader thread each. The handshake is done when the connection is
+ * opened, on the thread that opens it and while the channel still blocks.
+ * <p>
+ * After that the channel is non-blocking. Writers encrypt under the write lock of the connection, and encrypted
+ * bytes the socket did not take are written first on the next call, see {@link #isFlushed()}. The loop decrypts what
+ * it reads with {@link #read(ByteBuffer, ChunkReader)}.
+ * </p>
+ */
+final class SslChannel implements WritableByteChannel {
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    // all three are kept ready to be filled
+    private ByteBuffer netOut;
+    private ByteBuffer netIn;
+    private ByteBuffer appIn;
+
+    SslChannel(final SocketChannel channel, final SSLEngine engine) {
+        super();
+        this.channel = channel;
+        this.engine = engine;
+        final SSLSession session = engine.getSession();
+        netOut = ByteBuffer.allocateDirect(session.getPacketBufferSize());
+        netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+        appIn = ByteBuffer.allocate(session.getApplicationBufferSize());
+    }
+
+    /**
+     * Has to be called while the channel blocks.
+     */
+    void handshake() throws IOException {
+        engine.beginHandshake();
+        HandshakeStatus status = engine.getHandshakeStatus();
+        while (status != HandshakeStatus.FINISHED && status != HandshakeStatus.NOT_HANDSHAKING) {
+            if (status == HandshakeStatus.NEED_TASK) {
+                runTasks();
+                status = engine.getHandshakeStatus();
+            } else if (status == HandshakeStatus.NEED_WRAP) {
+                status = wrap(EMPTY).getHandshakeStatus();
+                flushNet();
+            } else {
+                status = unwrapHandshake();
+            }
+        }
+        flushNet();
+        if (engine.isOutboundDone() || engine.isInboundDone()) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    private HandshakeStatus unwrapHandshake() throws IOException {
+        while (true) {
+            netIn.flip();
+            final SSLEngineResult result;
+            try {
+                result = engine.unwrap(netIn, appIn);
+            } finally {
+                netIn.compact();
+            }
+            if (result.getStatus() == Status.BUFFER_UNDERFLOW) {
+                if (!netIn.hasRemaining()) {
+                    netIn = enlarge(netIn, engine.getSession().getPacketBufferSize());
+                }
+                if (channel.read(netIn) == -1) {
+                    throw new EOFException("Reached the end of the stream during the SSL handshake.");
+                }
+            } else if (result.getStatus() == Status.BUFFER_OVERFLOW) {
+                appIn = enlarge(appIn, engine.getSession().getApplicationBufferSize());
+            } else if (result.getStatus() == Status.CLOSED) {
+                throw new ClosedChannelException();
+            } else {
+                return result.getHandshakeStatus();
+            }
+        }
+    }
+
+    /**
+     * Encrypts the bytes and writes them, as far as the socket takes them.
+     *
+     * @return the number of plain bytes taken, {@code 0} while encrypted bytes of an earlier call are not written
+     */
+    @Override
+    public int write(final ByteBuffer src) throws IOException {
+        if (!flushNet()) {
+            return 0;
+        }
+        int written = 0;
+        while (src.hasRemaining()) {
+            final SSLEngineResult result = wrap(src);
+            written += result.bytesConsumed();
+            if (!flushNet() || result.bytesConsumed() == 0) {
+                break;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @return whether all encrypted bytes are written to the socket
+     */
+    boolean isFlushed() {
+        return netOut.position() == 0;
+    }
+
+    /**
+     * @return whether the engine has to send handshake bytes, after the peer started a new handshake or a key update
+     */
+    boolean needsWrap() {
+        return engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP;
+    }
+
+    /**
+     * Encrypts what the engine has to send on its own and writes it, as far as the socket takes it. Has to be called
+     * under the write lock of the connection.
+     *
+     * @return whether all is written
+     */
+    boolean writeHandshake() throws IOException {
+        while (engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP) {
+            if (!flushNet()) {
+                return false;
+            }
+            wrap(EMPTY);
+        }
+        return flushNet();
+    }
+
+    /**
+     * Decrypts bytes read from the channel and hands the plain bytes to the reader. Called on the thread of the loop.
+     */
+    void read(final ByteBuffer src, final ChunkReader reader) throws IOException {
+        while (src.hasRemaining()) {
+            if (!netIn.hasRemaining()) {
+                netIn = enlarge(netIn, engine.getSession().getPacketBufferSize());
+            }
+            final int length = Math.min(src.remaining(), netIn.remaining());
+            final ByteBuffer part = src.duplicate();
+            part.limit(part.position() + length);
+            netIn.put(part);
+            src.position(src.position() + length);
+            netIn.flip();
+            try {
+                unwrap(reader);
+            } finally {
+                netIn.compact();
+            }
+        }
+    }
+
+    private void unwrap(final ChunkReader reader) throws IOException {
+        while (netIn.hasRemaining()) {
+            final SSLEngineResult result = engine.unwrap(netIn, appIn);
+            if (appIn.position() > 0) {
+                appIn.flip();
+                reader.read(appIn);
+                appIn.clear();
+            }
+            if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+                runTasks();
+            }
+            if (result.getStatus() == Status.BUFFER_OVERFLOW) {
+                appIn = enlarge(appIn, engine.getSession().getApplicationBufferSize());
+            } else if (result.getStatus() == Status.CLOSED) {
+                throw new EOFException("The peer closed the SSL connection.");
+            } else if (result.getStatus() == Status.BUFFER_UNDERFLOW
+                    || result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends the close notification if the socket takes it at once.
+     */
+    void closeOutbound() {
+        engine.closeOutbound();
+        try {
+            writeHandshake();
+        } catch (final IOException e) {
+            // the connection is closed anyway
+        }
+    }
+
+    private SSLEngineResult wrap(final ByteBuffer src) throws IOException {
+        while (true) {
+            final SSLEngineResult result = engine.wrap(src, netOut);
+            if (result.getStatus() == Status.BUFFER_OVERFLOW) {
+                netOut = enlarge(netOut, engine.getSession().getPacketBufferSize());
+            } else if (result.getStatus() == Status.CLOSED && !engine.isOutboundDone()) {
+                throw new ClosedChannelException();
+            } else {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * @return whether all encrypted bytes are written
+     */
+    private boolean flushNet() throws IOException {
+        netOut.flip();
+        try {
+            while (netOut.hasRemaining() && channel.write(netOut) > 0) {
+                // until the socket takes no more
+            }
+            return !netOut.hasRemaining();
+        } finally {
+            netOut.compact();
+        }
+    }
+
+    private void runTasks() {
+        for (Runnable task = engine.getDelegatedTask(); task != null; task = engine.getDelegatedTask()) {
+            task.run();
+        }
+    }
+
+    private static ByteBuffer enlarge(final ByteBuffer buffer, final int size) {
+        final ByteBuffer larger = buffer.isDirect() ? ByteBuffer.allocateDirect(Math.max(size, 2 * buffer.capacity()))
+                : ByteBuffer.allocate(Math.max(size, 2 * buffer.capacity()));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.velocystream.internal;
+
+import java.io.IOException;
+
+/**
+ * Completes a message of which no byte was written before its connection closed or failed, so that it can safely be
+ * sent again on another connection, whatever the request.
+ */
+public class UnsentMessageException extends IOException {
+
+    private static final long serialVersionUID = -6419358715283474528L;
+
+    public UnsentMessageException(final String message) {
+        super(message);
+    }
+
+}
@@ -16,72 +16,128 @@
 
 package com.c8db.internal.velocystream.internal;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Collection;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.concurrent.Callable;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
-import javax.net.SocketFactory;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocket;
-import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.SSLEngine;
 
+import com.arangodb.velocypack.VPackBuilder;
+import com.arangodb.velocypack.VPackSlice;
+import com.arangodb.velocypack.ValueType;
 import com.c8db.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.arangodb.velocypack.VPackSlice;
 import com.c8db.C8DBException;
 import com.c8db.internal.C8Defaults;
 import com.c8db.internal.net.Connection;
 import com.c8db.internal.net.HostDescription;
+import com.c8db.velocystream.RequestType;
 
 /**
- *
+ * A VelocyStream connection. Connections are non-blocking channels served by a shared {@link VstEventLoop}, so they
+ * need no thread of their own. SSL connections encrypt and decrypt on the same channel with an {@link SslChannel}.
+ * <p>
+ * Several threads may write to a connection at the same time. Messages are encoded by {@link ChunkWriter} into a
+ * direct buffer of the {@link BufferPool} and written from there, the thread that finds the connection idle writes
+ * and leaves what the socket does not take to the event loop. The messages waiting for the socket are encoded a chunk
+ * at a time in turn, so that a small request does not wait for all chunks of a large one. Responses are matched to
+ * their requests by message id.
+ * </p>
+ * <p>
+ * Once a {@link VstEventLoop#TICK} the connection checks its time to live on the monotonic clock. Past it, the pool
+ * stops handing it out and it is closed as soon as its last response is in. With a keepalive interval, a connection
+ * that received nothing for that long sends a {@code HEAD /_api/version} and is failed if nothing arrives within the
+ * timeout, which detects half-open connections. The loop only decides, closing and the keepalive request itself run
+ * on a shared lifecycle thread, as they wait for the monitor and the write lock of the connection.
+ * </p>
+ * <p>
+ * The loop never waits for a lock of a connection. It only tries the write lock, and if a writer holds it, the writer
+ * hands the write back to the loop when it lets go of the lock, see {@link #unlockWrite()}. Messages that were not
+ * written yet when a connection fails or is closed complete with an {@link UnsentMessageException}, so that they can
+ * safely be sent again on another connection.
+ * </p>
  */
 public abstract class VstConnection implements Connection {
     private static final Logger LOGGER = LoggerFactory.getLogger(VstConnection.class);
     private static final byte[] PROTOCOL_HEADER = "VST/1.0\r\n\r\n".getBytes();
+    private static final VPackSlice KEEPALIVE_HEAD = new VPackBuilder().add(ValueType.ARRAY).add(1).add(1)
+            .add("_system").add(RequestType.HEAD.getType()).add("/_api/version").add(ValueType.OBJECT).close()
+            .add(ValueType.OBJECT).close().close().slice();
+    // negative, so that they never collide with the ids of requests
+    private static final AtomicLong KEEPALIVE_IDS = new AtomicLong();
+    // closes connections and sends keepalive requests for the event loops
+    private static final ThreadPoolExecutor LIFECYCLE = createLifecycleExecutor();
 
-    private ExecutorService executor;
     protected final MessageStore messageStore;
 
     protected final Integer timeout;
     private final Long ttl;
+    private final Long keepAlive;
     private final Boolean useSsl;
     private final SSLContext sslContext;
 
     private Socket socket;
-    private OutputStream outputStream;
-    private InputStream inputStream;
+    private SocketChannel channel;
+    private VstEventLoop loop;
+    private SslChannel sslChannel;
+    private final ReentrantLock writeLock;
+    // set by the loop if it could not take the write lock, the holder then lets the loop write again
+    private volatile boolean writeHandoff;
+    private final Queue<ChunkWriter> pendingWrites;
+    private ByteBuffer writeBuffer;
+    private int sendBufferSize;
+    private volatile boolean authenticated;
+    private volatile boolean draining;
+    private Lifecycle lifecycle;
 
     private final HostDescription host;
     private final Service service;
 
-    private HashMap<Long, Long> sendTimestamps = new HashMap<Long, Long>();
-
     private String connectionName;
 
     protected VstConnection(final HostDescription host, final Integer timeout, final Long ttl, final Boolean useSsl,
             final SSLContext sslContext, final MessageStore messageStore, final Service service) {
+        this(host, timeout, ttl, null, useSsl, sslContext, messageStore, service);
+    }
+
+    /**
+     * @param keepAlive time in milliseconds without anything received after which a keepalive request is sent,
+     *                  {@code null} for none
+     */
+    protected VstConnection(final HostDescription host, final Integer timeout, final Long ttl, final Long keepAlive,
+            final Boolean useSsl, final SSLContext sslContext, final MessageStore messageStore,
+            final Service service) {
         super();
         this.host = host;
         this.timeout = timeout;
         this.ttl = ttl;
+        this.keepAlive = keepAlive;
         this.useSsl = useSsl;
         this.sslContext = sslContext;
         this.messageStore = messageStore;
         this.service = service;
+        writeLock = new ReentrantLock();
+        pendingWrites = new ArrayDeque<ChunkWriter>();
 
         connectionName = "conenction_" + System.currentTimeMillis() + "_" + Math.random();
         LOGGER.debug("Connection " + connectionName + " created");
@@ -91,6 +147,27 @@ public abstract class VstConnection implements Connection {
         return socket != null && socket.isConnected() && !socket.isClosed();
     }
 
+    /**
+     * @return whether the connection is open and was authenticated since it was opened
+     */
+    public boolean isAuthenticated() {
+        return authenticated && isOpen();
+    }
+
+    public void setAuthenticated(final boolean authenticated) {
+        this.authenticated = authenticated;
+    }
+
+    /**
+     * @return {@code false} if the socket has been opened and is closed by now, or if the connection outlived its time
+     *         to live and only waits for its last responses
+     */
+    @Override
+    public boolean isValid() {
+        return socket == null || isOpen() && !draining;
+    }
+
+    @Override
     public synchronized void open() throws IOException {
         if (isOpen()) {
             return;
@@ -98,194 +175,414 @@ public abstract class VstConnection implements Connection {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug(String.format("Open connection to %s", host));
         }
-        if (Boolean.TRUE == useSsl) {
-            if (sslContext != null) {
-                socket = sslContext.getSocketFactory().createSocket();
-            } else {
-                socket = SSLSocketFactory.getDefault().createSocket();
+        authenticated = false;
+        draining = false;
+        sslChannel = null;
+        channel = SocketChannel.open();
+        socket = channel.socket();
+        try {
+            socket.connect(new InetSocketAddress(host.getHost(), host.getPort()),
+                    timeout != null ? timeout : C8Defaults.DEFAULT_TIMEOUT);
+            socket.setKeepAlive(true);
+            socket.setTcpNoDelay(true);
+            sendBufferSize = socket.getSendBufferSize();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Connected to %s", socket));
+            }
+            if (Boolean.TRUE == useSsl) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(String.format("Start Handshake on %s", socket));
+                }
+                sslChannel = new SslChannel(channel, createSslEngine());
+                sslChannel.handshake();
             }
-        } else {
-            socket = SocketFactory.getDefault().createSocket();
-        }
-        socket.connect(new InetSocketAddress(host.getHost(), host.getPort()),
-                timeout != null ? timeout : C8Defaults.DEFAULT_TIMEOUT);
-        socket.setKeepAlive(true);
-        socket.setTcpNoDelay(true);
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(String.format("Connected to %s", socket));
-        }
-
-        outputStream = new BufferedOutputStream(socket.getOutputStream());
-        inputStream = socket.getInputStream();
-
-        if (Boolean.TRUE == useSsl) {
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(String.format("Start Handshake on %s", socket));
+                LOGGER.debug(String.format("Send velocystream protocol header to %s", socket));
+            }
+            // the channel still blocks, so this writes all of it
+            final ByteBuffer protocolHeader = ByteBuffer.wrap(PROTOCOL_HEADER);
+            while (protocolHeader.hasRemaining()) {
+                target().write(protocolHeader);
             }
-            ((SSLSocket) socket).startHandshake();
+            channel.configureBlocking(false);
+            loop = VstEventLoop.next();
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
         }
-        sendProtocolHeader();
+        lifecycle = new Lifecycle(System.nanoTime());
+        loop.register(channel, new ChannelHandler(channel, sslChannel, lifecycle));
+    }
 
-        executor = Executors.newSingleThreadExecutor();
-        executor.submit(new Callable<Void>() {
-            @Override
-            public Void call() throws Exception {
-                LOGGER.debug("Start Callable for " + connectionName);
-
-                final long openTime = new Date().getTime();
-                final Long ttlTime = ttl != null ? openTime + ttl : null;
-                final ChunkStore chunkStore = new ChunkStore(messageStore);
-                while (true) {
-                    if (ttlTime != null && new Date().getTime() > ttlTime && messageStore.isEmpty()) {
-                        close();
-                        break;
-                    }
-                    if (!isOpen()) {
-                        messageStore.clear(new IOException("The socket is closed."));
-                        close();
-                        break;
-                    }
-                    try {
-                        final Chunk chunk = readChunk();
-                        final ByteBuffer chunkBuffer = chunkStore.storeChunk(chunk);
-                        if (chunkBuffer != null) {
-                            final byte[] buf = new byte[chunk.getContentLength()];
-                            readBytesIntoBuffer(buf, 0, buf.length);
-                            chunkBuffer.put(buf);
-                            chunkStore.checkCompleteness(chunk.getMessageId());
-                        }
-                    } catch (final Exception e) {
-                        messageStore.clear(e);
-                        close();
-                        break;
-                    }
-                }
+    private SSLEngine createSslEngine() throws IOException {
+        final SSLContext context;
+        try {
+            context = sslContext != null ? sslContext : SSLContext.getDefault();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        final SSLEngine engine = context.createSSLEngine(host.getHost(), host.getPort());
+        engine.setUseClientMode(true);
+        return engine;
+    }
 
-                LOGGER.debug("Stop Callable for " + connectionName);
+    private WritableByteChannel target() {
+        return sslChannel != null ? sslChannel : channel;
+    }
 
-                return null;
+    /**
+     * Closes the connection on the {@link #LIFECYCLE} thread, for the thread of the event loop, which must not wait
+     * for the monitor or the write lock.
+     *
+     * @param cause why the messages of the connection fail, {@code null} to cancel them
+     */
+    private void closeLater(final Exception cause) {
+        LIFECYCLE.execute(new Runnable() {
+            @Override
+            public void run() {
+                close(cause);
             }
         });
     }
 
+    /**
+     * Fails all messages of the connection and closes it.
+     */
+    private void abort(final Exception e) {
+        close(e);
+    }
+
     @Override
-    public synchronized void close() {
-        messageStore.clear();
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdown();
+    public void close() {
+        close(null);
+    }
+
+    /**
+     * Closes the socket before the messages are completed, so that their callers find the connection closed. The
+     * messages that were not written at all complete with an {@link UnsentMessageException}, the others with the
+     * cause or, without one, are cancelled.
+     */
+    private synchronized void close(final Exception cause) {
+        final List<Long> unsent = new ArrayList<Long>();
+        writeLock.lock();
+        try {
+            for (final ChunkWriter writer : pendingWrites) {
+                if (!writer.isStarted()) {
+                    unsent.add(writer.getMessageId());
+                }
+            }
+            pendingWrites.clear();
+            if (sslChannel != null && isOpen()) {
+                sslChannel.closeOutbound();
+            }
+            if (writeBuffer != null) {
+                BufferPool.release(writeBuffer);
+                writeBuffer = null;
+            }
+        } finally {
+            unlockWrite();
         }
-        if (socket != null && !socket.isClosed()) {
-            try {
+        try {
+            if (socket != null && !socket.isClosed()) {
                 if (LOGGER.isDebugEnabled()) {
                     LOGGER.debug(String.format("Close connection %s", socket));
                 }
                 socket.close();
-            } catch (final IOException e) {
-                throw new C8DBException(e);
+            }
+        } catch (final IOException e) {
+            throw new C8DBException(e);
+        } finally {
+            for (final Long messageId : unsent) {
+                messageStore.fail(messageId,
+                        new UnsentMessageException(String.format("Connection to %s closed before sending", host)));
+            }
+            if (cause != null) {
+                messageStore.clear(cause);
+            } else {
+                messageStore.clear();
             }
         }
     }
 
-    private synchronized void sendProtocolHeader() throws IOException {
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(String.format("Send velocystream protocol header to %s", socket));
+    /**
+     * Writes the message in chunks, the rest is left to the event loop if the socket does not take all of it at once.
+     * A message that finds the connection idle is written in chunks of up to the maximal size, one that has to share
+     * the connection with others in chunks of the given size.
+     */
+    protected void writeIntern(final Message message, final int chunksize, final int maxChunksize)
+            throws C8DBException {
+        writeLock.lock();
+        try {
+            if (!isOpen()) {
+                throw new UnsentMessageException(String.format("Connection to %s is closed", host));
+            }
+            // otherwise the event loop is writing already
+            final boolean idle = pendingWrites.isEmpty() && writeBuffer == null;
+            pendingWrites.add(new ChunkWriter(message,
+                    ChunkWriter.chunksize(message, chunksize, idle ? maxChunksize : chunksize, sendBufferSize)));
+            if (idle && !flush(target())) {
+                loop.writePending(channel);
+            }
+        } catch (final IOException e) {
+            LOGGER.error("Error on Connection " + connectionName);
+            throw new C8DBException(e);
+        } finally {
+            unlockWrite();
         }
-        outputStream.write(PROTOCOL_HEADER);
-        outputStream.flush();
     }
 
-    protected synchronized void writeIntern(final Message message, final Collection<Chunk> chunks)
-            throws C8DBException {
-        for (final Chunk chunk : chunks) {
-            try {
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug(String.format("Send chunk %s:%s from message %s", chunk.getChunk(),
-                            chunk.isFirstChunk() ? 1 : 0, chunk.getMessageId()));
-                    sendTimestamps.put(chunk.getMessageId(), System.currentTimeMillis());
-                }
-                writeChunkHead(chunk);
-                final int contentOffset = chunk.getContentOffset();
-                final int contentLength = chunk.getContentLength();
-                final VPackSlice head = message.getHead();
-                final int headLength = head.getByteSize();
-                int written = 0;
-                if (contentOffset < headLength) {
-                    written = Math.min(contentLength, headLength - contentOffset);
-                    outputStream.write(head.getBuffer(), contentOffset, written);
-                }
-                if (written < contentLength) {
-                    final VPackSlice body = message.getBody();
-                    outputStream.write(body.getBuffer(), contentOffset + written - headLength, contentLength - written);
-                }
-                outputStream.flush();
-            } catch (final IOException e) {
-                LOGGER.error("Error on Connection " + connectionName);
-                throw new C8DBException(e);
-            }
+    /**
+     * Takes the write lock on the thread of the loop, without waiting for it. If another thread holds it, that thread
+     * lets the loop write again once it lets go of the lock.
+     *
+     * @return whether the lock is taken
+     */
+    private boolean tryLockWrite() {
+        if (writeLock.tryLock()) {
+            return true;
         }
+        writeHandoff = true;
+        // the holder may have let go before it could see the flag
+        if (writeLock.tryLock()) {
+            writeHandoff = false;
+            return true;
+        }
+        return false;
     }
 
-    private synchronized void writeChunkHead(final Chunk chunk) throws IOException {
-        final long messageLength = chunk.getMessageLength();
-        final int headLength = messageLength > -1L ? C8Defaults.CHUNK_MAX_HEADER_SIZE
-                : C8Defaults.CHUNK_MIN_HEADER_SIZE;
-        final int length = chunk.getContentLength() + headLength;
-        final ByteBuffer buffer = ByteBuffer.allocate(headLength).order(ByteOrder.LITTLE_ENDIAN);
-        buffer.putInt(length);
-        buffer.putInt(chunk.getChunkX());
-        buffer.putLong(chunk.getMessageId());
-        if (messageLength > -1L) {
-            buffer.putLong(messageLength);
+    /**
+     * Lets go of the write lock and, if the loop found it taken in the meantime, lets the loop write again.
+     */
+    private void unlockWrite() {
+        writeLock.unlock();
+        if (writeHandoff) {
+            writeHandoff = false;
+            if (loop != null) {
+                loop.writePending(channel);
+            }
         }
-        outputStream.write(buffer.array());
     }
 
-    protected Chunk readChunk() throws IOException {
-        final ByteBuffer chunkHeadBuffer = readBytes(C8Defaults.CHUNK_MIN_HEADER_SIZE);
-        final int length = chunkHeadBuffer.getInt();
-        final int chunkX = chunkHeadBuffer.getInt();
-        final long messageId = chunkHeadBuffer.getLong();
-        final long messageLength;
-        final int contentLength;
-        if ((1 == (chunkX & 0x1)) && ((chunkX >> 1) > 1)) {
-            messageLength = readBytes(C8Defaults.LONG_BYTES).getLong();
-            contentLength = length - C8Defaults.CHUNK_MAX_HEADER_SIZE;
-        } else {
-            messageLength = -1L;
-            contentLength = length - C8Defaults.CHUNK_MIN_HEADER_SIZE;
+    /**
+     * Encodes the waiting messages into the write buffer and writes it, until all is written or the socket does not
+     * take more. Has to be called holding the write lock.
+     *
+     * @return whether all is written
+     */
+    private boolean flush(final WritableByteChannel target) throws IOException {
+        if (writeBuffer == null) {
+            writeBuffer = BufferPool.acquire();
+        }
+        while (true) {
+            for (ChunkWriter writer = pendingWrites.peek(); writer != null && writer.write(writeBuffer);
+                    writer = pendingWrites.peek()) {
+                pendingWrites.poll();
+                if (!writer.isDone()) {
+                    // the next chunk after those of the other messages
+                    pendingWrites.add(writer);
+                }
+            }
+            writeBuffer.flip();
+            target.write(writeBuffer);
+            // encrypted bytes the socket did not take count as not written
+            final boolean written = !writeBuffer.hasRemaining() && (sslChannel == null || sslChannel.isFlushed());
+            writeBuffer.compact();
+            if (!written) {
+                return false;
+            }
+            if (pendingWrites.isEmpty()) {
+                BufferPool.release(writeBuffer);
+                writeBuffer = null;
+                return true;
+            }
         }
-        final Chunk chunk = new Chunk(messageId, chunkX, messageLength, 0, contentLength);
+    }
 
-        if (LOGGER.isDebugEnabled()) {
+    public String getConnectionName() {
+        return this.connectionName;
+    }
 
-            LOGGER.debug(String.format("Received chunk %s:%s from message %s", chunk.getChunk(),
-                    chunk.isFirstChunk() ? 1 : 0, chunk.getMessageId()));
-            LOGGER.debug("Responsetime for Message " + chunk.getMessageId() + " is "
-                    + (sendTimestamps.get(chunk.getMessageId()) - System.currentTimeMillis()));
-        }
+    /**
+     * Checks the time to live and the keepalive on the thread of the loop as if its clock read {@code now}, and
+     * waits for the check, so that tests do not depend on the {@link VstEventLoop#TICK}.
+     */
+    void tick(final long now) throws InterruptedException, ExecutionException {
+        final Lifecycle current = lifecycle;
+        final FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+            @Override
+            public void run() {
+                current.tick(now);
+            }
+        }, null);
+        loop.execute(task);
+        task.get();
+    }
 
-        return chunk;
+    /**
+     * @return the thread that closes connections and sends keepalive requests for the loops
+     */
+    static ExecutorService lifecycleExecutor() {
+        return LIFECYCLE;
     }
 
-    private ByteBuffer readBytes(final int len) throws IOException {
-        final byte[] buf = new byte[len];
-        readBytesIntoBuffer(buf, 0, len);
-        return ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+    private static ThreadPoolExecutor createLifecycleExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread thread = new Thread(r, "c8db-vst-lifecycle");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
-    protected void readBytesIntoBuffer(final byte[] buf, final int off, final int len) throws IOException {
-        for (int readed = 0; readed < len;) {
-            final int read = inputStream.read(buf, off + readed, len - readed);
-            if (read == -1) {
-                throw new IOException("Reached the end of the stream.");
-            } else {
-                readed += read;
+    /**
+     * Checks the time to live and sends keepalive requests once a tick of the event loop.
+     */
+    private final class Lifecycle implements VstEventLoop.Timer {
+
+        private final long openTime;
+        private volatile boolean read;
+        private long lastTick;
+        private long lastRead;
+        private long keepAliveSent;
+        private boolean keepAlivePending;
+        private boolean closing;
+
+        private Lifecycle(final long openTime) {
+            super();
+            this.openTime = openTime;
+            lastTick = openTime;
+            lastRead = openTime;
+        }
+
+        /**
+         * Notes that something was received, without reading the clock.
+         */
+        private void read() {
+            read = true;
+        }
+
+        /**
+         * Only decides on the thread of the loop, closing and the keepalive request are handed to the lifecycle
+         * thread.
+         */
+        @Override
+        public void tick(final long now) {
+            // never back in time, a check of VstConnection.tick(long) may be ahead of the clock of the loop
+            if (closing || now - lastTick < 0) {
+                return;
+            }
+            lastTick = now;
+            if (read) {
+                read = false;
+                lastRead = now;
+                keepAlivePending = false;
+            }
+            if (ttl != null && now - openTime > TimeUnit.MILLISECONDS.toNanos(ttl)) {
+                draining = true;
+                if (messageStore.isEmpty()) {
+                    closing = true;
+                    closeLater(null);
+                    return;
+                }
+            }
+            if (keepAlive == null || keepAlive <= 0L || !isOpen()) {
+                return;
+            }
+            if (keepAlivePending) {
+                final long keepAliveTimeout = timeout != null && timeout > 0 ? timeout : keepAlive;
+                if (now - keepAliveSent > TimeUnit.MILLISECONDS.toNanos(keepAliveTimeout)) {
+                    closing = true;
+                    closeLater(new IOException(String.format("No response to keepalive from %s within %s ms", host,
+                            keepAliveTimeout)));
+                }
+            } else if (now - lastRead >= TimeUnit.MILLISECONDS.toNanos(keepAlive)) {
+                keepAlivePending = true;
+                keepAliveSent = now;
+                LIFECYCLE.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            writeIntern(new Message(KEEPALIVE_IDS.decrementAndGet(), KEEPALIVE_HEAD, null),
+                                    C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE, C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE);
+                        } catch (final C8DBException e) {
+                            abort(e);
+                        }
+                    }
+                });
             }
         }
+
     }
 
-    public String getConnectionName() {
-        return this.connectionName;
+    /**
+     * Reads and finishes writes of the channel on the thread of the event loop.
+     */
+    private final class ChannelHandler implements VstEventLoop.Handler {
+
+        private final SocketChannel channel;
+        private final SslChannel ssl;
+        private final Lifecycle lifecycle;
+        private final ChunkReader chunkReader;
+
+        private ChannelHandler(final SocketChannel channel, final SslChannel ssl, final Lifecycle lifecycle) {
+            super();
+            this.channel = channel;
+            this.ssl = ssl;
+            this.lifecycle = lifecycle;
+            chunkReader = new ChunkReader(new ChunkStore(messageStore));
+        }
+
+        @Override
+        public void read(final ByteBuffer buffer) throws IOException {
+            lifecycle.read();
+            if (ssl == null) {
+                chunkReader.read(buffer);
+                return;
+            }
+            ssl.read(buffer, chunkReader);
+            if (ssl.needsWrap()) {
+                // the peer started a new handshake or updates its keys, the answer is written with the next write
+                loop.writePending(channel);
+            }
+        }
+
+        /**
+         * Finishes the handshake messages of the SSL engine and the waiting writes. If a writer holds the write lock,
+         * the loop stops waiting for the channel to take bytes until the writer hands the write back.
+         */
+        @Override
+        public void write() throws IOException {
+            if (!tryLockWrite()) {
+                loop.writeDone(channel);
+                return;
+            }
+            try {
+                if (ssl != null && !ssl.writeHandshake()) {
+                    return;
+                }
+                if (flush(ssl != null ? ssl : channel)) {
+                    loop.writeDone(channel);
+                }
+            } finally {
+                unlockWrite();
+            }
+        }
+
+        @Override
+        public void tick(final long now) {
+            lifecycle.tick(now);
+        }
+
+        @Override
+        public void fail(final Exception e) {
+            closeLater(e);
+        }
+
     }
 
 }
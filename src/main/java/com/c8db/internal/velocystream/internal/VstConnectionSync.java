@@ -16,7 +16,6 @@
 
 package com.c8db.internal.velocystream.internal;
 
-import java.util.Collection;
 import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
@@ -38,6 +37,7 @@ public class VstConnectionSync extends VstConnection {
         private MessageStore messageStore;
         private Integer timeout;
         private Long ttl;
+        private Long keepAlive;
         private Boolean useSsl;
         private SSLContext sslContext;
         private Service service;
@@ -72,22 +72,35 @@ public class VstConnectionSync extends VstConnection {
             return this;
         }
 
+        public Builder keepAlive(final Long keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
         public Builder service(final Service service) {
             this.service = service;
             return this;
         }
 
         public VstConnectionSync build() {
-            return new VstConnectionSync(host, timeout, ttl, useSsl, sslContext, messageStore, service);
+            return new VstConnectionSync(host, timeout, ttl, keepAlive, useSsl, sslContext, messageStore, service);
         }
     }
 
-    private VstConnectionSync(final HostDescription host, final Integer timeout, final Long ttl, final Boolean useSsl,
-            final SSLContext sslContext, final MessageStore messageStore, final Service service) {
-        super(host, timeout, ttl, useSsl, sslContext, messageStore, service);
+    private VstConnectionSync(final HostDescription host, final Integer timeout, final Long ttl, final Long keepAlive,
+            final Boolean useSsl, final SSLContext sslContext, final MessageStore messageStore,
+            final Service service) {
+        super(host, timeout, ttl, keepAlive, useSsl, sslContext, messageStore, service);
     }
 
-    public Message write(final Message message, final Collection<Chunk> chunks) throws C8DBException {
+    public Message write(final Message message, final int chunksize) throws C8DBException {
+        return write(message, chunksize, chunksize);
+    }
+
+    /**
+     * @param maxChunksize largest chunk size if the message is the only one waiting for the connection
+     */
+    public Message write(final Message message, final int chunksize, final int maxChunksize) throws C8DBException {
         final FutureTask<Message> task = new FutureTask<Message>(new Callable<Message>() {
             @Override
             public Message call() throws Exception {
@@ -95,10 +108,17 @@ public class VstConnectionSync extends VstConnection {
             }
         });
         messageStore.storeMessage(message.getId(), task);
-        super.writeIntern(message, chunks);
+        try {
+            super.writeIntern(message, chunksize, maxChunksize);
+        } catch (final C8DBException e) {
+            messageStore.remove(message.getId());
+            throw e;
+        }
         try {
             return timeout == null || timeout == 0L ? task.get() : task.get(timeout, TimeUnit.MILLISECONDS);
         } catch (final Exception e) {
+            // otherwise the connection never counts as idle again and cannot drain
+            messageStore.remove(message.getId());
             throw new C8DBException(e);
         }
     }
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.velocystream.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A selector thread that serves the I/O of many VelocyStream connections. The driver starts at most {@link #THREADS}
+ * of them, shared by all connections, which are spread over them round robin. Each thread reads into a single direct
+ * buffer that it reuses for all of its connections, the connections copy the bytes out of it into their messages.
+ * <p>
+ * Connections write from their own threads and only leave the rest of a write to the loop if the socket does not
+ * take it at once. Once a {@link #TICK} the loop lets every connection check its time to live and whether it needs a
+ * keepalive.
+ * </p>
+ */
+public class VstEventLoop implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VstEventLoop.class);
+
+    static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+    static final long TICK = 1000L;
+    private static final int MAX_READS = 16;
+    private static final VstEventLoop[] LOOPS = new VstEventLoop[THREADS];
+    private static int next;
+
+    /**
+     * Called on the thread of the loop once a {@link #TICK}.
+     */
+    interface Timer {
+
+        /**
+         * @param now the current {@link System#nanoTime()}
+         */
+        void tick(long now);
+
+    }
+
+    /**
+     * The part of a connection the loop calls back into. All methods are called on the thread of the loop.
+     */
+    interface Handler extends Timer {
+
+        /**
+         * @param buffer bytes read from the channel, only valid until the method returns
+         */
+        void read(ByteBuffer buffer) throws IOException;
+
+        void write() throws IOException;
+
+        void fail(Exception e);
+
+    }
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks;
+    private final ByteBuffer readBuffer;
+
+    private VstEventLoop(final int index) throws IOException {
+        super();
+        selector = Selector.open();
+        tasks = new ConcurrentLinkedQueue<Runnable>();
+        readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        final Thread thread = new Thread(this, "c8db-vst-io-" + index);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the loop to serve the next connection
+     */
+    static synchronized VstEventLoop next() throws IOException {
+        final int index = next;
+        next = (next + 1) % THREADS;
+        if (LOOPS[index] == null) {
+            LOOPS[index] = new VstEventLoop(index);
+        }
+        return LOOPS[index];
+    }
+
+    /**
+     * Starts to read from the channel, which has to be connected and non-blocking.
+     */
+    void register(final SocketChannel channel, final Handler handler) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    channel.register(selector, SelectionKey.OP_READ, handler);
+                } catch (final IOException | CancelledKeyException e) {
+                    handler.fail(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Lets the loop call {@link Handler#write()} once the channel takes more bytes, until the handler stops it with
+     * {@link #writeDone(SocketChannel)}.
+     */
+    void writePending(final SocketChannel channel) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                final SelectionKey key = channel.keyFor(selector);
+                if (key != null && key.isValid()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+            }
+        });
+    }
+
+    /**
+     * Has to be called on the thread of the loop.
+     */
+    void writeDone(final SocketChannel channel) {
+        final SelectionKey key = channel.keyFor(selector);
+        if (key != null && key.isValid()) {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Runs the task on the thread of the loop.
+     */
+    void execute(final Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        long lastTick = System.nanoTime();
+        while (selector.isOpen()) {
+            try {
+                for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+                    task.run();
+                }
+                selector.select(TICK);
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    process(key);
+                }
+                final long now = System.nanoTime();
+                if (now - lastTick >= TimeUnit.MILLISECONDS.toNanos(TICK)) {
+                    lastTick = now;
+                    for (final SelectionKey key : selector.keys()) {
+                        if (key.isValid()) {
+                            ((Handler) key.attachment()).tick(now);
+                        }
+                    }
+                }
+            } catch (final Exception e) {
+                LOGGER.error("Error in the VelocyStream event loop", e);
+            }
+        }
+    }
+
+    private void process(final SelectionKey key) {
+        final Handler handler = (Handler) key.attachment();
+        try {
+            if (key.isValid() && key.isReadable()) {
+                read((SocketChannel) key.channel(), handler);
+            }
+            if (key.isValid() && key.isWritable()) {
+                handler.write();
+            }
+        } catch (final IOException | RuntimeException e) {
+            key.cancel();
+            handler.fail(e);
+        }
+    }
+
+    private void read(final SocketChannel channel, final Handler handler) throws IOException {
+        for (int i = 0; i < MAX_READS; i++) {
+            readBuffer.clear();
+            final int read = channel.read(readBuffer);
+            if (read == -1) {
+                throw new IOException("Reached the end of the stream.");
+            }
+            if (read == 0) {
+                return;
+            }
+            readBuffer.flip();
+            handler.read(readBuffer);
+        }
+    }
+
+}
@@ -37,9 +37,16 @@ public class VPackMapper extends ObjectMapper {
 
     public VPackMapper() {
         super(new VPackFactory());
-        configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
-        configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+        setup(this);
+    }
+
+    /**
+     * Applies the settings and (de)serializers of the driver to a mapper of any data format.
+     */
+    public static <M extends ObjectMapper> M setup(final M mapper) {
+        mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
         final SimpleModule module = new SimpleModule();
         module.addSerializer(VPackSlice.class, VPackSerializers.VPACK);
         module.addSerializer(java.util.Date.class, VPackSerializers.UTIL_DATE);
@@ -54,7 +61,8 @@ public class VPackMapper extends ObjectMapper {
         module.addDeserializer(java.sql.Timestamp.class, VPackDeserializers.SQL_TIMESTAMP);
         module.addDeserializer(BaseDocument.class, VPackDeserializers.BASE_DOCUMENT);
         module.addDeserializer(BaseEdgeDocument.class, VPackDeserializers.BASE_EDGE_DOCUMENT);
-        registerModule(module);
+        mapper.registerModule(module);
+        return mapper;
     }
 
 }
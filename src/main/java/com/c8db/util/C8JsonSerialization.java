@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.util;
+
+import java.lang.reflect.Type;
+
+import com.c8db.C8DBException;
+
+/**
+ * Optional extension of {@link C8Serialization} that maps between objects and JSON without going through
+ * VelocyPack. It is used for documents when the driver is built with {@code directJson(true)} and a JSON protocol.
+ */
+public interface C8JsonSerialization extends C8Serialization {
+
+    /**
+     * Serialize a given Object to UTF-8 encoded JSON
+     * 
+     * @param entity  The Object to serialize. If it is from type String, it will be
+     *                handled as a JSON.
+     * @param options Additional options
+     * @return the serialized JSON
+     * @throws C8DBException
+     */
+    byte[] serializeJson(final Object entity, final C8Serializer.Options options) throws C8DBException;
+
+    /**
+     * Deserialize UTF-8 encoded JSON to an instance of a given type
+     * 
+     * @param json The JSON to deserialize
+     * @param type The target type to deserialize to. Use String for raw JSON.
+     * @return The deserialized JSON
+     * @throws C8DBException
+     */
+    <T> T deserializeJson(final byte[] json, final Type type) throws C8DBException;
+
+}
@@ -16,7 +16,12 @@
 
 package com.c8db.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Map;
 
@@ -122,4 +127,25 @@ public interface C8Serializer {
      */
     VPackSlice serialize(final Object entity, final Options options) throws C8DBException;
 
+    /**
+     * Serialize a JSON stream to VelocyPack. The default implementation reads the whole stream into a String and
+     * passes it to {@link #serialize(Object, Options)}.
+     * 
+     * @param json    UTF-8 encoded JSON, closed after reading
+     * @param options Additional options
+     * @return the serialized VelocyPack or {@code null} if the stream is empty
+     * @throws C8DBException
+     * @throws IOException   if the stream could not be read
+     */
+    default VPackSlice serialize(final InputStream json, final Options options) throws C8DBException, IOException {
+        final StringBuilder content = new StringBuilder();
+        try (final Reader reader = new InputStreamReader(json, StandardCharsets.UTF_8)) {
+            final char[] buffer = new char[8192];
+            for (int read = reader.read(buffer); read != -1; read = reader.read(buffer)) {
+                content.append(buffer, 0, read);
+            }
+        }
+        return content.length() == 0 ? null : serialize(content.toString(), options);
+    }
+
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.util;
+
+import com.c8db.RetryPolicy;
+import com.c8db.internal.C8Defaults;
+import com.c8db.internal.net.C8DBPoolExhaustedException;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.RequestType;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Default {@link RetryPolicy}. Delays grow with decorrelated jitter, each one is picked at random between the base
+ * delay and three times the previous one, so that clients which failed at the same time do not come back at the same
+ * time. Retries stop once the next attempt would start after the retry timeout, or when the shared
+ * {@link RetryBudget} is exhausted.
+ *
+ * <p>
+ * Requests that have not reached the server (connect errors, {@code 503}, {@code 429}) are retried regardless of
+ * their method. Requests that might have been processed (no response, {@code 500}, {@code 502}, {@code 504}) are only
+ * retried if they are idempotent, see {@link #isIdempotent(Request)}. Requests created with retries disabled are never retried, nor are requests the
+ * connection pool rejected: retrying them would only add load to a pool that is busy already.
+ * </p>
+ */
+public class JitteredRetryPolicy implements RetryPolicy {
+
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+    private static final int SC_INTERNAL_SERVER_ERROR = 500;
+    private static final int SC_BAD_GATEWAY = 502;
+    private static final int SC_SERVICE_UNAVAILABLE = 503;
+    private static final int SC_GATEWAY_TIMEOUT = 504;
+    private static final String PATH_CURSOR = "/_api/cursor/";
+
+    private final long baseDelay;
+    private final long maxDelay;
+    private final long retryTimeout;
+    private final RetryBudget budget;
+
+    /**
+     * @param retryTimeout time in milliseconds after the first attempt in which retries are started, the delay between
+     *                     two attempts is at most half of it (default: {@link C8Defaults#DEFAULT_RETRY_TIMEOUT})
+     */
+    public JitteredRetryPolicy(final Integer retryTimeout) {
+        this(C8Defaults.DEFAULT_RETRY_BASE_DELAY,
+                (retryTimeout != null ? retryTimeout : C8Defaults.DEFAULT_RETRY_TIMEOUT) / 2,
+                retryTimeout != null ? retryTimeout : C8Defaults.DEFAULT_RETRY_TIMEOUT,
+                new RetryBudget(C8Defaults.DEFAULT_RETRY_BUDGET_WINDOW, C8Defaults.DEFAULT_RETRY_BUDGET_RATIO,
+                        C8Defaults.DEFAULT_RETRY_BUDGET_MIN_RETRIES));
+    }
+
+    /**
+     * @param baseDelay    the shortest delay in milliseconds
+     * @param maxDelay     the longest delay in milliseconds
+     * @param retryTimeout time in milliseconds after the first attempt in which retries are started
+     * @param budget       the retry budget shared by all requests
+     */
+    public JitteredRetryPolicy(final long baseDelay, final long maxDelay, final long retryTimeout,
+            final RetryBudget budget) {
+        super();
+        this.baseDelay = Math.max(1L, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+        this.retryTimeout = retryTimeout;
+        this.budget = budget;
+    }
+
+    @Override
+    public Attempts start(final Request request) {
+        budget.onRequest();
+        return new JitteredAttempts(request);
+    }
+
+    /**
+     * @return whether the failure of an attempt can be retried
+     */
+    protected boolean isRetryable(final Request request, final Integer responseCode, final Throwable cause) {
+        if (cause instanceof C8DBPoolExhaustedException) {
+            return false;
+        }
+        if (responseCode != null) {
+            switch (responseCode) {
+                case SC_TOO_MANY_REQUESTS:
+                case SC_SERVICE_UNAVAILABLE:
+                    return true;
+                case SC_INTERNAL_SERVER_ERROR:
+                case SC_BAD_GATEWAY:
+                case SC_GATEWAY_TIMEOUT:
+                    return isIdempotent(request);
+                default:
+                    return false;
+            }
+        }
+        if (isNotSent(cause)) {
+            return true;
+        }
+        return (cause instanceof NoHttpResponseException || cause instanceof SocketException)
+                && isIdempotent(request);
+    }
+
+    /**
+     * @return whether the next attempt should be sent to another host
+     */
+    protected boolean isFailover(final Integer responseCode, final Throwable cause) {
+        if (responseCode != null) {
+            return responseCode == SC_BAD_GATEWAY || responseCode == SC_SERVICE_UNAVAILABLE
+                    || responseCode == SC_GATEWAY_TIMEOUT;
+        }
+        return isNotSent(cause) || cause instanceof NoHttpResponseException || cause instanceof SocketException;
+    }
+
+    private static boolean isNotSent(final Throwable cause) {
+        return cause instanceof UnknownHostException || cause instanceof ConnectException
+                || cause instanceof ConnectTimeoutException;
+    }
+
+    /**
+     * @return whether sending the request twice has the same effect as sending it once. Unlike other {@code PUT}
+     *         requests, {@code PUT /_api/cursor/<id>} is not: it reads the next batch of a cursor, so sending it again
+     *         skips a batch.
+     */
+    public static boolean isIdempotent(final Request request) {
+        if (request.getRequestType() == RequestType.PUT && request.getRequest() != null
+                && request.getRequest().startsWith(PATH_CURSOR)) {
+            return false;
+        }
+        return isIdempotent(request.getRequestType());
+    }
+
+    public static boolean isIdempotent(final RequestType requestType) {
+        switch (requestType) {
+            case GET:
+            case HEAD:
+            case OPTIONS:
+            case PUT:
+            case DELETE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private final class JitteredAttempts implements Attempts {
+
+        private final Request request;
+        private final long deadline;
+        private long delay;
+        private long retryAt;
+
+        private JitteredAttempts(final Request request) {
+            this.request = request;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryTimeout);
+            this.delay = baseDelay;
+            this.retryAt = System.nanoTime();
+        }
+
+        @Override
+        public long nextDelay(final Integer responseCode, final Throwable cause) {
+            if (!request.isRetryEnabled() || !isRetryable(request, responseCode, cause)) {
+                return -1L;
+            }
+            final long next = Math.min(maxDelay,
+                    ThreadLocalRandom.current().nextLong(baseDelay, Math.max(baseDelay, delay * 3) + 1));
+            // the previous delay might not have passed yet if the attempt failed fast
+            final long at = Math.max(System.nanoTime(), retryAt) + TimeUnit.MILLISECONDS.toNanos(next);
+            if (at - deadline > 0 || !budget.tryAcquire()) {
+                return -1L;
+            }
+            delay = next;
+            retryAt = at;
+            return next;
+        }
+
+        @Override
+        public boolean failover(final Integer responseCode, final Throwable cause) {
+            return isFailover(responseCode, cause);
+        }
+    }
+
+}
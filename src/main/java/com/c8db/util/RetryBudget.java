@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Limits retries to a ratio of the requests sent within a sliding time window, so that an outage does not multiply
+ * the load on the servers that are still up. A minimum number of retries per window is always allowed, so that a
+ * client with little traffic can still retry.
+ *
+ * <p>
+ * The window is split into buckets that are updated without locking. Concurrent retries may exceed the budget by a
+ * few, which is fine for its purpose.
+ * </p>
+ */
+public class RetryBudget {
+
+    private static final int BUCKETS = 10;
+
+    private final long bucketNanos;
+    private final double ratio;
+    private final int minRetries;
+    private final AtomicLongArray epochs;
+    private final AtomicLongArray requests;
+    private final AtomicLongArray retries;
+
+    /**
+     * @param window     length of the window in milliseconds
+     * @param ratio      retries allowed per request sent within the window
+     * @param minRetries retries allowed within the window regardless of the number of requests
+     */
+    public RetryBudget(final long window, final double ratio, final int minRetries) {
+        super();
+        this.bucketNanos = Math.max(1L, TimeUnit.MILLISECONDS.toNanos(window) / BUCKETS);
+        this.ratio = ratio;
+        this.minRetries = minRetries;
+        epochs = new AtomicLongArray(BUCKETS);
+        requests = new AtomicLongArray(BUCKETS);
+        retries = new AtomicLongArray(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            epochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Records a request that is sent for the first time.
+     */
+    public void onRequest() {
+        final long epoch = epoch();
+        requests.incrementAndGet(bucket(epoch));
+    }
+
+    /**
+     * Takes a retry from the budget.
+     *
+     * @return {@code false} if the budget is exhausted and the request should not be retried
+     */
+    public boolean tryAcquire() {
+        final long epoch = epoch();
+        final int bucket = bucket(epoch);
+        long sentRequests = 0;
+        long sentRetries = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (epochs.get(i) > epoch - BUCKETS) {
+                sentRequests += requests.get(i);
+                sentRetries += retries.get(i);
+            }
+        }
+        if (sentRetries >= minRetries + ratio * sentRequests) {
+            return false;
+        }
+        retries.incrementAndGet(bucket);
+        return true;
+    }
+
+    private long epoch() {
+        return Math.floorDiv(System.nanoTime(), bucketNanos);
+    }
+
+    private int bucket(final long epoch) {
+        final int index = (int) Math.floorMod(epoch, (long) BUCKETS);
+        final long stamp = epochs.get(index);
+        if (stamp != epoch && epochs.compareAndSet(index, stamp, epoch)) {
+            // the bucket is reused for a new period
+            requests.set(index, 0L);
+            retries.set(index, 0L);
+        }
+        return index;
+    }
+
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.velocystream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * UTF-8 encoded JSON that is sent as it is by the HTTP JSON protocols.
+ */
+@Data
+@AllArgsConstructor
+public class RawJsonRequestBody implements RequestBody {
+
+    private byte[] value;
+
+}
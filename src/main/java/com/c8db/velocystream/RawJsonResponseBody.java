@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.velocystream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import com.arangodb.velocypack.VPackSlice;
+import com.c8db.C8DBException;
+import com.c8db.internal.util.JsonStreamParser;
+
+/**
+ * UTF-8 encoded JSON as received from the server. It is only converted to VelocyPack if a deserializer asks for it.
+ */
+public class RawJsonResponseBody implements ResponseBody {
+
+    private final byte[] value;
+    private VPackSlice vpack;
+
+    public RawJsonResponseBody(final byte[] value) {
+        super();
+        this.value = value;
+    }
+
+    public byte[] getValue() {
+        return value;
+    }
+
+    public synchronized VPackSlice getVPack() {
+        if (vpack == null) {
+            try {
+                vpack = JsonStreamParser.parse(new ByteArrayInputStream(value), true);
+            } catch (final IOException e) {
+                throw new C8DBException(e);
+            }
+        }
+        return vpack;
+    }
+
+}
@@ -41,6 +41,7 @@ public class Request {
     private final Map<String, String> headerParam;
     @Expose(serialize = false)
     private RequestBody body;
+    private RequestPriority priority = RequestPriority.INTERACTIVE;
 
     public Request(final String dbTenant, final String pathTenant, final String pathDatabase,
                    final RequestType requestType,
@@ -136,6 +137,15 @@ public class Request {
         return this;
     }
 
+    public RequestPriority getPriority() {
+        return priority;
+    }
+
+    public Request setPriority(final RequestPriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
     public RequestBody getBody() {
         return body;
     }
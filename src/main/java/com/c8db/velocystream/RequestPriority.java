@@ -0,0 +1,16 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.velocystream;
+
+/**
+ * Lane of a request in the connection pool of a host. Bulk requests may only use a part of the connections, so that
+ * interactive requests always find one.
+ */
+public enum RequestPriority {
+
+    INTERACTIVE,
+    BULK
+
+}
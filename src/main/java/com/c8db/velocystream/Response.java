@@ -77,6 +77,20 @@ public class Response {
         if (body instanceof JsonResponseBody){
             return ((JsonResponseBody) body).getValue();
         }
+        if (body instanceof RawJsonResponseBody) {
+            return ((RawJsonResponseBody) body).getVPack();
+        }
+        return null;
+    }
+
+    /**
+     * @return the JSON body as received from the server or {@code null} if the body has already been converted to
+     *         VelocyPack
+     */
+    public byte[] getRawJson() {
+        if (body instanceof RawJsonResponseBody) {
+            return ((RawJsonResponseBody) body).getValue();
+        }
         return null;
     }
 
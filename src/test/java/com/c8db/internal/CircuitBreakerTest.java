@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal;
+
+import com.c8db.internal.net.CircuitBreaker;
+import com.c8db.internal.net.CircuitBreakerConfig;
+import com.c8db.internal.net.HostDescription;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CircuitBreakerTest {
+
+    private static final HostDescription HOST = new HostDescription("127.0.0.1", 8529);
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    @Test
+    public void ejectAboveFailureRate() {
+        final CircuitBreaker breaker = breaker(new CircuitBreakerConfig.Builder());
+        for (int i = 0; i < 10; i++) {
+            record(breaker, i % 3 == 0);
+        }
+        assertThat(breaker.isOpen(), is(false));
+        for (int i = 0; i < 10; i++) {
+            record(breaker, true);
+        }
+        assertThat(breaker.isOpen(), is(true));
+        assertThat(breaker.allowRequest(), is(false));
+    }
+
+    @Test
+    public void notBelowMinimumCalls() {
+        final CircuitBreaker breaker = breaker(new CircuitBreakerConfig.Builder());
+        for (int i = 0; i < 9; i++) {
+            record(breaker, true);
+        }
+        assertThat(breaker.isOpen(), is(false));
+    }
+
+    @Test
+    public void probeAfterEjection() throws Exception {
+        final CircuitBreaker breaker = tripped(new CircuitBreakerConfig.Builder());
+        Thread.sleep(60L);
+        assertThat(breaker.allowRequest(), is(true));
+        // one probe at a time
+        assertThat(breaker.allowRequest(), is(false));
+        record(breaker, false);
+        assertThat(breaker.isOpen(), is(false));
+        assertThat(breaker.allowRequest(), is(true));
+    }
+
+    @Test
+    public void failedProbeDoublesEjection() throws Exception {
+        final CircuitBreaker breaker = tripped(new CircuitBreakerConfig.Builder());
+        Thread.sleep(60L);
+        assertThat(breaker.allowRequest(), is(true));
+        record(breaker, true);
+        assertThat(breaker.isOpen(), is(true));
+        Thread.sleep(60L);
+        assertThat(breaker.allowRequest(), is(false));
+        Thread.sleep(60L);
+        assertThat(breaker.allowRequest(), is(true));
+    }
+
+    @Test
+    public void ignoreRequestsSentBeforeEjection() {
+        final long start = System.nanoTime();
+        final CircuitBreaker breaker = tripped(new CircuitBreakerConfig.Builder());
+        breaker.record(start, System.nanoTime() - start, false);
+        assertThat(breaker.isOpen(), is(true));
+    }
+
+    @Test
+    public void countSlowCalls() {
+        final CircuitBreaker breaker = breaker(new CircuitBreakerConfig.Builder().slowCallDuration(100L));
+        for (int i = 0; i < 10; i++) {
+            breaker.record(System.nanoTime() - 200L * MS, 200L * MS, false);
+        }
+        assertThat(breaker.isOpen(), is(true));
+    }
+
+    @Test
+    public void disabled() {
+        final CircuitBreaker breaker = breaker(new CircuitBreakerConfig.Builder().enabled(false));
+        for (int i = 0; i < 20; i++) {
+            record(breaker, true);
+        }
+        assertThat(breaker.isOpen(), is(false));
+        assertThat(breaker.allowRequest(), is(true));
+    }
+
+    private static CircuitBreaker breaker(final CircuitBreakerConfig.Builder config) {
+        return new CircuitBreaker(HOST, config.minimumCalls(10).failureRate(0.5).ejectionTime(50L).build());
+    }
+
+    private static CircuitBreaker tripped(final CircuitBreakerConfig.Builder config) {
+        final CircuitBreaker breaker = breaker(config);
+        for (int i = 0; i < 10; i++) {
+            record(breaker, true);
+        }
+        assertThat(breaker.isOpen(), is(true));
+        return breaker;
+    }
+
+    private static void record(final CircuitBreaker breaker, final boolean failed) {
+        final long start = System.nanoTime();
+        breaker.record(start, MS, failed);
+    }
+
+}
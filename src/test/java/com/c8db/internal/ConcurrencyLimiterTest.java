@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal;
+
+import com.c8db.C8DBException;
+import com.c8db.Service;
+import com.c8db.internal.net.ConcurrencyLimiter;
+import com.c8db.internal.net.HostDescription;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ConcurrencyLimiterTest {
+
+    private static final HostDescription HOST = new HostDescription("127.0.0.1", 8529);
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private ConcurrencyLimiter limiter;
+
+    @After
+    public void teardown() {
+        limiter.close();
+    }
+
+    @Test
+    public void growWhileResponseTimesStayLow() {
+        limiter = new ConcurrencyLimiter(HOST, Service.C8DB, 4, 10, 100L, 0);
+        for (int i = 0; i < 20; i++) {
+            roundTrip(limiter.getLimit(), MS);
+        }
+        assertThat(limiter.getLimit(), is(10));
+    }
+
+    @Test
+    public void notGrowWhileMostlyUnused() {
+        limiter = new ConcurrencyLimiter(HOST, Service.C8DB, 4, 10, 100L, 0);
+        for (int i = 0; i < 20; i++) {
+            roundTrip(1, MS);
+        }
+        assertThat(limiter.getLimit(), is(4));
+    }
+
+    @Test
+    public void shrinkWhenResponseTimesRise() {
+        limiter = new ConcurrencyLimiter(HOST, Service.C8DB, 10, 10, 100L, 0);
+        roundTrip(1, MS);
+        // most of the requests queue up at the host, until the limit is down to where only a few do
+        roundTrip(10, 10 * MS);
+        assertThat(limiter.getLimit(), is(5));
+    }
+
+    @Test
+    public void backOffOnFailure() {
+        limiter = new ConcurrencyLimiter(HOST, Service.C8DB, 10, 10, 100L, 0);
+        limiter.acquire(false);
+        limiter.release(MS, true);
+        assertThat(limiter.getLimit(), is(9));
+    }
+
+    @Test
+    public void rejectAboveLimit() {
+        limiter = new ConcurrencyLimiter(HOST, Service.C8DB, 1, 1, 50L, 0);
+        limiter.acquire(false);
+        try {
+            limiter.acquire(false);
+            fail();
+        } catch (final C8DBException e) {
+            assertThat(e.getResponseCode(), is(503));
+        }
+        final long start = System.currentTimeMillis();
+        try {
+            limiter.acquire(true);
+            fail();
+        } catch (final C8DBException e) {
+            assertThat(e.getResponseCode(), is(503));
+            assertThat(System.currentTimeMillis() - start, greaterThanOrEqualTo(50L));
+        }
+        assertThat(limiter.getRejected(), is(2L));
+    }
+
+    @Test
+    public void waitForRelease() throws Exception {
+        limiter = new ConcurrencyLimiter(HOST, Service.C8DB, 1, 1, 5000L, 0);
+        limiter.acquire(false);
+        final Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50L);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                limiter.release(MS, false);
+            }
+        });
+        releaser.start();
+        final long start = System.currentTimeMillis();
+        limiter.acquire(true);
+        assertThat(System.currentTimeMillis() - start, lessThan(5000L));
+        assertThat(limiter.getInFlight(), is(1));
+        releaser.join();
+    }
+
+    @Test
+    public void publishLimit() throws Exception {
+        limiter = new ConcurrencyLimiter(HOST, Service.C8DB, 5, 10, 100L, 0);
+        final ObjectName pattern = new ObjectName("com.c8db:type=ConcurrencyLimiter,service=C8DB,*");
+        final int registered = ManagementFactory.getPlatformMBeanServer().queryNames(pattern, null).size();
+        assertThat(registered, greaterThanOrEqualTo(1));
+        limiter.close();
+        assertThat(ManagementFactory.getPlatformMBeanServer().queryNames(pattern, null).size(), is(registered - 1));
+    }
+
+    private void roundTrip(final int concurrency, final long elapsed) {
+        for (int i = 0; i < concurrency; i++) {
+            limiter.acquire(false);
+        }
+        for (int i = 0; i < concurrency; i++) {
+            limiter.release(elapsed, false);
+        }
+    }
+
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal;
+
+import com.c8db.C8DBException;
+import com.c8db.Service;
+import com.c8db.internal.net.C8DBPoolExhaustedException;
+import com.c8db.internal.net.Connection;
+import com.c8db.internal.net.ConnectionFactory;
+import com.c8db.internal.net.ConnectionPoolConfig;
+import com.c8db.internal.net.ConnectionPoolImpl;
+import com.c8db.internal.net.HostDescription;
+import com.c8db.internal.net.ManagedConnection;
+import com.c8db.velocystream.RequestPriority;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ConnectionPoolImplTest {
+
+    private static final HostDescription HOST = new HostDescription("127.0.0.1", 8529);
+
+    @Test
+    public void reuseLastConnection() throws Exception {
+        final CountingFactory factory = new CountingFactory();
+        final ConnectionPoolImpl pool = pool(2, 1000, factory);
+        final ManagedConnection<Connection> first = pool.connection();
+        final ManagedConnection<Connection> second = pool.connection();
+        assertThat(factory.created.get(), is(2));
+        second.close();
+        first.close();
+        try (ManagedConnection<Connection> again = pool.connection()) {
+            assertThat(again.connection(), sameInstance(first.connection()));
+        }
+        assertThat(factory.created.get(), is(2));
+        pool.close();
+    }
+
+    @Test
+    public void acquireTimeout() throws Exception {
+        final ConnectionPoolImpl pool = pool(1, 100, new CountingFactory());
+        final ManagedConnection<Connection> used = pool.connection();
+        final long start = System.currentTimeMillis();
+        try {
+            pool.connection();
+            fail();
+        } catch (final C8DBException e) {
+            assertThat(e, instanceOf(C8DBPoolExhaustedException.class));
+            assertThat(e.getResponseCode(), is(503));
+            assertThat(System.currentTimeMillis() - start, greaterThanOrEqualTo(100L));
+        }
+        used.close();
+        pool.connection().close();
+    }
+
+    @Test
+    public void releasePermitIfCreateFails() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final ConnectionPoolImpl pool = pool(1, 100, new ConnectionFactory() {
+            @Override
+            public Connection create(final HostDescription host, final Service service) {
+                if (calls.incrementAndGet() == 1) {
+                    throw new C8DBException("connect failed");
+                }
+                return new TestConnection();
+            }
+        });
+        try {
+            pool.connection();
+            fail();
+        } catch (final C8DBException e) {
+            assertThat(e.getMessage(), is("connect failed"));
+        }
+        pool.connection().close();
+    }
+
+    @Test
+    public void boundedUnderContention() throws Exception {
+        final CountingFactory factory = new CountingFactory();
+        final ConnectionPoolImpl pool = pool(4, 0, factory);
+        final Set<Connection> inUse = Collections.newSetFromMap(new ConcurrentHashMap<Connection, Boolean>());
+        final AtomicInteger maxInUse = new AtomicInteger();
+        final ExecutorService threads = Executors.newFixedThreadPool(32);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(threads.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int j = 0; j < 200; j++) {
+                            try (ManagedConnection<Connection> managed = pool.connection()) {
+                                assertThat(inUse.add(managed.connection()), is(true));
+                                maxInUse.accumulateAndGet(inUse.size(), Math::max);
+                                inUse.remove(managed.connection());
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (final Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertThat(maxInUse.get(), lessThanOrEqualTo(4));
+        assertThat(factory.created.get(), lessThanOrEqualTo(4));
+        pool.close();
+    }
+
+    @Test
+    public void warmUpOpensMinIdle() throws Exception {
+        final CountingFactory factory = new CountingFactory();
+        final ConnectionPoolImpl pool = new ConnectionPoolImpl(HOST, new ConnectionPoolConfig.Builder()
+                .maxConnections(4).minIdle(3).validationInterval(60000L).build(), factory, Service.C8DB);
+        pool.warmUp();
+        assertThat(factory.created.get(), is(3));
+        assertThat(factory.opened.get(), is(3));
+        pool.connection().close();
+        assertThat(factory.created.get(), is(3));
+        pool.close();
+    }
+
+    @Test
+    public void discardInvalidConnection() throws Exception {
+        final CountingFactory factory = new CountingFactory();
+        final ConnectionPoolImpl pool = pool(2, 1000, factory);
+        final ManagedConnection<Connection> first = pool.connection();
+        ((TestConnection) first.connection()).valid = false;
+        first.close();
+        assertThat(((TestConnection) first.connection()).closed, is(true));
+        try (ManagedConnection<Connection> again = pool.connection()) {
+            assertThat(again.connection(), not(sameInstance(first.connection())));
+        }
+        pool.close();
+    }
+
+    @Test
+    public void validateIdleConnectionsInBackground() throws Exception {
+        final CountingFactory factory = new CountingFactory();
+        final ConnectionPoolImpl pool = new ConnectionPoolImpl(HOST, new ConnectionPoolConfig.Builder()
+                .maxConnections(2).minIdle(1).validationInterval(10L).build(), factory, Service.C8DB);
+        pool.warmUp();
+        final ManagedConnection<Connection> first = pool.connection();
+        final TestConnection connection = (TestConnection) first.connection();
+        final int validated = connection.validated.get();
+        connection.healthy = false;
+        first.close();
+        // neither handing out nor taking back validates
+        assertThat(connection.validated.get(), is(validated));
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (!connection.closed && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(connection.closed, is(true));
+        pool.close();
+    }
+
+    @Test
+    public void evictExpiredConnections() throws Exception {
+        final CountingFactory factory = new CountingFactory();
+        final ConnectionPoolImpl pool = new ConnectionPoolImpl(HOST, new ConnectionPoolConfig.Builder()
+                .maxConnections(2).minIdle(1).maxLifetime(50L).validationInterval(10L).build(), factory,
+                Service.C8DB);
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (factory.created.get() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        // the pre-warmed connection is replaced every time it expires
+        assertThat(factory.created.get(), greaterThanOrEqualTo(3));
+        assertThat(factory.closed.get(), greaterThanOrEqualTo(2));
+        pool.close();
+    }
+
+    @Test
+    public void maxConnectionsPerService() throws Exception {
+        final ConnectionPoolConfig config = new ConnectionPoolConfig.Builder().maxConnections(4)
+                .maxConnections(Service.C8STREAMS, 1).acquireTimeout(50).build();
+        final ConnectionPoolImpl streams = new ConnectionPoolImpl(HOST, config, new CountingFactory(),
+                Service.C8STREAMS);
+        final ManagedConnection<Connection> used = streams.connection();
+        try {
+            streams.connection();
+            fail();
+        } catch (final C8DBException e) {
+            assertThat(e.getResponseCode(), is(503));
+        }
+        used.close();
+        final ConnectionPoolImpl db = new ConnectionPoolImpl(HOST, config, new CountingFactory(), Service.C8DB);
+        final List<ManagedConnection<Connection>> connections = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            connections.add(db.connection());
+        }
+        for (final ManagedConnection<Connection> connection : connections) {
+            connection.close();
+        }
+        streams.close();
+        db.close();
+    }
+
+    @Test
+    public void bulkRequestsLeaveConnectionsForInteractive() throws Exception {
+        final ConnectionPoolImpl pool = new ConnectionPoolImpl(HOST, new ConnectionPoolConfig.Builder()
+                .maxConnections(4).bulkRatio(0.5).acquireTimeout(50).build(), new CountingFactory(), Service.C8DB);
+        final ManagedConnection<Connection> bulk1 = pool.connection(RequestPriority.BULK);
+        final ManagedConnection<Connection> bulk2 = pool.connection(RequestPriority.BULK);
+        try {
+            pool.connection(RequestPriority.BULK);
+            fail();
+        } catch (final C8DBException e) {
+            assertThat(e.getResponseCode(), is(503));
+        }
+        final ManagedConnection<Connection> interactive1 = pool.connection(RequestPriority.INTERACTIVE);
+        final ManagedConnection<Connection> interactive2 = pool.connection(RequestPriority.INTERACTIVE);
+        bulk1.close();
+        // the bulk permit is back once its connection is
+        pool.connection(RequestPriority.BULK).close();
+        bulk2.close();
+        interactive1.close();
+        interactive2.close();
+        pool.close();
+    }
+
+    @Test
+    public void rejectWhenQueueIsFull() throws Exception {
+        final ConnectionPoolImpl pool = new ConnectionPoolImpl(HOST, new ConnectionPoolConfig.Builder()
+                .maxConnections(1).maxQueue(1).acquireTimeout(5000).build(), new CountingFactory(), Service.C8DB);
+        final ManagedConnection<Connection> used = pool.connection();
+        final Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pool.connection().close();
+                } catch (final IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        waiter.start();
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (waiter.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1L);
+        }
+        final long start = System.currentTimeMillis();
+        try {
+            pool.connection();
+            fail();
+        } catch (final C8DBException e) {
+            assertThat(e, instanceOf(C8DBPoolExhaustedException.class));
+            assertThat(e.getResponseCode(), is(503));
+            assertThat(System.currentTimeMillis() - start, lessThanOrEqualTo(1000L));
+        }
+        used.close();
+        waiter.join(5000L);
+        assertThat(waiter.isAlive(), is(false));
+        pool.close();
+    }
+
+    @Test
+    public void shareConnectionsUpToMaxRequests() throws Exception {
+        final CountingFactory factory = new CountingFactory();
+        final ConnectionPoolImpl pool = new ConnectionPoolImpl(HOST, new ConnectionPoolConfig.Builder()
+                .maxConnections(2).maxRequestsPerConnection(3).acquireTimeout(50).build(), factory, Service.C8DB);
+        final List<ManagedConnection<Connection>> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(pool.connection());
+            assertThat(requests.get(i).connection(), sameInstance(requests.get(0).connection()));
+        }
+        // a second connection only once the first one is full
+        requests.add(pool.connection());
+        assertThat(factory.created.get(), is(2));
+        requests.add(pool.connection());
+        requests.add(pool.connection());
+        try {
+            pool.connection();
+            fail();
+        } catch (final C8DBException e) {
+            assertThat(e.getResponseCode(), is(503));
+        }
+        requests.remove(0).close();
+        // the freed slot is taken instead of an idle or new connection
+        try (ManagedConnection<Connection> again = pool.connection()) {
+            assertThat(again.connection(), sameInstance(requests.get(0).connection()));
+        }
+        for (final ManagedConnection<Connection> request : requests) {
+            request.close();
+        }
+        assertThat(factory.created.get(), is(2));
+        assertThat(factory.closed.get(), is(0));
+        pool.close();
+    }
+
+    @Test
+    public void shareConnectionsUnderContention() throws Exception {
+        final ConnectionPoolImpl pool = new ConnectionPoolImpl(HOST, new ConnectionPoolConfig.Builder()
+                .maxConnections(4).maxRequestsPerConnection(3).acquireTimeout(0).build(), new CountingFactory(),
+                Service.C8DB);
+        final ConcurrentHashMap<Connection, AtomicInteger> requests = new ConcurrentHashMap<>();
+        final AtomicInteger maxRequests = new AtomicInteger();
+        final ExecutorService threads = Executors.newFixedThreadPool(32);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(threads.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int j = 0; j < 200; j++) {
+                            try (ManagedConnection<Connection> managed = pool.connection()) {
+                                requests.putIfAbsent(managed.connection(), new AtomicInteger());
+                                final AtomicInteger count = requests.get(managed.connection());
+                                maxRequests.accumulateAndGet(count.incrementAndGet(), Math::max);
+                                count.decrementAndGet();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (final Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertThat(maxRequests.get(), lessThanOrEqualTo(3));
+        pool.close();
+    }
+
+    private static ConnectionPoolImpl pool(final int max, final int acquireTimeout, final ConnectionFactory factory) {
+        return new ConnectionPoolImpl(HOST, new ConnectionPoolConfig.Builder().maxConnections(max)
+                .acquireTimeout(acquireTimeout).fair(true).build(), factory, Service.C8DB);
+    }
+
+    private static class CountingFactory implements ConnectionFactory {
+
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger opened = new AtomicInteger();
+        private final AtomicInteger closed = new AtomicInteger();
+
+        @Override
+        public Connection create(final HostDescription host, final Service service) {
+            created.incrementAndGet();
+            return new TestConnection() {
+                @Override
+                public void open() {
+                    opened.incrementAndGet();
+                }
+
+                @Override
+                public void close() {
+                    super.close();
+                    closed.incrementAndGet();
+                }
+            };
+        }
+    }
+
+    private static class TestConnection implements Connection {
+
+        private volatile boolean valid = true;
+        private volatile boolean healthy = true;
+        private volatile boolean closed;
+        private final AtomicInteger validated = new AtomicInteger();
+
+        @Override
+        public boolean isValid() {
+            return valid;
+        }
+
+        @Override
+        public boolean validate() {
+            validated.incrementAndGet();
+            return valid && healthy;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+}
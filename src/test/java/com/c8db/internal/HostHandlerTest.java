@@ -21,18 +21,35 @@ package com.c8db.internal;
 
 import com.c8db.C8DBException;
 import com.c8db.Service;
+import com.c8db.internal.net.AccessType;
+import com.c8db.internal.net.DirtyReadHostHandler;
 import com.c8db.internal.net.FallbackHostHandler;
 import com.c8db.internal.net.Host;
 import com.c8db.internal.net.HostDescription;
 import com.c8db.internal.net.HostHandler;
+import com.c8db.internal.net.HostHandle;
 import com.c8db.internal.net.HostImpl;
 import com.c8db.internal.net.HostResolver;
 import com.c8db.internal.net.HostSet;
+import com.c8db.internal.net.LeastLoadedHostHandler;
+import com.c8db.internal.net.NearestRegionHostHandler;
 import com.c8db.internal.net.RandomHostHandler;
+import com.c8db.internal.net.RegionProber;
 import com.c8db.internal.net.RoundRobinHostHandler;
 import com.c8db.util.C8Serialization;
 import org.junit.Test;
 
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
@@ -150,4 +167,184 @@ public class HostHandlerTest {
         assertThat(pick4, is(pick0));
     }
 
+    @Test
+    public void roundRobinHostHandlerConcurrent() throws Exception {
+        final HostHandler handler = new RoundRobinHostHandler(MULTIPLE_HOSTS, Service.C8DB);
+        final Map<Host, AtomicInteger> picks = new ConcurrentHashMap<>();
+        final ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(threads.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int j = 0; j < 3000; j++) {
+                            picks.computeIfAbsent(handler.get(null, null), h -> new AtomicInteger())
+                                    .incrementAndGet();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+        for (final Host host : new Host[]{HOST_0, HOST_1, HOST_2}) {
+            assertThat(picks.get(host).get(), is(8000));
+        }
+    }
+
+    @Test
+    public void dirtyReadHostHandlerReportsToHandlerOfAccessType() throws Exception {
+        final HostHandler handler = new DirtyReadHostHandler(new FallbackHostHandler(MULTIPLE_HOSTS, Service.C8DB),
+                new FallbackHostHandler(MULTIPLE_HOSTS, Service.C8DB));
+        final HostHandler dirtyRead = handler.forAccessType(AccessType.DIRTY_READ);
+        assertThat(dirtyRead.get(null, AccessType.DIRTY_READ), is(HOST_0));
+        // the outcome may be reported by another thread than the one that got the host
+        final ExecutorService thread = Executors.newSingleThreadExecutor();
+        try {
+            thread.submit(new Runnable() {
+                @Override
+                public void run() {
+                    dirtyRead.fail();
+                }
+            }).get();
+        } finally {
+            thread.shutdown();
+        }
+        assertThat(handler.get(null, AccessType.DIRTY_READ), is(HOST_1));
+        assertThat(handler.get(null, AccessType.WRITE), is(HOST_0));
+    }
+
+    @Test
+    public void leastLoadedHostHandlerSingleHost() {
+        final HostHandler handler = new LeastLoadedHostHandler(SINGLE_HOST, Service.C8DB);
+        assertThat(handler.get(null, null), is(HOST_0));
+        handler.fail();
+        assertThat(handler.get(null, null), is(HOST_0));
+        handler.fail();
+        assertThat(handler.get(null, null), is((Host) null));
+        handler.reset();
+        assertThat(handler.get(null, null), is(HOST_0));
+    }
+
+    @Test
+    public void leastLoadedHostHandlerAvoidsBusyHost() {
+        final Host idle = new HostImpl(null, new HostDescription("127.0.0.4", 8529));
+        final Host busy = new HostImpl(null, new HostDescription("127.0.0.5", 8529));
+        final HostHandler handler = new LeastLoadedHostHandler(hosts(idle, busy), Service.C8DB);
+        busy.getLoad().start();
+        for (int i = 0; i < 20; i++) {
+            assertThat(handler.get(null, null), is(idle));
+        }
+    }
+
+    @Test
+    public void leastLoadedHostHandlerAvoidsFailingHost() {
+        final Host healthy = new HostImpl(null, new HostDescription("127.0.0.4", 8529));
+        final Host failing = new HostImpl(null, new HostDescription("127.0.0.5", 8529));
+        final HostHandler handler = new LeastLoadedHostHandler(hosts(healthy, failing), Service.C8DB);
+        healthy.getLoad().end(healthy.getLoad().start(), null);
+        failing.getLoad().end(failing.getLoad().start(), new C8DBException("unavailable", 503));
+        assertThat(failing.getLoad().getLatency() > healthy.getLoad().getLatency(), is(true));
+        for (int i = 0; i < 20; i++) {
+            assertThat(handler.get(null, null), is(healthy));
+        }
+        // a rejected request is not the host's fault
+        final Host other = new HostImpl(null, new HostDescription("127.0.0.6", 8529));
+        other.getLoad().end(other.getLoad().start(), new C8DBException("not found", 404));
+        assertThat(other.getLoad().getLatency() < failing.getLoad().getLatency(), is(true));
+    }
+
+    @Test
+    public void leastLoadedHostHandlerKeepsHostOfHandle() {
+        final HostHandler handler = new LeastLoadedHostHandler(MULTIPLE_HOSTS, Service.C8DB);
+        final HostHandle hostHandle = new HostHandle();
+        final Host pick = handler.get(hostHandle, null);
+        assertThat(hostHandle.getHost(), is(pick.getDescription()));
+        for (int i = 0; i < 10; i++) {
+            assertThat(handler.get(hostHandle, null), is(pick));
+        }
+    }
+
+    @Test
+    public void routeAroundEjectedHosts() {
+        final Host healthy = new HostImpl(null, new HostDescription("127.0.0.4", 8529));
+        final Host ejected = new HostImpl(null, new HostDescription("127.0.0.5", 8529));
+        eject(ejected);
+        final HostResolver resolver = hosts(ejected, healthy);
+        final HostHandler roundRobin = new RoundRobinHostHandler(resolver, Service.C8DB);
+        final HostHandler fallback = new FallbackHostHandler(resolver, Service.C8DB);
+        final HostHandler leastLoaded = new LeastLoadedHostHandler(resolver, Service.C8DB);
+        for (int i = 0; i < 10; i++) {
+            assertThat(roundRobin.get(null, null), is(healthy));
+            assertThat(fallback.get(null, null), is(healthy));
+            assertThat(leastLoaded.get(null, null), is(healthy));
+        }
+        // the last host is used even if it is ejected
+        eject(healthy);
+        assertThat(fallback.get(null, null), is(ejected));
+        assertThat(roundRobin.get(null, null), anyOf(is(healthy), is(ejected)));
+    }
+
+    @Test
+    public void nearestRegionHostHandler() throws Exception {
+        final int closedPort;
+        try (ServerSocket closed = new ServerSocket(0)) {
+            closedPort = closed.getLocalPort();
+        }
+        try (ServerSocket server = new ServerSocket(0)) {
+            final Host unreachable = new HostImpl(null, new HostDescription("127.0.0.1", closedPort));
+            final Host reachable = new HostImpl(null, new HostDescription("127.0.0.1", server.getLocalPort()));
+            final HostResolver resolver = hosts(unreachable, reachable);
+            final RegionProber prober = new RegionProber(resolver, Service.C8DB, 60000L, 1000);
+            final HostHandler handler = new NearestRegionHostHandler(resolver, Service.C8DB, prober,
+                    unreachable.getDescription());
+            try {
+                for (int i = 0; i < 50 && prober.getRoundTripTime(unreachable.getDescription()) != Long.MAX_VALUE;
+                        i++) {
+                    Thread.sleep(100L);
+                }
+                assertThat(handler.get(null, AccessType.READ), is(reachable));
+                // writes stay on the spot region
+                assertThat(handler.get(null, AccessType.WRITE), is(unreachable));
+                handler.fail();
+                assertThat(handler.get(null, AccessType.READ), is(unreachable));
+                handler.success();
+                eject(reachable);
+                assertThat(handler.get(null, AccessType.READ), is(unreachable));
+            } finally {
+                prober.close();
+            }
+        }
+    }
+
+    private static void eject(final Host host) {
+        for (int i = 0; i < 20; i++) {
+            host.getLoad().end(host.getLoad().start(), new C8DBException("unavailable", 503));
+        }
+        assertThat(host.getCircuitBreaker().isOpen(), is(true));
+    }
+
+    private static HostResolver hosts(final Host... hosts) {
+        return new HostResolver() {
+
+            @Override
+            public HostSet resolve(Service service, final boolean initial, final boolean closeConnections) {
+                HostSet set = new HostSet();
+                for (final Host host : hosts) {
+                    set.addHost(host);
+                }
+                return set;
+            }
+
+            @Override
+            public void init(C8ExecutorSync executor, C8Serialization arangoSerialization) {
+            }
+        };
+    }
+
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal;
+
+import com.c8db.internal.net.Host;
+import com.c8db.internal.net.HostDescription;
+import com.c8db.internal.net.HostImpl;
+import com.c8db.internal.net.HostSet;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class HostSetTest {
+
+    private static final Host HOST_0 = new HostImpl(null, new HostDescription("127.0.0.1", 8529));
+    private static final Host HOST_1 = new HostImpl(null, new HostDescription("127.0.0.2", 8529));
+    private static final Host HOST_2 = new HostImpl(null, new HostDescription("127.0.0.3", 8529));
+
+    @Test
+    public void snapshotDoesNotChange() {
+        final HostSet set = new HostSet(Arrays.asList(HOST_0, HOST_1));
+        final List<Host> snapshot = set.getHostsList();
+        // adding while iterating used to throw a ConcurrentModificationException
+        for (final Host host : snapshot) {
+            set.addHost(HOST_2);
+        }
+        assertThat(snapshot, contains(HOST_0, HOST_1));
+        assertThat(set.getHostsList(), contains(HOST_0, HOST_1, HOST_2));
+    }
+
+    @Test
+    public void removeMarkedHosts() {
+        final HostSet set = new HostSet(Arrays.asList(HOST_0, HOST_1, HOST_2));
+        final List<Host> snapshot = set.getHostsList();
+        set.markAllForDeletion();
+        set.addHost(HOST_1);
+        assertThat(set.removeAllMarkedForDeletion(), contains(HOST_0, HOST_2));
+        assertThat(set.getHostsList(), contains(HOST_1));
+        assertThat(snapshot.size(), is(3));
+    }
+
+}
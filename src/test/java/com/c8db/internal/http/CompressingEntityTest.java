@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.Compression;
+import com.c8db.Protocol;
+import com.c8db.VelocyJack;
+import com.c8db.internal.util.IOUtils;
+import com.c8db.internal.util.RequestUtils;
+import com.c8db.internal.util.ResponseUtils;
+import com.c8db.velocystream.Response;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class CompressingEntityTest {
+
+    private static final String BODY = "{\"values\":[" + repeat("\"abcdefghij\",", 200) + "\"end\"]}";
+
+    @Test
+    public void compressAboveThreshold() throws IOException {
+        final HttpPost post = post(BODY);
+        RequestUtils.compress(post, Compression.GZIP, 1024);
+        assertThat(post.getEntity(), instanceOf(CompressingEntity.class));
+        assertThat(post.getFirstHeader("Content-Encoding").getValue(), is("gzip"));
+        assertThat(post.getFirstHeader("Accept-Encoding").getValue(), is("gzip, deflate"));
+        final byte[] compressed = write(post.getEntity());
+        assertThat(compressed.length < BODY.length(), is(true));
+        assertThat(read(new GZIPInputStream(new ByteArrayInputStream(compressed))), is(BODY));
+        // repeatable for retries
+        assertThat(write(post.getEntity()), is(compressed));
+    }
+
+    @Test
+    public void deflate() throws IOException {
+        final HttpPost post = post(BODY);
+        RequestUtils.compress(post, Compression.DEFLATE, 0);
+        assertThat(post.getFirstHeader("Content-Encoding").getValue(), is("deflate"));
+        final byte[] compressed = write(post.getEntity());
+        assertThat(read(new InflaterInputStream(new ByteArrayInputStream(compressed))), is(BODY));
+        assertThat(read(post.getEntity().getContent()), is(read(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void keepSmallBodies() {
+        final HttpPost post = post("{\"a\":1}");
+        RequestUtils.compress(post, Compression.GZIP, 1024);
+        assertThat(post.getEntity(), not(instanceOf(CompressingEntity.class)));
+        assertThat(post.containsHeader("Content-Encoding"), is(false));
+        assertThat(post.containsHeader("Accept-Encoding"), is(true));
+
+        final HttpPost none = post(BODY);
+        RequestUtils.compress(none, Compression.NONE, 0);
+        assertThat(none.getEntity(), not(instanceOf(CompressingEntity.class)));
+        assertThat(none.containsHeader("Accept-Encoding"), is(false));
+    }
+
+    @Test
+    public void decompressResponse() throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(BODY.getBytes(StandardCharsets.UTF_8));
+        }
+        final BasicHttpResponse httpResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        httpResponse.addHeader("Content-Type", "application/json; charset=utf-8");
+        httpResponse.addHeader("Content-Encoding", "gzip");
+        httpResponse.setEntity(new ByteArrayEntity(compressed.toByteArray(), ContentType.APPLICATION_JSON));
+        final Response response = ResponseUtils.buildResponse(new VelocyJack(), httpResponse, Protocol.HTTP_JSON,
+                true);
+        assertThat(new String(response.getRawJson(), StandardCharsets.UTF_8), is(BODY));
+        assertThat(response.getBody().get("values").getLength(), is(201));
+    }
+
+    private static HttpPost post(final String body) {
+        final HttpPost post = new HttpPost("http://127.0.0.1/_api/document/coll");
+        post.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        return post;
+    }
+
+    private static byte[] write(final HttpEntity entity) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static String read(final InputStream in) throws IOException {
+        return new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8);
+    }
+
+    private static String repeat(final String value, final int count) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+}
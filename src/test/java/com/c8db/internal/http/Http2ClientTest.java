@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.internal.net.HostDescription;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class Http2ClientTest {
+
+    private HttpAsyncServer server;
+    private HostDescription host;
+    private HttpClientFactory factory;
+
+    @Before
+    public void setup() throws Exception {
+        server = H2ServerBootstrap.bootstrap().setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+                .register("*", new AsyncServerRequestHandler<Message<HttpRequest, String>>() {
+                    @Override
+                    public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(final HttpRequest request,
+                            final EntityDetails entityDetails, final HttpContext context) throws HttpException {
+                        return new BasicRequestConsumer<>(new StringAsyncEntityConsumer());
+                    }
+
+                    @Override
+                    public void handle(final Message<HttpRequest, String> message, final ResponseTrigger trigger,
+                            final HttpContext context) throws HttpException, IOException {
+                        final String body = message.getBody() != null ? message.getBody()
+                                : "{\"path\":\"" + message.getHead().getPath() + "\"}";
+                        trigger.submitResponse(AsyncResponseBuilder.create(200)
+                                .setEntity(body, ContentType.APPLICATION_JSON).build(), context);
+                    }
+                }).create();
+        server.start();
+        final ListenerEndpoint endpoint = server.listen(new InetSocketAddress("127.0.0.1", 0)).get();
+        host = new HostDescription("127.0.0.1", ((InetSocketAddress) endpoint.getAddress()).getPort());
+        factory = new HttpClientFactory.Builder().useSsl(false).maxConcurrentStreams(16).build();
+    }
+
+    @After
+    public void teardown() {
+        server.close(CloseMode.IMMEDIATE);
+    }
+
+    @Test
+    public void sharedClientPerHost() {
+        final Http2Client client = factory.acquireHttp2(host);
+        assertThat(factory.acquireHttp2(host), sameInstance(client));
+        assertThat(client.references(), is(2));
+        factory.releaseHttp2(host, client);
+        factory.releaseHttp2(host, client);
+        assertThat(client.references(), is(0));
+    }
+
+    @Test
+    public void multiplexRequests() throws Exception {
+        final Http2Client client = factory.acquireHttp2(host);
+        final ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                final String path = "/_api/document/" + i;
+                results.add(threads.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        final HttpResponse response = client.execute(new HttpGet(url(path)));
+                        assertThat(response.getStatusLine().getStatusCode(), is(200));
+                        return EntityUtils.toString(response.getEntity());
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(results.get(i).get(), is("{\"path\":\"/_api/document/" + i + "\"}"));
+            }
+        } finally {
+            threads.shutdown();
+            factory.releaseHttp2(host, client);
+        }
+    }
+
+    @Test
+    public void sendBody() throws Exception {
+        final Http2Client client = factory.acquireHttp2(host);
+        try {
+            final HttpPost post = new HttpPost(url("/_api/document/coll"));
+            post.setEntity(new StringEntity("{\"a\":1}", org.apache.http.entity.ContentType.APPLICATION_JSON));
+            final HttpResponse response = client.execute(post);
+            assertThat(EntityUtils.toString(response.getEntity()), is("{\"a\":1}"));
+            assertThat(response.getFirstHeader("Content-Type").getValue().startsWith("application/json"), is(true));
+        } finally {
+            factory.releaseHttp2(host, client);
+        }
+    }
+
+    private String url(final String path) {
+        return "http://" + host.getHost() + ":" + host.getPort() + path;
+    }
+
+}
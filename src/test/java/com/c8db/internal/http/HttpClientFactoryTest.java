@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.internal.net.HostDescription;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class HttpClientFactoryTest {
+
+    private static final HostDescription HOST_0 = new HostDescription("127.0.0.1", 8529);
+    private static final HostDescription HOST_1 = new HostDescription("127.0.0.2", 8529);
+
+    @Test
+    public void sharedClientPerHost() throws Exception {
+        final HttpClientFactory factory = new HttpClientFactory.Builder().shared(true).maxConnectionsPerRoute(8)
+                .build();
+        final PooledHttpClient client0 = factory.acquire(HOST_0);
+        final PooledHttpClient client1 = factory.acquire(HOST_0);
+        final PooledHttpClient other = factory.acquire(HOST_1);
+        assertThat(client1, is(sameInstance(client0)));
+        assertThat(other, is(not(sameInstance(client0))));
+        assertThat(client0.references(), is(2));
+        assertThat(client0.getConnectionManager().getDefaultMaxPerRoute(), is(8));
+        assertThat(client0.getConnectionManager().getMaxTotal(), is(8));
+
+        factory.release(HOST_0, client0);
+        assertThat(factory.acquire(HOST_0), is(sameInstance(client0)));
+        factory.release(HOST_0, client0);
+        factory.release(HOST_0, client1);
+        assertThat(client0.references(), is(0));
+        assertThat(factory.acquire(HOST_0), is(not(sameInstance(client0))));
+    }
+
+    @Test
+    public void dedicatedClientPerConnection() throws Exception {
+        final HttpClientFactory factory = new HttpClientFactory.Builder().maxConnectionsPerRoute(8).build();
+        final PooledHttpClient client0 = factory.acquire(HOST_0);
+        final PooledHttpClient client1 = factory.acquire(HOST_0);
+        assertThat(client1, is(not(sameInstance(client0))));
+        assertThat(client0.getConnectionManager().getDefaultMaxPerRoute(), is(1));
+        assertThat(client0.getConnectionManager().getMaxTotal(), is(1));
+        factory.release(HOST_0, client0);
+        factory.release(HOST_0, client1);
+    }
+
+    @Test
+    public void sharedAuthClient() throws Exception {
+        final HttpClientFactory factory = new HttpClientFactory.Builder().build();
+        final PooledHttpClient client0 = factory.acquireAuth();
+        final PooledHttpClient client1 = factory.acquireAuth();
+        assertThat(client1, is(sameInstance(client0)));
+        assertThat(client0.references(), is(2));
+        factory.releaseAuth(client0);
+        factory.releaseAuth(client1);
+        assertThat(client0.references(), is(0));
+        assertThat(factory.acquireAuth(), is(not(sameInstance(client0))));
+    }
+
+}
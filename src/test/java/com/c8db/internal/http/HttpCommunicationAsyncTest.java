@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.C8DB;
+import com.c8db.C8DBException;
+import com.c8db.Protocol;
+import com.c8db.Service;
+import com.c8db.entity.C8DBVersion;
+import com.c8db.internal.C8ExecutorAsync;
+import com.c8db.internal.C8ExecutorSync;
+import com.c8db.internal.DocumentCache;
+import com.c8db.internal.net.FallbackHostHandler;
+import com.c8db.internal.net.HostDescription;
+import com.c8db.internal.net.HostHandler;
+import com.c8db.internal.net.HostImpl;
+import com.c8db.internal.net.HostResolver;
+import com.c8db.internal.net.HostSet;
+import com.c8db.internal.util.C8SerializationFactory;
+import com.c8db.util.C8Serialization;
+import com.c8db.util.JitteredRetryPolicy;
+import com.c8db.util.RetryBudget;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.RequestType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class HttpCommunicationAsyncTest {
+
+    private static final String VERSION = "{\"server\":\"c8db\",\"version\":\"3.6.0\"}";
+    private static final String NOT_FOUND = "{\"error\":true,\"code\":404,\"errorNum\":1202,"
+            + "\"errorMessage\":\"document not found\"}";
+
+    private final AtomicInteger unavailable = new AtomicInteger();
+    private HttpServer server;
+    private C8DB c8DB;
+    private C8ExecutorAsync executor;
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final String path = exchange.getRequestURI().getPath();
+                if (path.endsWith("/_admin/flaky") && unavailable.getAndDecrement() > 0) {
+                    exchange.sendResponseHeaders(503, -1);
+                    exchange.close();
+                    return;
+                }
+                final boolean found = path.endsWith("/_admin/version") || path.endsWith("/_admin/flaky");
+                final byte[] body = (found ? VERSION : NOT_FOUND).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(found ? 200 : 404, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+
+        c8DB = new C8DB.Builder().build();
+        final C8Serialization util = c8DB.util();
+        final HostDescription description = new HostDescription("127.0.0.1", server.getAddress().getPort());
+        final HostResolver resolver = new HostResolver() {
+            @Override
+            public void init(final C8ExecutorSync executorSync, final C8Serialization arangoSerialization) {
+            }
+
+            @Override
+            public HostSet resolve(final Service service, final boolean initial, final boolean closeConnections) {
+                final HostSet set = new HostSet();
+                set.addHost(new HostImpl(null, description));
+                return set;
+            }
+        };
+        final Map<Service, HostHandler> hostHandlerMatrix = new HashMap<>();
+        hostHandlerMatrix.put(Service.C8DB, new FallbackHostHandler(resolver, Service.C8DB));
+        final HttpConnectionAsync.Builder connectionBuilder = new HttpConnectionAsync.Builder().maxConnections(4)
+                .clientFactory(new HttpClientFactory.Builder().build()).user("root").jwtAuthEnabled(false)
+                .useSsl(false).serializationUtil(util).contentType(Protocol.HTTP_JSON);
+        executor = new C8ExecutorAsync(new HttpCommunicationAsync.Builder(hostHandlerMatrix, connectionBuilder)
+                .retryPolicy(new JitteredRetryPolicy(10L, 50L, 5000L, new RetryBudget(10000L, 0.2, 10))).build(),
+                new C8SerializationFactory(util, util), new DocumentCache());
+    }
+
+    @After
+    public void teardown() {
+        executor.disconnect();
+        c8DB.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void executeConcurrently() throws Exception {
+        final List<CompletableFuture<C8DBVersion>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(executor.<C8DBVersion>execute(request("/_admin/version"), C8DBVersion.class));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        for (final CompletableFuture<C8DBVersion> future : futures) {
+            assertThat(future.get().getVersion(), is("3.6.0"));
+        }
+    }
+
+    @Test
+    public void completeExceptionallyOnError() throws Exception {
+        try {
+            executor.execute(request("/_api/document/coll/missing"), C8DBVersion.class).get(30, TimeUnit.SECONDS);
+            fail();
+        } catch (final ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(C8DBException.class));
+            assertThat(((C8DBException) e.getCause()).getResponseCode(), is(404));
+            assertThat(((C8DBException) e.getCause()).getErrorNum(), is(1202));
+        }
+    }
+
+    @Test
+    public void retryUnavailable() throws Exception {
+        unavailable.set(2);
+        final C8DBVersion version = executor.<C8DBVersion>execute(
+                new Request("demo", "demo", "_system", RequestType.GET, true, "/_admin/flaky"), C8DBVersion.class)
+                .get(30, TimeUnit.SECONDS);
+        assertThat(version.getVersion(), is("3.6.0"));
+        assertThat(unavailable.get(), is(-1));
+    }
+
+    @Test
+    public void noRetryIfDisabled() throws Exception {
+        unavailable.set(1);
+        try {
+            executor.execute(request("/_admin/flaky"), C8DBVersion.class).get(30, TimeUnit.SECONDS);
+            fail();
+        } catch (final ExecutionException e) {
+            assertThat(((C8DBException) e.getCause()).getResponseCode(), is(503));
+        }
+    }
+
+    private static Request request(final String path) {
+        return new Request("demo", "demo", "_system", RequestType.GET, false, path);
+    }
+
+}
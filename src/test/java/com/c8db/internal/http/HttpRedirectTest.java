@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.C8DB;
+import com.c8db.Protocol;
+import com.c8db.Service;
+import com.c8db.internal.C8ExecutorSync;
+import com.c8db.internal.net.CircuitBreakerConfig;
+import com.c8db.internal.net.Connection;
+import com.c8db.internal.net.ConnectionPoolConfig;
+import com.c8db.internal.net.FallbackHostHandler;
+import com.c8db.internal.net.Host;
+import com.c8db.internal.net.HostDescription;
+import com.c8db.internal.net.HostHandle;
+import com.c8db.internal.net.HostHandler;
+import com.c8db.internal.net.HostResolver;
+import com.c8db.internal.net.HostSet;
+import com.c8db.internal.net.RedirectCache;
+import com.c8db.internal.util.HostUtils;
+import com.c8db.util.C8Serialization;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.RequestType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class HttpRedirectTest {
+
+    private static final String VERSION = "{\"server\":\"c8db\",\"version\":\"3.6.0\"}";
+
+    private final AtomicInteger followerRequests = new AtomicInteger();
+    private final AtomicInteger leaderRequests = new AtomicInteger();
+    private final AtomicInteger created = new AtomicInteger();
+    private HttpServer follower;
+    private HttpServer leader;
+    private C8DB c8DB;
+    private List<Host> hosts;
+    private HostResolver resolver;
+    private HttpCommunication communication;
+
+    @Before
+    public void setup() throws IOException {
+        leader = server(null, leaderRequests);
+        follower = server("tcp://127.0.0.1:" + leader.getAddress().getPort(), followerRequests);
+        c8DB = new C8DB.Builder().build();
+        final HttpConnectionFactory factory = new HttpConnectionFactory("root", null, null, null, false, null, false,
+                c8DB.util(), Protocol.HTTP_JSON, null, null, new HttpClientFactory.Builder().build()) {
+            @Override
+            public Connection create(final HostDescription host, final Service service) {
+                created.incrementAndGet();
+                return super.create(host, service);
+            }
+        };
+        final ConnectionPoolConfig poolConfig = new ConnectionPoolConfig.Builder().maxConnections(4).build();
+        final CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig.Builder().build();
+        hosts = Collections.singletonList(HostUtils.createHost(
+                new HostDescription("127.0.0.1", follower.getAddress().getPort()), poolConfig, circuitBreakerConfig,
+                factory, Service.C8DB));
+        resolver = new HostResolver() {
+            @Override
+            public void init(final C8ExecutorSync executorSync, final C8Serialization arangoSerialization) {
+            }
+
+            @Override
+            public HostSet resolve(final Service service, final boolean initial, final boolean closeConnections) {
+                return new HostSet(hosts);
+            }
+        };
+        final Map<Service, HostHandler> hostHandlerMatrix = new HashMap<>();
+        hostHandlerMatrix.put(Service.C8DB, new FallbackHostHandler(resolver, Service.C8DB));
+        communication = new HttpCommunication.Builder(hostHandlerMatrix)
+                .redirects(new RedirectCache(resolver, poolConfig, circuitBreakerConfig, factory, 60000L))
+                .build(c8DB.util());
+    }
+
+    @After
+    public void teardown() throws IOException {
+        communication.close();
+        c8DB.shutdown();
+        follower.stop(0);
+        leader.stop(0);
+    }
+
+    @Test
+    public void rememberRedirect() throws Exception {
+        assertThat(communication.execute(request("coll"), null, Service.C8DB).getResponseCode(), is(200));
+        assertThat(followerRequests.get(), is(1));
+        assertThat(leaderRequests.get(), is(1));
+
+        assertThat(communication.execute(request("coll"), null, Service.C8DB).getResponseCode(), is(200));
+        assertThat(followerRequests.get(), is(1));
+        assertThat(leaderRequests.get(), is(2));
+        // one connection to each host, the pool of the redirecting host was not torn down
+        assertThat(created.get(), is(2));
+    }
+
+    @Test
+    public void bindHandleToEndpoint() throws Exception {
+        final HostHandle hostHandle = new HostHandle();
+        communication.execute(request("coll"), hostHandle, Service.C8DB);
+        assertThat(hostHandle.getHost(), is(new HostDescription("127.0.0.1", leader.getAddress().getPort())));
+        // a request bound to the endpoint, like the next batch of a cursor, goes there without another redirect
+        communication.execute(request("other"), hostHandle, Service.C8DB);
+        assertThat(followerRequests.get(), is(1));
+        assertThat(leaderRequests.get(), is(2));
+    }
+
+    @Test
+    public void routesAreKeptPerCollection() throws Exception {
+        communication.execute(request("coll"), null, Service.C8DB);
+        communication.execute(request("other"), null, Service.C8DB);
+        assertThat(followerRequests.get(), is(2));
+        assertThat(leaderRequests.get(), is(2));
+    }
+
+    private static HttpServer server(final String redirect, final AtomicInteger requests) throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                final byte[] body = VERSION.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+                if (redirect != null) {
+                    exchange.getResponseHeaders().add("X-C8-Endpoint", redirect);
+                }
+                exchange.sendResponseHeaders(redirect != null ? 503 : 200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static Request request(final String collection) {
+        return new Request("demo", "demo", "_system", RequestType.GET, "/_api/document/" + collection + "/1");
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.SecretProvider;
+import com.c8db.internal.SecretProviderContext;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class JwtTokenManagerTest {
+
+    @Test
+    public void parseExpiry() {
+        assertThat(JwtTokenManager.parseExpiry(jwt(1700000000L, 1)), is(1700000000000L));
+        assertThat(JwtTokenManager.parseExpiry("opaque-token"), nullValue());
+        assertThat(JwtTokenManager.parseExpiry("a.!!!.c"), nullValue());
+    }
+
+    @Test
+    public void singleFlight() throws Exception {
+        final CountingProvider provider = new CountingProvider(3600, 200);
+        final JwtTokenManager manager = new JwtTokenManager();
+        final ExecutorService threads = Executors.newFixedThreadPool(16);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<String>> tokens = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                tokens.add(threads.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        start.await();
+                        return manager.getToken("demo", "root", provider);
+                    }
+                }));
+            }
+            start.countDown();
+            for (final Future<String> token : tokens) {
+                assertThat(token.get(), is(jwt(provider.exp, 1)));
+            }
+            assertThat(provider.fetches.get(), is(1));
+            assertThat(manager.getToken("demo", "root", provider), is(jwt(provider.exp, 1)));
+            assertThat(provider.fetches.get(), is(1));
+            manager.getToken("other", "root", provider);
+            assertThat(provider.fetches.get(), is(2));
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    public void refreshAheadOfExpiry() throws Exception {
+        // expires in 3-4s, so the refresh starts after at most 2s while the token is still served
+        final CountingProvider provider = new CountingProvider(4, 0);
+        final JwtTokenManager manager = new JwtTokenManager();
+        final String first = manager.getToken("demo", "root", provider);
+        assertThat(manager.getCachedToken("demo", "root", provider), is(first));
+        Thread.sleep(2100L);
+        assertThat(manager.getCachedToken("demo", "root", provider), is(first));
+        for (int i = 0; i < 50 && provider.fetches.get() < 2; i++) {
+            Thread.sleep(20L);
+        }
+        assertThat(provider.fetches.get(), is(2));
+        assertThat(manager.getCachedToken("demo", "root", provider), not(first));
+    }
+
+    @Test
+    public void refreshRejectedTokenOnce() {
+        final CountingProvider provider = new CountingProvider(3600, 0);
+        final JwtTokenManager manager = new JwtTokenManager();
+        final String rejected = manager.getToken("demo", "root", provider);
+        final String refreshed = manager.refreshToken("demo", "root", provider, rejected);
+        assertThat(refreshed, not(rejected));
+        // a second connection that was rejected with the same token gets the new one without fetching again
+        assertThat(manager.refreshToken("demo", "root", provider, rejected), is(refreshed));
+        assertThat(provider.fetches.get(), is(2));
+    }
+
+    private static String jwt(final long exp, final int serial) {
+        final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(("{\"exp\":" + exp + ",\"n\":" + serial + "}")
+                        .getBytes(StandardCharsets.UTF_8)) + ".sig";
+    }
+
+    private static class CountingProvider implements SecretProvider {
+
+        private final AtomicInteger fetches = new AtomicInteger();
+        private final long lifetime;
+        private final long delay;
+        private volatile long exp;
+
+        CountingProvider(final long lifetime, final long delay) {
+            this.lifetime = lifetime;
+            this.delay = delay;
+        }
+
+        @Override
+        public void init(final SecretProviderContext context) {
+        }
+
+        @Override
+        public String fetchSecret(final String tenant, final String user) {
+            try {
+                Thread.sleep(delay);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final int serial = fetches.incrementAndGet();
+            exp = System.currentTimeMillis() / 1000L + lifetime;
+            return jwt(exp, serial);
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.C8DB;
+import com.c8db.Protocol;
+import com.c8db.Service;
+import com.c8db.internal.C8ExecutorSync;
+import com.c8db.internal.net.CircuitBreakerConfig;
+import com.c8db.internal.net.ConnectionPoolConfig;
+import com.c8db.internal.net.FallbackHostHandler;
+import com.c8db.internal.net.Host;
+import com.c8db.internal.net.HostDescription;
+import com.c8db.internal.net.HostHandler;
+import com.c8db.internal.net.HostResolver;
+import com.c8db.internal.net.HostSet;
+import com.c8db.internal.util.HostUtils;
+import com.c8db.util.C8Serialization;
+import com.c8db.util.RetryBudget;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.RequestType;
+import com.c8db.velocystream.Response;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class RequestHedgerTest {
+
+    private static final String VERSION = "{\"server\":\"c8db\",\"version\":\"3.6.0\"}";
+    private static final long SLOW = 1000L;
+
+    private final AtomicInteger slowRequests = new AtomicInteger();
+    private final AtomicInteger fastRequests = new AtomicInteger();
+    private HttpServer slowServer;
+    private HttpServer fastServer;
+    private C8DB c8DB;
+    private List<Host> hosts;
+
+    @Before
+    public void setup() throws IOException {
+        slowServer = server(SLOW, slowRequests);
+        fastServer = server(0L, fastRequests);
+        c8DB = new C8DB.Builder().build();
+        final HttpConnectionFactory factory = new HttpConnectionFactory("root", null, null, null, false, null, false,
+                c8DB.util(), Protocol.HTTP_JSON, null, null, new HttpClientFactory.Builder().build());
+        final ConnectionPoolConfig poolConfig = new ConnectionPoolConfig.Builder().maxConnections(4).build();
+        final CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig.Builder().build();
+        hosts = Arrays.asList(
+                HostUtils.createHost(new HostDescription("127.0.0.1", slowServer.getAddress().getPort()),
+                        poolConfig, circuitBreakerConfig, factory, Service.C8DB),
+                HostUtils.createHost(new HostDescription("127.0.0.1", fastServer.getAddress().getPort()),
+                        poolConfig, circuitBreakerConfig, factory, Service.C8DB));
+    }
+
+    @After
+    public void teardown() {
+        c8DB.shutdown();
+        slowServer.stop(0);
+        fastServer.stop(0);
+    }
+
+    @Test
+    public void hedgeSlowRead() throws Exception {
+        final HttpCommunication communication = communication(new RetryBudget(10000L, 0.1, 10));
+        final long start = System.currentTimeMillis();
+        final Response response = communication.execute(request(RequestType.GET), null, Service.C8DB);
+        assertThat(response.getResponseCode(), is(200));
+        assertThat(System.currentTimeMillis() - start, lessThan(SLOW));
+        assertThat(slowRequests.get(), is(1));
+        assertThat(fastRequests.get(), is(1));
+        // the aborted request counts neither as success nor as failure of the slow host
+        assertThat(hosts.get(0).getLoad().getInFlight(), is(0));
+        assertThat(hosts.get(0).getLoad().getLatency(), is(0.0));
+    }
+
+    @Test
+    public void noHedgeWithoutBudget() throws Exception {
+        final HttpCommunication communication = communication(new RetryBudget(10000L, 0.0, 0));
+        final long start = System.currentTimeMillis();
+        final Response response = communication.execute(request(RequestType.GET), null, Service.C8DB);
+        assertThat(response.getResponseCode(), is(200));
+        assertThat(System.currentTimeMillis() - start, greaterThanOrEqualTo(SLOW));
+        assertThat(fastRequests.get(), is(0));
+    }
+
+    @Test
+    public void noHedgeForWrites() throws Exception {
+        final HttpCommunication communication = communication(new RetryBudget(10000L, 0.1, 10));
+        final Response response = communication.execute(request(RequestType.POST), null, Service.C8DB);
+        assertThat(response.getResponseCode(), is(200));
+        assertThat(fastRequests.get(), is(0));
+    }
+
+    private HttpCommunication communication(final RetryBudget budget) {
+        final HostResolver resolver = new HostResolver() {
+            @Override
+            public void init(final C8ExecutorSync executorSync, final C8Serialization arangoSerialization) {
+            }
+
+            @Override
+            public HostSet resolve(final Service service, final boolean initial, final boolean closeConnections) {
+                return new HostSet(hosts);
+            }
+        };
+        final Map<Service, HostHandler> hostHandlerMatrix = new HashMap<>();
+        hostHandlerMatrix.put(Service.C8DB, new FallbackHostHandler(resolver, Service.C8DB));
+        return new HttpCommunication.Builder(hostHandlerMatrix).hedger(new RequestHedger(100L, budget))
+                .build(c8DB.util());
+    }
+
+    private static HttpServer server(final long delay, final AtomicInteger requests) throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                try {
+                    Thread.sleep(delay);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                final byte[] body = VERSION.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                } catch (final IOException e) {
+                    // the client aborted the request
+                }
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+        return server;
+    }
+
+    private static Request request(final RequestType type) {
+        return new Request("demo", "demo", "_system", type, "/_admin/version");
+    }
+
+}
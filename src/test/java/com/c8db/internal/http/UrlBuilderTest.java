@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.c8db.internal.net.HostDescription;
+import com.c8db.internal.util.EncodeUtils;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.RequestType;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.message.BasicNameValuePair;
+import org.junit.Test;
+
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class UrlBuilderTest {
+
+    private static final String[] VALUES = { "key1", "a b", "a+b&c=d", "ä€/?#%", "x😀y", "!'()~*-._",
+            "\uD800", "" };
+
+    private final UrlBuilder urlBuilder = new UrlBuilder(new HostDescription("127.0.0.1", 8529), false);
+
+    @Test
+    public void buildUrl() {
+        final Request request = new Request("demo", "demo", "_system", RequestType.GET, "/_api/kv/coll/value/key1")
+                .putQueryParam("strongConsistency", false);
+        assertThat(urlBuilder.build(request),
+                is("http://127.0.0.1:8529/_tenant/demo/_fabric/_system/_api/kv/coll/value/key1"
+                        + "?strongConsistency=false"));
+        assertThat(urlBuilder.build(new Request(null, null, null, RequestType.GET, "/_admin/version")),
+                is("http://127.0.0.1:8529/_admin/version"));
+        assertThat(urlBuilder.build(new Request("demo", "", "_system", RequestType.GET, "/_api/x?a=1")
+                .putQueryParam("b", 2)), is("http://127.0.0.1:8529/_fabric/_system/_api/x?a=1&b=2"));
+    }
+
+    @Test
+    public void sameAsFormEncoding() {
+        for (final String value : VALUES) {
+            final Request request = new Request("demo", "demo", "_system", RequestType.GET, "/_api/cursor")
+                    .putQueryParam(value, value).putQueryParam("other", value);
+            final String expected = "http://127.0.0.1:8529/_tenant/demo/_fabric/_system/_api/cursor?"
+                    + URLEncodedUtils.format(toList(request.getQueryParam()), "utf-8");
+            assertThat(urlBuilder.build(request), is(expected));
+        }
+    }
+
+    @Test
+    public void sameAsUrlEncoder() throws Exception {
+        for (final String value : VALUES) {
+            final String expected = URLEncoder.encode(value, "UTF-8").replaceAll("\\+", "%20")
+                    .replaceAll("\\%21", "!").replaceAll("\\%27", "'").replaceAll("\\%28", "(")
+                    .replaceAll("\\%29", ")").replaceAll("\\%7E", "~");
+            assertThat(EncodeUtils.encodeURL(value), is(expected));
+        }
+        assertThat(EncodeUtils.encodeURL("key1"), sameInstance("key1"));
+    }
+
+    @Test
+    public void safePath() {
+        assertThat(EncodeUtils.isSafePath("/_api/kv"), is(true));
+        assertThat(EncodeUtils.isSafePath("/_api/kv/"), is(false));
+        assertThat(EncodeUtils.isSafePath("a b"), is(false));
+    }
+
+    private static List<NameValuePair> toList(final Map<String, String> parameters) {
+        final List<NameValuePair> list = new ArrayList<>();
+        for (final Map.Entry<String, String> param : parameters.entrySet()) {
+            list.add(new BasicNameValuePair(param.getKey(), param.getValue()));
+        }
+        return list;
+    }
+
+}
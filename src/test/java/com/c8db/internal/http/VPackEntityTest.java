@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.http;
+
+import com.arangodb.velocypack.VPackBuilder;
+import com.arangodb.velocypack.VPackSlice;
+import com.arangodb.velocypack.ValueType;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class VPackEntityTest {
+
+    private static final ContentType CONTENT_TYPE_VPACK = ContentType.create("application/x-velocypack");
+
+    @Test
+    public void writeSliceOnly() throws Exception {
+        final VPackBuilder builder = new VPackBuilder();
+        builder.add(ValueType.OBJECT);
+        builder.add("a", ValueType.ARRAY);
+        builder.add("x");
+        builder.add(42);
+        builder.close();
+        builder.add("b", "y");
+        builder.close();
+        final VPackSlice slice = builder.slice().get("a");
+        final byte[] expected = Arrays.copyOfRange(slice.getBuffer(), slice.getStart(),
+                slice.getStart() + slice.getByteSize());
+
+        final VPackEntity entity = new VPackEntity(slice, CONTENT_TYPE_VPACK);
+        assertThat(entity.getContentLength(), is((long) expected.length));
+        assertThat(entity.getContentType().getValue(), is("application/x-velocypack"));
+        assertThat(entity.isRepeatable(), is(true));
+        for (int i = 0; i < 2; i++) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entity.writeTo(out);
+            assertThat(out.toByteArray(), is(expected));
+            assertThat(EntityUtils.toByteArray(entity), is(expected));
+        }
+        assertThat(entity.asByteBuffer().remaining(), is(expected.length));
+        assertThat(new VPackSlice(expected).get(1).getAsInt(), is(42));
+    }
+
+    @Test
+    public void chunked() {
+        final VPackEntity entity = new VPackEntity(new VPackBuilder().add("x").slice(), CONTENT_TYPE_VPACK);
+        assertThat(entity.isChunked(), is(false));
+        entity.setChunked(true);
+        assertThat(entity.isChunked(), is(true));
+    }
+
+}
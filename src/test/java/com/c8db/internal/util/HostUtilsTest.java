@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.util;
+
+import com.c8db.internal.net.HostDescription;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class HostUtilsTest {
+
+    @Test
+    public void parseIpv4Endpoint() {
+        assertThat(HostUtils.parseEndpoint("tcp://10.0.0.1:8529"), is(new HostDescription("10.0.0.1", 8529)));
+        assertThat(HostUtils.parseEndpoint("10.0.0.1:8529"), is(new HostDescription("10.0.0.1", 8529)));
+        assertThat(HostUtils.parseEndpoint("https://gdn.example.com:443/_db/_system"),
+                is(new HostDescription("gdn.example.com", 443)));
+    }
+
+    @Test
+    public void parseIpv6Endpoint() {
+        assertThat(HostUtils.parseEndpoint("ssl://[fe80::1]:8529"), is(new HostDescription("fe80::1", 8529)));
+        assertThat(HostUtils.parseEndpoint("[::1]:8529"), is(new HostDescription("::1", 8529)));
+        assertThat(RequestUtils.buildBaseUrl(new HostDescription("::1", 8529), false), is("http://[::1]:8529"));
+    }
+
+    @Test
+    public void rejectInvalidEndpoint() {
+        assertThat(HostUtils.parseEndpoint("tcp://10.0.0.1"), is(nullValue()));
+        assertThat(HostUtils.parseEndpoint("fe80::1:8529"), is(nullValue()));
+        assertThat(HostUtils.parseEndpoint(":8529"), is(nullValue()));
+        assertThat(HostUtils.parseEndpoint("10.0.0.1:99999"), is(nullValue()));
+    }
+
+}
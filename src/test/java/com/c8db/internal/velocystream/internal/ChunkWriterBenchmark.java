@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.velocystream.internal;
+
+import com.arangodb.velocypack.VPackBuilder;
+import com.arangodb.velocypack.VPackSlice;
+import com.arangodb.velocypack.ValueType;
+import com.c8db.internal.C8Defaults;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * Measures encoding of VelocyStream chunks by {@link ChunkWriter}: the bytes allocated and the time per encoded
+ * message, and the loopback throughput per payload size and chunk size, counting client side framing and socket writes
+ * only. Not a unit test, as the numbers depend on the JIT and the machine: surefire does not pick it up, run its main
+ * method on the test classpath.
+ */
+public final class ChunkWriterBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    private ChunkWriterBenchmark() {
+        super();
+    }
+
+    public static void main(final String[] args) throws Exception {
+        for (int round = 1; round <= ROUNDS; round++) {
+            // the first rounds warm up
+            final boolean print = round == ROUNDS;
+            encode(print);
+            throughput(print);
+        }
+    }
+
+    private static void encode(final boolean print) {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        final ByteBuffer buffer = BufferPool.acquire();
+        try {
+            encode(message(1L, 100), buffer, 100000, allocations, print);
+            encode(message(2L, 100000), buffer, 1000, allocations, print);
+        } finally {
+            BufferPool.release(buffer);
+        }
+    }
+
+    private static void encode(final Message message, final ByteBuffer buffer, final int times,
+            final com.sun.management.ThreadMXBean allocations, final boolean print) {
+        final long thread = Thread.currentThread().getId();
+        final long allocated = allocations != null ? allocations.getThreadAllocatedBytes(thread) : 0L;
+        final long start = System.nanoTime();
+        for (int i = 0; i < times; i++) {
+            final ChunkWriter writer = new ChunkWriter(message, C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE);
+            while (!writer.isDone()) {
+                if (!writer.write(buffer)) {
+                    buffer.clear();
+                }
+            }
+        }
+        final long elapsed = System.nanoTime() - start;
+        if (print) {
+            System.out.println(String.format("Encoded %s messages of %s bytes: %s ns and %s bytes allocated each",
+                    times, length(message), elapsed / times, allocations != null
+                            ? (allocations.getThreadAllocatedBytes(thread) - allocated) / times : "unknown"));
+        }
+    }
+
+    private static void throughput(final boolean print) throws Exception {
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final SocketChannel client = SocketChannel.open(server.getLocalAddress());
+        final SocketChannel peer = server.accept();
+        final Thread drain = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+                try {
+                    while (peer.read(buffer) >= 0) {
+                        buffer.clear();
+                    }
+                } catch (final IOException e) {
+                    // closed
+                }
+            }
+        });
+        drain.setDaemon(true);
+        drain.start();
+        final int sendBufferSize = client.socket().getSendBufferSize();
+        final ByteBuffer buffer = BufferPool.acquire();
+        try {
+            for (final int size : new int[] { 1 << 10, 1 << 16, 1 << 20, 1 << 24 }) {
+                final Message message = message(3L, size);
+                final int times = Math.max(1, (1 << 25) / size);
+                for (final int maxChunksize : new int[] { C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE, 1 << 20 }) {
+                    final int chunksize = ChunkWriter.chunksize(message, C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE,
+                            maxChunksize, sendBufferSize);
+                    final long start = System.nanoTime();
+                    for (int i = 0; i < times; i++) {
+                        send(new ChunkWriter(message, chunksize), buffer, client);
+                    }
+                    final long elapsed = Math.max(1L, System.nanoTime() - start);
+                    if (print) {
+                        System.out.println(String.format("%s byte messages, chunks of %s bytes: %s MB/s", size,
+                                chunksize, (long) times * size * 1000L / elapsed));
+                    }
+                }
+            }
+        } finally {
+            BufferPool.release(buffer);
+            client.close();
+            drain.join(10000L);
+            peer.close();
+            server.close();
+        }
+    }
+
+    private static void send(final ChunkWriter writer, final ByteBuffer buffer, final SocketChannel channel)
+            throws IOException {
+        while (!writer.isDone()) {
+            if (!writer.write(buffer)) {
+                flush(buffer, channel);
+            }
+        }
+        flush(buffer, channel);
+    }
+
+    private static void flush(final ByteBuffer buffer, final SocketChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static Message message(final long id, final int size) {
+        final char[] value = new char[size];
+        Arrays.fill(value, 'x');
+        final VPackSlice head = new VPackBuilder().add(ValueType.ARRAY).add(id).close().slice();
+        final VPackSlice body = new VPackBuilder().add(new String(value)).slice();
+        return new Message(id, head, body);
+    }
+
+    private static int length(final Message message) {
+        return message.getHead().getByteSize() + message.getBody().getByteSize();
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.velocystream.internal;
+
+import com.arangodb.velocypack.VPackBuilder;
+import com.arangodb.velocypack.VPackSlice;
+import com.arangodb.velocypack.ValueType;
+import com.c8db.internal.C8Defaults;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class ChunkWriterTest {
+
+    @Test
+    public void roundTripThroughSmallBuffers() {
+        final Message message = message(1L, 5000);
+        final ByteBuffer wire = ByteBuffer.allocate(10000);
+        final ByteBuffer buffer = ByteBuffer.allocate(37);
+        final ChunkWriter writer = new ChunkWriter(message, 100);
+        while (!writer.isDone()) {
+            if (!writer.write(buffer)) {
+                // the buffer is full, hand it to the socket
+                buffer.flip();
+                wire.put(buffer);
+                buffer.clear();
+            }
+        }
+        buffer.flip();
+        wire.put(buffer);
+        wire.flip();
+
+        final MessageStore messageStore = new MessageStore();
+        final FutureTask<Message> task = new FutureTask<Message>(new Callable<Message>() {
+            @Override
+            public Message call() {
+                return messageStore.get(1L);
+            }
+        });
+        messageStore.storeMessage(1L, task);
+        final ChunkReader reader = new ChunkReader(new ChunkStore(messageStore));
+        while (wire.hasRemaining()) {
+            final ByteBuffer read = wire.slice();
+            read.limit(Math.min(read.limit(), 13));
+            reader.read(read);
+            wire.position(wire.position() + read.position());
+        }
+        assertThat(task.isDone(), is(true));
+        assertEcho(message, getUnchecked(task));
+    }
+
+    @Test
+    public void encodeChunkHeaders() {
+        final Message message = message(2L, 250);
+        final int length = length(message);
+        final ByteBuffer buffer = ByteBuffer.allocate(1000);
+        final ChunkWriter writer = new ChunkWriter(message, 100);
+        assertThat(writer.isStarted(), is(false));
+        while (!writer.isDone()) {
+            assertThat(writer.write(buffer), is(true));
+        }
+        buffer.flip();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        // the first chunk carries the number of chunks and the message length
+        assertThat(buffer.getInt(), is(100 + C8Defaults.CHUNK_MAX_HEADER_SIZE));
+        assertThat(buffer.getInt(), is((3 << 1) | 1));
+        assertThat(buffer.getLong(), is(2L));
+        assertThat(buffer.getLong(), is((long) length));
+        buffer.position(buffer.position() + 100);
+        assertThat(buffer.getInt(), is(100 + C8Defaults.CHUNK_MIN_HEADER_SIZE));
+        assertThat(buffer.getInt(), is(1 << 1));
+        assertThat(buffer.getLong(), is(2L));
+        buffer.position(buffer.position() + 100);
+        assertThat(buffer.getInt(), is(length - 200 + C8Defaults.CHUNK_MIN_HEADER_SIZE));
+        assertThat(buffer.getInt(), is(2 << 1));
+        assertThat(buffer.getLong(), is(2L));
+        assertThat(buffer.remaining(), is(length - 200));
+    }
+
+    @Test
+    public void encodeSingleChunk() {
+        final Message message = message(3L, 10);
+        final ByteBuffer buffer = ByteBuffer.allocate(1000);
+        final ChunkWriter writer = new ChunkWriter(message, C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE);
+        assertThat(writer.write(buffer), is(true));
+        assertThat(writer.isDone(), is(true));
+        buffer.flip();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(buffer.getInt(), is(length(message) + C8Defaults.CHUNK_MIN_HEADER_SIZE));
+        assertThat(buffer.getInt(), is(3));
+        assertThat(buffer.getLong(), is(3L));
+        assertThat(buffer.remaining(), is(length(message)));
+    }
+
+    @Test
+    public void pickChunkSizePerMessage() {
+        final int header = C8Defaults.CHUNK_MIN_HEADER_SIZE;
+        final Message small = message(4L, 100);
+        final Message medium = message(5L, 50000);
+        final Message large = message(6L, 1000000);
+        assertThat(ChunkWriter.chunksize(small, 30000, 1 << 20, 1 << 16), is(30000));
+        assertThat(ChunkWriter.chunksize(medium, 30000, 30000, 1 << 16), is(30000));
+        // a single chunk if it fits into the largest one
+        assertThat(ChunkWriter.chunksize(medium, 30000, 1 << 20, 1 << 16), is(length(medium)));
+        // otherwise the send buffer is filled by whole chunks
+        assertThat(ChunkWriter.chunksize(large, 30000, 1 << 18, 100000), is(200000 - header));
+        assertThat(ChunkWriter.chunksize(large, 30000, 1 << 18, 1 << 18), is((1 << 18) - header));
+        assertThat(ChunkWriter.chunksize(large, 30000, 1 << 18, 1 << 20), is(1 << 18));
+        assertThat(ChunkWriter.chunksize(large, 30000, 1 << 18, 0), is(1 << 18));
+    }
+
+    @Test
+    public void chunkSizeByPayloadBand() {
+        final int chunksize = C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE;
+        final int maxChunksize = 1 << 20;
+        final int sendBufferSize = 1 << 16;
+        // largest multiple of the send buffer that holds a chunk with its header
+        final int aligned = (1 << 20) - C8Defaults.CHUNK_MIN_HEADER_SIZE;
+
+        // up to the chunk size: a single chunk of the chunk size
+        final Message small = message(7L, 1 << 10);
+        assertChunks(small, ChunkWriter.chunksize(small, chunksize, maxChunksize, sendBufferSize), chunksize, 1);
+        // up to the largest chunk: a single chunk of the message
+        final Message medium = message(8L, 1 << 16);
+        assertChunks(medium, ChunkWriter.chunksize(medium, chunksize, maxChunksize, sendBufferSize),
+                length(medium), 1);
+        // above: chunks that fill the send buffer
+        final Message large = message(9L, 1 << 20);
+        assertChunks(large, ChunkWriter.chunksize(large, chunksize, maxChunksize, sendBufferSize), aligned, 2);
+        final Message huge = message(10L, 1 << 24);
+        assertChunks(huge, ChunkWriter.chunksize(huge, chunksize, maxChunksize, sendBufferSize), aligned, 17);
+
+        // without a larger chunk size every band keeps the chunk size
+        for (final Message message : new Message[] { small, medium, large, huge }) {
+            assertThat(ChunkWriter.chunksize(message, chunksize, chunksize, sendBufferSize), is(chunksize));
+        }
+    }
+
+    private static void assertChunks(final Message message, final int chunksize, final int expectedChunksize,
+            final int expectedChunks) {
+        assertThat(chunksize, is(expectedChunksize));
+        final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        final ChunkWriter writer = new ChunkWriter(message, chunksize);
+        int chunks = 0;
+        while (!writer.isDone()) {
+            if (writer.write(buffer)) {
+                chunks++;
+            } else {
+                buffer.clear();
+            }
+        }
+        assertThat(chunks, is(expectedChunks));
+    }
+
+    private static Message message(final long id, final int size) {
+        final char[] value = new char[size];
+        Arrays.fill(value, 'x');
+        final VPackSlice head = new VPackBuilder().add(ValueType.ARRAY).add(id).close().slice();
+        final VPackSlice body = new VPackBuilder().add(new String(value)).slice();
+        return new Message(id, head, body);
+    }
+
+    private static int length(final Message message) {
+        return message.getHead().getByteSize() + message.getBody().getByteSize();
+    }
+
+    private static Message getUnchecked(final FutureTask<Message> task) {
+        try {
+            return task.get();
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void assertEcho(final Message expected, final Message actual) {
+        assertThat(actual.getId(), is(expected.getId()));
+        assertArrayEquals(bytes(expected.getHead()), bytes(actual.getHead()));
+        assertArrayEquals(bytes(expected.getBody()), bytes(actual.getBody()));
+    }
+
+    private static byte[] bytes(final VPackSlice slice) {
+        return Arrays.copyOfRange(slice.getBuffer(), slice.getStart(), slice.getStart() + slice.getByteSize());
+    }
+
+}
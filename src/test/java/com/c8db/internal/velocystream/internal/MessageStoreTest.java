@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.velocystream.internal;
+
+import com.arangodb.velocypack.VPackBuilder;
+import com.arangodb.velocypack.ValueType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class MessageStoreTest {
+
+    @Test
+    public void dropResponseOfRemovedMessage() {
+        final MessageStore messageStore = new MessageStore();
+        final FutureTask<Message> task = task(messageStore, 1L);
+        messageStore.storeMessage(1L, task);
+        messageStore.remove(1L);
+        assertThat(task.isCancelled(), is(true));
+        messageStore.consume(message(1L));
+        assertThat(messageStore.isEmpty(), is(true));
+        assertThat(messageStore.get(1L), is(nullValue()));
+    }
+
+    @Test
+    public void completeOnlyOnce() throws Exception {
+        final MessageStore messageStore = new MessageStore();
+        final FutureTask<Message> task = task(messageStore, 2L);
+        messageStore.storeMessage(2L, task);
+        messageStore.fail(2L, new ClosedChannelException());
+        messageStore.consume(message(2L));
+        messageStore.clear(new IOException("closed"));
+        try {
+            task.get();
+            fail();
+        } catch (final ExecutionException e) {
+            assertThat(e.getCause().getCause(), instanceOf(ClosedChannelException.class));
+        }
+        // nothing is left behind for a later message with the same id
+        assertThat(messageStore.get(2L), is(nullValue()));
+    }
+
+    private static FutureTask<Message> task(final MessageStore messageStore, final long id) {
+        return new FutureTask<Message>(new Callable<Message>() {
+            @Override
+            public Message call() {
+                return messageStore.get(id);
+            }
+        });
+    }
+
+    private static Message message(final long id) {
+        return new Message(id, new VPackBuilder().add(ValueType.ARRAY).add(id).close().slice(), null);
+    }
+
+}
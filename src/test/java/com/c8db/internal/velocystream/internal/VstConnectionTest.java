@@ -0,0 +1,491 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.internal.velocystream.internal;
+
+import com.arangodb.velocypack.VPackBuilder;
+import com.arangodb.velocypack.VPackSlice;
+import com.arangodb.velocypack.ValueType;
+import com.c8db.C8DBException;
+import com.c8db.Service;
+import com.c8db.internal.C8Defaults;
+import com.c8db.internal.net.HostDescription;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class VstConnectionTest {
+
+    private ServerSocket server;
+    private Thread acceptor;
+    private volatile boolean hangUp;
+    // replies wait for it while set
+    private volatile CountDownLatch hold;
+    // counted down for each message the server received in full while set
+    private volatile CountDownLatch received;
+    private final List<VstConnection> connections = new ArrayList<>();
+
+    @Before
+    public void setup() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        acceptor = accept(server);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (hold != null) {
+            hold.countDown();
+        }
+        for (final VstConnection connection : connections) {
+            connection.close();
+        }
+        server.close();
+        acceptor.join();
+    }
+
+    private Thread accept(final ServerSocket server) {
+        final Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!server.isClosed()) {
+                    try {
+                        final Socket socket = server.accept();
+                        final Thread echo = new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                echo(socket);
+                            }
+                        });
+                        echo.setDaemon(true);
+                        echo.start();
+                    } catch (final IOException e) {
+                        return;
+                    }
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return acceptor;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        final VstConnectionSync connection = connect();
+        final Message message = message(1L, "body");
+        assertEcho(message, connection.write(message, C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE));
+    }
+
+    @Test
+    public void reassembleChunksSplitAcrossReads() throws IOException {
+        final VstConnectionSync connection = connect();
+        final char[] body = new char[3 * VstEventLoop.READ_BUFFER_SIZE];
+        Arrays.fill(body, 'x');
+        final Message message = message(2L, new String(body));
+        assertEcho(message, connection.write(message, 1000));
+        final Message next = message(3L, "next");
+        assertEcho(next, connection.write(next, 5));
+    }
+
+    @Test
+    public void sendLargeChunksWhenIdle() throws IOException {
+        final VstConnectionSync connection = connect();
+        final char[] body = new char[3 * VstEventLoop.READ_BUFFER_SIZE];
+        Arrays.fill(body, 'x');
+        final Message message = message(5L, new String(body));
+        assertEcho(message, connection.write(message, 1000, 4 * VstEventLoop.READ_BUFFER_SIZE));
+        final Message next = message(6L, new String(body));
+        assertEcho(next, connection.write(next, 1000, VstEventLoop.READ_BUFFER_SIZE));
+    }
+
+    @Test
+    public void multiplexRequestsOverOneConnection() throws Exception {
+        final VstConnectionSync connection = connect();
+        final AtomicLong ids = new AtomicLong(100L);
+        final ExecutorService threads = Executors.newFixedThreadPool(16);
+        try {
+            final List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                final int size = i % 2 == 0 ? 10 : 4 * VstEventLoop.READ_BUFFER_SIZE;
+                results.add(threads.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        final char[] body = new char[size];
+                        Arrays.fill(body, 'x');
+                        for (int j = 0; j < 20; j++) {
+                            final Message message = message(ids.incrementAndGet(), new String(body));
+                            // the chunks of large messages interleave with those of the others
+                            assertEcho(message, connection.write(message, 1000));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    public void connectionsShareIoThreads() throws IOException {
+        for (int i = 0; i < 32; i++) {
+            final Message message = message(i, "body" + i);
+            assertEcho(message, connect().write(message, C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE));
+        }
+        int ioThreads = 0;
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("c8db-vst-io-")) {
+                ioThreads++;
+            }
+        }
+        assertThat(ioThreads, lessThanOrEqualTo(VstEventLoop.THREADS));
+    }
+
+    @Test
+    public void failPendingRequestsWhenServerHangsUp() throws IOException {
+        final VstConnectionSync connection = connect();
+        hangUp = true;
+        final Message message = message(4L, "body");
+        try {
+            connection.write(message, C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE);
+            fail();
+        } catch (final C8DBException e) {
+            assertThat(connection.isOpen(), is(false));
+        }
+    }
+
+    @Test
+    public void keepAliveDetectsUnresponsiveServer() throws Exception {
+        final VstConnectionSync connection = connect(null, 60000L, 500);
+        // ahead of the clock of the loop, which ignores its own ticks until it catches up
+        final long now = System.nanoTime() + TimeUnit.SECONDS.toNanos(61L);
+        connection.tick(now);
+        awaitLifecycle();
+        // the server answers in order, so the response to the keepalive is in before this one
+        final Message message = message(12L, "body");
+        assertEcho(message, connection.write(message, C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE));
+        connection.tick(now + TimeUnit.SECONDS.toNanos(1L));
+        awaitLifecycle();
+        assertThat(connection.isOpen(), is(true));
+
+        hold = new CountDownLatch(1);
+        final long later = now + TimeUnit.SECONDS.toNanos(61L);
+        connection.tick(later);
+        awaitLifecycle();
+        connection.tick(later + TimeUnit.MILLISECONDS.toNanos(501L));
+        awaitLifecycle();
+        assertThat(connection.isOpen(), is(false));
+    }
+
+    @Test
+    public void drainAfterTtl() throws Exception {
+        final VstConnectionSync connection = connect(60000L, null, 10000);
+        hold = new CountDownLatch(1);
+        received = new CountDownLatch(1);
+        final Message message = message(7L, "body");
+        final ExecutorService request = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Message> response = request.submit(new Callable<Message>() {
+                @Override
+                public Message call() {
+                    return connection.write(message, C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE);
+                }
+            });
+            assertThat(received.await(5L, TimeUnit.SECONDS), is(true));
+            final long now = System.nanoTime() + TimeUnit.SECONDS.toNanos(61L);
+            connection.tick(now);
+            awaitLifecycle();
+            // past its time to live, it is not handed out anymore but waits for the response
+            assertThat(connection.isValid(), is(false));
+            assertThat(connection.isOpen(), is(true));
+            hold.countDown();
+            assertEcho(message, response.get(5L, TimeUnit.SECONDS));
+            connection.tick(now + TimeUnit.SECONDS.toNanos(1L));
+            awaitLifecycle();
+            assertThat(connection.isOpen(), is(false));
+        } finally {
+            request.shutdown();
+        }
+    }
+
+    @Test
+    public void drainAfterTimedOutRequest() throws Exception {
+        final VstConnectionSync connection = connect(60000L, null, 300);
+        hold = new CountDownLatch(1);
+        try {
+            connection.write(message(11L, "body"), C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE);
+            fail();
+        } catch (final C8DBException e) {
+            assertThat(connection.messageStore.isEmpty(), is(true));
+        }
+        // nothing is waited for anymore, so the connection closes past its time to live
+        connection.tick(System.nanoTime() + TimeUnit.SECONDS.toNanos(61L));
+        awaitLifecycle();
+        assertThat(connection.isOpen(), is(false));
+    }
+
+    @Test(timeout = 10000L)
+    public void closeAndKeepAliveOffTheLoop() throws Exception {
+        final VstConnectionSync expiring = connect(60000L, null, 10000);
+        final VstConnectionSync idle = connect(null, 60000L, 10000);
+        received = new CountDownLatch(2);
+        final CountDownLatch busy = new CountDownLatch(1);
+        final Future<Void> lifecycle = VstConnection.lifecycleExecutor().submit(new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+                busy.await();
+                return null;
+            }
+        });
+        try {
+            final long now = System.nanoTime() + TimeUnit.SECONDS.toNanos(61L);
+            // the loops only hand the close and the keepalive over, they do not wait for the lifecycle thread
+            expiring.tick(now);
+            idle.tick(now);
+            assertThat(expiring.isOpen(), is(true));
+            final Message message = message(13L, "body");
+            assertEcho(message, idle.write(message, C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE));
+        } finally {
+            busy.countDown();
+        }
+        lifecycle.get();
+        awaitLifecycle();
+        assertThat(expiring.isOpen(), is(false));
+        // the request and the keepalive
+        assertThat(received.await(5L, TimeUnit.SECONDS), is(true));
+        assertThat(idle.isOpen(), is(true));
+    }
+
+    @Test
+    public void roundTripOverSsl() throws Exception {
+        final SSLContext context = sslContext();
+        final ServerSocket sslServer = context.getServerSocketFactory().createServerSocket(0, 50,
+                InetAddress.getLoopbackAddress());
+        final Thread sslAcceptor = accept(sslServer);
+        try {
+            final VstConnectionSync connection = new VstConnectionSync.Builder()
+                    .host(new HostDescription("127.0.0.1", sslServer.getLocalPort())).messageStore(new MessageStore())
+                    .timeout(10000).useSsl(true).sslContext(context).service(Service.C8DB).build();
+            connections.add(connection);
+            connection.open();
+            final Message message = message(9L, "body");
+            assertEcho(message, connection.write(message, C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE));
+            // larger than the TLS records and the read buffer of the loop
+            final char[] body = new char[3 * VstEventLoop.READ_BUFFER_SIZE];
+            Arrays.fill(body, 'x');
+            final Message large = message(10L, new String(body));
+            assertEcho(large, connection.write(large, 1000, 4 * VstEventLoop.READ_BUFFER_SIZE));
+        } finally {
+            sslServer.close();
+            sslAcceptor.join();
+        }
+    }
+
+    @Test
+    public void failUnsentMessagesAsUnsent() throws IOException {
+        final VstConnectionSync connection = connect();
+        connection.close();
+        try {
+            connection.write(message(8L, "body"), C8Defaults.CHUNK_DEFAULT_CONTENT_SIZE);
+            fail();
+        } catch (final C8DBException e) {
+            // safe to send again on another connection
+            assertThat(e.getCause(), instanceOf(UnsentMessageException.class));
+        }
+    }
+
+    /**
+     * Trusts a self-signed certificate made by the keytool of the running JDK.
+     */
+    private static SSLContext sslContext() throws Exception {
+        final File keyStoreFile = File.createTempFile("c8db-test", ".p12");
+        keyStoreFile.delete();
+        keyStoreFile.deleteOnExit();
+        final char[] password = "password".toCharArray();
+        final String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+        final Process process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "test", "-keyalg", "RSA",
+                "-keysize", "2048", "-dname", "CN=127.0.0.1", "-validity", "1", "-storetype", "PKCS12", "-keystore",
+                keyStoreFile.getPath(), "-storepass", "password", "-keypass", "password").redirectErrorStream(true)
+                        .start();
+        final InputStream output = process.getInputStream();
+        while (output.read() != -1) {
+            // the output is of no interest
+        }
+        Assume.assumeThat(process.waitFor(), is(0));
+        final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = new FileInputStream(keyStoreFile)) {
+            keyStore.load(in, password);
+        }
+        final KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, password);
+        final TrustManagerFactory trustManagers = TrustManagerFactory
+                .getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+        final SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+        return context;
+    }
+
+    /**
+     * Waits until the connections were closed and the keepalive requests written that the loops asked for so far.
+     */
+    private static void awaitLifecycle() throws Exception {
+        VstConnection.lifecycleExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get(5L, TimeUnit.SECONDS);
+    }
+
+    private VstConnectionSync connect() throws IOException {
+        return connect(null, null, 10000);
+    }
+
+    private VstConnectionSync connect(final Long ttl, final Long keepAlive, final int timeout) throws IOException {
+        final VstConnectionSync connection = new VstConnectionSync.Builder()
+                .host(new HostDescription("127.0.0.1", server.getLocalPort())).messageStore(new MessageStore())
+                .timeout(timeout).ttl(ttl).keepAlive(keepAlive).service(Service.C8DB).build();
+        connection.open();
+        connections.add(connection);
+        return connection;
+    }
+
+    private static Message message(final long id, final String value) {
+        final VPackSlice head = new VPackBuilder().add(ValueType.ARRAY).add(id).close().slice();
+        final VPackSlice body = new VPackBuilder().add(value).slice();
+        return new Message(id, head, body);
+    }
+
+    private static void assertEcho(final Message expected, final Message actual) {
+        assertThat(actual.getId(), is(expected.getId()));
+        assertArrayEquals(bytes(expected.getHead()), bytes(actual.getHead()));
+        assertArrayEquals(bytes(expected.getBody()), bytes(actual.getBody()));
+    }
+
+    private static byte[] bytes(final VPackSlice slice) {
+        return Arrays.copyOfRange(slice.getBuffer(), slice.getStart(), slice.getStart() + slice.getByteSize());
+    }
+
+    /**
+     * Sends every message back in chunks of its own size, written in small pieces.
+     */
+    private void echo(final Socket socket) {
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            final DataInputStream in = new DataInputStream(s.getInputStream());
+            final OutputStream out = s.getOutputStream();
+            in.readFully(new byte[11]);
+            final Map<Long, ByteArrayOutputStream> messages = new HashMap<>();
+            final Map<Long, Long> lengths = new HashMap<>();
+            while (true) {
+                final ByteBuffer header = read(in, C8Defaults.CHUNK_MIN_HEADER_SIZE);
+                if (hangUp) {
+                    return;
+                }
+                final int length = header.getInt();
+                final int chunkX = header.getInt();
+                final long id = header.getLong();
+                int contentLength = length - C8Defaults.CHUNK_MIN_HEADER_SIZE;
+                long messageLength = contentLength;
+                if ((chunkX & 0x1) == 1 && (chunkX >> 1) > 1) {
+                    messageLength = read(in, C8Defaults.LONG_BYTES).getLong();
+                    contentLength -= C8Defaults.LONG_BYTES;
+                }
+                if ((chunkX & 0x1) == 1) {
+                    messages.put(id, new ByteArrayOutputStream());
+                    lengths.put(id, messageLength);
+                }
+                final byte[] content = new byte[contentLength];
+                in.readFully(content);
+                messages.get(id).write(content);
+                if (messages.get(id).size() == lengths.get(id)) {
+                    final CountDownLatch received = this.received;
+                    if (received != null) {
+                        received.countDown();
+                    }
+                    final CountDownLatch hold = this.hold;
+                    if (hold != null) {
+                        hold.await();
+                    }
+                    reply(out, id, messages.remove(id).toByteArray());
+                }
+            }
+        } catch (final IOException | InterruptedException e) {
+            // the connection was closed
+        }
+    }
+
+    private static void reply(final OutputStream out, final long id, final byte[] message) throws IOException {
+        final int chunksize = Math.max(7, message.length / 16);
+        final int numberOfChunks = (message.length + chunksize - 1) / chunksize;
+        final ByteArrayOutputStream response = new ByteArrayOutputStream();
+        for (int i = 0, off = 0; off < message.length; i++, off += chunksize) {
+            final int len = Math.min(chunksize, message.length - off);
+            final Chunk chunk = new Chunk(id, i, numberOfChunks, i == 0 && numberOfChunks > 1 ? message.length : -1L,
+                    off, len);
+            final int headLength = chunk.getMessageLength() > -1L ? C8Defaults.CHUNK_MAX_HEADER_SIZE
+                    : C8Defaults.CHUNK_MIN_HEADER_SIZE;
+            final ByteBuffer header = ByteBuffer.allocate(headLength).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(headLength + len).putInt(chunk.getChunkX()).putLong(id);
+            if (chunk.getMessageLength() > -1L) {
+                header.putLong(chunk.getMessageLength());
+            }
+            response.write(header.array());
+            response.write(message, off, len);
+        }
+        final byte[] bytes = response.toByteArray();
+        for (int off = 0; off < bytes.length; off += 5000) {
+            out.write(bytes, off, Math.min(5000, bytes.length - off));
+            out.flush();
+        }
+    }
+
+    private static ByteBuffer read(final DataInputStream in, final int length) throws IOException {
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.serde;
+
+import com.arangodb.velocypack.VPackSlice;
+import com.c8db.VelocyJack;
+import com.c8db.entity.BaseDocument;
+import com.c8db.internal.util.C8SerializationFactory;
+import com.c8db.util.C8Serializer;
+import com.c8db.velocystream.RawJsonResponseBody;
+import com.c8db.velocystream.Response;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class DirectJsonTest {
+
+    private final VelocyJack velocyJack = new VelocyJack();
+
+    @Test
+    public void documentRoundTrip() {
+        final BaseDocument document = new BaseDocument("key1");
+        document.addAttribute("a", 1L);
+        document.addAttribute("b", "text");
+        document.addAttribute("c", 7);
+        document.addAttribute("d", 5000000000L);
+        document.addAttribute("e", 1.5);
+        final byte[] json = velocyJack.serializeJson(document, new C8Serializer.Options());
+        final BaseDocument result = velocyJack.deserializeJson(json, BaseDocument.class);
+        assertThat(result.getKey(), is("key1"));
+        assertThat(result.getAttribute("a"), is((Object) 1L));
+        assertThat(result.getAttribute("b"), is((Object) "text"));
+        // the same types as read from VelocyPack
+        assertThat(result.getAttribute("c"), is((Object) 7L));
+        assertThat(result.getAttribute("d"), is((Object) 5000000000L));
+        assertThat(result.getAttribute("e"), is((Object) 1.5));
+        final BaseDocument vpack = velocyJack.deserialize(velocyJack.serialize(document, new C8Serializer.Options()),
+                BaseDocument.class);
+        assertThat(vpack.getProperties(), is(result.getProperties()));
+    }
+
+    @Test
+    public void serializeStringAsJson() {
+        final byte[] json = velocyJack.serializeJson("{\"a\":1}", new C8Serializer.Options());
+        assertThat(new String(json, StandardCharsets.UTF_8), is("{\"a\":1}"));
+        final byte[] array = velocyJack.serializeJson(Arrays.asList("{\"a\":1}", "{\"b\":2}"),
+                new C8Serializer.Options().stringAsJson(true));
+        assertThat(new String(array, StandardCharsets.UTF_8), is("[{\"a\":1},{\"b\":2}]"));
+    }
+
+    @Test
+    public void deserializeString() {
+        final String text = velocyJack.deserializeJson("\"value\"".getBytes(StandardCharsets.UTF_8), String.class);
+        assertThat(text, is("value"));
+        final String json = velocyJack.deserializeJson("{\"a\":1}".getBytes(StandardCharsets.UTF_8), String.class);
+        assertThat(json, is("{\"a\":1}"));
+    }
+
+    @Test
+    public void jsonOnlyIfEnabled() {
+        assertThat(new C8SerializationFactory(velocyJack, velocyJack).json(), nullValue());
+        assertThat(new C8SerializationFactory(velocyJack, velocyJack, true).json(), sameInstance(velocyJack));
+    }
+
+    @Test
+    public void lazyVPackBody() {
+        final Response response = new Response();
+        response.setBody(new RawJsonResponseBody("{\"_key\":\"k\",\"n\":null}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(response.getRawJson(), notNullValue());
+        final VPackSlice body = response.getBody();
+        assertThat(body.get("_key").getAsString(), is("k"));
+        assertThat(body.get("n").isNull(), is(true));
+        assertThat(response.getBody(), sameInstance(body));
+    }
+
+}
@@ -17,8 +17,12 @@
 package com.c8db.util;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -101,4 +105,26 @@ public class C8SerializationTest {
         final String json = util.deserialize(util.serialize(entity, new C8Serializer.Options()), String.class);
         assertThat(json, is("{\"value\":[\"test\",null]}"));
     }
+
+    @Test
+    public void serializeJsonStream() throws IOException {
+        final String json = "{\"a\":\"b\\u00e4\",\"n\":null,\"i\":-12,\"l\":12345678901,\"d\":1.5,"
+                + "\"t\":true,\"arr\":[1,{\"x\":[]},null,\"s\"],\"o\":{}}";
+        final C8Serializer.Options options = new C8Serializer.Options().stringAsJson(true).serializeNullValues(true);
+        final VPackSlice streamed = util.serialize(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), options);
+        final VPackSlice parsed = util.serialize(json, new C8Serializer.Options().serializeNullValues(true));
+        assertThat(streamed.toString(), is(parsed.toString()));
+        assertThat(streamed.get("a").getAsString(), is("b\u00e4"));
+        assertThat(streamed.get("n").isNull(), is(true));
+        assertThat(streamed.get("l").getAsLong(), is(12345678901L));
+        assertThat(streamed.get("arr").get(1).get("x").isArray(), is(true));
+    }
+
+    @Test
+    public void serializeEmptyJsonStream() throws IOException {
+        final VPackSlice vpack = util.serialize(new ByteArrayInputStream(new byte[0]),
+                new C8Serializer.Options().stringAsJson(true));
+        assertThat(vpack, is(nullValue()));
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2024 Macrometa Corp All rights reserved.
+ */
+
+package com.c8db.util;
+
+import com.c8db.C8DBException;
+import com.c8db.RetryPolicy;
+import com.c8db.internal.net.C8DBPoolExhaustedException;
+import com.c8db.velocystream.Request;
+import com.c8db.velocystream.RequestType;
+import org.apache.http.NoHttpResponseException;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class JitteredRetryPolicyTest {
+
+    private static final RetryBudget UNLIMITED = new RetryBudget(10000L, 1.0, Integer.MAX_VALUE);
+
+    @Test
+    public void jitteredDelays() {
+        final RetryPolicy policy = new JitteredRetryPolicy(100L, 2000L, 60000L, UNLIMITED);
+        final RetryPolicy.Attempts attempts = policy.start(request(RequestType.GET, true));
+        long previous = 100L;
+        for (int i = 0; i < 20; i++) {
+            final long delay = attempts.nextDelay(503, new C8DBException("unavailable", 503));
+            assertThat(delay, greaterThanOrEqualTo(100L));
+            assertThat(delay, lessThanOrEqualTo(Math.min(2000L, previous * 3)));
+            previous = delay;
+        }
+    }
+
+    @Test
+    public void stopAtRetryTimeout() {
+        final RetryPolicy policy = new JitteredRetryPolicy(1000L, 1000L, 2500L, UNLIMITED);
+        final RetryPolicy.Attempts attempts = policy.start(request(RequestType.GET, true));
+        // the third attempt would start after the timeout
+        assertThat(attempts.nextDelay(503, null), is(1000L));
+        assertThat(attempts.nextDelay(503, null), is(1000L));
+        assertThat(attempts.nextDelay(503, null), lessThan(0L));
+    }
+
+    @Test
+    public void classifyFailures() {
+        final RetryPolicy policy = new JitteredRetryPolicy(1L, 1L, 60000L, UNLIMITED);
+        final RetryPolicy.Attempts get = policy.start(request(RequestType.GET, true));
+        final RetryPolicy.Attempts post = policy.start(request(RequestType.POST, true));
+        final NoHttpResponseException noResponse = new NoHttpResponseException("no response");
+        final ConnectException refused = new ConnectException("refused");
+
+        assertThat(post.nextDelay(null, refused) >= 0, is(true));
+        assertThat(post.nextDelay(503, null) >= 0, is(true));
+        assertThat(post.nextDelay(429, null) >= 0, is(true));
+        assertThat(post.nextDelay(502, null) >= 0, is(false));
+        assertThat(post.nextDelay(null, noResponse) >= 0, is(false));
+        assertThat(get.nextDelay(502, null) >= 0, is(true));
+        assertThat(get.nextDelay(null, noResponse) >= 0, is(true));
+        assertThat(get.nextDelay(404, null) >= 0, is(false));
+        assertThat(get.nextDelay(null, new SocketTimeoutException()) >= 0, is(false));
+
+        assertThat(get.failover(null, refused), is(true));
+        assertThat(get.failover(503, null), is(true));
+        assertThat(get.failover(500, null), is(false));
+        assertThat(get.failover(429, null), is(false));
+
+        final RetryPolicy.Attempts disabled = policy.start(request(RequestType.GET, false));
+        assertThat(disabled.nextDelay(null, refused) >= 0, is(false));
+
+        // reading the next batch of a cursor again would skip one
+        final RetryPolicy.Attempts cursor = policy.start(new Request("demo", "demo", "_system", RequestType.PUT, true,
+                "/_api/cursor/12345"));
+        assertThat(cursor.nextDelay(502, null) >= 0, is(false));
+        assertThat(cursor.nextDelay(null, noResponse) >= 0, is(false));
+        assertThat(cursor.nextDelay(503, null) >= 0, is(true));
+
+        // the pool of the client rejected the request, the server did not
+        assertThat(get.nextDelay(503, new C8DBPoolExhaustedException("busy")) >= 0, is(false));
+    }
+
+    @Test
+    public void retryBudget() {
+        final RetryBudget budget = new RetryBudget(60000L, 0.1, 2);
+        final RetryPolicy policy = new JitteredRetryPolicy(1L, 1L, 60000L, budget);
+        final RetryPolicy.Attempts attempts = policy.start(request(RequestType.GET, true));
+        for (int i = 0; i < 9; i++) {
+            policy.start(request(RequestType.GET, true));
+        }
+        // 2 retries plus 10% of 10 requests
+        for (int i = 0; i < 3; i++) {
+            assertThat(attempts.nextDelay(503, null), is(1L));
+        }
+        assertThat(attempts.nextDelay(503, null), lessThan(0L));
+        for (int i = 0; i < 10; i++) {
+            policy.start(request(RequestType.GET, true));
+        }
+        assertThat(attempts.nextDelay(503, null), is(1L));
+        assertThat(budget.tryAcquire(), is(false));
+    }
+
+    private static Request request(final RequestType type, final boolean retryEnabled) {
+        return new Request("demo", "demo", "_system", type, retryEnabled, "/_api/document/coll/key");
+    }
+
+}